@@ -1,11 +1,10 @@
 package com.poc.geofence.components;
 
 import com.poc.geofence.driver.DriverManager;
+import com.poc.geofence.utils.WaitPolicy;
 import io.appium.java_client.AppiumDriver;
 import org.openqa.selenium.Alert;
 import org.openqa.selenium.NoAlertPresentException;
-import org.openqa.selenium.support.ui.ExpectedConditions;
-import org.openqa.selenium.support.ui.WebDriverWait;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -33,9 +32,8 @@ public class AlertHandler {
 
     public boolean waitForAlert(int timeoutSeconds) {
         try {
-            new WebDriverWait(getDriver(), Duration.ofSeconds(timeoutSeconds))
-                    .until(ExpectedConditions.alertIsPresent());
-            return true;
+            return WaitPolicy.named("alert").await("alertPresent", Duration.ofSeconds(timeoutSeconds),
+                    () -> isAlertPresent() ? Boolean.TRUE : null).isPresent();
         } catch (Exception e) {
             return false;
         }
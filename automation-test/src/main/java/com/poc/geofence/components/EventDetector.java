@@ -0,0 +1,315 @@
+package com.poc.geofence.components;
+
+import com.poc.geofence.config.ConfigManager;
+import com.poc.geofence.metrics.SleepBudget;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Waits for text to appear in any of several sources (device log, app status text, toast,
+ * notifications API, notification shade), probing cheap sources that tend to find events more often than
+ * expensive or unproductive ones.
+ *
+ * <p>Each device has a model of every source's mean probe time and hit rate, kept across
+ * waits. A source's priority is its smoothed hit rate divided by its cost; the best source is
+ * probed every round and others every n-th round in proportion to how far behind they are
+ * (at most every {@value #MAX_ROUND_SKIP}th). The notification shade, which needs swipe
+ * gestures and covers the app, is opened only after the other sources have missed for a
+ * while, and then at a fixed interval. Rounds start at a short interval, since events usually
+ * follow shortly after a trigger, and back off towards the maximum.
+ *
+ * <p>A probe that throws marks its source unavailable for the rest of the wait. Each wait is
+ * recorded in the test's {@link SleepBudget} under "event detection", bounded by its timeout.
+ */
+public class EventDetector {
+    private static final Logger log = LoggerFactory.getLogger(EventDetector.class);
+    private static final int MAX_ROUND_SKIP = 4;
+    private static final double BACKOFF = 1.5;
+    private static final String BUDGET_SITE = "event detection";
+    // Source models by device, learned across waits
+    private static final Map<String, Map<Source, SourceModel>> MODELS = new ConcurrentHashMap<>();
+
+    private final Map<Source, SourceModel> models;
+    private final Map<Source, Supplier<String>> probes;
+    private final Duration initialPollInterval;
+    private final Duration maxPollInterval;
+    private final Duration shadeAfter;
+    private final Duration shadeInterval;
+
+    private EventDetector(Builder builder) {
+        this.models = MODELS.computeIfAbsent(builder.deviceId, id -> {
+            Map<Source, SourceModel> perSource = new EnumMap<>(Source.class);
+            for (Source source : Source.values()) {
+                perSource.put(source, new SourceModel());
+            }
+            return perSource;
+        });
+        this.probes = new EnumMap<>(builder.probes);
+        this.initialPollInterval = builder.initialPollInterval;
+        this.maxPollInterval = builder.maxPollInterval;
+        this.shadeAfter = builder.shadeAfter;
+        this.shadeInterval = builder.shadeInterval;
+    }
+
+    /**
+     * @param deviceId device whose source model to use and update
+     * @return a builder with intervals from detector.* settings
+     */
+    public static Builder builder(String deviceId) {
+        return new Builder(deviceId);
+    }
+
+    /**
+     * Waits until a probed source returns text containing {@code containsText}.
+     * @param containsText text to look for, e.g. "GEOFENCE_TRANSITION_EXIT"
+     * @param timeout how long to wait
+     * @return where and when the text was found, or empty on timeout
+     */
+    public Optional<Detection> await(String containsText, Duration timeout) {
+        long start = System.nanoTime();
+        Optional<Detection> detection = detect(containsText, timeout, start);
+        SleepBudget.getInstance().recordWait(BUDGET_SITE, detection.isPresent(), System.nanoTime() - start,
+                timeout.toNanos());
+        return detection;
+    }
+
+    private Optional<Detection> detect(String containsText, Duration timeout, long start) {
+        long deadline = start + timeout.toNanos();
+        long interval = initialPollInterval.toNanos();
+        long nextShade = start + shadeAfter.toNanos();
+        Set<Source> unavailable = EnumSet.noneOf(Source.class);
+        int probeCount = 0;
+
+        try {
+            for (int round = 0; ; round++) {
+                for (Source source : roundPlan(round, unavailable)) {
+                    probeCount++;
+                    String text = probe(source, unavailable);
+                    if (text != null && text.contains(containsText)) {
+                        return Optional.of(found(source, text, start, probeCount));
+                    }
+                }
+                long now = System.nanoTime();
+                if (probes.containsKey(Source.SHADE) && !unavailable.contains(Source.SHADE) && now >= nextShade) {
+                    probeCount++;
+                    String text = probe(Source.SHADE, unavailable);
+                    if (text != null && text.contains(containsText)) {
+                        return Optional.of(found(Source.SHADE, text, start, probeCount));
+                    }
+                    nextShade = System.nanoTime() + shadeInterval.toNanos();
+                }
+                long remaining = deadline - System.nanoTime();
+                if (remaining <= 0) {
+                    log.warn("'{}' not found within {}s after {} probes", containsText, timeout.toSeconds(), probeCount);
+                    return Optional.empty();
+                }
+                TimeUnit.NANOSECONDS.sleep(Math.min(interval, remaining));
+                interval = Math.min((long) (interval * BACKOFF), maxPollInterval.toNanos());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return Optional.empty();
+        }
+    }
+
+    /**
+     * Returns the sources to probe in a round, best first. Round 0 probes every source so
+     * unknown costs get measured.
+     */
+    List<Source> roundPlan(int round, Set<Source> unavailable) {
+        List<Source> cheap = new ArrayList<>();
+        for (Source source : probes.keySet()) {
+            if (source != Source.SHADE && !unavailable.contains(source)) {
+                cheap.add(source);
+            }
+        }
+        if (cheap.isEmpty()) {
+            return cheap;
+        }
+        cheap.sort(Comparator.comparingDouble((Source s) -> models.get(s).priority()).reversed());
+        double best = models.get(cheap.get(0)).priority();
+        List<Source> plan = new ArrayList<>();
+        for (Source source : cheap) {
+            long every = Math.min(MAX_ROUND_SKIP, Math.max(1, Math.round(best / models.get(source).priority())));
+            if (round % every == 0) {
+                plan.add(source);
+            }
+        }
+        return plan;
+    }
+
+    private String probe(Source source, Set<Source> unavailable) {
+        long start = System.nanoTime();
+        try {
+            String text = probes.get(source).get();
+            models.get(source).probed(System.nanoTime() - start);
+            return text;
+        } catch (RuntimeException e) {
+            log.debug("{} probe failed, not probing it again in this wait: {}", source, e.getMessage());
+            unavailable.add(source);
+            return null;
+        }
+    }
+
+    private Detection found(Source source, String text, long start, int probeCount) {
+        models.get(source).hit();
+        Detection detection = new Detection(source, text, Duration.ofNanos(System.nanoTime() - start), probeCount);
+        log.info("Found in {} after {}ms and {} probes: {}", source, detection.elapsed().toMillis(), probeCount, text);
+        return detection;
+    }
+
+    /**
+     * @return the current model of one source, for reporting and tests
+     */
+    SourceModel model(Source source) {
+        return models.get(source);
+    }
+
+    /**
+     * Places an event can show up.
+     */
+    public enum Source {
+        /** Geofence transitions queued from the device log, no device round trip */
+        DEVICE_LOG("device-log"),
+        /** The app's own test status TextView */
+        STATUS("status"),
+        /** Toast overlay */
+        TOAST("toast"),
+        /** mobile: getNotifications, without touching the UI */
+        NOTIFICATIONS("notification"),
+        /** Opening the notification shade and reading it */
+        SHADE("notification");
+
+        private final String timelineName;
+
+        Source(String timelineName) {
+            this.timelineName = timelineName;
+        }
+
+        /**
+         * @return the detection source name used in the geofence timeline
+         */
+        public String timelineName() {
+            return timelineName;
+        }
+    }
+
+    /**
+     * Where and when awaited text was found.
+     */
+    public record Detection(Source source, String text, Duration elapsed, int probes) {
+    }
+
+    /**
+     * Mean probe time (exponentially weighted) and hit counts of one source on one device.
+     */
+    static final class SourceModel {
+        private static final double WEIGHT = 0.3;
+        private double meanCostMillis;
+        private long probes;
+        private long hits;
+
+        synchronized void probed(long nanos) {
+            double millis = nanos / 1_000_000.0;
+            meanCostMillis = probes == 0 ? millis : meanCostMillis + WEIGHT * (millis - meanCostMillis);
+            probes++;
+        }
+
+        synchronized void hit() {
+            hits++;
+        }
+
+        /**
+         * Smoothed hit rate per millisecond of probing; unprobed sources rank first.
+         */
+        synchronized double priority() {
+            double hitRate = (hits + 1.0) / (probes + 2.0);
+            return hitRate / Math.max(1.0, meanCostMillis);
+        }
+
+        synchronized double meanCostMillis() {
+            return meanCostMillis;
+        }
+
+        synchronized long probes() {
+            return probes;
+        }
+
+        synchronized long hits() {
+            return hits;
+        }
+    }
+
+    /**
+     * Builder for EventDetector.
+     */
+    public static final class Builder {
+        private final String deviceId;
+        private final Map<Source, Supplier<String>> probes = new EnumMap<>(Source.class);
+        private Duration initialPollInterval;
+        private Duration maxPollInterval;
+        private Duration shadeAfter;
+        private Duration shadeInterval;
+
+        private Builder(String deviceId) {
+            this.deviceId = deviceId;
+            ConfigManager config = ConfigManager.getInstance();
+            this.initialPollInterval = Duration.ofMillis(config.getDetectorInitialPollMillis());
+            this.maxPollInterval = Duration.ofMillis(config.getDetectorMaxPollMillis());
+            this.shadeAfter = Duration.ofMillis(config.getDetectorShadeAfterMillis());
+            this.shadeInterval = Duration.ofMillis(config.getDetectorShadeIntervalMillis());
+        }
+
+        /**
+         * Adds a source. The probe returns the source's current text (empty or null if none)
+         * and throws if the source cannot be read on this device.
+         */
+        public Builder withProbe(Source source, Supplier<String> probe) {
+            probes.put(source, probe);
+            return this;
+        }
+
+        /**
+         * Sets the first delay between rounds and the delay it backs off to.
+         * Default: detector.poll.initial.ms, detector.poll.max.ms
+         */
+        public Builder withPollIntervals(Duration initial, Duration max) {
+            if (initial.isNegative() || initial.isZero() || max.compareTo(initial) < 0) {
+                throw new IllegalArgumentException("Invalid poll intervals: " + initial + ", " + max);
+            }
+            this.initialPollInterval = initial;
+            this.maxPollInterval = max;
+            return this;
+        }
+
+        /**
+         * Sets how long other sources must miss before the shade is opened, and how often
+         * it is opened after that. Default: detector.shade.after.ms, detector.shade.interval.ms
+         */
+        public Builder withShade(Duration after, Duration interval) {
+            this.shadeAfter = after;
+            this.shadeInterval = interval;
+            return this;
+        }
+
+        public EventDetector build() {
+            if (probes.isEmpty()) {
+                throw new IllegalStateException("Event detector needs at least one source");
+            }
+            return new EventDetector(this);
+        }
+    }
+}
@@ -0,0 +1,45 @@
+package com.poc.geofence.components;
+
+import java.time.Instant;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * One status bar notification as read through {@code mobile: getNotifications}.
+ * @param key the notification's key ("0|package|id|tag|uid"), or a key derived from its content
+ * @param packageName posting app, or null if not reported
+ * @param title notification title, or empty
+ * @param text text, subText and bigText joined by spaces, or empty
+ * @param postedAt device post time; if the device did not report it, when first observed, or
+ *                 {@link Instant#EPOCH} if it was already there at the tracker's first read
+ * @param observedAt when the tracker first saw this version of the notification
+ * @param transition geofence transition named in the notification, if any
+ */
+public record NotificationEvent(String key, String packageName, String title, String text,
+                                Instant postedAt, Instant observedAt, Transition transition) {
+
+    /**
+     * @return title and text joined by a space, the form waiters match against
+     */
+    public String content() {
+        return title.isEmpty() ? text : text.isEmpty() ? title : title + " " + text;
+    }
+
+    /**
+     * Geofence transition types, as named in the app's notifications.
+     */
+    public enum Transition {
+        ENTER, EXIT, DWELL, NONE;
+
+        private static final Pattern NAME = Pattern.compile("GEOFENCE_TRANSITION_(ENTER|EXIT|DWELL)");
+
+        /**
+         * @param text notification content
+         * @return the first transition named in the text, or NONE
+         */
+        public static Transition of(String text) {
+            Matcher matcher = NAME.matcher(text);
+            return matcher.find() ? valueOf(matcher.group(1)) : NONE;
+        }
+    }
+}
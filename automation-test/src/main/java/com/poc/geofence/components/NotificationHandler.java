@@ -1,15 +1,29 @@
 package com.poc.geofence.components;
 
+import com.poc.geofence.config.ConfigManager;
+import com.poc.geofence.config.PlatformType;
+import com.poc.geofence.driver.DeviceLogListener;
 import com.poc.geofence.driver.DriverManager;
+import com.poc.geofence.pages.GestureComposer;
+import com.poc.geofence.pages.LocatorOptimizer;
+import com.poc.geofence.pages.PageSnapshot;
+import com.poc.geofence.utils.GeofenceTimeline;
+import com.poc.geofence.utils.Waiter;
 import io.appium.java_client.AppiumBy;
 import io.appium.java_client.AppiumDriver;
 import org.openqa.selenium.By;
+import org.openqa.selenium.Point;
 import org.openqa.selenium.WebElement;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
 import java.util.List;
-import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.stream.Collectors;
 
 /**
  * Handles Android notification panel interactions and Toast detection.
@@ -17,15 +31,42 @@ import java.util.Map;
  */
 public class NotificationHandler {
     private static final Logger log = LoggerFactory.getLogger(NotificationHandler.class);
-    private static final By NOTIFICATION_TEXT = AppiumBy.xpath(
+    private static final By NOTIFICATION_SHADE = AppiumBy.id("com.android.systemui:id/notification_stack_scroller");
+    private static final By NOTIFICATION_TEXT = android(
             "//android.widget.TextView[contains(@resource-id, 'android:id/text') or " +
             "contains(@resource-id, 'android:id/title')]");
 
     // Toast detection - Android Toast appears as a TextView within Toast container
-    private static final By TOAST_MESSAGE = AppiumBy.xpath(
+    private static final By TOAST_MESSAGE = android(
             "//android.widget.Toast//android.widget.TextView | " +
             "//android.widget.Toast | " +
             "//*[contains(@class, 'Toast')]//android.widget.TextView");
+    private static final String EVENT_TEXT_XPATH =
+            "//android.widget.TextView[contains(@text, 'GEOFENCE') or contains(@text, 'Test:')]";
+    private static final By EVENT_TEXT = android(EVENT_TEXT_XPATH);
+    // Toast and the getToastText fallback in one query, for polling
+    private static final By TOAST_OR_EVENT_TEXT = android(
+            "//android.widget.Toast//android.widget.TextView | " +
+            "//android.widget.Toast | " +
+            "//*[contains(@class, 'Toast')]//android.widget.TextView | " + EVENT_TEXT_XPATH);
+    // Bounds of the readiness waits that replaced fixed sleeps around the shade
+    private static final Duration SHADE_OPEN_DELAY = Duration.ofSeconds(1);
+    private static final Duration SHADE_CLOSE_DELAY = Duration.ofMillis(500);
+    private static final Duration SHADE_ROWS_DELAY = Duration.ofMillis(500);
+    // Shade swipes: pull down from the top edge, push up from mid-screen
+    private static final Point SHADE_PULL_FROM = new Point(550, 0);
+    private static final Point SHADE_PULL_TO = new Point(550, 375);
+    private static final Point SHADE_PUSH_FROM = new Point(550, 875);
+    private static final Point SHADE_PUSH_TO = new Point(550, 500);
+    private static final Duration SHADE_SWIPE_DURATION = Duration.ofMillis(300);
+
+    private final NotificationTracker tracker = new NotificationTracker(
+            ConfigManager.getInstance().getNotificationHistoryMax(),
+            Duration.ofMillis(ConfigManager.getInstance().getNotificationClockSkewMillis()));
+
+    private static By android(String xpath) {
+        return LocatorOptimizer.optimize(AppiumBy.xpath(xpath), PlatformType.ANDROID);
+    }
 
     private AppiumDriver getDriver() {
         return DriverManager.getDriver();
@@ -33,16 +74,12 @@ public class NotificationHandler {
 
     public void openNotificationPanel() {
         try {
-            // Use swipe gesture from top - works on BrowserStack
-            getDriver().executeScript("mobile: swipeGesture", Map.of(
-                    "left", 500,
-                    "top", 0,
-                    "width", 100,
-                    "height", 500,
-                    "direction", "down",
-                    "percent", 0.75
-            ));
-            sleep(1000);
+            // The shade covers the app; its state is unknown until the next lifecycle command
+            DriverManager.getSessionState().forgetForeground();
+            // Drag down from the top edge - works on BrowserStack
+            new GestureComposer(getDriver()).swipe(SHADE_PULL_FROM, SHADE_PULL_TO, SHADE_SWIPE_DURATION).perform();
+            Waiter.until("notification shade open", SHADE_OPEN_DELAY,
+                    () -> !getDriver().findElements(NOTIFICATION_SHADE).isEmpty());
             log.debug("Opened notification panel via swipe");
         } catch (Exception e) {
             log.warn("openNotifications via swipe failed: {}", e.getMessage());
@@ -52,15 +89,9 @@ public class NotificationHandler {
     public void closeNotificationPanel() {
         try {
             // Swipe up to close notification panel
-            getDriver().executeScript("mobile: swipeGesture", Map.of(
-                    "left", 500,
-                    "top", 500,
-                    "width", 100,
-                    "height", 500,
-                    "direction", "up",
-                    "percent", 0.75
-            ));
-            sleep(500);
+            new GestureComposer(getDriver()).swipe(SHADE_PUSH_FROM, SHADE_PUSH_TO, SHADE_SWIPE_DURATION).perform();
+            Waiter.until("notification shade closed", SHADE_CLOSE_DELAY,
+                    () -> getDriver().findElements(NOTIFICATION_SHADE).isEmpty());
         } catch (Exception e) {
             log.warn("closeNotifications via swipe failed: {}", e.getMessage());
         }
@@ -70,53 +101,75 @@ public class NotificationHandler {
      * Gets notification text using mobile: getNotifications command.
      * Falls back to UI scraping if command fails.
      */
-    @SuppressWarnings("unchecked")
     public String getNotificationText() {
         // First try mobile: getNotifications (supported on BrowserStack)
         try {
-            Object result = getDriver().executeScript("mobile: getNotifications");
-            if (result instanceof List) {
-                List<?> notifications = (List<?>) result;
-                StringBuilder sb = new StringBuilder();
-                for (Object item : notifications) {
-                    if (item instanceof Map) {
-                        Map<String, Object> notification = (Map<String, Object>) item;
-                        // Extract text fields from notification
-                        Object text = notification.get("text");
-                        Object title = notification.get("title");
-                        Object subText = notification.get("subText");
-                        Object bigText = notification.get("bigText");
-                        if (title != null) sb.append(title).append(" ");
-                        if (text != null) sb.append(text).append(" ");
-                        if (subText != null) sb.append(subText).append(" ");
-                        if (bigText != null) sb.append(bigText).append(" ");
-                    }
-                }
-                String text = sb.toString().trim();
-                if (!text.isEmpty()) {
-                    log.info("Notification text: {}", text);
-                    return text;
-                }
+            String text = readNotificationsApi();
+            if (!text.isEmpty()) {
+                log.info("Notification text: {}", text);
+                return text;
             }
         } catch (Exception e) {
             log.debug("getNotifications command result: {}", e.getMessage());
         }
 
         // Fallback: try UI scraping
+        return readNotificationShade(Instant.EPOCH);
+    }
+
+    /**
+     * Reads notifications through mobile: getNotifications without touching the UI.
+     * @return notifications that are new or changed since the previous read
+     * @throws org.openqa.selenium.WebDriverException if the command is not supported
+     */
+    public List<NotificationEvent> readNewNotifications() {
+        List<NotificationEvent> events = tracker.update(getDriver().executeScript("mobile: getNotifications"), Instant.now());
+        for (NotificationEvent event : events) {
+            log.debug("New notification ({}): {}", event.transition(), event.content());
+        }
+        return events;
+    }
+
+    /**
+     * @return the text of every notification read so far, empty if none
+     */
+    String readNotificationsApi() {
+        readNewNotifications();
+        return join(tracker.history());
+    }
+
+    /**
+     * @return the text of notifications posted since {@code since}, empty if none
+     */
+    private String readNotificationsSince(Instant since) {
+        readNewNotifications();
+        return join(tracker.postedSince(since));
+    }
+
+    private static String join(List<NotificationEvent> events) {
+        return events.stream().map(NotificationEvent::content).collect(Collectors.joining(" "));
+    }
+
+    /**
+     * Opens the notification shade, reads its texts and closes it again. Each read is one page
+     * source, instead of a find plus a getText per row.
+     *
+     * <p>Shade rows carry no post time. Rows that only match notifications the tracker knows
+     * were posted before {@code since} are dropped; rows of notifications the tracker never
+     * read (e.g. where mobile: getNotifications is unsupported) are kept whatever their age,
+     * which is why the detector opens the shade last.
+     */
+    private String readNotificationShade(Instant since) {
         try {
             openNotificationPanel();
-            sleep(500);
-            List<WebElement> textElements = getDriver().findElements(NOTIFICATION_TEXT);
-            StringBuilder sb = new StringBuilder();
-            for (WebElement element : textElements) {
-                try {
-                    String text = element.getText();
-                    if (text != null && !text.isEmpty()) {
-                        sb.append(text).append(" ");
-                    }
-                } catch (Exception ignored) {}
-            }
-            String result = sb.toString().trim();
+            AtomicReference<List<String>> texts = new AtomicReference<>(List.of());
+            Waiter.until("notification rows shown", SHADE_ROWS_DELAY, () -> {
+                texts.set(shadeTexts());
+                return !texts.get().isEmpty();
+            });
+            String result = texts.get().stream()
+                    .filter(text -> !tracker.isStaleText(text, since))
+                    .collect(Collectors.joining(" "));
             log.info("Notification text from UI: {}", result.isEmpty() ? "(empty)" : result);
             closeNotificationPanel();
             return result;
@@ -127,6 +180,22 @@ public class NotificationHandler {
         return "";
     }
 
+    private List<String> shadeTexts() {
+        Optional<List<PageSnapshot.SnapshotElement>> rows =
+                PageSnapshot.parse(getDriver().getPageSource(), "android").find(NOTIFICATION_TEXT);
+        if (rows.isPresent()) {
+            return rows.get().stream().map(PageSnapshot.SnapshotElement::text).filter(text -> !text.isEmpty()).toList();
+        }
+        List<String> texts = new ArrayList<>();
+        for (WebElement element : getDriver().findElements(NOTIFICATION_TEXT)) {
+            String text = element.getText();
+            if (text != null && !text.isEmpty()) {
+                texts.add(text);
+            }
+        }
+        return texts;
+    }
+
     /**
      * Gets current Toast text if visible on screen.
      * Toast messages are short-lived (2-3 seconds), so this must be called quickly.
@@ -149,8 +218,7 @@ public class NotificationHandler {
 
         // Fallback: Try to find any visible text containing our target patterns
         try {
-            By anyText = AppiumBy.xpath("//android.widget.TextView[contains(@text, 'GEOFENCE') or contains(@text, 'Test:')]");
-            List<WebElement> textElements = getDriver().findElements(anyText);
+            List<WebElement> textElements = getDriver().findElements(EVENT_TEXT);
             for (WebElement element : textElements) {
                 try {
                     String text = element.getText();
@@ -195,47 +263,64 @@ public class NotificationHandler {
 
     /**
      * Waits for either a Toast, Notification, or visible app status text containing specified text.
-     * Checks all sources on each poll.
+     * Sources are probed by an {@link EventDetector} that favours the cheapest productive ones
+     * on this device and opens the notification shade only after the others have missed.
+     * Once the session's device log has shown geofence transitions, waits block on the log instead.
      */
     public boolean waitForToastOrNotification(String containsText, int timeoutSeconds) {
-        log.info("Waiting for Toast, Status, or Notification containing: '{}'", containsText);
-        long startTime = System.currentTimeMillis();
-        long timeoutMillis = timeoutSeconds * 1000L;
-
-        while (System.currentTimeMillis() - startTime < timeoutMillis) {
-            // Check app status text first (most reliable - visible in UI)
-            String statusText = getAppStatusText();
-            if (statusText.contains(containsText)) {
-                log.info("Found in App Status: {}", statusText);
-                return true;
-            }
-
-            // Check Toast (might disappear quickly)
-            String toastText = getToastText();
-            if (toastText.contains(containsText)) {
-                log.info("Found in Toast: {}", containsText);
-                return true;
+        AppiumDriver driver = getDriver();
+        // Events from before the latest trigger or location change are stale
+        Instant since = GeofenceTimeline.getInstance().lastStimulusAt(driver).orElse(Instant.EPOCH);
+        Optional<DeviceLogListener> deviceLog = DriverManager.getDeviceLog(driver);
+        // Log lines carry device timestamps, like notification post times
+        Instant logSince = since.minusMillis(ConfigManager.getInstance().getNotificationClockSkewMillis());
+        if (deviceLog.isPresent() && deviceLog.get().hasSeenTransitions()) {
+            log.info("Waiting for device log line containing: '{}'", containsText);
+            Optional<DeviceLogListener.LogEvent> event = deviceLog.get()
+                    .await(containsText, logSince, Duration.ofSeconds(timeoutSeconds));
+            if (event.isEmpty()) {
+                log.warn("Device log line not found within {}s", timeoutSeconds);
+                return false;
             }
-
-            // Check notification panel less frequently
-            String notificationText = getNotificationText();
-            if (notificationText.contains(containsText)) {
-                log.info("Found in Notification: {}", containsText);
-                return true;
-            }
-
-            sleep(2000);
+            log.info("Found in device log: {}", event.get().line());
+            return true;
         }
 
-        log.warn("Toast/Status/Notification not found within {}s", timeoutSeconds);
-        return false;
+        log.info("Waiting for Toast, Status, or Notification containing: '{}'", containsText);
+        EventDetector.Builder detector = EventDetector.builder(DriverManager.deviceId(driver))
+                .withProbe(EventDetector.Source.STATUS, this::getAppStatusText)
+                .withProbe(EventDetector.Source.TOAST, this::readToast)
+                .withProbe(EventDetector.Source.NOTIFICATIONS, () -> readNotificationsSince(since))
+                .withProbe(EventDetector.Source.SHADE, () -> readNotificationShade(since));
+        deviceLog.ifPresent(listener -> detector.withProbe(EventDetector.Source.DEVICE_LOG,
+                () -> listener.poll(containsText, logSince).map(DeviceLogListener.LogEvent::line).orElse("")));
+        Optional<EventDetector.Detection> detection = detector.build()
+                .await(containsText, Duration.ofSeconds(timeoutSeconds));
+        if (detection.isEmpty()) {
+            log.warn("Toast/Status/Notification not found within {}s", timeoutSeconds);
+            return false;
+        }
+        // The listener records device log detections itself, at receipt
+        if (detection.get().source() != EventDetector.Source.DEVICE_LOG) {
+            GeofenceTimeline.getInstance().detection(driver, detection.get().source().timelineName(),
+                    detection.get().text());
+        }
+        return true;
     }
 
-    private void sleep(long millis) {
-        try {
-            Thread.sleep(millis);
-        } catch (InterruptedException e) {
-            Thread.currentThread().interrupt();
+    /**
+     * Reads toast and geofence-related texts with a single element query.
+     */
+    private String readToast() {
+        StringBuilder sb = new StringBuilder();
+        for (WebElement element : getDriver().findElements(TOAST_OR_EVENT_TEXT)) {
+            try {
+                String text = element.getText();
+                if (text != null && !text.isEmpty()) {
+                    sb.append(text).append(" ");
+                }
+            } catch (Exception ignored) {}
         }
+        return sb.toString().trim();
     }
 }
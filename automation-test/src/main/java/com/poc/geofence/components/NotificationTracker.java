@@ -0,0 +1,158 @@
+package com.poc.geofence.components;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Remembers the notifications already read from {@code mobile: getNotifications}, so each
+ * read only turns new or updated entries into {@link NotificationEvent}s.
+ *
+ * <p>Entries are keyed by their notification key (or package, id and tag; or, for drivers that
+ * report neither, their content). An entry is updated when its post time or content changes.
+ * History is bounded: the least recently posted entries are dropped first. Accepts both
+ * UiAutomator2's {@code {statusBarNotifications: [{notification: {...}}]}} shape and a plain
+ * list of notifications.
+ *
+ * <p>{@link #postedSince} compares device post times with host times, allowing for clock skew
+ * between the two. A notification without a device post time is only known to be newer than
+ * the last read that did not contain it, so it is dated at the read that first showed it, and
+ * entries already present in the tracker's first read are dated {@link Instant#EPOCH}: whatever
+ * was in the shade before a trigger never counts as posted after it.
+ */
+public class NotificationTracker {
+    private static final String[] TEXT_FIELDS = {"text", "subText", "bigText"};
+
+    private final Duration clockSkew;
+    // Guarded by this; ordered by last post or update, oldest first
+    private final LinkedHashMap<String, NotificationEvent> history;
+    // Guarded by this; null until the first read
+    private Instant lastReadAt;
+
+    /**
+     * @param maxHistory number of notifications to remember
+     * @param clockSkew allowance for device and host clocks disagreeing
+     */
+    public NotificationTracker(int maxHistory, Duration clockSkew) {
+        this.clockSkew = clockSkew;
+        this.history = new LinkedHashMap<>() {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, NotificationEvent> eldest) {
+                return size() > maxHistory;
+            }
+        };
+    }
+
+    /**
+     * Processes a {@code mobile: getNotifications} result.
+     * @param result the command's result
+     * @param readAt when it was read
+     * @return notifications that are new or changed since the last read, in result order
+     */
+    public synchronized List<NotificationEvent> update(Object result, Instant readAt) {
+        List<NotificationEvent> changed = new ArrayList<>();
+        for (Map<?, ?> entry : entries(result)) {
+            Map<?, ?> notification = entry.get("notification") instanceof Map<?, ?> nested ? nested : entry;
+            String title = string(notification.get("title"));
+            String text = text(notification);
+            Long postTime = entry.get("postTime") instanceof Number n ? n.longValue() : null;
+            String key = key(entry, title, text);
+
+            NotificationEvent previous = history.get(key);
+            Instant postedAt = postTime != null ? Instant.ofEpochMilli(postTime) : null;
+            if (previous != null && text.equals(previous.text()) && title.equals(previous.title())
+                    && (postedAt == null || postedAt.equals(previous.postedAt()))) {
+                continue;
+            }
+            NotificationEvent event = new NotificationEvent(key, entry.get("packageName") != null
+                    ? String.valueOf(entry.get("packageName")) : null, title, text,
+                    postedAt != null ? postedAt : lastReadAt != null ? readAt : Instant.EPOCH, readAt,
+                    NotificationEvent.Transition.of(title + " " + text));
+            history.remove(key);
+            history.put(key, event);
+            changed.add(event);
+        }
+        lastReadAt = readAt;
+        return changed;
+    }
+
+    /**
+     * @param since e.g. when the transition was triggered
+     * @return remembered notifications posted at or after {@code since}, less the clock skew allowance
+     */
+    public synchronized List<NotificationEvent> postedSince(Instant since) {
+        Instant cutoff = since.minus(clockSkew);
+        return history.values().stream().filter(event -> !event.postedAt().isBefore(cutoff)).toList();
+    }
+
+    /**
+     * Tells whether a notification shade row belongs to a stale notification only: some
+     * remembered notification posted before {@code since} contains the text and none posted
+     * since does. Shade rows carry no post time, so this is how shade reads skip old rows.
+     * @param shadeText a row's text (a notification's title or text)
+     * @param since e.g. when the transition was triggered
+     */
+    public synchronized boolean isStaleText(String shadeText, Instant since) {
+        Instant cutoff = since.minus(clockSkew);
+        boolean stale = false;
+        for (NotificationEvent event : history.values()) {
+            if (event.content().contains(shadeText)) {
+                if (!event.postedAt().isBefore(cutoff)) {
+                    return false;
+                }
+                stale = true;
+            }
+        }
+        return stale;
+    }
+
+    /**
+     * @return all remembered notifications, least recently posted first
+     */
+    public synchronized List<NotificationEvent> history() {
+        return List.copyOf(history.values());
+    }
+
+    private static List<Map<?, ?>> entries(Object result) {
+        List<Map<?, ?>> entries = new ArrayList<>();
+        Object list = result instanceof Map<?, ?> map ? map.get("statusBarNotifications") : result;
+        if (list instanceof List<?> items) {
+            for (Object item : items) {
+                if (item instanceof Map<?, ?> entry) {
+                    entries.add(entry);
+                }
+            }
+        }
+        return entries;
+    }
+
+    private static String key(Map<?, ?> entry, String title, String text) {
+        if (entry.get("key") != null) {
+            return String.valueOf(entry.get("key"));
+        }
+        if (entry.get("id") != null) {
+            return entry.get("packageName") + "|" + entry.get("id") + "|" + entry.get("tag");
+        }
+        return title + "|" + text;
+    }
+
+    private static String text(Map<?, ?> notification) {
+        StringBuilder sb = new StringBuilder();
+        // bigText usually repeats text
+        for (String field : TEXT_FIELDS) {
+            String value = string(notification.get(field));
+            if (!value.isEmpty() && sb.indexOf(value) < 0) {
+                sb.append(sb.length() > 0 ? " " : "").append(value);
+            }
+        }
+        return sb.toString();
+    }
+
+    private static String string(Object value) {
+        return Objects.toString(value, "");
+    }
+}
@@ -2,6 +2,7 @@ package com.poc.geofence.config;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.file.Path;
 import java.util.Properties;
 
 /**
@@ -140,7 +141,8 @@ public class ConfigManager {
 
     /**
      * Returns the app path/URL for the specified platform.
-     * For BrowserStack, this is the bs:// app ID.
+     * For BrowserStack, this is the bs:// app ID or a local APK/IPA path that is
+     * uploaded once per content hash (see AppArtifactManager).
      * @param platform the target platform
      * @return the app path or BrowserStack app ID
      */
@@ -150,6 +152,447 @@ public class ConfigManager {
                 : getProperty("app.android.path");
     }
 
+    /**
+     * Returns the file mapping app content hashes (SHA-256) to uploaded bs:// ids.
+     * Default: ~/.geofence/app-uploads.json (shared by all builds on the machine)
+     */
+    public String getAppUploadCacheFile() {
+        return getProperty("app.upload.cache.file",
+                Path.of(System.getProperty("user.home"), ".geofence", "app-uploads.json").toString());
+    }
+
+    /**
+     * Returns how many days an uploaded app id is reused before uploading again.
+     * Default: 29 (BrowserStack deletes uploaded apps after 30 days)
+     */
+    public int getAppUploadCacheTtlDays() {
+        return Integer.parseInt(getProperty("app.upload.cache.ttl.days", "29"));
+    }
+
+    // ==================== Driver Pool Configuration ====================
+
+    /**
+     * Returns whether Appium sessions are pooled and reused across tests.
+     * Default: false (create and quit a session per test)
+     */
+    public boolean isDriverPoolEnabled() {
+        return Boolean.parseBoolean(getProperty("driver.pool.enabled", "false"));
+    }
+
+    /**
+     * Returns the maximum time in seconds a pooled session may stay idle.
+     * Default: 60 (below BrowserStack's 90s idle timeout)
+     */
+    public int getDriverPoolMaxIdleSeconds() {
+        return Integer.parseInt(getProperty("driver.pool.max.idle.seconds", "60"));
+    }
+
+    /**
+     * Returns whether the next test's session is pre-provisioned while the current test runs.
+     * Only effective with the driver pool enabled and spare session capacity.
+     * Default: false
+     */
+    public boolean isLookAheadProvisioningEnabled() {
+        return Boolean.parseBoolean(getProperty("driver.provision.lookahead", "false"));
+    }
+
+    /**
+     * Returns the maximum number of concurrent Appium sessions (alive or being created).
+     * Must not exceed the BrowserStack plan's parallel session allowance.
+     * Default: 1 (BrowserStack free plan)
+     */
+    public int getMaxSessions() {
+        return Integer.parseInt(getProperty("driver.max.sessions", "1"));
+    }
+
+    /**
+     * Returns how long a test may queue for a free session slot before failing.
+     * Default: 900 (a full journey on another device can take several minutes)
+     */
+    public int getSlotWaitTimeoutSeconds() {
+        return Integer.parseInt(getProperty("driver.slot.timeout.seconds", "900"));
+    }
+
+    /**
+     * Returns the device matrix for parallel runs as "platform:device:osVersion" entries,
+     * comma-separated (e.g., "android:Google Pixel 7:13,ios:iPhone 14:16").
+     * Default: empty (single configured device per platform)
+     */
+    public String getDeviceMatrix() {
+        return getProperty("device.matrix", "");
+    }
+
+    /**
+     * Returns whether the per-session state shadow skips redundant context, location and app commands.
+     * Default: true
+     */
+    public boolean isSessionStateShadowEnabled() {
+        return Boolean.parseBoolean(getProperty("driver.state.shadow.enabled", "true"));
+    }
+
+    // ==================== Pre-flight Configuration ====================
+
+    /**
+     * Returns whether hub, credentials, plan quota and app availability are checked before the suite.
+     * Default: true
+     */
+    public boolean isPreflightEnabled() {
+        return Boolean.parseBoolean(getProperty("preflight.enabled", "true"));
+    }
+
+    /**
+     * Returns the time budget for all pre-flight checks in seconds (they run concurrently).
+     * Default: 15
+     */
+    public int getPreflightTimeoutSeconds() {
+        return Integer.parseInt(getProperty("preflight.timeout.seconds", "15"));
+    }
+
+    /**
+     * Returns the BrowserStack REST API base URL used for plan and app checks.
+     * Default: https://api-cloud.browserstack.com
+     */
+    public String getBrowserStackApiUrl() {
+        return getProperty("browserstack.api.url", "https://api-cloud.browserstack.com");
+    }
+
+    /**
+     * Returns how many consecutive transient session failures open the session circuit breaker.
+     * Non-transient failures (expired plan, bad credentials, missing app) open it immediately.
+     * Default: 3
+     */
+    public int getSessionFailureThreshold() {
+        return Integer.parseInt(getProperty("driver.session.failure.threshold", "3"));
+    }
+
+    // ==================== Command Metrics Configuration ====================
+
+    /**
+     * Returns whether every Appium command is timed into per-command latency histograms.
+     * Default: false
+     */
+    public boolean isCommandMetricsEnabled() {
+        return Boolean.parseBoolean(getProperty("metrics.enabled", "false"));
+    }
+
+    /**
+     * Returns the directory for the suite-level command latency JSON report.
+     * Default: target/metrics
+     */
+    public String getMetricsReportDir() {
+        return getProperty("metrics.report.dir", "target/metrics");
+    }
+
+    /**
+     * Returns how many suite runs the geofence detection latency history keeps.
+     * Default: 50
+     */
+    public int getTimelineHistoryMaxRuns() {
+        return Integer.parseInt(getProperty("timeline.history.max.runs", "50"));
+    }
+
+    /**
+     * Returns how many suite runs the per-locator find latency profile keeps.
+     * Default: 20
+     */
+    public int getLocatorProfileHistoryMaxRuns() {
+        return Integer.parseInt(getProperty("locator.profile.history.max.runs", "20"));
+    }
+
+    // ==================== HTTP Transport Configuration ====================
+
+    /**
+     * Returns whether all Appium sessions share one tuned HTTP connection pool.
+     * Default: true
+     */
+    public boolean isSharedHttpClientEnabled() {
+        return Boolean.parseBoolean(getProperty("http.client.shared", "true"));
+    }
+
+    /**
+     * Returns the TCP connect timeout to the Appium hub in seconds.
+     * Default: 10
+     */
+    public int getHttpConnectTimeoutSeconds() {
+        return Integer.parseInt(getProperty("http.connect.timeout.seconds", "10"));
+    }
+
+    /**
+     * Returns the read timeout for session creation in seconds.
+     * Default: 600 (device allocation and app install on BrowserStack)
+     */
+    public int getHttpSessionTimeoutSeconds() {
+        return Integer.parseInt(getProperty("http.session.timeout.seconds", "600"));
+    }
+
+    /**
+     * Returns the read timeout for scripts, screenshots and page source in seconds.
+     * Default: 120
+     */
+    public int getHttpScriptTimeoutSeconds() {
+        return Integer.parseInt(getProperty("http.script.timeout.seconds", "120"));
+    }
+
+    /**
+     * Returns the read timeout for all other commands (finds, clicks, text) in seconds.
+     * Default: 60
+     */
+    public int getHttpCommandTimeoutSeconds() {
+        return Integer.parseInt(getProperty("http.command.timeout.seconds", "60"));
+    }
+
+    /**
+     * Returns whether the shared HTTP client negotiates HTTP/2.
+     * Default: false (Appium and the BrowserStack hub speak HTTP/1.1)
+     */
+    public boolean isHttp2Enabled() {
+        return Boolean.parseBoolean(getProperty("http.http2.enabled", "false"));
+    }
+
+    // ==================== Location Playback Configuration ====================
+
+    /**
+     * Returns the default travel speed for route playback in meters per second.
+     * Default: 1.4 (walking)
+     */
+    public double getRouteSpeedMetersPerSecond() {
+        return Double.parseDouble(getProperty("location.route.speed.mps", "1.4"));
+    }
+
+    /**
+     * Returns the default time between location updates during route playback in milliseconds.
+     * Default: 1000 (a typical GPS fix rate)
+     */
+    public int getRouteUpdateIntervalMillis() {
+        return Integer.parseInt(getProperty("location.route.update.interval.ms", "1000"));
+    }
+
+    /**
+     * Returns the longest wait for a set location to reach the device in milliseconds.
+     * Also the wait when the device cannot report its location.
+     * Default: 2000
+     */
+    public int getLocationPropagationTimeoutMillis() {
+        return Integer.parseInt(getProperty("location.propagation.timeout.ms", "2000"));
+    }
+
+    /**
+     * Returns how far the reported location may be from the one set, in meters.
+     * Default: 10
+     */
+    public double getLocationPropagationToleranceMeters() {
+        return Double.parseDouble(getProperty("location.propagation.tolerance.meters", "10"));
+    }
+
+    /**
+     * Returns the first delay between device location polls in milliseconds; doubled after each miss.
+     * Default: 100
+     */
+    public int getLocationPropagationInitialPollMillis() {
+        return Integer.parseInt(getProperty("location.propagation.poll.initial.ms", "100"));
+    }
+
+    /**
+     * Returns the longest delay between device location polls in milliseconds.
+     * Default: 500
+     */
+    public int getLocationPropagationMaxPollMillis() {
+        return Integer.parseInt(getProperty("location.propagation.poll.max.ms", "500"));
+    }
+
+    /**
+     * Returns how long to wait at most for the map camera to stop moving after a confirmed
+     * location, before the map is clicked, in milliseconds.
+     * Default: 1000
+     */
+    public int getMapSettleMillis() {
+        return Integer.parseInt(getProperty("location.map.settle.ms", "1000"));
+    }
+
+    // ==================== Geofence Trigger Configuration ====================
+
+    /**
+     * Returns how long a trigger waits for the app to confirm a deep link in milliseconds.
+     * Default: 5000
+     */
+    public int getTriggerReceiptTimeoutMillis() {
+        return Integer.parseInt(getProperty("trigger.receipt.timeout.ms", "5000"));
+    }
+
+    // ==================== Event Detection Configuration ====================
+
+    /**
+     * Returns the first delay between event detection rounds in milliseconds.
+     * Default: 250
+     */
+    public int getDetectorInitialPollMillis() {
+        return Integer.parseInt(getProperty("detector.poll.initial.ms", "250"));
+    }
+
+    /**
+     * Returns the delay event detection rounds back off to in milliseconds.
+     * Default: 2000
+     */
+    public int getDetectorMaxPollMillis() {
+        return Integer.parseInt(getProperty("detector.poll.max.ms", "2000"));
+    }
+
+    /**
+     * Returns how long cheaper sources must miss before the notification shade is opened in milliseconds.
+     * Default: 10000
+     */
+    public int getDetectorShadeAfterMillis() {
+        return Integer.parseInt(getProperty("detector.shade.after.ms", "10000"));
+    }
+
+    /**
+     * Returns the minimum time between notification shade reads in milliseconds.
+     * Default: 10000
+     */
+    public int getDetectorShadeIntervalMillis() {
+        return Integer.parseInt(getProperty("detector.shade.interval.ms", "10000"));
+    }
+
+    /**
+     * Returns how many notifications NotificationHandler remembers per page.
+     * Default: 200
+     */
+    public int getNotificationHistoryMax() {
+        return Integer.parseInt(getProperty("notification.history.max", "200"));
+    }
+
+    /**
+     * Returns how far device notification post times and log timestamps may lag host trigger times in milliseconds.
+     * Default: 1000
+     */
+    public int getNotificationClockSkewMillis() {
+        return Integer.parseInt(getProperty("notification.clock.skew.ms", "1000"));
+    }
+
+    // ==================== Device Log Configuration ====================
+
+    /**
+     * Returns whether geofence waits listen to the device log (logcat/syslog) for transitions.
+     * Default: true
+     */
+    public boolean isDeviceLogListenerEnabled() {
+        return Boolean.parseBoolean(getProperty("device.log.listener.enabled", "true"));
+    }
+
+    /**
+     * Returns the delay between device log reads when log broadcast is unavailable in milliseconds.
+     * Default: 500
+     */
+    public int getDeviceLogPollMillis() {
+        return Integer.parseInt(getProperty("device.log.poll.ms", "500"));
+    }
+
+    // ==================== Page Snapshot Configuration ====================
+
+    /**
+     * Returns whether pages check several locators against one page-source snapshot.
+     * Default: true
+     */
+    public boolean isPageSnapshotEnabled() {
+        return Boolean.parseBoolean(getProperty("page.snapshot.enabled", "true"));
+    }
+
+    /**
+     * Returns how long a page-source snapshot is reused without interactions in milliseconds.
+     * Default: 500
+     */
+    public int getPageSnapshotMaxAgeMillis() {
+        return Integer.parseInt(getProperty("page.snapshot.max.age.ms", "500"));
+    }
+
+    /**
+     * Returns the delay between snapshots while waiting for one of several elements in milliseconds.
+     * Default: 250
+     */
+    public int getPageSnapshotPollMillis() {
+        return Integer.parseInt(getProperty("page.snapshot.poll.ms", "250"));
+    }
+
+    // ==================== Locator Optimizer Configuration ====================
+
+    /**
+     * Returns what pages do with XPath locators that have a native equivalent:
+     * "off", "suggest" (log it) or "substitute" (use it).
+     * Default: suggest
+     */
+    public String getLocatorOptimizerMode() {
+        return getProperty("locator.optimizer.mode", "suggest");
+    }
+
+    // ==================== Wait Policy Configuration ====================
+
+    /**
+     * Returns a setting of a named wait policy (wait.policy.NAME.SETTING), falling back to
+     * wait.policy.default.SETTING.
+     * Default: the given default
+     */
+    public String getWaitPolicySetting(String policy, String setting, String defaultValue) {
+        return getProperty("wait.policy." + policy + "." + setting,
+                getProperty("wait.policy.default." + setting, defaultValue));
+    }
+
+    // ==================== Form Fill Configuration ====================
+
+    /**
+     * Returns whether the iOS geofence form is filled in one pass (one query for all fields,
+     * one sendKeys each, one snapshot to verify) instead of waiting, clearing and typing per field.
+     * Default: true
+     */
+    public boolean isFastFormFillEnabled() {
+        return Boolean.parseBoolean(getProperty("ios.form.fast.fill", "true"));
+    }
+
+    // ==================== Geofence Verification Configuration ====================
+
+    /**
+     * Returns whether Android geofence creation is checked by finding the red overlay in a
+     * screenshot of the map.
+     * Default: true
+     */
+    public boolean isGeofenceVisualVerifyEnabled() {
+        return Boolean.parseBoolean(getProperty("geofence.verify.visual.enabled", "true"));
+    }
+
+    /**
+     * Returns how long to keep taking map screenshots until the overlay is drawn, in milliseconds.
+     * Default: 3000
+     */
+    public int getGeofenceVerifyTimeoutMillis() {
+        return Integer.parseInt(getProperty("geofence.verify.timeout.ms", "3000"));
+    }
+
+    /**
+     * Returns the pixel stride of the overlay scan, in both directions.
+     * Default: 2
+     */
+    public int getGeofenceVerifySampleStep() {
+        return Integer.parseInt(getProperty("geofence.verify.sample.step", "2"));
+    }
+
+    /**
+     * Returns the share of the scanned window that must be red for the overlay to count as drawn.
+     * Default: 0.02
+     */
+    public double getGeofenceVerifyMinRedFraction() {
+        return Double.parseDouble(getProperty("geofence.verify.min.red.fraction", "0.02"));
+    }
+
+    // ==================== Thread Configuration ====================
+
+    /**
+     * Returns whether background helpers and opted-in test runs use virtual threads.
+     * Takes effect only on Java 21+; older JVMs fall back to platform threads.
+     * Default: false
+     */
+    public boolean isVirtualThreadsEnabled() {
+        return Boolean.parseBoolean(getProperty("threads.virtual.enabled", "false"));
+    }
+
     // ==================== API Mode Configuration ====================
 
     /**
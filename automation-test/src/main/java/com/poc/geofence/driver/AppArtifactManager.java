@@ -0,0 +1,259 @@
+package com.poc.geofence.driver;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.poc.geofence.config.ConfigManager;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.HexFormat;
+import java.util.Map;
+import java.util.Optional;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Content-addressed cache of app uploads: turns a local APK/IPA path into a bs:// id,
+ * uploading each distinct binary only once.
+ *
+ * <p>The cache key is the uploader's account plus the file's SHA-256, so a rebuilt but
+ * identical app reuses the earlier upload while any change to the binary, or a switch to
+ * another account, triggers a new one. Entries expire before the device cloud deletes the
+ * upload (BrowserStack keeps apps for 30 days); an upload the cloud no longer knows is
+ * {@link #evict evicted} by the pre-flight check or after a session fails as
+ * {@link SessionFailureKind#APP_UNAVAILABLE}. The cache is a small JSON file that outlives
+ * the JVM, so CI builds on the same agent share it.
+ *
+ * <p>Thread-safe: parallel sessions resolving the same app wait for a single upload.
+ */
+public class AppArtifactManager {
+    private static final Logger log = LoggerFactory.getLogger(AppArtifactManager.class);
+    private static final ObjectMapper MAPPER = new ObjectMapper().enable(SerializationFeature.INDENT_OUTPUT);
+    private static volatile AppArtifactManager instance;
+
+    private final AppUploader uploader;
+    private final Path cacheFile;
+    private final Duration ttl;
+    private final Clock clock;
+    private final Map<String, CacheEntry> entries;
+    // Hashing a multi-MB binary per session is wasted work while the file is unchanged
+    private final Map<FileStamp, String> hashes = new ConcurrentHashMap<>();
+    // ReentrantLock, not synchronized: a virtual thread blocked in a minutes-long upload must not pin its carrier
+    private final Map<String, ReentrantLock> uploadLocks = new ConcurrentHashMap<>();
+
+    AppArtifactManager(AppUploader uploader, Path cacheFile, Duration ttl, Clock clock) {
+        this.uploader = uploader;
+        this.cacheFile = cacheFile;
+        this.ttl = ttl;
+        this.clock = clock;
+        this.entries = new ConcurrentHashMap<>(load(cacheFile));
+    }
+
+    /**
+     * Returns the manager that uploads to BrowserStack with the configured credentials.
+     */
+    public static AppArtifactManager getInstance() {
+        if (instance == null) {
+            synchronized (AppArtifactManager.class) {
+                if (instance == null) {
+                    ConfigManager config = ConfigManager.getInstance();
+                    AppUploader uploader = new BrowserStackAppUploader(config.getBrowserStackApiUrl(),
+                            config.getBrowserStackProperty("browserstack.username"),
+                            config.getBrowserStackProperty("browserstack.accesskey"));
+                    instance = new AppArtifactManager(uploader, Path.of(config.getAppUploadCacheFile()),
+                            Duration.ofDays(config.getAppUploadCacheTtlDays()), Clock.systemUTC());
+                }
+            }
+        }
+        return instance;
+    }
+
+    /**
+     * Resolves an app path to an id the device cloud can install.
+     * @param appPath a bs:// id or URL (returned unchanged) or a local APK/IPA path
+     * @return the bs:// id of the uploaded binary
+     * @throws IllegalArgumentException if a local path does not exist
+     * @throws UncheckedIOException if the upload fails
+     */
+    public String resolve(String appPath) {
+        if (appPath == null || appPath.contains("://")) {
+            return appPath;
+        }
+        Path app = Path.of(appPath);
+        if (!Files.isRegularFile(app)) {
+            throw new IllegalArgumentException("App not found: " + app.toAbsolutePath());
+        }
+        try {
+            String key = cacheKey(app);
+            CacheEntry cached = validEntry(key);
+            if (cached != null) {
+                log.info("Reusing upload {} for {} (sha256 {}, {})", cached.appUrl(), app.getFileName(),
+                        shortHash(key), uploader.account());
+                return cached.appUrl();
+            }
+            ReentrantLock lock = uploadLocks.computeIfAbsent(key, k -> new ReentrantLock());
+            lock.lock();
+            try {
+                cached = validEntry(key);
+                if (cached != null) {
+                    return cached.appUrl();
+                }
+                String appUrl = uploader.upload(app, "geofence-" + shortHash(key));
+                Instant now = clock.instant();
+                entries.put(key, new CacheEntry(appUrl, app.getFileName().toString(),
+                        now.toString(), now.plus(ttl).toString()));
+                save();
+                return appUrl;
+            } finally {
+                lock.unlock();
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not upload " + app, e);
+        }
+    }
+
+    /**
+     * Looks up the cached upload of a local app without uploading it.
+     * @param appPath a local APK/IPA path
+     * @return the cached bs:// id, or empty if the path is a cloud id, missing or not cached
+     */
+    public Optional<String> cachedUpload(String appPath) {
+        if (appPath == null || appPath.contains("://") || !Files.isRegularFile(Path.of(appPath))) {
+            return Optional.empty();
+        }
+        try {
+            return Optional.ofNullable(validEntry(cacheKey(Path.of(appPath)))).map(CacheEntry::appUrl);
+        } catch (IOException e) {
+            log.debug("Cannot hash {}: {}", appPath, e.getMessage());
+            return Optional.empty();
+        }
+    }
+
+    /**
+     * Forgets the cached upload of a local app, e.g. after the device cloud rejected its id,
+     * so the next {@link #resolve} uploads it again.
+     * @param appPath a local APK/IPA path
+     * @return true if an upload was cached for it
+     */
+    public boolean evict(String appPath) {
+        if (appPath == null || appPath.contains("://") || !Files.isRegularFile(Path.of(appPath))) {
+            return false;
+        }
+        try {
+            CacheEntry evicted = entries.remove(cacheKey(Path.of(appPath)));
+            if (evicted == null) {
+                return false;
+            }
+            log.warn("Evicted cached upload {} of {}; it will be uploaded again", evicted.appUrl(), appPath);
+            save();
+            return true;
+        } catch (IOException e) {
+            log.debug("Cannot hash {}: {}", appPath, e.getMessage());
+            return false;
+        }
+    }
+
+    private CacheEntry validEntry(String key) {
+        CacheEntry entry = entries.get(key);
+        return entry != null && entry.isValidAt(clock.instant()) ? entry : null;
+    }
+
+    private String cacheKey(Path app) throws IOException {
+        return uploader.account() + "/" + sha256(app);
+    }
+
+    private String sha256(Path app) throws IOException {
+        FileStamp stamp = new FileStamp(app.toAbsolutePath().normalize(), Files.size(app),
+                Files.getLastModifiedTime(app).toMillis());
+        String known = hashes.get(stamp);
+        if (known != null) {
+            return known;
+        }
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+        byte[] buffer = new byte[64 * 1024];
+        try (InputStream in = Files.newInputStream(app)) {
+            for (int read; (read = in.read(buffer)) > 0; ) {
+                digest.update(buffer, 0, read);
+            }
+        }
+        String hash = HexFormat.of().formatHex(digest.digest());
+        hashes.put(stamp, hash);
+        return hash;
+    }
+
+    private static Map<String, CacheEntry> load(Path cacheFile) {
+        if (!Files.isRegularFile(cacheFile)) {
+            return Map.of();
+        }
+        try {
+            return MAPPER.readValue(cacheFile.toFile(), new TypeReference<Map<String, CacheEntry>>() { });
+        } catch (IOException e) {
+            log.warn("Ignoring unreadable app upload cache {}: {}", cacheFile, e.getMessage());
+            return Map.of();
+        }
+    }
+
+    private synchronized void save() {
+        try {
+            Path dir = cacheFile.toAbsolutePath().getParent();
+            Files.createDirectories(dir);
+            // Write-then-rename so a concurrent reader never sees a half-written file
+            Path temp = Files.createTempFile(dir, "app-uploads", ".tmp");
+            Map<String, CacheEntry> live = new TreeMap<>();
+            Instant now = clock.instant();
+            entries.forEach((key, entry) -> {
+                if (entry.isValidAt(now)) {
+                    live.put(key, entry);
+                }
+            });
+            MAPPER.writeValue(temp.toFile(), live);
+            Files.move(temp, cacheFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            log.warn("Could not write app upload cache {}: {}", cacheFile, e.getMessage());
+        }
+    }
+
+    private static String shortHash(String key) {
+        String hash = key.substring(key.lastIndexOf('/') + 1);
+        return hash.substring(0, 12);
+    }
+
+    private record FileStamp(Path path, long size, long modifiedMillis) {
+    }
+
+    /**
+     * One uploaded binary.
+     * @param appUrl the id returned by the uploader
+     * @param fileName the uploaded file's name, for humans reading the cache
+     * @param uploadedAt when the upload finished (ISO-8601)
+     * @param expiresAt when the entry stops being reused (ISO-8601)
+     */
+    record CacheEntry(String appUrl, String fileName, String uploadedAt, String expiresAt) {
+
+        boolean isValidAt(Instant now) {
+            try {
+                return now.isBefore(Instant.parse(expiresAt));
+            } catch (RuntimeException e) {
+                return false;
+            }
+        }
+    }
+}
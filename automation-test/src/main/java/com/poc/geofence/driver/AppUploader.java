@@ -0,0 +1,25 @@
+package com.poc.geofence.driver;
+
+import java.io.IOException;
+import java.nio.file.Path;
+
+/**
+ * Uploads an app binary to the device cloud and returns the id sessions use to install it.
+ */
+public interface AppUploader {
+
+    /**
+     * Uploads one APK/IPA.
+     * @param app the local app file
+     * @param customId stable tag stored with the upload (the content hash), for tracing in the cloud UI
+     * @return the app id to pass as the app capability (e.g., "bs://abc123")
+     * @throws IOException if the upload fails or is rejected
+     */
+    String upload(Path app, String customId) throws IOException;
+
+    /**
+     * Identifies where uploads go, e.g. "username@api-cloud.browserstack.com". An id uploaded
+     * to one account is not installable from another, so uploads are cached per account.
+     */
+    String account();
+}
@@ -0,0 +1,94 @@
+package com.poc.geofence.driver;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Base64;
+import java.util.UUID;
+
+/**
+ * Uploads apps through the BrowserStack App Automate REST API (POST /app-automate/upload).
+ *
+ * <p>The file is streamed from disk as multipart/form-data, so multi-MB binaries are never
+ * held in memory.
+ */
+public class BrowserStackAppUploader implements AppUploader {
+    private static final Logger log = LoggerFactory.getLogger(BrowserStackAppUploader.class);
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+    private static final Duration UPLOAD_TIMEOUT = Duration.ofMinutes(5);
+
+    private final String apiUrl;
+    private final String account;
+    private final String authorization;
+    private final HttpClient http;
+
+    /**
+     * @param apiUrl BrowserStack API base URL (e.g., "https://api-cloud.browserstack.com")
+     * @param username BrowserStack username
+     * @param accessKey BrowserStack access key
+     */
+    public BrowserStackAppUploader(String apiUrl, String username, String accessKey) {
+        this.apiUrl = apiUrl.replaceAll("/$", "");
+        this.account = username + "@" + URI.create(this.apiUrl).getAuthority();
+        this.authorization = "Basic " + Base64.getEncoder()
+                .encodeToString((username + ":" + accessKey).getBytes(StandardCharsets.UTF_8));
+        this.http = HttpClient.newBuilder().connectTimeout(Duration.ofSeconds(10)).build();
+    }
+
+    @Override
+    public String account() {
+        return account;
+    }
+
+    @Override
+    public String upload(Path app, String customId) throws IOException {
+        String boundary = "----geofence" + UUID.randomUUID().toString().replace("-", "");
+        String head = "--" + boundary + "\r\n"
+                + "Content-Disposition: form-data; name=\"custom_id\"\r\n\r\n" + customId + "\r\n"
+                + "--" + boundary + "\r\n"
+                + "Content-Disposition: form-data; name=\"file\"; filename=\"" + app.getFileName() + "\"\r\n"
+                + "Content-Type: application/octet-stream\r\n\r\n";
+        String tail = "\r\n--" + boundary + "--\r\n";
+        HttpRequest request = HttpRequest.newBuilder(URI.create(apiUrl + "/app-automate/upload"))
+                .timeout(UPLOAD_TIMEOUT)
+                .header("Authorization", authorization)
+                .header("Content-Type", "multipart/form-data; boundary=" + boundary)
+                .POST(HttpRequest.BodyPublishers.concat(
+                        HttpRequest.BodyPublishers.ofString(head),
+                        HttpRequest.BodyPublishers.ofFile(app),
+                        HttpRequest.BodyPublishers.ofString(tail)))
+                .build();
+
+        long start = System.nanoTime();
+        HttpResponse<String> response;
+        try {
+            response = http.send(request, HttpResponse.BodyHandlers.ofString());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted uploading " + app, e);
+        }
+        if (response.statusCode() / 100 != 2) {
+            throw new IOException("BrowserStack upload of " + app.getFileName() + " failed: HTTP "
+                    + response.statusCode() + " " + response.body());
+        }
+        JsonNode body = MAPPER.readTree(response.body());
+        String appUrl = body.path("app_url").asText("");
+        if (!appUrl.startsWith("bs://")) {
+            throw new IOException("BrowserStack upload returned no app_url: " + response.body());
+        }
+        log.info("Uploaded {} ({} KB) to BrowserStack as {} in {}ms", app.getFileName(), Files.size(app) / 1024,
+                appUrl, Duration.ofNanos(System.nanoTime() - start).toMillis());
+        return appUrl;
+    }
+}
@@ -0,0 +1,343 @@
+package com.poc.geofence.driver;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.poc.geofence.config.ConfigManager;
+import com.poc.geofence.utils.GeofenceTimeline;
+import io.appium.java_client.AppiumDriver;
+import org.openqa.selenium.NoSuchSessionException;
+import org.openqa.selenium.WebDriverException;
+import org.openqa.selenium.logging.LogEntry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.URL;
+import java.net.http.HttpClient;
+import java.net.http.WebSocket;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayDeque;
+import java.util.Base64;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Streams a session's device log (logcat on Android, syslog on iOS) in the background and
+ * queues the geofence transitions the app logs, so waits can block on them instead of
+ * polling the UI.
+ *
+ * <p>Prefers Appium's log broadcast: {@code mobile: startLogsBroadcast} followed by a websocket
+ * to {@code /ws/session/<id>/appium/device/logcat} (or {@code syslog}) on the Appium server.
+ * Where that is unavailable (e.g. behind a cloud hub) it polls {@code driver.manage().logs()}
+ * every {@code device.log.poll.ms}, skipping entries at or before the last timestamp seen.
+ * Lines containing {@code GEOFENCE_TRANSITION_ENTER|EXIT|DWELL} become {@link LogEvent}s and
+ * are recorded as "device-log" detections in the {@link GeofenceTimeline}.
+ *
+ * <p>Each event is handed to at most one waiter, and only to waits that began before it was
+ * logged, so lines left from an earlier stimulus do not satisfy a later wait. Use {@link DriverManager#getDeviceLog} to get
+ * a session's listener.
+ */
+public final class DeviceLogListener implements AutoCloseable {
+    private static final Logger log = LoggerFactory.getLogger(DeviceLogListener.class);
+    private static final Pattern TRANSITION = Pattern.compile("GEOFENCE_TRANSITION_(ENTER|EXIT|DWELL)");
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+    private static final int MAX_PENDING = 1000;
+    private static final Duration CONNECT_TIMEOUT = Duration.ofSeconds(5);
+    private static final HttpClient WEBSOCKET_CLIENT = HttpClient.newBuilder()
+            .connectTimeout(CONNECT_TIMEOUT)
+            .build();
+
+    private final AppiumDriver driver;
+    private final String logType;
+    // Guarded by this
+    private final Deque<LogEvent> pending = new ArrayDeque<>();
+    private volatile boolean seenTransitions;
+    private volatile boolean closed;
+    private volatile Mode mode;
+    private WebSocket socket;
+    private Thread poller;
+
+    DeviceLogListener(AppiumDriver driver) {
+        this.driver = driver;
+        this.logType = "ios".equals(DriverManager.platformOf(driver)) ? "syslog" : "logcat";
+    }
+
+    /**
+     * Starts listening to a session's device log.
+     * @param driver the session
+     * @return the listener, or empty if the session offers neither log broadcast nor log polling
+     */
+    static Optional<DeviceLogListener> start(AppiumDriver driver) {
+        DeviceLogListener listener = new DeviceLogListener(driver);
+        if (listener.startBroadcast() || listener.startPolling()) {
+            log.info("Listening to {} via {} for geofence transitions", listener.logType, listener.mode);
+            return Optional.of(listener);
+        }
+        log.info("Device log not available for this session; geofence waits use the UI");
+        return Optional.empty();
+    }
+
+    private boolean startBroadcast() {
+        try {
+            driver.executeScript("mobile: startLogsBroadcast");
+            URL remote = driver.getRemoteAddress();
+            String basePath = remote.getPath().replaceAll("/+$", "");
+            URI uri = new URI("http".equals(remote.getProtocol()) ? "ws" : "wss", null, remote.getHost(),
+                    remote.getPort(), basePath + "/ws/session/" + driver.getSessionId() + "/appium/device/" + logType,
+                    null, null);
+            WebSocket.Builder builder = WEBSOCKET_CLIENT.newWebSocketBuilder().connectTimeout(CONNECT_TIMEOUT);
+            if (remote.getUserInfo() != null) {
+                builder.header("Authorization", "Basic " + Base64.getEncoder()
+                        .encodeToString(remote.getUserInfo().getBytes(StandardCharsets.UTF_8)));
+            }
+            socket = builder.buildAsync(uri, new LineListener())
+                    .get(CONNECT_TIMEOUT.toMillis(), TimeUnit.MILLISECONDS);
+            mode = Mode.BROADCAST;
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        } catch (Exception e) {
+            log.debug("Log broadcast unavailable: {}", e.getMessage());
+            return false;
+        }
+    }
+
+    private boolean startPolling() {
+        Cursor cursor = new Cursor();
+        try {
+            // Baseline: entries logged before the listener started are not events for this session's waits
+            for (LogEntry entry : driver.manage().logs().get(logType)) {
+                cursor.advance(entry.getTimestamp(), entry.getMessage());
+            }
+        } catch (WebDriverException e) {
+            log.debug("Log polling unavailable: {}", e.getMessage());
+            return false;
+        }
+        long interval = ConfigManager.getInstance().getDeviceLogPollMillis();
+        mode = Mode.POLLING;
+        poller = new Thread(() -> {
+            while (!closed) {
+                try {
+                    Thread.sleep(interval);
+                    pollOnce(cursor);
+                } catch (InterruptedException e) {
+                    return;
+                } catch (NoSuchSessionException e) {
+                    closed = true;
+                } catch (WebDriverException e) {
+                    log.debug("Log poll failed: {}", e.getMessage());
+                }
+            }
+        }, "device-log-" + driver.getSessionId());
+        poller.setDaemon(true);
+        poller.start();
+        return true;
+    }
+
+    private void pollOnce(Cursor cursor) {
+        for (LogEntry entry : driver.manage().logs().get(logType)) {
+            if (cursor.advance(entry.getTimestamp(), entry.getMessage())) {
+                onLine(entry.getMessage(), Instant.ofEpochMilli(entry.getTimestamp()));
+            }
+        }
+    }
+
+    /**
+     * Handles one log line: a plain text line or a JSON record with "message" and "timestamp".
+     * @param line the received line
+     * @param receivedAt when it was received, used when the record has no timestamp
+     */
+    void onLine(String line, Instant receivedAt) {
+        String message = line;
+        Instant at = receivedAt;
+        if (line.startsWith("{")) {
+            try {
+                JsonNode record = MAPPER.readTree(line);
+                message = record.path("message").asText(line);
+                if (record.path("timestamp").isNumber()) {
+                    at = Instant.ofEpochMilli(record.get("timestamp").asLong());
+                }
+            } catch (IOException e) {
+                log.debug("Log line is not JSON: {}", line);
+            }
+        }
+        Matcher matcher = TRANSITION.matcher(message);
+        if (!matcher.find()) {
+            return;
+        }
+        LogEvent event = new LogEvent(at, matcher.group(), message);
+        synchronized (this) {
+            if (pending.size() >= MAX_PENDING) {
+                pending.removeFirst();
+            }
+            pending.addLast(event);
+            seenTransitions = true;
+            notifyAll();
+        }
+        GeofenceTimeline.getInstance().detection(driver, "device-log", message);
+    }
+
+    /**
+     * Takes the oldest queued event whose line contains a text, without waiting. Events logged
+     * before {@code since} are stale and dropped.
+     * @param containsText e.g. "GEOFENCE_TRANSITION_EXIT"
+     * @param since e.g. the latest stimulus, see {@link GeofenceTimeline#lastStimulusAt}
+     * @return the event, or empty if none is queued
+     */
+    public synchronized Optional<LogEvent> poll(String containsText, Instant since) {
+        Iterator<LogEvent> events = pending.iterator();
+        while (events.hasNext()) {
+            LogEvent event = events.next();
+            if (event.at().isBefore(since)) {
+                events.remove();
+            } else if (event.line().contains(containsText)) {
+                events.remove();
+                return Optional.of(event);
+            }
+        }
+        return Optional.empty();
+    }
+
+    /**
+     * Blocks until the app logs a line containing a text, taking the oldest such queued event
+     * logged at or after {@code since}.
+     * @param containsText e.g. "GEOFENCE_TRANSITION_EXIT"
+     * @param since e.g. the latest stimulus; earlier events are dropped
+     * @param timeout how long to wait
+     * @return the event, or empty on timeout or when the listener stops
+     */
+    public synchronized Optional<LogEvent> await(String containsText, Instant since, Duration timeout) {
+        long deadline = System.nanoTime() + timeout.toNanos();
+        try {
+            while (true) {
+                Optional<LogEvent> event = poll(containsText, since);
+                long remaining = deadline - System.nanoTime();
+                if (event.isPresent() || remaining <= 0 || closed) {
+                    return event;
+                }
+                TimeUnit.NANOSECONDS.timedWait(this, remaining);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return Optional.empty();
+        }
+    }
+
+    /**
+     * @return true once any geofence transition came through this log, i.e. the app's log lines
+     *         reach the listener and waits can rely on it alone
+     */
+    public boolean hasSeenTransitions() {
+        return seenTransitions && !closed;
+    }
+
+    /**
+     * Drops queued events, e.g. those left over from a previous test on a pooled session.
+     */
+    public synchronized void discardPending() {
+        pending.clear();
+    }
+
+    /**
+     * @return how the log is read, or null if not started
+     */
+    public Mode mode() {
+        return mode;
+    }
+
+    /**
+     * Stops listening. Does not send commands, so it is safe after the session ended.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        if (socket != null) {
+            socket.abort();
+        }
+        if (poller != null) {
+            poller.interrupt();
+        }
+        synchronized (this) {
+            notifyAll();
+        }
+    }
+
+    public enum Mode {
+        BROADCAST, POLLING
+    }
+
+    /**
+     * A geofence transition the app logged.
+     * @param at log timestamp, or receipt time if the line had none
+     * @param transition e.g. "GEOFENCE_TRANSITION_EXIT"
+     * @param line the log message
+     */
+    public record LogEvent(Instant at, String transition, String line) {
+    }
+
+    /**
+     * Assembles websocket frames into lines.
+     */
+    private final class LineListener implements WebSocket.Listener {
+        private final StringBuilder partial = new StringBuilder();
+
+        @Override
+        public CompletionStage<?> onText(WebSocket webSocket, CharSequence data, boolean last) {
+            partial.append(data);
+            if (last) {
+                Instant now = Instant.now();
+                for (String line : partial.toString().split("\\R")) {
+                    onLine(line, now);
+                }
+                partial.setLength(0);
+            }
+            webSocket.request(1);
+            return null;
+        }
+
+        @Override
+        public CompletionStage<?> onClose(WebSocket webSocket, int statusCode, String reason) {
+            log.debug("Log broadcast closed: {} {}", statusCode, reason);
+            DeviceLogListener.this.close();
+            return CompletableFuture.completedFuture(null);
+        }
+
+        @Override
+        public void onError(WebSocket webSocket, Throwable error) {
+            log.debug("Log broadcast failed: {}", error.getMessage());
+            DeviceLogListener.this.close();
+        }
+    }
+
+    /**
+     * Position in a polled log: entries are new if later than the last timestamp seen, or at
+     * that timestamp with a message not yet seen there.
+     */
+    static final class Cursor {
+        private long timestamp = Long.MIN_VALUE;
+        private final Set<String> seenAtTimestamp = new HashSet<>();
+
+        boolean advance(long entryTimestamp, String message) {
+            if (entryTimestamp < timestamp) {
+                return false;
+            }
+            if (entryTimestamp > timestamp) {
+                timestamp = entryTimestamp;
+                seenAtTimestamp.clear();
+            }
+            return seenAtTimestamp.add(message);
+        }
+    }
+}
@@ -0,0 +1,44 @@
+package com.poc.geofence.driver;
+
+import com.poc.geofence.config.PlatformType;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A device entry of the parallel test matrix.
+ *
+ * @param platform the device platform
+ * @param deviceName the BrowserStack device name (e.g., "Google Pixel 7")
+ * @param osVersion the OS version (e.g., "13")
+ */
+public record DeviceProfile(PlatformType platform, String deviceName, String osVersion) {
+
+    /**
+     * Parses a matrix of comma-separated "platform:device:osVersion" entries.
+     * @param matrix the matrix string (e.g., "android:Google Pixel 7:13,ios:iPhone 14:16")
+     * @return the device profiles in declaration order; empty if the matrix is blank
+     * @throws IllegalArgumentException if an entry is malformed
+     */
+    public static List<DeviceProfile> parseMatrix(String matrix) {
+        List<DeviceProfile> devices = new ArrayList<>();
+        if (matrix == null || matrix.isBlank()) {
+            return devices;
+        }
+        for (String entry : matrix.split(",")) {
+            String[] parts = entry.trim().split(":");
+            if (parts.length != 3) {
+                throw new IllegalArgumentException(
+                        "Invalid device matrix entry (expected platform:device:osVersion): " + entry);
+            }
+            devices.add(new DeviceProfile(PlatformType.fromString(parts[0].trim()),
+                    parts[1].trim(), parts[2].trim()));
+        }
+        return devices;
+    }
+
+    @Override
+    public String toString() {
+        return deviceName + " " + osVersion;
+    }
+}
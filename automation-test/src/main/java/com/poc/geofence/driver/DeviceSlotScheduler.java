@@ -0,0 +1,152 @@
+package com.poc.geofence.driver;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Hard cap on concurrent Appium sessions, matching the BrowserStack parallel-slot allowance.
+ *
+ * <p>Every live session (leased, idle in the pool, or being created) holds one slot.
+ * Waiters are served in FIFO order (fair semaphore), so no device or thread starves
+ * when the matrix has more journeys than slots. Slot hold time is tracked to report
+ * utilization at the end of the run.
+ */
+public class DeviceSlotScheduler {
+    private static final Logger log = LoggerFactory.getLogger(DeviceSlotScheduler.class);
+
+    private final int slots;
+    private final Semaphore permits;
+    private final AtomicInteger inUse = new AtomicInteger();
+    private final AtomicInteger peakInUse = new AtomicInteger();
+    private final AtomicLong acquisitions = new AtomicLong();
+    private final AtomicLong queuedAcquisitions = new AtomicLong();
+    private final AtomicLong busyNanos = new AtomicLong();
+    private final AtomicLong waitNanos = new AtomicLong();
+    private final AtomicLong firstAcquireNanos = new AtomicLong();
+    private final AtomicLong lastReleaseNanos = new AtomicLong();
+
+    /**
+     * @param slots maximum number of concurrent sessions (at least 1)
+     */
+    public DeviceSlotScheduler(int slots) {
+        if (slots < 1) {
+            throw new IllegalArgumentException("Slot count must be at least 1: " + slots);
+        }
+        this.slots = slots;
+        this.permits = new Semaphore(slots, true);
+    }
+
+    /**
+     * Takes a slot if one is free right now, respecting queued waiters.
+     * @return the slot, or null if none is free
+     */
+    public Slot tryAcquire() {
+        try {
+            return permits.tryAcquire(0, TimeUnit.MILLISECONDS) ? granted(0) : null;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return null;
+        }
+    }
+
+    /**
+     * Waits in FIFO order for a slot.
+     * @param timeout maximum time to wait
+     * @return the slot, or null if the timeout elapsed
+     * @throws InterruptedException if interrupted while waiting
+     */
+    public Slot acquire(Duration timeout) throws InterruptedException {
+        long start = System.nanoTime();
+        boolean acquired = permits.tryAcquire(timeout.toNanos(), TimeUnit.NANOSECONDS);
+        long waited = System.nanoTime() - start;
+        waitNanos.addAndGet(waited);
+        if (!acquired) {
+            return null;
+        }
+        queuedAcquisitions.incrementAndGet();
+        return granted(waited);
+    }
+
+    public int capacity() {
+        return slots;
+    }
+
+    public SlotStats stats() {
+        long first = firstAcquireNanos.get();
+        long end = inUse.get() > 0 ? System.nanoTime() : lastReleaseNanos.get();
+        Duration window = first == 0 ? Duration.ZERO : Duration.ofNanos(Math.max(0, end - first));
+        return new SlotStats(slots, acquisitions.get(), queuedAcquisitions.get(), peakInUse.get(),
+                Duration.ofNanos(busyNanos.get()), Duration.ofNanos(waitNanos.get()), window);
+    }
+
+    private Slot granted(long waitedNanos) {
+        long now = System.nanoTime();
+        firstAcquireNanos.compareAndSet(0, now);
+        acquisitions.incrementAndGet();
+        int current = inUse.incrementAndGet();
+        peakInUse.accumulateAndGet(current, Math::max);
+        if (waitedNanos > 0) {
+            log.debug("Slot acquired after {}ms wait ({}/{} in use)",
+                    Duration.ofNanos(waitedNanos).toMillis(), current, slots);
+        }
+        return new Slot(now);
+    }
+
+    /**
+     * A held session slot. Releasing is idempotent.
+     */
+    public final class Slot {
+        private final long acquiredNanos;
+        private final AtomicBoolean released = new AtomicBoolean();
+
+        private Slot(long acquiredNanos) {
+            this.acquiredNanos = acquiredNanos;
+        }
+
+        public void release() {
+            if (released.compareAndSet(false, true)) {
+                long now = System.nanoTime();
+                busyNanos.addAndGet(now - acquiredNanos);
+                lastReleaseNanos.set(now);
+                inUse.decrementAndGet();
+                permits.release();
+            }
+        }
+    }
+
+    /**
+     * Snapshot of slot usage.
+     * @param slots configured capacity
+     * @param acquisitions total slots granted
+     * @param queued grants that had to wait for a free slot
+     * @param peak maximum concurrent slots in use
+     * @param busy total slot hold time across all slots
+     * @param waited total time callers spent queued
+     * @param window wall-clock time from first grant to last release
+     */
+    public record SlotStats(int slots, long acquisitions, long queued, int peak,
+                            Duration busy, Duration waited, Duration window) {
+        /**
+         * Fraction of available slot-time that was actually held by sessions.
+         */
+        public double utilization() {
+            long available = window.toNanos() * slots;
+            return available == 0 ? 0.0 : Math.min(1.0, (double) busy.toNanos() / available);
+        }
+
+        @Override
+        public String toString() {
+            return String.format("slots=%d, acquisitions=%d, queued=%d, peak=%d, utilization=%.0f%%, "
+                            + "busy=%ds, waited=%ds, window=%ds",
+                    slots, acquisitions, queued, peak, utilization() * 100,
+                    busy.toSeconds(), waited.toSeconds(), window.toSeconds());
+        }
+    }
+}
@@ -5,14 +5,21 @@ import com.poc.geofence.config.Environment;
 import com.poc.geofence.config.PlatformType;
 import com.poc.geofence.driver.capabilities.AndroidCapabilities;
 import com.poc.geofence.driver.capabilities.IOSCapabilities;
+import com.poc.geofence.metrics.RecordingCommandExecutor;
+import com.poc.geofence.utils.VirtualThreads;
 import io.appium.java_client.AppiumDriver;
 import io.appium.java_client.android.AndroidDriver;
 import io.appium.java_client.ios.IOSDriver;
+import org.openqa.selenium.remote.http.HttpClient;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.net.MalformedURLException;
 import java.net.URI;
+import java.net.URL;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
 
 /**
  * DriverFactory - Creates Appium drivers for iOS and Android platforms.
@@ -23,6 +30,9 @@ public class DriverFactory {
     private static final String BROWSERSTACK_HUB = "https://hub.browserstack.com/wd/hub";
     private static final String LOCAL_HUB = "http://127.0.0.1:4723";
 
+    // Session creation is pure I/O wait (tens of seconds on BrowserStack): unbounded, virtual when enabled
+    private static final ExecutorService PROVISIONING_EXECUTOR = VirtualThreads.newExecutor("driver-provisioner");
+
     private final ConfigManager config;
 
     public DriverFactory() {
@@ -46,20 +56,124 @@ public class DriverFactory {
      * @return the initialized AppiumDriver
      */
     public AppiumDriver createDriver(PlatformType platform, Environment environment) {
-        log.info("Creating {} driver for {} environment", platform.getValue(), environment.getValue());
+        return createDriver(sessionKey(platform, environment));
+    }
+
+    /**
+     * Creates a driver for the platform, environment and device in the session key.
+     * @param key the session identity (platform, environment, device)
+     * @return the initialized AppiumDriver
+     */
+    public AppiumDriver createDriver(SessionKey key) {
+        // Fails fast once a non-transient failure (expired plan, bad credentials, missing app) was seen
+        SessionCircuitBreaker breaker = SessionCircuitBreaker.getInstance();
+        breaker.checkClosed();
+        log.info("Creating {} driver for {} environment on {} {}", key.platform().getValue(),
+                key.environment().getValue(), key.deviceName(), key.osVersion());
+        try {
+            AppiumDriver driver;
+            try {
+                driver = newDriver(key);
+            } catch (RuntimeException e) {
+                if (!evictRejectedUpload(key, e)) {
+                    throw e;
+                }
+                driver = newDriver(key);
+            }
+            breaker.recordSuccess();
+            return driver;
+        } catch (RuntimeException e) {
+            SessionFailureKind kind = breaker.recordFailure(e);
+            if (!kind.isTransient() && !(e instanceof SessionCircuitOpenException)) {
+                // Same message and category as the tests that follow, with the hub's error as cause
+                throw new SessionCircuitOpenException(kind, SessionCircuitBreaker.summary(e), e);
+            }
+            throw e;
+        }
+    }
+
+    private AppiumDriver newDriver(SessionKey key) {
+        return switch (key.platform()) {
+            case IOS -> createIOSDriver(key);
+            case ANDROID -> createAndroidDriver(key);
+        };
+    }
+
+    /**
+     * A cached bs:// id can outlive its upload (deleted early, or another account's). When the
+     * hub rejects the app, the cache entry is dropped so one retry uploads the binary again.
+     * @return true if an entry was evicted and the session is worth retrying
+     */
+    private boolean evictRejectedUpload(SessionKey key, RuntimeException failure) {
+        if (key.environment() != Environment.BROWSERSTACK
+                || SessionFailureKind.classify(failure) != SessionFailureKind.APP_UNAVAILABLE) {
+            return false;
+        }
+        boolean evicted = AppArtifactManager.getInstance().evict(config.getAppPath(key.platform()));
+        if (evicted) {
+            log.warn("Hub rejected the cached app upload ({}); uploading again", SessionCircuitBreaker.summary(failure));
+        }
+        return evicted;
+    }
+
+    /**
+     * Creates a driver in the background so provisioning overlaps with other work.
+     * @param platform the target platform (IOS or ANDROID)
+     * @param environment the execution environment (LOCAL or BROWSERSTACK)
+     * @return a future completing with the initialized AppiumDriver
+     */
+    public CompletableFuture<AppiumDriver> createDriverAsync(PlatformType platform, Environment environment) {
+        return createDriverAsync(sessionKey(platform, environment));
+    }
+
+    /**
+     * Creates a driver for the session key in the background.
+     * @param key the session identity (platform, environment, device)
+     * @return a future completing with the initialized AppiumDriver
+     */
+    public CompletableFuture<AppiumDriver> createDriverAsync(SessionKey key) {
+        return CompletableFuture.supplyAsync(() -> createDriver(key), PROVISIONING_EXECUTOR);
+    }
+
+    /**
+     * Returns the executor used for background session creation.
+     */
+    public static Executor provisioningExecutor() {
+        return PROVISIONING_EXECUTOR;
+    }
+
+    /**
+     * Builds the session key for the configured device of a platform.
+     * @param platform the target platform
+     * @param environment the execution environment
+     * @return the session key used for pooling
+     */
+    public SessionKey sessionKey(PlatformType platform, Environment environment) {
         return switch (platform) {
-            case IOS -> createIOSDriver(environment);
-            case ANDROID -> createAndroidDriver(environment);
+            case IOS -> new SessionKey(platform, environment,
+                    config.getProperty("device.ios.name", "iPhone 14"),
+                    config.getProperty("device.ios.version", "16"));
+            case ANDROID -> new SessionKey(platform, environment,
+                    config.getProperty("device.android.name", "Google Pixel 7"),
+                    config.getProperty("device.android.version", "13"));
         };
     }
 
-    private IOSDriver createIOSDriver(Environment environment) {
+    /**
+     * Builds the session key for an explicit device of the test matrix.
+     * @param device the matrix device
+     * @param environment the execution environment
+     * @return the session key used for pooling
+     */
+    public SessionKey sessionKey(DeviceProfile device, Environment environment) {
+        return new SessionKey(device.platform(), environment, device.deviceName(), device.osVersion());
+    }
+
+    private IOSDriver createIOSDriver(SessionKey key) {
+        Environment environment = key.environment();
         IOSCapabilities caps = new IOSCapabilities()
-                .withApp(config.getAppPath(PlatformType.IOS))
-                .withDevice(
-                        config.getProperty("device.ios.name", "iPhone 14"),
-                        config.getProperty("device.ios.version", "16")
-                );
+                .withApp(appPath(PlatformType.IOS, environment))
+                .withDevice(key.deviceName(), key.osVersion());
 
         if (environment == Environment.BROWSERSTACK) {
             String username = config.getBrowserStackProperty("browserstack.username");
@@ -69,23 +183,24 @@ public class DriverFactory {
         }
 
         try {
-            String hubUrl = environment == Environment.BROWSERSTACK
-                    ? BROWSERSTACK_HUB : LOCAL_HUB;
+            String hubUrl = hubUrl(environment);
             log.info("Connecting to Appium hub: {}", hubUrl);
-            return new IOSDriver(URI.create(hubUrl).toURL(), caps.build());
+            URL url = URI.create(hubUrl).toURL();
+            HttpClient.Factory http = httpClientFactory();
+            return config.isCommandMetricsEnabled()
+                    ? new IOSDriver(new RecordingCommandExecutor(url, PlatformType.IOS, http), caps.build())
+                    : new IOSDriver(url, http, caps.build());
         } catch (MalformedURLException e) {
             throw new RuntimeException("Invalid Appium hub URL", e);
         }
     }
 
-    private AndroidDriver createAndroidDriver(Environment environment) {
-        String appPath = config.getAppPath(PlatformType.ANDROID);
+    private AndroidDriver createAndroidDriver(SessionKey key) {
+        Environment environment = key.environment();
+        String appPath = appPath(PlatformType.ANDROID, environment);
         AndroidCapabilities caps = new AndroidCapabilities()
                 .withApp(appPath)
-                .withDevice(
-                        config.getProperty("device.android.name", "Google Pixel 7"),
-                        config.getProperty("device.android.version", "13")
-                );
+                .withDevice(key.deviceName(), key.osVersion());
 
         // Only set app package/activity for local apps, BrowserStack auto-detects from uploaded APK
         if (!appPath.startsWith("bs://")) {
@@ -103,15 +218,45 @@ public class DriverFactory {
         }
 
         try {
-            String hubUrl = environment == Environment.BROWSERSTACK
-                    ? BROWSERSTACK_HUB : LOCAL_HUB;
+            String hubUrl = hubUrl(environment);
             log.info("Connecting to Appium hub: {}", hubUrl);
-            return new AndroidDriver(URI.create(hubUrl).toURL(), caps.build());
+            URL url = URI.create(hubUrl).toURL();
+            HttpClient.Factory http = httpClientFactory();
+            return config.isCommandMetricsEnabled()
+                    ? new AndroidDriver(new RecordingCommandExecutor(url, PlatformType.ANDROID, http), caps.build())
+                    : new AndroidDriver(url, http, caps.build());
         } catch (MalformedURLException e) {
             throw new RuntimeException("Invalid Appium hub URL", e);
         }
     }
 
+    /**
+     * BrowserStack installs apps by bs:// id, so a local APK/IPA is uploaded first -
+     * once per distinct binary, reusing the cached id on every later session.
+     */
+    private String appPath(PlatformType platform, Environment environment) {
+        String appPath = config.getAppPath(platform);
+        return environment == Environment.BROWSERSTACK ? AppArtifactManager.getInstance().resolve(appPath) : appPath;
+    }
+
+    /**
+     * Local runs default to Appium on 127.0.0.1:4723; appium.local.url points them
+     * elsewhere, e.g. at the fake Appium server used for benchmarking.
+     */
+    String hubUrl(Environment environment) {
+        return environment == Environment.BROWSERSTACK
+                ? BROWSERSTACK_HUB : config.getProperty("appium.local.url", LOCAL_HUB);
+    }
+
+    /**
+     * All sessions share one tuned connection pool unless http.client.shared=false,
+     * which falls back to Selenium's default client.
+     */
+    private HttpClient.Factory httpClientFactory() {
+        return config.isSharedHttpClientEnabled()
+                ? SharedHttpClientFactory.getInstance() : HttpClient.Factory.createDefault();
+    }
+
     private void validateBrowserStackCredentials(String username, String accessKey) {
         if (username == null || username.isEmpty()) {
             throw new IllegalStateException(
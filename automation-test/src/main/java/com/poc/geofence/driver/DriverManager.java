@@ -1,16 +1,55 @@
 package com.poc.geofence.driver;
 
+import com.poc.geofence.config.ConfigManager;
 import io.appium.java_client.AppiumDriver;
+import io.appium.java_client.ios.IOSDriver;
+import org.openqa.selenium.Capabilities;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.time.Duration;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.WeakHashMap;
+import java.util.concurrent.Callable;
+import java.util.function.Supplier;
+
 /**
  * Thread-safe driver manager using ThreadLocal for parallel test execution.
  * Ensures each test thread has its own isolated driver instance.
+ *
+ * <p>When driver.pool.enabled=true, sessions are leased from a shared {@link DriverPool}
+ * and returned on release instead of being quit, so a suite pays session startup
+ * once per device rather than once per test.
+ *
+ * <p>All sessions, pooled or not, hold a slot from the shared {@link DeviceSlotScheduler},
+ * capping concurrent sessions at driver.max.sessions for parallel device-matrix runs.
+ *
+ * <p>Tasks handed to other threads (executors, virtual threads from
+ * {@link com.poc.geofence.utils.VirtualThreads}) do not inherit the thread binding. Wrap them
+ * with {@link #propagate(Callable)}, or bind explicitly with {@link #callWithDriver}: like a
+ * scoped value, the binding covers only the task's dynamic extent, is restored afterwards and
+ * never transfers ownership, so release and quit stay with the thread that leased the driver.
+ *
+ * <p>Each session also has a {@link SessionState} shadow that skips redundant context,
+ * location and app lifecycle commands. It lives as long as the session, across pool leases.
  */
 public class DriverManager {
     private static final Logger log = LoggerFactory.getLogger(DriverManager.class);
+    public static final String UNKNOWN_DEVICE = "(unknown device)";
     private static final ThreadLocal<AppiumDriver> driverThreadLocal = new ThreadLocal<>();
+    private static final ThreadLocal<DeviceSlotScheduler.Slot> slotThreadLocal = new ThreadLocal<>();
+    // Borrowed bindings from callWithDriver; they shadow the owned binding and are never released
+    private static final ThreadLocal<AppiumDriver> scopedDriverThreadLocal = new ThreadLocal<>();
+    // Removed when a session is quit (quitDriver or the pool's quit hook); weak keys alone would not
+    // free listeners, which reference their driver
+    private static final Map<AppiumDriver, SessionState> sessionStates = Collections.synchronizedMap(new WeakHashMap<>());
+    private static final Map<AppiumDriver, Optional<DeviceLogListener>> deviceLogs =
+            Collections.synchronizedMap(new WeakHashMap<>());
+    private static volatile DriverPool pool;
+    private static volatile DeviceSlotScheduler slotScheduler;
 
     private DriverManager() {
         // Private constructor - utility class
@@ -22,13 +61,163 @@ public class DriverManager {
      * @throws IllegalStateException if driver not initialized
      */
     public static AppiumDriver getDriver() {
-        AppiumDriver driver = driverThreadLocal.get();
+        AppiumDriver driver = currentDriver();
         if (driver == null) {
             throw new IllegalStateException("Driver not initialized. Call setDriver() first.");
         }
         return driver;
     }
 
+    /**
+     * Returns the state shadow of the current thread's session.
+     * @return the SessionState of {@link #getDriver()}
+     * @throws IllegalStateException if driver not initialized
+     */
+    public static SessionState getSessionState() {
+        return getSessionState(getDriver());
+    }
+
+    /**
+     * Returns the state shadow of a session, creating it on first use.
+     * @param driver the session's driver
+     * @return the SessionState for that session
+     */
+    public static SessionState getSessionState(AppiumDriver driver) {
+        return sessionStates.computeIfAbsent(driver, d -> new SessionState(
+                platformOf(d), ConfigManager.getInstance().isSessionStateShadowEnabled()));
+    }
+
+    /**
+     * Returns a session's device log listener, starting it on first use.
+     * @param driver the session's driver
+     * @return the listener, or empty if disabled (device.log.listener.enabled) or the session
+     *         offers no device log
+     */
+    public static Optional<DeviceLogListener> getDeviceLog(AppiumDriver driver) {
+        Optional<DeviceLogListener> listener = deviceLogs.get(driver);
+        if (listener != null) {
+            return listener;
+        }
+        // Started outside the map lock: connecting can take seconds
+        Optional<DeviceLogListener> started = ConfigManager.getInstance().isDeviceLogListenerEnabled()
+                ? DeviceLogListener.start(driver) : Optional.empty();
+        Optional<DeviceLogListener> existing = deviceLogs.putIfAbsent(driver, started);
+        if (existing != null) {
+            started.ifPresent(DeviceLogListener::close);
+            return existing;
+        }
+        return started;
+    }
+
+    /**
+     * @param driver a session's driver
+     * @return the platform tag used in metrics: "ios" or "android"
+     */
+    public static String platformOf(AppiumDriver driver) {
+        return driver instanceof IOSDriver ? "ios" : "android";
+    }
+
+    /**
+     * Identifies the physical device behind a session (udid or device name, plus OS version),
+     * so per-device knowledge survives session restarts. Sessions without device capabilities
+     * (local emulators, the fake server) share {@value #UNKNOWN_DEVICE}.
+     * @param driver a session's driver
+     * @return a stable device id
+     */
+    public static String deviceId(AppiumDriver driver) {
+        Capabilities caps = driver.getCapabilities();
+        if (caps != null) {
+            for (String name : List.of("udid", "deviceUDID", "deviceName")) {
+                Object value = caps.getCapability(name);
+                if (value == null) {
+                    value = caps.getCapability("appium:" + name);
+                }
+                if (value != null) {
+                    Object version = caps.getCapability("platformVersion");
+                    return value + (version != null ? "/" + version : "");
+                }
+            }
+        }
+        return UNKNOWN_DEVICE;
+    }
+
+    /**
+     * Runs a task with the driver bound for the task's dynamic extent, restoring the previous
+     * binding afterwards. The task may use the driver but not release or quit it.
+     * @param driver the driver {@link #getDriver()} returns inside the task
+     * @param task the task to run
+     * @return the task's result
+     * @throws Exception whatever the task throws
+     */
+    public static <T> T callWithDriver(AppiumDriver driver, Callable<T> task) throws Exception {
+        AppiumDriver previous = bindScoped(driver);
+        try {
+            return task.call();
+        } finally {
+            restoreScoped(previous);
+        }
+    }
+
+    /**
+     * Runs a task with the driver bound for the task's dynamic extent.
+     * @param driver the driver {@link #getDriver()} returns inside the task
+     * @param task the task to run
+     * @see #callWithDriver(AppiumDriver, Callable)
+     */
+    public static void runWithDriver(AppiumDriver driver, Runnable task) {
+        AppiumDriver previous = bindScoped(driver);
+        try {
+            task.run();
+        } finally {
+            restoreScoped(previous);
+        }
+    }
+
+    /**
+     * Captures the current thread's driver so the task sees it on whichever thread runs it.
+     * @param task the task to hand to an executor
+     * @return a task that binds the captured driver while it runs
+     * @throws IllegalStateException if the current thread has no driver
+     */
+    public static <T> Callable<T> propagate(Callable<T> task) {
+        AppiumDriver driver = getDriver();
+        return () -> callWithDriver(driver, task);
+    }
+
+    /**
+     * Captures the current thread's driver so the task sees it on whichever thread runs it.
+     * @param task the task to hand to an executor
+     * @return a task that binds the captured driver while it runs
+     * @throws IllegalStateException if the current thread has no driver
+     */
+    public static Runnable propagate(Runnable task) {
+        AppiumDriver driver = getDriver();
+        return () -> runWithDriver(driver, task);
+    }
+
+    private static AppiumDriver bindScoped(AppiumDriver driver) {
+        if (driver == null) {
+            throw new IllegalArgumentException("Driver cannot be null");
+        }
+        AppiumDriver previous = scopedDriverThreadLocal.get();
+        scopedDriverThreadLocal.set(driver);
+        return previous;
+    }
+
+    private static void restoreScoped(AppiumDriver previous) {
+        if (previous == null) {
+            // remove() rather than set(null): pooled and virtual threads must not keep a stale entry
+            scopedDriverThreadLocal.remove();
+        } else {
+            scopedDriverThreadLocal.set(previous);
+        }
+    }
+
+    private static AppiumDriver currentDriver() {
+        AppiumDriver scoped = scopedDriverThreadLocal.get();
+        return scoped != null ? scoped : driverThreadLocal.get();
+    }
+
     /**
      * Sets the driver for the current thread.
      * @param driver the AppiumDriver to store
@@ -50,14 +239,173 @@ public class DriverManager {
         AppiumDriver driver = driverThreadLocal.get();
         if (driver != null) {
             try {
+                forgetSession(driver);
                 driver.quit();
                 log.info("Driver quit for thread: {}", Thread.currentThread().getName());
             } catch (Exception e) {
                 log.error("Error quitting driver", e);
             } finally {
                 driverThreadLocal.remove();
+                DeviceSlotScheduler.Slot slot = slotThreadLocal.get();
+                if (slot != null) {
+                    slot.release();
+                    slotThreadLocal.remove();
+                }
+            }
+        }
+    }
+
+    /**
+     * Drops a quit session's state shadow and closes its device log listener.
+     */
+    private static void forgetSession(AppiumDriver driver) {
+        sessionStates.remove(driver);
+        Optional<DeviceLogListener> deviceLog = deviceLogs.remove(driver);
+        if (deviceLog != null) {
+            deviceLog.ifPresent(DeviceLogListener::close);
+        }
+    }
+
+    /**
+     * Leases a driver for the current thread, reusing a pooled session when enabled.
+     * @param key the platform/device identity of the session
+     * @param factory creates a new session on a pool miss (or always, if pooling is off)
+     * @return the AppiumDriver bound to the current thread
+     */
+    public static AppiumDriver leaseDriver(SessionKey key, Supplier<AppiumDriver> factory) {
+        AppiumDriver driver = isPoolEnabled() ? getPool().lease(key, factory) : createWithSlot(key, factory);
+        setDriver(driver);
+        return driver;
+    }
+
+    private static AppiumDriver createWithSlot(SessionKey key, Supplier<AppiumDriver> factory) {
+        DeviceSlotScheduler.Slot slot;
+        try {
+            slot = getSlotScheduler().acquire(slotTimeout());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted waiting for a session slot", e);
+        }
+        if (slot == null) {
+            throw new IllegalStateException("No free session slot for " + key + " within "
+                    + slotTimeout().toSeconds() + "s");
+        }
+        try {
+            AppiumDriver driver = factory.get();
+            slotThreadLocal.set(slot);
+            return driver;
+        } catch (RuntimeException e) {
+            slot.release();
+            throw e;
+        }
+    }
+
+    /**
+     * Releases the current thread's driver: returns it to the pool when enabled,
+     * otherwise quits it. Always removes the thread binding.
+     */
+    public static void releaseDriver() {
+        AppiumDriver driver = driverThreadLocal.get();
+        if (driver == null) {
+            return;
+        }
+        if (!isPoolEnabled()) {
+            quitDriver();
+            return;
+        }
+        try {
+            getPool().release(driver);
+            log.info("Driver released to pool for thread: {}", Thread.currentThread().getName());
+        } finally {
+            driverThreadLocal.remove();
+        }
+    }
+
+    /**
+     * Quits the current thread's driver without resetting it or returning it to the pool,
+     * e.g. after the session died mid-test. Always removes the thread binding.
+     */
+    public static void discardDriver() {
+        AppiumDriver driver = driverThreadLocal.get();
+        if (driver == null) {
+            return;
+        }
+        if (!isPoolEnabled()) {
+            quitDriver();
+            return;
+        }
+        try {
+            getPool().discard(driver);
+            log.info("Driver discarded for thread: {}", Thread.currentThread().getName());
+        } finally {
+            driverThreadLocal.remove();
+        }
+    }
+
+    /**
+     * Returns how the current thread's lease was served (pool hit, prefetch or miss).
+     * @return the lease outcome, or null if pooling is disabled or no driver is leased
+     */
+    public static DriverPool.LeaseOutcome getLastLease() {
+        return isPoolEnabled() ? getPool().lastLease() : null;
+    }
+
+    /**
+     * Quits all idle pooled sessions and logs pool and slot metrics.
+     * Called once at the end of the suite.
+     */
+    public static void shutdownPool() {
+        DriverPool current = pool;
+        if (current != null) {
+            current.shutdown();
+        }
+        DeviceSlotScheduler scheduler = slotScheduler;
+        if (scheduler != null) {
+            log.info("Session slot usage: {}", scheduler.stats());
+        }
+    }
+
+    /**
+     * Returns the shared session pool, creating it on first use.
+     * @return the DriverPool instance
+     */
+    public static DriverPool getPool() {
+        if (pool == null) {
+            synchronized (DriverManager.class) {
+                if (pool == null) {
+                    Duration maxIdle = Duration.ofSeconds(ConfigManager.getInstance().getDriverPoolMaxIdleSeconds());
+                    DriverPool created = new DriverPool(maxIdle, getSlotScheduler(), slotTimeout());
+                    created.onQuit(DriverManager::forgetSession);
+                    pool = created;
+                    // Safety net: never leave paid BrowserStack sessions running if @AfterSuite is skipped
+                    Runtime.getRuntime().addShutdownHook(new Thread(created::shutdown, "driver-pool-shutdown"));
+                }
+            }
+        }
+        return pool;
+    }
+
+    /**
+     * Returns the shared session slot scheduler, sized by driver.max.sessions.
+     * @return the DeviceSlotScheduler instance
+     */
+    public static DeviceSlotScheduler getSlotScheduler() {
+        if (slotScheduler == null) {
+            synchronized (DriverManager.class) {
+                if (slotScheduler == null) {
+                    slotScheduler = new DeviceSlotScheduler(ConfigManager.getInstance().getMaxSessions());
+                }
             }
         }
+        return slotScheduler;
+    }
+
+    private static Duration slotTimeout() {
+        return Duration.ofSeconds(ConfigManager.getInstance().getSlotWaitTimeoutSeconds());
+    }
+
+    private static boolean isPoolEnabled() {
+        return ConfigManager.getInstance().isDriverPoolEnabled();
     }
 
     /**
@@ -65,6 +413,6 @@ public class DriverManager {
      * @return true if driver is initialized
      */
     public static boolean hasDriver() {
-        return driverThreadLocal.get() != null;
+        return currentDriver() != null;
     }
 }
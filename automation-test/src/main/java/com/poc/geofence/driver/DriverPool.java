@@ -0,0 +1,569 @@
+package com.poc.geofence.driver;
+
+import com.poc.geofence.config.ConfigManager;
+import com.poc.geofence.config.PlatformType;
+import io.appium.java_client.AppiumDriver;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BiConsumer;
+import java.util.function.BiPredicate;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * Pool of live Appium sessions keyed by platform and device.
+ *
+ * <p>Session startup on BrowserStack costs tens of seconds (provisioning + app install),
+ * so sessions are leased to a test, reset, and returned instead of quit after every test.
+ * Idle sessions are health-checked on lease and evicted once idle longer than the
+ * configured maximum (BrowserStack kills sessions idle for more than 90s); every release
+ * sweeps expired sessions of all devices, so they do not hold slots until shutdown.
+ *
+ * <p>Sessions can also be pre-provisioned in the background via {@link #prefetch}; a lease
+ * that finds no idle session claims a pending prefetch before falling back to a blocking create.
+ *
+ * <p>When a {@link DeviceSlotScheduler} is attached, every live session holds a slot, so the
+ * pool never exceeds the parallel-session cap. A miss with no free slot evicts the oldest
+ * idle session of another device before queueing for a slot.
+ *
+ * <p>Thread-safe: leases from parallel test threads never share a session.
+ */
+public class DriverPool {
+    private static final Logger log = LoggerFactory.getLogger(DriverPool.class);
+
+    private final Map<SessionKey, Deque<PooledSession>> idle = new ConcurrentHashMap<>();
+    private final Map<AppiumDriver, SessionKey> leased = new ConcurrentHashMap<>();
+    private final Map<SessionKey, Deque<Prefetch>> pending = new ConcurrentHashMap<>();
+    private final Map<AppiumDriver, DeviceSlotScheduler.Slot> slotsByDriver = new ConcurrentHashMap<>();
+    private final ThreadLocal<LeaseOutcome> lastLease = new ThreadLocal<>();
+    private final List<Consumer<AppiumDriver>> quitHooks = new CopyOnWriteArrayList<>();
+    private volatile boolean shutdown;
+    private final Duration maxIdle;
+    private final BiPredicate<SessionKey, AppiumDriver> healthCheck;
+    private final BiConsumer<SessionKey, AppiumDriver> resetter;
+    private final DeviceSlotScheduler slots;
+    private final Duration slotTimeout;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+    private final AtomicLong healthCheckFailures = new AtomicLong();
+    private final AtomicLong prefetchHits = new AtomicLong();
+    private final AtomicLong prefetchCancels = new AtomicLong();
+    private final AtomicLong savedNanos = new AtomicLong();
+
+    /**
+     * Creates a pool with the default health check and app-state reset.
+     * @param maxIdle maximum time a session may stay idle before it is quit
+     */
+    public DriverPool(Duration maxIdle) {
+        this(maxIdle, DriverPool::isResponsive, DriverPool::resetAppState);
+    }
+
+    /**
+     * Creates a pool with the default strategies that never exceeds the scheduler's slot cap.
+     * @param maxIdle maximum time a session may stay idle before it is quit
+     * @param slots the session slot scheduler
+     * @param slotTimeout maximum time a lease may queue for a free slot
+     */
+    public DriverPool(Duration maxIdle, DeviceSlotScheduler slots, Duration slotTimeout) {
+        this(maxIdle, DriverPool::isResponsive, DriverPool::resetAppState, slots, slotTimeout);
+    }
+
+    /**
+     * Creates a pool with custom health check and reset strategies.
+     * @param maxIdle maximum time a session may stay idle before it is quit
+     * @param healthCheck returns true if an idle session can still be used
+     * @param resetter restores app state before a session is returned to the pool
+     */
+    public DriverPool(Duration maxIdle,
+                      BiPredicate<SessionKey, AppiumDriver> healthCheck,
+                      BiConsumer<SessionKey, AppiumDriver> resetter) {
+        this(maxIdle, healthCheck, resetter, null, Duration.ZERO);
+    }
+
+    /**
+     * Creates a pool with custom strategies and an optional slot cap.
+     * @param maxIdle maximum time a session may stay idle before it is quit
+     * @param healthCheck returns true if an idle session can still be used
+     * @param resetter restores app state before a session is returned to the pool
+     * @param slots the session slot scheduler, or null for no cap
+     * @param slotTimeout maximum time a lease may queue for a free slot
+     */
+    public DriverPool(Duration maxIdle,
+                      BiPredicate<SessionKey, AppiumDriver> healthCheck,
+                      BiConsumer<SessionKey, AppiumDriver> resetter,
+                      DeviceSlotScheduler slots, Duration slotTimeout) {
+        this.maxIdle = maxIdle;
+        this.healthCheck = healthCheck;
+        this.resetter = resetter;
+        this.slots = slots;
+        this.slotTimeout = slotTimeout;
+    }
+
+    /**
+     * Leases a healthy idle session for the key, or creates a new one on a miss.
+     * @param key the platform/device identity of the session
+     * @param factory creates a new session when no idle one is available
+     * @return a session exclusively owned by the caller until released
+     */
+    public AppiumDriver lease(SessionKey key, Supplier<AppiumDriver> factory) {
+        Deque<PooledSession> sessions = idle.get(key);
+        PooledSession candidate;
+        while (sessions != null && (candidate = sessions.pollFirst()) != null) {
+            if (candidate.idleFor().compareTo(maxIdle) > 0) {
+                log.info("Evicting session idle for {}s: {}", candidate.idleFor().toSeconds(), key);
+                evictions.incrementAndGet();
+                quitQuietly(candidate.driver());
+                continue;
+            }
+            if (!isHealthy(key, candidate.driver())) {
+                log.warn("Discarding unhealthy pooled session: {}", key);
+                healthCheckFailures.incrementAndGet();
+                quitQuietly(candidate.driver());
+                continue;
+            }
+            hits.incrementAndGet();
+            leased.put(candidate.driver(), key);
+            lastLease.set(new LeaseOutcome(LeaseSource.POOL_HIT, Duration.ZERO));
+            log.info("Pool hit for {} (session {})", key, candidate.driver().getSessionId());
+            return candidate.driver();
+        }
+
+        AppiumDriver prefetched = claimPrefetch(key);
+        if (prefetched != null) {
+            leased.put(prefetched, key);
+            return prefetched;
+        }
+
+        misses.incrementAndGet();
+        log.info("Pool miss for {} - creating new session", key);
+        DeviceSlotScheduler.Slot slot = acquireSlot(key);
+        AppiumDriver driver;
+        try {
+            driver = factory.get();
+        } catch (RuntimeException e) {
+            releaseSlot(slot);
+            throw e;
+        }
+        bindSlot(driver, slot);
+        leased.put(driver, key);
+        lastLease.set(new LeaseOutcome(LeaseSource.MISS, Duration.ZERO));
+        return driver;
+    }
+
+    /**
+     * Starts creating a session for the key in the background.
+     * The next lease for the key that finds no idle session claims it.
+     * @param key the platform/device identity of the session
+     * @param factory creates the session (runs on the executor)
+     * @param executor the executor running the creation
+     */
+    public void prefetch(SessionKey key, Supplier<AppiumDriver> factory, Executor executor) {
+        if (shutdown) {
+            return;
+        }
+        DeviceSlotScheduler.Slot slot = null;
+        if (slots != null && (slot = slots.tryAcquire()) == null) {
+            log.debug("Skipping prefetch for {} - no free session slot", key);
+            return;
+        }
+        DeviceSlotScheduler.Slot prefetchSlot = slot;
+        Prefetch prefetch = new Prefetch(key, System.nanoTime());
+        prefetch.future = CompletableFuture.supplyAsync(() -> {
+            if (prefetch.state.get() == Prefetch.CANCELLED) {
+                releaseSlot(prefetchSlot);
+                return null; // cancelled before it started - never create the session
+            }
+            try {
+                AppiumDriver driver = factory.get();
+                bindSlot(driver, prefetchSlot);
+                prefetch.completedNanos = System.nanoTime();
+                return driver;
+            } catch (RuntimeException e) {
+                releaseSlot(prefetchSlot);
+                throw e;
+            }
+        }, executor);
+        pending.computeIfAbsent(key, k -> new ConcurrentLinkedDeque<>()).addLast(prefetch);
+        log.info("Pre-provisioning session for {}", key);
+    }
+
+    /**
+     * Cancels all unclaimed prefetches. Creations that have not started are skipped;
+     * creations already in flight are recycled into the idle pool when they finish.
+     * @return the number of cancelled prefetches
+     */
+    public int cancelPrefetches() {
+        int cancelled = 0;
+        for (Deque<Prefetch> prefetches : pending.values()) {
+            Prefetch prefetch;
+            while ((prefetch = prefetches.pollFirst()) != null) {
+                if (prefetch.state.compareAndSet(Prefetch.PENDING, Prefetch.CANCELLED)) {
+                    cancelled++;
+                    prefetchCancels.incrementAndGet();
+                    // Nobody will claim it any more: recycle into the pool (or quit if shutting down)
+                    SessionKey key = prefetch.key;
+                    prefetch.future.thenAccept(driver -> {
+                        if (driver != null) {
+                            recycle(key, driver);
+                        }
+                    });
+                }
+            }
+        }
+        if (cancelled > 0) {
+            log.info("Cancelled {} unclaimed pre-provisioned session(s)", cancelled);
+        }
+        return cancelled;
+    }
+
+    /**
+     * Registers a callback run after the pool quits a session (idle eviction, failed health
+     * check or reset, shutdown), e.g. to drop state kept per session.
+     * @param hook receives the quit session's driver
+     */
+    public void onQuit(Consumer<AppiumDriver> hook) {
+        quitHooks.add(hook);
+    }
+
+    /**
+     * Returns true if a lease for the key would be served without a blocking create.
+     * @param key the platform/device identity of the session
+     */
+    public boolean hasWarmSession(SessionKey key) {
+        Deque<PooledSession> sessions = idle.get(key);
+        Deque<Prefetch> prefetches = pending.get(key);
+        return (sessions != null && !sessions.isEmpty()) || (prefetches != null && !prefetches.isEmpty());
+    }
+
+    /**
+     * Returns the number of sessions alive or being created (leased + idle + pending).
+     */
+    public int liveSessions() {
+        return leased.size()
+                + idle.values().stream().mapToInt(Deque::size).sum()
+                + pending.values().stream().mapToInt(Deque::size).sum();
+    }
+
+    /**
+     * Returns how the calling thread's current lease was served.
+     * @return the lease outcome, or null if this thread holds no lease
+     */
+    public LeaseOutcome lastLease() {
+        return lastLease.get();
+    }
+
+    private AppiumDriver claimPrefetch(SessionKey key) {
+        Deque<Prefetch> prefetches = pending.get(key);
+        Prefetch prefetch;
+        while (prefetches != null && (prefetch = prefetches.pollFirst()) != null) {
+            if (!prefetch.state.compareAndSet(Prefetch.PENDING, Prefetch.CLAIMED)) {
+                continue;
+            }
+            long waitStart = System.nanoTime();
+            try {
+                AppiumDriver driver = prefetch.future.join();
+                long waited = System.nanoTime() - waitStart;
+                long saved = Math.max(0, (prefetch.completedNanos - prefetch.startedNanos) - waited);
+                prefetchHits.incrementAndGet();
+                savedNanos.addAndGet(saved);
+                Duration savedDuration = Duration.ofNanos(saved);
+                lastLease.set(new LeaseOutcome(LeaseSource.PREFETCHED, savedDuration));
+                log.info("Claimed pre-provisioned session for {} - saved {}ms (waited {}ms)",
+                        key, savedDuration.toMillis(), Duration.ofNanos(waited).toMillis());
+                return driver;
+            } catch (Exception e) {
+                log.warn("Pre-provisioning failed for {}: {}", key, e.getMessage());
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Takes a session slot for a new session, evicting idle sessions of other devices
+     * when the cap is reached, and queueing FIFO otherwise.
+     */
+    private DeviceSlotScheduler.Slot acquireSlot(SessionKey key) {
+        if (slots == null) {
+            return null;
+        }
+        DeviceSlotScheduler.Slot slot = slots.tryAcquire();
+        long deadline = System.nanoTime() + slotTimeout.toNanos();
+        try {
+            while (slot == null) {
+                if (evictOldestIdle()) {
+                    slot = slots.tryAcquire();
+                    continue;
+                }
+                if (System.nanoTime() > deadline) {
+                    throw new IllegalStateException("No free session slot for " + key + " within "
+                            + slotTimeout.toSeconds() + "s (cap " + slots.capacity() + ")");
+                }
+                // Short waits so sessions returned to the pool meanwhile can be evicted for us
+                slot = slots.acquire(Duration.ofSeconds(1));
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted waiting for a session slot", e);
+        }
+        return slot;
+    }
+
+    private boolean evictOldestIdle() {
+        Deque<PooledSession> oldestDeque = null;
+        PooledSession oldest = null;
+        for (Deque<PooledSession> sessions : idle.values()) {
+            PooledSession last = sessions.peekLast();
+            if (last != null && (oldest == null || last.idleSinceNanos() < oldest.idleSinceNanos())) {
+                oldest = last;
+                oldestDeque = sessions;
+            }
+        }
+        if (oldest == null || !oldestDeque.remove(oldest)) {
+            return false;
+        }
+        log.info("Evicting idle session to free a slot (idle {}s)", oldest.idleFor().toSeconds());
+        evictions.incrementAndGet();
+        quitQuietly(oldest.driver());
+        return true;
+    }
+
+    private void bindSlot(AppiumDriver driver, DeviceSlotScheduler.Slot slot) {
+        if (slot != null) {
+            slotsByDriver.put(driver, slot);
+        }
+    }
+
+    private static void releaseSlot(DeviceSlotScheduler.Slot slot) {
+        if (slot != null) {
+            slot.release();
+        }
+    }
+
+    private void recycle(SessionKey key, AppiumDriver driver) {
+        if (shutdown) {
+            quitQuietly(driver);
+            return;
+        }
+        idle.computeIfAbsent(key, k -> new ConcurrentLinkedDeque<>())
+                .addLast(new PooledSession(driver, System.nanoTime()));
+        log.info("Recycled unclaimed pre-provisioned session into pool: {}", key);
+    }
+
+    /**
+     * Resets app state and returns a leased session to the pool.
+     * Sessions that fail to reset are quit instead.
+     * @param driver the leased session
+     */
+    public void release(AppiumDriver driver) {
+        lastLease.remove();
+        SessionKey key = leased.remove(driver);
+        if (key == null) {
+            log.warn("Releasing session not leased from pool - quitting it");
+            quitQuietly(driver);
+            return;
+        }
+        try {
+            resetter.accept(key, driver);
+        } catch (Exception e) {
+            log.warn("App reset failed for {} - discarding session: {}", key, e.getMessage());
+            quitQuietly(driver);
+            return;
+        }
+        evictIdle();
+        idle.computeIfAbsent(key, k -> new ConcurrentLinkedDeque<>())
+                .addFirst(new PooledSession(driver, System.nanoTime()));
+        log.info("Session returned to pool: {}", key);
+    }
+
+    /**
+     * Quits a leased session without resetting it or returning it to the pool,
+     * e.g. when the hub already ended it.
+     * @param driver the leased session
+     */
+    public void discard(AppiumDriver driver) {
+        lastLease.remove();
+        leased.remove(driver);
+        quitQuietly(driver);
+    }
+
+    /**
+     * Quits all idle sessions that exceeded the maximum idle time.
+     * @return the number of evicted sessions
+     */
+    public int evictIdle() {
+        int evicted = 0;
+        for (Map.Entry<SessionKey, Deque<PooledSession>> entry : idle.entrySet()) {
+            Iterator<PooledSession> it = entry.getValue().iterator();
+            while (it.hasNext()) {
+                PooledSession session = it.next();
+                if (session.idleFor().compareTo(maxIdle) > 0 && entry.getValue().remove(session)) {
+                    log.info("Evicting session idle for {}s: {}", session.idleFor().toSeconds(), entry.getKey());
+                    quitQuietly(session.driver());
+                    evictions.incrementAndGet();
+                    evicted++;
+                }
+            }
+        }
+        return evicted;
+    }
+
+    /**
+     * Quits every idle session. Leased sessions are left to their owners.
+     */
+    public void shutdown() {
+        shutdown = true;
+        cancelPrefetches();
+        for (Deque<PooledSession> sessions : idle.values()) {
+            PooledSession session;
+            while ((session = sessions.pollFirst()) != null) {
+                quitQuietly(session.driver());
+            }
+        }
+        log.info("Driver pool shut down: {}", stats());
+    }
+
+    public PoolStats stats() {
+        int idleCount = idle.values().stream().mapToInt(Deque::size).sum();
+        return new PoolStats(hits.get(), misses.get(), evictions.get(), healthCheckFailures.get(),
+                prefetchHits.get(), prefetchCancels.get(), Duration.ofNanos(savedNanos.get()),
+                idleCount, leased.size());
+    }
+
+    private boolean isHealthy(SessionKey key, AppiumDriver driver) {
+        try {
+            return healthCheck.test(key, driver);
+        } catch (Exception e) {
+            log.debug("Health check failed: {}", e.getMessage());
+            return false;
+        }
+    }
+
+    private void quitQuietly(AppiumDriver driver) {
+        try {
+            driver.quit();
+        } catch (Exception e) {
+            log.debug("Error quitting pooled session: {}", e.getMessage());
+        } finally {
+            releaseSlot(slotsByDriver.remove(driver));
+            for (Consumer<AppiumDriver> hook : quitHooks) {
+                try {
+                    hook.accept(driver);
+                } catch (RuntimeException e) {
+                    log.warn("Session quit hook failed: {}", e.getMessage());
+                }
+            }
+        }
+    }
+
+    /**
+     * Default health check: session id present and the app state query answers.
+     */
+    static boolean isResponsive(SessionKey key, AppiumDriver driver) {
+        if (driver.getSessionId() == null) {
+            return false;
+        }
+        driver.executeScript("mobile: queryAppState", appIdArgs(key.platform(), driver));
+        return true;
+    }
+
+    /**
+     * Default reset: terminate and relaunch the app under test so the next test
+     * starts from a cold app state without paying for a new session.
+     */
+    static void resetAppState(SessionKey key, AppiumDriver driver) {
+        Map<String, Object> args = appIdArgs(key.platform(), driver);
+        String appId = (String) args.values().iterator().next();
+        SessionState state = DriverManager.getSessionState(driver);
+        state.terminateApp(appId, () -> driver.executeScript("mobile: terminateApp", args));
+        state.activateApp(appId, () -> driver.executeScript("mobile: activateApp", args));
+        log.debug("App state reset: {}", args);
+    }
+
+    private static Map<String, Object> appIdArgs(PlatformType platform, AppiumDriver driver) {
+        ConfigManager config = ConfigManager.getInstance();
+        if (platform == PlatformType.ANDROID) {
+            return Map.of("appId", config.getProperty("app.android.package", "com.eebax.geofencing"));
+        }
+        String bundleId = config.getProperty("app.ios.bundle.id");
+        if (bundleId == null || bundleId.isEmpty()) {
+            Object info = driver.executeScript("mobile: activeAppInfo");
+            bundleId = info instanceof Map<?, ?> map ? String.valueOf(map.get("bundleId")) : "";
+        }
+        return Map.of("bundleId", bundleId);
+    }
+
+    private record PooledSession(AppiumDriver driver, long idleSinceNanos) {
+        Duration idleFor() {
+            return Duration.ofNanos(System.nanoTime() - idleSinceNanos);
+        }
+    }
+
+    private static final class Prefetch {
+        static final int PENDING = 0;
+        static final int CLAIMED = 1;
+        static final int CANCELLED = 2;
+
+        final SessionKey key;
+        final long startedNanos;
+        final AtomicInteger state = new AtomicInteger(PENDING);
+        volatile CompletableFuture<AppiumDriver> future;
+        volatile long completedNanos;
+
+        Prefetch(SessionKey key, long startedNanos) {
+            this.key = key;
+            this.startedNanos = startedNanos;
+        }
+    }
+
+    /**
+     * How a lease was served.
+     */
+    public enum LeaseSource {
+        POOL_HIT,
+        PREFETCHED,
+        MISS
+    }
+
+    /**
+     * Result of a single lease.
+     * @param source where the session came from
+     * @param saved provisioning time hidden behind earlier test execution (prefetch only)
+     */
+    public record LeaseOutcome(LeaseSource source, Duration saved) {
+    }
+
+    /**
+     * Snapshot of pool counters.
+     */
+    public record PoolStats(long hits, long misses, long evictions, long healthCheckFailures,
+                            long prefetchHits, long prefetchCancels, Duration timeSaved,
+                            int idle, int leased) {
+        public double hitRate() {
+            long total = hits + prefetchHits + misses;
+            return total == 0 ? 0.0 : (double) (hits + prefetchHits) / total;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("hits=%d, prefetchHits=%d, misses=%d, hitRate=%.0f%%, evictions=%d, "
+                            + "healthFailures=%d, prefetchCancels=%d, timeSaved=%ds, idle=%d, leased=%d",
+                    hits, prefetchHits, misses, hitRate() * 100, evictions, healthCheckFailures,
+                    prefetchCancels, timeSaved.toSeconds(), idle, leased);
+        }
+    }
+}
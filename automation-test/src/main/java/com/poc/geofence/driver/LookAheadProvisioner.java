@@ -0,0 +1,84 @@
+package com.poc.geofence.driver;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Pre-provisions the next test's Appium session while the current test is still running.
+ *
+ * <p>Given the ordered list of upcoming sessions (one per test method), each test start
+ * triggers a background create for the following test when that test would otherwise
+ * block on a pool miss. Provisioning latency then overlaps with test execution.
+ * Unclaimed sessions are cancelled or recycled into the pool via {@link #finish()}.
+ *
+ * <p>Never exceeds the configured session cap, so it stays within the BrowserStack
+ * parallel allowance; with a cap of 1 it is effectively a no-op.
+ */
+public class LookAheadProvisioner {
+    private static final Logger log = LoggerFactory.getLogger(LookAheadProvisioner.class);
+
+    private final DriverPool pool;
+    private final DriverFactory factory;
+    private final int maxSessions;
+    private volatile List<SessionKey> plan = List.of();
+
+    public LookAheadProvisioner(DriverPool pool, DriverFactory factory, int maxSessions) {
+        this.pool = pool;
+        this.factory = factory;
+        this.maxSessions = maxSessions;
+    }
+
+    /**
+     * Sets the session order for the upcoming tests.
+     * @param upcoming one session key per test method, in execution order (null = no session needed)
+     */
+    public void plan(List<SessionKey> upcoming) {
+        this.plan = Collections.unmodifiableList(new ArrayList<>(upcoming));
+        log.info("Look-ahead provisioning planned for {} test(s), session cap {}", upcoming.size(), maxSessions);
+    }
+
+    /**
+     * Called when the test at the given plan index starts; pre-provisions the next one if needed.
+     * @param index the position of the starting test in the plan
+     */
+    public void onTestStarted(int index) {
+        List<SessionKey> current = plan;
+        if (index < 0 || index + 1 >= current.size()) {
+            return;
+        }
+        SessionKey next = nextSession(current, index);
+        if (next == null || next.equals(current.get(index))) {
+            // Current session is returned to the pool after this test - nothing to gain
+            return;
+        }
+        if (pool.hasWarmSession(next)) {
+            return;
+        }
+        if (pool.liveSessions() >= maxSessions) {
+            log.debug("Skipping look-ahead for {} - session cap {} reached", next, maxSessions);
+            return;
+        }
+        pool.prefetch(next, () -> factory.createDriver(next), DriverFactory.provisioningExecutor());
+    }
+
+    private static SessionKey nextSession(List<SessionKey> current, int index) {
+        for (int i = index + 1; i < current.size(); i++) {
+            if (current.get(i) != null) {
+                return current.get(i);
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Cancels sessions that were pre-provisioned but never claimed.
+     */
+    public void finish() {
+        pool.cancelPrefetches();
+        plan = List.of();
+    }
+}
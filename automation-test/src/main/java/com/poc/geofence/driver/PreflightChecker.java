@@ -0,0 +1,337 @@
+package com.poc.geofence.driver;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.poc.geofence.config.ConfigManager;
+import com.poc.geofence.config.Environment;
+import com.poc.geofence.config.PlatformType;
+import com.poc.geofence.driver.PreflightReport.CheckResult;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.ConnectException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * Readiness checks run once before the suite creates any session.
+ *
+ * <p>Checks hub reachability, BrowserStack credentials, plan quota and that each planned
+ * platform's app (the bs:// id in app.*.path, or the cached upload of a local binary) is still
+ * uploaded; a cached upload that is gone is evicted so it is uploaded again. All checks run concurrently
+ * on non-blocking HTTP calls, so the stage costs about one round trip to the slowest endpoint.
+ * A FAIL maps to a non-transient {@link SessionFailureKind}; checks that cannot decide
+ * (e.g. the BrowserStack API is slow) WARN and never block the run.
+ */
+public class PreflightChecker {
+    private static final Logger log = LoggerFactory.getLogger(PreflightChecker.class);
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    private final Environment environment;
+    private final String hubUrl;
+    private final String apiUrl;
+    private final String username;
+    private final String accessKey;
+    private final Function<PlatformType, String> appPaths;
+    private final AppArtifactManager uploads;
+    private final Duration timeout;
+    private final HttpClient http;
+
+    /**
+     * Creates a checker for the configured hub, credentials and app paths.
+     * @param environment the execution environment
+     */
+    public PreflightChecker(Environment environment) {
+        this(environment, new DriverFactory().hubUrl(environment), ConfigManager.getInstance().getBrowserStackApiUrl(),
+                ConfigManager.getInstance().getBrowserStackProperty("browserstack.username"),
+                ConfigManager.getInstance().getBrowserStackProperty("browserstack.accesskey"),
+                ConfigManager.getInstance()::getAppPath,
+                environment == Environment.BROWSERSTACK ? AppArtifactManager.getInstance() : null,
+                Duration.ofSeconds(ConfigManager.getInstance().getPreflightTimeoutSeconds()));
+    }
+
+    PreflightChecker(Environment environment, String hubUrl, String apiUrl, String username, String accessKey,
+                     Function<PlatformType, String> appPaths, AppArtifactManager uploads, Duration timeout) {
+        this.environment = environment;
+        this.hubUrl = hubUrl.replaceAll("/$", "");
+        this.apiUrl = apiUrl.replaceAll("/$", "");
+        this.username = username;
+        this.accessKey = accessKey;
+        this.appPaths = appPaths;
+        this.uploads = uploads;
+        this.timeout = timeout;
+        this.http = HttpClient.newBuilder().connectTimeout(timeout).build();
+    }
+
+    /**
+     * Runs all checks concurrently.
+     * @param platforms platforms the suite will create sessions for
+     * @return the results; never throws
+     */
+    public PreflightReport run(Collection<PlatformType> platforms) {
+        long start = System.nanoTime();
+        boolean browserStack = environment == Environment.BROWSERSTACK;
+        boolean hasCredentials = username != null && !username.isEmpty() && accessKey != null && !accessKey.isEmpty();
+        boolean callApi = browserStack && hasCredentials;
+
+        // Credentials and quota share plan.json; all apps share recent_apps
+        CompletableFuture<HttpResponse<String>> plan = callApi ? get(apiUrl + "/app-automate/plan.json", true) : null;
+        CompletableFuture<HttpResponse<String>> apps = callApi && platforms.stream()
+                .anyMatch(p -> isBrowserStackId(appPaths.apply(p)) || cachedUpload(appPaths.apply(p)).isPresent())
+                ? get(apiUrl + "/app-automate/recent_apps", true) : null;
+
+        List<String> names = new ArrayList<>();
+        List<CompletableFuture<CheckResult>> checks = new ArrayList<>();
+        names.add("Hub reachable");
+        checks.add(checkHub("Hub reachable"));
+        String credentials = "BrowserStack credentials";
+        names.add(credentials);
+        checks.add(!browserStack ? done(CheckResult.skipped(credentials, "local environment"))
+                : !hasCredentials ? done(CheckResult.fail(credentials, SessionFailureKind.INVALID_CREDENTIALS,
+                        "browserstack.username / browserstack.accesskey not configured"))
+                : plan.thenApply(r -> credentialsResult(credentials, r)));
+        String quota = "BrowserStack plan quota";
+        names.add(quota);
+        checks.add(!callApi ? done(CheckResult.skipped(quota, browserStack ? "no credentials" : "local environment"))
+                : plan.thenApply(r -> quotaResult(quota, r)));
+        for (PlatformType platform : platforms) {
+            String name = "App " + platform.getValue();
+            names.add(name);
+            checks.add(checkApp(name, appPaths.apply(platform), apps));
+        }
+
+        List<CheckResult> results = new ArrayList<>();
+        for (int i = 0; i < checks.size(); i++) {
+            String name = names.get(i);
+            results.add(checks.get(i)
+                    .completeOnTimeout(CheckResult.warn(name, "no answer within " + timeout.toSeconds() + "s"),
+                            timeout.toMillis(), TimeUnit.MILLISECONDS)
+                    .exceptionally(e -> CheckResult.warn(name, "check failed: " + rootMessage(e)))
+                    .join());
+        }
+        PreflightReport report = new PreflightReport(results, Duration.ofNanos(System.nanoTime() - start));
+        log.info("Pre-flight checks:\n{}", report.toTable());
+        return report;
+    }
+
+    private CompletableFuture<CheckResult> checkHub(String name) {
+        long start = System.nanoTime();
+        // Any HTTP answer proves reachability; /status needs no session or credentials.
+        // Only a refused connection is definitive: a slow or flaky hub may still take sessions
+        return get(hubUrl + "/status", false)
+                .thenApply(r -> CheckResult.pass(name, "HTTP " + r.statusCode() + " in "
+                        + TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) + "ms"))
+                .exceptionally(e -> unwrap(e) instanceof ConnectException
+                        ? CheckResult.fail(name, SessionFailureKind.HUB_UNREACHABLE, hubUrl + ": " + rootMessage(e))
+                        : CheckResult.warn(name, hubUrl + ": " + rootMessage(e)));
+    }
+
+    private CheckResult credentialsResult(String name, HttpResponse<String> plan) {
+        return switch (PlanAccess.of(plan)) {
+            case REJECTED -> CheckResult.fail(name, SessionFailureKind.INVALID_CREDENTIALS,
+                    "BrowserStack API rejected username/access key");
+            case GRANTED, PLAN_EXPIRED -> CheckResult.pass(name, "accepted by BrowserStack API");
+            case FORBIDDEN -> CheckResult.warn(name, "BrowserStack API denied the plan query (HTTP 403): "
+                    + abbreviate(planMessage(plan)));
+            case UNKNOWN -> CheckResult.warn(name, "BrowserStack API answered HTTP " + plan.statusCode());
+        };
+    }
+
+    private CheckResult quotaResult(String name, HttpResponse<String> plan) {
+        PlanAccess access = PlanAccess.of(plan);
+        if (access != PlanAccess.GRANTED) {
+            return switch (access) {
+                case REJECTED -> CheckResult.skipped(name, "credentials rejected");
+                case PLAN_EXPIRED -> CheckResult.fail(name, SessionFailureKind.QUOTA_EXHAUSTED,
+                        "HTTP " + plan.statusCode() + ": " + abbreviate(planMessage(plan)));
+                case FORBIDDEN -> CheckResult.warn(name, "BrowserStack API denied the plan query (HTTP 403): "
+                        + abbreviate(planMessage(plan)));
+                default -> CheckResult.warn(name, "BrowserStack API answered HTTP " + plan.statusCode());
+            };
+        }
+        try {
+            JsonNode json = MAPPER.readTree(plan.body());
+            int allowed = json.path("parallel_sessions_max_allowed").asInt(-1);
+            int running = json.path("parallel_sessions_running").asInt(0);
+            if (allowed == 0) {
+                return CheckResult.fail(name, SessionFailureKind.QUOTA_EXHAUSTED, "plan allows no parallel sessions");
+            }
+            if (allowed > 0 && running >= allowed) {
+                return CheckResult.warn(name, "all " + allowed + " parallel sessions busy - sessions will queue");
+            }
+            return CheckResult.pass(name, json.path("automate_plan").asText("plan") + ", "
+                    + running + "/" + (allowed < 0 ? "?" : allowed) + " parallel sessions in use");
+        } catch (Exception e) {
+            return CheckResult.warn(name, "unreadable plan response: " + e.getMessage());
+        }
+    }
+
+    private CompletableFuture<CheckResult> checkApp(String name, String appPath,
+                                                    CompletableFuture<HttpResponse<String>> apps) {
+        if (appPath == null || appPath.isEmpty()) {
+            return done(CheckResult.fail(name, SessionFailureKind.APP_UNAVAILABLE, "app path not configured"));
+        }
+        if (!isBrowserStackId(appPath)) {
+            if (!new File(appPath).exists()) {
+                return done(CheckResult.fail(name, SessionFailureKind.APP_UNAVAILABLE, appPath + " does not exist"));
+            }
+            // On BrowserStack a local binary is uploaded on first use by AppArtifactManager
+            Optional<String> cached = cachedUpload(appPath);
+            if (cached.isEmpty() || apps == null) {
+                return done(CheckResult.pass(name, appPath + (environment == Environment.BROWSERSTACK
+                        ? " (uploaded once per content hash)" : "")));
+            }
+            String appUrl = cached.get();
+            return apps.thenApply(r -> {
+                try {
+                    if (r.statusCode() / 100 != 2 || listedApp(r.body(), appUrl) != null) {
+                        return CheckResult.pass(name, appPath + " (cached upload " + appUrl + ")");
+                    }
+                } catch (Exception e) {
+                    return CheckResult.warn(name, "unreadable app list: " + e.getMessage());
+                }
+                uploads.evict(appPath);
+                return CheckResult.warn(name, "cached upload " + appUrl + " of " + appPath
+                        + " not among uploaded apps - will upload again");
+            });
+        }
+        if (environment != Environment.BROWSERSTACK) {
+            return done(CheckResult.skipped(name, appPath + " (BrowserStack id on local hub)"));
+        }
+        if (apps == null) {
+            return done(CheckResult.skipped(name, "no credentials"));
+        }
+        return apps.thenApply(r -> {
+            if (r.statusCode() == 401) {
+                return CheckResult.skipped(name, "credentials rejected");
+            }
+            if (r.statusCode() / 100 != 2) {
+                return CheckResult.warn(name, "BrowserStack API answered HTTP " + r.statusCode());
+            }
+            try {
+                JsonNode app = listedApp(r.body(), appPath);
+                if (app != null) {
+                    return CheckResult.pass(name, appPath + " (" + app.path("app_name").asText("uploaded") + ")");
+                }
+            } catch (Exception e) {
+                return CheckResult.warn(name, "unreadable app list: " + e.getMessage());
+            }
+            return CheckResult.fail(name, SessionFailureKind.APP_UNAVAILABLE,
+                    appPath + " not among uploaded apps (BrowserStack deletes apps after 30 days)");
+        });
+    }
+
+    /**
+     * @return the recent_apps entry for an app id, or null if it is not listed
+     */
+    private static JsonNode listedApp(String recentApps, String appUrl) throws IOException {
+        // "No results found" comes back as an object instead of a list
+        for (JsonNode app : MAPPER.readTree(recentApps)) {
+            if (appUrl.equals(app.path("app_url").asText())) {
+                return app;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * @return the "message" field of a BrowserStack API error, or the raw body if it has none
+     */
+    private static String planMessage(HttpResponse<String> response) {
+        String body = response.body() == null ? "" : response.body();
+        try {
+            return MAPPER.readTree(body).path("message").asText(body);
+        } catch (IOException e) {
+            return body;
+        }
+    }
+
+    /**
+     * What a plan.json answer says about the account, shared by the credentials and quota checks.
+     */
+    private enum PlanAccess {
+        /** 2xx: the plan and its usage fields are in the body */
+        GRANTED,
+        /** 401: username or access key wrong */
+        REJECTED,
+        /** 403 whose message says the plan or its testing time is used up */
+        PLAN_EXPIRED,
+        /** Any other 403: authenticated, but this account may not read the plan */
+        FORBIDDEN,
+        /** Anything else, e.g. a 5xx */
+        UNKNOWN;
+
+        static PlanAccess of(HttpResponse<String> plan) {
+            int status = plan.statusCode();
+            if (status / 100 == 2) {
+                return GRANTED;
+            }
+            if (status == 401) {
+                return REJECTED;
+            }
+            if (status == 403) {
+                // Same markers as a session refused for the same reason
+                return SessionFailureKind.classify(new IllegalStateException(planMessage(plan)))
+                        == SessionFailureKind.QUOTA_EXHAUSTED ? PLAN_EXPIRED : FORBIDDEN;
+            }
+            return UNKNOWN;
+        }
+    }
+
+    private Optional<String> cachedUpload(String appPath) {
+        return uploads == null ? Optional.empty() : uploads.cachedUpload(appPath);
+    }
+
+    private CompletableFuture<HttpResponse<String>> get(String url, boolean authenticate) {
+        HttpRequest.Builder request = HttpRequest.newBuilder(URI.create(url)).timeout(timeout).GET();
+        if (authenticate) {
+            String token = username + ":" + accessKey;
+            request.header("Authorization", "Basic " + Base64.getEncoder().encodeToString(token.getBytes(StandardCharsets.UTF_8)));
+        }
+        return http.sendAsync(request.build(), HttpResponse.BodyHandlers.ofString());
+    }
+
+    private static boolean isBrowserStackId(String appPath) {
+        return appPath != null && appPath.startsWith("bs://");
+    }
+
+    private static <T> CompletableFuture<T> done(T value) {
+        return CompletableFuture.completedFuture(value);
+    }
+
+    private static Throwable unwrap(Throwable e) {
+        return e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+    }
+
+    private static String rootMessage(Throwable e) {
+        Throwable root = unwrap(e);
+        // The JDK client reports a refused connection as a ConnectException without a message
+        if (root instanceof ConnectException) {
+            return "connection refused";
+        }
+        while (root.getCause() != null && root.getCause() != root) {
+            root = root.getCause();
+        }
+        return root.getMessage() != null ? root.getMessage() : root.getClass().getSimpleName();
+    }
+
+    private static String abbreviate(String body) {
+        String flat = body.replaceAll("\\s+", " ").trim();
+        return flat.length() > 160 ? flat.substring(0, 160) + "..." : flat;
+    }
+}
@@ -0,0 +1,56 @@
+package com.poc.geofence.driver;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Outcome of the pre-flight checks run by {@link PreflightChecker}.
+ * @param checks one result per check, in the order they were started
+ * @param elapsed wall time of the whole (concurrent) run
+ */
+public record PreflightReport(List<CheckResult> checks, Duration elapsed) {
+
+    public enum Status { PASS, WARN, FAIL, SKIPPED }
+
+    /**
+     * Result of one check. {@code failureKind} is set for FAIL only.
+     */
+    public record CheckResult(String name, Status status, String detail, SessionFailureKind failureKind) {
+
+        static CheckResult pass(String name, String detail) {
+            return new CheckResult(name, Status.PASS, detail, null);
+        }
+
+        static CheckResult warn(String name, String detail) {
+            return new CheckResult(name, Status.WARN, detail, null);
+        }
+
+        static CheckResult fail(String name, SessionFailureKind kind, String detail) {
+            return new CheckResult(name, Status.FAIL, detail, kind);
+        }
+
+        static CheckResult skipped(String name, String detail) {
+            return new CheckResult(name, Status.SKIPPED, detail, null);
+        }
+    }
+
+    public boolean passed() {
+        return firstFailure().isEmpty();
+    }
+
+    public Optional<CheckResult> firstFailure() {
+        return checks.stream().filter(c -> c.status() == Status.FAIL).findFirst();
+    }
+
+    /**
+     * Formats the results as a fixed-width table for logs.
+     */
+    public String toTable() {
+        StringBuilder sb = new StringBuilder(String.format("%-28s %-8s %s%n", "check", "status", "detail"));
+        for (CheckResult c : checks) {
+            sb.append(String.format("%-28s %-8s %s%n", c.name(), c.status(), c.detail()));
+        }
+        return sb.append(String.format("(%d checks in %dms)", checks.size(), elapsed.toMillis())).toString();
+    }
+}
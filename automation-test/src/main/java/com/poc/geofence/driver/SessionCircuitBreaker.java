@@ -0,0 +1,127 @@
+package com.poc.geofence.driver;
+
+import com.poc.geofence.config.ConfigManager;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Circuit breaker around Appium session creation.
+ *
+ * <p>Opens on the first non-transient failure (see {@link SessionFailureKind}), on a failed
+ * pre-flight check, or after too many consecutive transient failures. Once open, every
+ * session request fails immediately with a {@link SessionCircuitOpenException} for the rest
+ * of the run: an expired plan or wrong access key does not fix itself mid-suite, and each
+ * doomed attempt costs a hub round trip plus the test's retries.
+ *
+ * <p>Thread-safe: shared by parallel test threads and background provisioning.
+ */
+public class SessionCircuitBreaker {
+    private static final Logger log = LoggerFactory.getLogger(SessionCircuitBreaker.class);
+    private static volatile SessionCircuitBreaker instance;
+
+    private final int failureThreshold;
+    private final AtomicInteger consecutiveFailures = new AtomicInteger();
+    private final AtomicReference<Trip> openCause = new AtomicReference<>();
+
+    /**
+     * @param failureThreshold consecutive transient failures that open the circuit
+     */
+    SessionCircuitBreaker(int failureThreshold) {
+        this.failureThreshold = failureThreshold;
+    }
+
+    public static SessionCircuitBreaker getInstance() {
+        if (instance == null) {
+            synchronized (SessionCircuitBreaker.class) {
+                if (instance == null) {
+                    instance = new SessionCircuitBreaker(ConfigManager.getInstance().getSessionFailureThreshold());
+                }
+            }
+        }
+        return instance;
+    }
+
+    /**
+     * Throws if the circuit is open; call before every session creation attempt.
+     * Each call throws a new exception, caused by the failure that opened the circuit.
+     */
+    public void checkClosed() {
+        Trip open = openCause.get();
+        if (open != null) {
+            throw new SessionCircuitOpenException(open.kind(), open.reason(), open.failure());
+        }
+    }
+
+    public boolean isOpen() {
+        return openCause.get() != null;
+    }
+
+    public void recordSuccess() {
+        consecutiveFailures.set(0);
+    }
+
+    /**
+     * Records a failed session creation and opens the circuit if it cannot recover.
+     * @param failure the exception thrown while creating the session
+     * @return the failure classification
+     */
+    public SessionFailureKind recordFailure(Throwable failure) {
+        SessionFailureKind kind = SessionFailureKind.classify(failure);
+        if (failure instanceof SessionCircuitOpenException) {
+            return kind;
+        }
+        if (!kind.isTransient()) {
+            open(kind, summary(failure), failure);
+        } else if (consecutiveFailures.incrementAndGet() >= failureThreshold) {
+            open(kind, failureThreshold + " consecutive session failures, last: " + summary(failure), failure);
+        }
+        return kind;
+    }
+
+    /**
+     * Opens the circuit; the first reason wins.
+     * @param kind why sessions cannot be created
+     * @param reason detail shown in every failing test
+     */
+    public void open(SessionFailureKind kind, String reason) {
+        open(kind, reason, null);
+    }
+
+    private void open(SessionFailureKind kind, String reason, Throwable failure) {
+        if (openCause.compareAndSet(null, new Trip(kind, reason, failure))) {
+            log.error("Session circuit opened ({}): {} - remaining tests will fail fast", kind, reason);
+        }
+    }
+
+    /**
+     * Closes the circuit and clears the failure count.
+     */
+    public void reset() {
+        openCause.set(null);
+        consecutiveFailures.set(0);
+    }
+
+    /**
+     * Returns the first line of the innermost cause's message.
+     */
+    static String summary(Throwable failure) {
+        Throwable root = failure;
+        while (root.getCause() != null && root.getCause() != root) {
+            root = root.getCause();
+        }
+        String message = root.getMessage() != null ? root.getMessage() : root.getClass().getSimpleName();
+        // Selenium appends build/system info on following lines
+        int newline = message.indexOf('\n');
+        return newline > 0 ? message.substring(0, newline) : message;
+    }
+
+    /**
+     * Why the circuit opened.
+     * @param failure the session failure that opened it, or null for a failed pre-flight check
+     */
+    private record Trip(SessionFailureKind kind, String reason, Throwable failure) {
+    }
+}
@@ -0,0 +1,25 @@
+package com.poc.geofence.driver;
+
+/**
+ * Thrown instead of creating a session once the {@link SessionCircuitBreaker} has opened.
+ * The message starts with "Session circuit open" so reports can group these failures.
+ */
+public class SessionCircuitOpenException extends RuntimeException {
+    private static final long serialVersionUID = 1L;
+
+    private final SessionFailureKind kind;
+
+    public SessionCircuitOpenException(SessionFailureKind kind, String reason) {
+        this(kind, reason, null);
+    }
+
+    public SessionCircuitOpenException(SessionFailureKind kind, String reason, Throwable cause) {
+        super("Session circuit open [" + kind + "]: " + kind.getDescription() + " - " + reason
+                + ". Remaining tests fail without creating sessions.", cause);
+        this.kind = kind;
+    }
+
+    public SessionFailureKind getKind() {
+        return kind;
+    }
+}
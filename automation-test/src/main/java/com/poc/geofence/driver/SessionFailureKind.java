@@ -0,0 +1,68 @@
+package com.poc.geofence.driver;
+
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Why an Appium session could not be created, and whether trying again can help.
+ *
+ * <p>Non-transient kinds (expired plan, bad credentials, missing app) fail the same way
+ * on every attempt, so the {@link SessionCircuitBreaker} stops creating sessions as soon
+ * as one is seen instead of letting every remaining test and retry rediscover it.
+ */
+public enum SessionFailureKind {
+    TRANSIENT("Session creation keeps failing", true),
+    HUB_UNREACHABLE("Appium hub unreachable", false),
+    INVALID_CREDENTIALS("Invalid or missing BrowserStack credentials", false),
+    QUOTA_EXHAUSTED("BrowserStack plan quota exhausted", false),
+    APP_UNAVAILABLE("App under test not available", false);
+
+    private static final List<String> QUOTA_MARKERS = List.of(
+            "testing time has expired", "free trial", "plan has expired", "minutes exhausted", "upgrade your plan");
+    private static final List<String> CREDENTIAL_MARKERS = List.of(
+            "authorization required", "invalid username", "invalid credentials", "access key not configured",
+            "username not configured");
+    private static final List<String> APP_MARKERS = List.of(
+            "invalid app", "app_url_invalid", "invalid_app", "could not find app", "app not found");
+
+    private final String description;
+    private final boolean isTransient;
+
+    SessionFailureKind(String description, boolean isTransient) {
+        this.description = description;
+        this.isTransient = isTransient;
+    }
+
+    public String getDescription() {
+        return description;
+    }
+
+    public boolean isTransient() {
+        return isTransient;
+    }
+
+    /**
+     * Classifies a session creation failure by the messages in its cause chain.
+     * Anything not recognised is treated as transient.
+     * @param failure the exception thrown while creating a session
+     * @return the failure kind
+     */
+    public static SessionFailureKind classify(Throwable failure) {
+        for (Throwable t = failure; t != null; t = t.getCause() == t ? null : t.getCause()) {
+            if (t instanceof SessionCircuitOpenException open) {
+                return open.getKind();
+            }
+            String message = t.getMessage() == null ? "" : t.getMessage().toLowerCase(Locale.ROOT);
+            if (QUOTA_MARKERS.stream().anyMatch(message::contains)) {
+                return QUOTA_EXHAUSTED;
+            }
+            if (CREDENTIAL_MARKERS.stream().anyMatch(message::contains)) {
+                return INVALID_CREDENTIALS;
+            }
+            if (APP_MARKERS.stream().anyMatch(message::contains)) {
+                return APP_UNAVAILABLE;
+            }
+        }
+        return TRANSIENT;
+    }
+}
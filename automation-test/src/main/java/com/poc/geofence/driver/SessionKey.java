@@ -0,0 +1,22 @@
+package com.poc.geofence.driver;
+
+import com.poc.geofence.config.Environment;
+import com.poc.geofence.config.PlatformType;
+
+/**
+ * Identifies an interchangeable Appium session: same platform, environment and device.
+ * Sessions with equal keys can be reused across tests by the DriverPool.
+ *
+ * @param platform the target platform
+ * @param environment the execution environment
+ * @param deviceName the device name (e.g., "Google Pixel 7")
+ * @param osVersion the OS version (e.g., "13")
+ */
+public record SessionKey(PlatformType platform, Environment environment,
+                         String deviceName, String osVersion) {
+
+    @Override
+    public String toString() {
+        return platform.getValue() + "/" + environment.getValue() + "/" + deviceName + "/" + osVersion;
+    }
+}
@@ -0,0 +1,240 @@
+package com.poc.geofence.driver;
+
+import com.poc.geofence.metrics.CommandMetrics;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Shadow of one Appium session's device state, as last set by the framework's own commands:
+ * current context, simulated location, app state and foreground package.
+ *
+ * <p>Callers route state-changing commands through this class, which skips a command when the
+ * shadow shows it would change nothing (switching to the context already active, setting the
+ * location the device already has). Each skip is counted per test in {@link CommandMetrics}.
+ * Unknown state never causes a skip: the command runs and its outcome is remembered.
+ * A failed command marks that part of the state unknown again.
+ *
+ * <p>The shadow only sees commands sent through it. Code that changes device state some other
+ * way must call one of the forget methods. Commands run outside the lock, so sessions driven
+ * from background threads (route playback) and virtual threads never block on it.
+ */
+public class SessionState {
+    private static final Logger log = LoggerFactory.getLogger(SessionState.class);
+    public static final long APP_NOT_RUNNING = 1;
+    public static final long APP_RUNNING_IN_FOREGROUND = 4;
+
+    private final String platform;
+    private final boolean enabled;
+    private final Map<String, LongAdder> skipped = new ConcurrentHashMap<>();
+
+    // Guarded by this; null means unknown
+    private String context;
+    private Double latitude;
+    private Double longitude;
+    private Long appState;
+    private String foregroundPackage;
+    // App the lifecycle state refers to; appState says nothing about other apps
+    private String lastApp;
+
+    /**
+     * @param platform platform tag for skip metrics (e.g., "android")
+     * @param enabled false to run every command (state is still tracked)
+     */
+    public SessionState(String platform, boolean enabled) {
+        this.platform = platform;
+        this.enabled = enabled;
+    }
+
+    // ==================== Context ====================
+
+    /**
+     * Returns the current context, querying the device only when it is not known.
+     * @param query issues getContext
+     * @return the current context name
+     */
+    public String context(Supplier<String> query) {
+        synchronized (this) {
+            if (enabled && context != null) {
+                skip("getContext");
+                return context;
+            }
+        }
+        String current = query.get();
+        synchronized (this) {
+            context = current;
+        }
+        return current;
+    }
+
+    /**
+     * Switches context unless it is already active.
+     * @param name the context to switch to, e.g. "NATIVE_APP"
+     * @param command issues the context switch
+     * @return true if the command was sent
+     */
+    public boolean switchContext(String name, Runnable command) {
+        synchronized (this) {
+            if (enabled && name.equals(context)) {
+                skip("setContext");
+                return false;
+            }
+        }
+        return run(command, () -> context = name, () -> context = null);
+    }
+
+    // ==================== Location ====================
+
+    /**
+     * Sets the simulated location unless the device is already there.
+     * @param lat latitude
+     * @param lng longitude
+     * @param command issues the set-location command
+     * @return true if the command was sent
+     */
+    public boolean setLocation(double lat, double lng, Runnable command) {
+        synchronized (this) {
+            if (enabled && isAt(lat, lng)) {
+                skip("setLocation");
+                return false;
+            }
+        }
+        return run(command, () -> {
+            latitude = lat;
+            longitude = lng;
+        }, () -> {
+            latitude = null;
+            longitude = null;
+        });
+    }
+
+    /**
+     * @return true if the device's location is known to be exactly this point
+     */
+    public synchronized boolean isAt(double lat, double lng) {
+        return latitude != null && latitude == lat && longitude == lng;
+    }
+
+    // ==================== App lifecycle ====================
+
+    /**
+     * Terminates the app unless it is known not to be running.
+     * @param appId package or bundle id
+     * @param command issues mobile: terminateApp
+     * @return true if the command was sent
+     */
+    public boolean terminateApp(String appId, Runnable command) {
+        synchronized (this) {
+            if (enabled && appId.equals(lastApp) && Long.valueOf(APP_NOT_RUNNING).equals(appState)) {
+                skip("mobile: terminateApp");
+                return false;
+            }
+        }
+        return run(command, () -> {
+            appState = APP_NOT_RUNNING;
+            foregroundPackage = null;
+            lastApp = appId;
+            // Web contexts die with the app
+            context = null;
+        }, this::forgetAppLocked);
+    }
+
+    /**
+     * Brings the app to the foreground unless it is known to be there already.
+     * @param appId package or bundle id
+     * @param command issues mobile: activateApp
+     * @return true if the command was sent
+     */
+    public boolean activateApp(String appId, Runnable command) {
+        synchronized (this) {
+            if (enabled && appId.equals(foregroundPackage)
+                    && Long.valueOf(APP_RUNNING_IN_FOREGROUND).equals(appState)) {
+                skip("mobile: activateApp");
+                return false;
+            }
+        }
+        return run(command, () -> appInForeground(appId), this::forgetAppLocked);
+    }
+
+    /**
+     * Records that the app was brought to the foreground by other means (deep link, start activity).
+     * @param appId package or bundle id
+     */
+    public synchronized void appOpened(String appId) {
+        appInForeground(appId);
+        context = null;
+    }
+
+    /**
+     * Forgets the app state and which app is in front, e.g. after opening the notification
+     * shade or tapping a notification.
+     */
+    public synchronized void forgetForeground() {
+        forgetAppLocked();
+    }
+
+    /**
+     * Forgets everything, e.g. after a command failed in a way that leaves the device state unclear.
+     */
+    public synchronized void forget() {
+        forgetAppLocked();
+        context = null;
+        latitude = null;
+        longitude = null;
+    }
+
+    // ==================== Reporting ====================
+
+    /**
+     * @return commands skipped on this session so far, by command name
+     */
+    public Map<String, Long> skippedCommands() {
+        Map<String, Long> counts = new TreeMap<>();
+        skipped.forEach((command, count) -> counts.put(command, count.sum()));
+        return counts;
+    }
+
+    @Override
+    public synchronized String toString() {
+        return String.format("SessionState[context=%s, location=%s, appState=%s, foreground=%s]",
+                context, latitude == null ? null : latitude + "," + longitude, appState, foregroundPackage);
+    }
+
+    private void appInForeground(String appId) {
+        appState = APP_RUNNING_IN_FOREGROUND;
+        foregroundPackage = appId;
+        lastApp = appId;
+    }
+
+    private void forgetAppLocked() {
+        appState = null;
+        foregroundPackage = null;
+        lastApp = null;
+    }
+
+    private boolean run(Runnable command, Runnable onSuccess, Runnable onFailure) {
+        try {
+            command.run();
+        } catch (RuntimeException e) {
+            synchronized (this) {
+                onFailure.run();
+            }
+            throw e;
+        }
+        synchronized (this) {
+            onSuccess.run();
+        }
+        return true;
+    }
+
+    private void skip(String command) {
+        skipped.computeIfAbsent(command, c -> new LongAdder()).increment();
+        CommandMetrics.getInstance().recordSkipped(platform, command);
+        log.debug("Skipped redundant {} ({})", command, this);
+    }
+}
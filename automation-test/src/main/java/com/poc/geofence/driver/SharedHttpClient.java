@@ -0,0 +1,245 @@
+package com.poc.geofence.driver;
+
+import org.openqa.selenium.TimeoutException;
+import org.openqa.selenium.UsernameAndPassword;
+import org.openqa.selenium.WebDriverException;
+import org.openqa.selenium.remote.http.BinaryMessage;
+import org.openqa.selenium.remote.http.ClientConfig;
+import org.openqa.selenium.remote.http.CloseMessage;
+import org.openqa.selenium.remote.http.Contents;
+import org.openqa.selenium.remote.http.HttpClient;
+import org.openqa.selenium.remote.http.HttpHandler;
+import org.openqa.selenium.remote.http.HttpMethod;
+import org.openqa.selenium.remote.http.HttpRequest;
+import org.openqa.selenium.remote.http.HttpResponse;
+import org.openqa.selenium.remote.http.Message;
+import org.openqa.selenium.remote.http.TextMessage;
+import org.openqa.selenium.remote.http.WebSocket;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpTimeoutException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Base64;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * Selenium HTTP client for one session, sending requests over the shared JDK client
+ * of {@link SharedHttpClientFactory}. WebSockets (BiDi, CDP, Appium log broadcasts) are
+ * opened with the same JDK client.
+ */
+class SharedHttpClient implements HttpClient {
+    // Managed by the JDK client itself; setting them throws IllegalArgumentException
+    private static final Set<String> RESTRICTED_HEADERS = Set.of("connection", "content-length", "expect", "host", "upgrade");
+    private static final int NORMAL_CLOSURE = 1000;
+
+    private final ClientConfig config;
+    private final java.net.http.HttpClient transport;
+    private final Function<HttpRequest, Duration> readTimeout;
+    private final HttpHandler handler;
+
+    SharedHttpClient(ClientConfig config, java.net.http.HttpClient transport, Function<HttpRequest, Duration> readTimeout) {
+        this.config = config;
+        this.transport = transport;
+        this.readTimeout = readTimeout;
+        this.handler = config.filter().andFinally(this::send);
+    }
+
+    @Override
+    public HttpResponse execute(HttpRequest request) {
+        return handler.execute(request);
+    }
+
+    @Override
+    public WebSocket openSocket(HttpRequest request, WebSocket.Listener listener) {
+        URI http = uri(request);
+        String scheme = "https".equals(http.getScheme()) ? "wss" : "ws";
+        URI uri = URI.create(scheme + http.toString().substring(http.getScheme().length()));
+        java.net.http.WebSocket.Builder builder = transport.newWebSocketBuilder().connectTimeout(config.connectionTimeout());
+        request.forEachHeader((name, value) -> {
+            String lower = name.toLowerCase();
+            if (!RESTRICTED_HEADERS.contains(lower) && !lower.startsWith("sec-websocket-")) {
+                builder.header(name, value);
+            }
+        });
+        authorization().ifPresent(value -> builder.header("Authorization", value));
+        try {
+            java.net.http.WebSocket socket = builder.buildAsync(uri, new ForwardingListener(listener))
+                    .get(config.connectionTimeout().toMillis(), TimeUnit.MILLISECONDS);
+            return new JdkWebSocket(socket);
+        } catch (java.util.concurrent.TimeoutException e) {
+            throw new TimeoutException("Opening " + uri + " timed out after " + config.connectionTimeout().toSeconds() + "s", e);
+        } catch (ExecutionException e) {
+            throw new WebDriverException("Could not open " + uri, e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new WebDriverException("Interrupted opening " + uri, e);
+        }
+    }
+
+    private HttpResponse send(HttpRequest request) {
+        Duration timeout = readTimeout.apply(request);
+        java.net.http.HttpRequest.Builder builder = java.net.http.HttpRequest.newBuilder(uri(request))
+                .timeout(timeout);
+        request.forEachHeader((name, value) -> {
+            if (!RESTRICTED_HEADERS.contains(name.toLowerCase())) {
+                builder.header(name, value);
+            }
+        });
+        authorization().ifPresent(value -> builder.header("Authorization", value));
+        if (request.getMethod() == HttpMethod.POST) {
+            builder.POST(java.net.http.HttpRequest.BodyPublishers.ofByteArray(Contents.bytes(request.getContent())));
+        } else {
+            builder.method(request.getMethod().name(), java.net.http.HttpRequest.BodyPublishers.noBody());
+        }
+
+        try {
+            java.net.http.HttpResponse<byte[]> response =
+                    transport.send(builder.build(), java.net.http.HttpResponse.BodyHandlers.ofByteArray());
+            HttpResponse result = new HttpResponse().setStatus(response.statusCode());
+            response.headers().map().forEach((name, values) -> {
+                if (!name.startsWith(":")) {
+                    values.forEach(value -> result.addHeader(name, value));
+                }
+            });
+            result.setContent(Contents.bytes(response.body()));
+            return result;
+        } catch (HttpTimeoutException e) {
+            throw new TimeoutException(String.format("%s %s timed out after %ds",
+                    request.getMethod(), request.getUri(), timeout.toSeconds()), e);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new WebDriverException("Interrupted waiting for " + request.getMethod() + " " + request.getUri(), e);
+        }
+    }
+
+    private Optional<String> authorization() {
+        if (config.credentials() instanceof UsernameAndPassword credentials) {
+            String token = credentials.username() + ":" + credentials.password();
+            return Optional.of("Basic " + Base64.getEncoder().encodeToString(token.getBytes(StandardCharsets.UTF_8)));
+        }
+        return Optional.empty();
+    }
+
+    private URI uri(HttpRequest request) {
+        String path = request.getUri();
+        StringBuilder url = new StringBuilder();
+        if (path.startsWith("http:") || path.startsWith("https:")) {
+            url.append(path);
+        } else {
+            url.append(config.baseUri().toString().replaceAll("/$", "")).append(path);
+        }
+        char separator = url.indexOf("?") < 0 ? '?' : '&';
+        for (String name : request.getQueryParameterNames()) {
+            for (String value : request.getQueryParameters(name)) {
+                url.append(separator).append(URLEncoder.encode(name, StandardCharsets.UTF_8))
+                        .append('=').append(URLEncoder.encode(value, StandardCharsets.UTF_8));
+                separator = '&';
+            }
+        }
+        return URI.create(url.toString());
+    }
+
+    /**
+     * Selenium's view of an open JDK websocket.
+     */
+    private static final class JdkWebSocket implements WebSocket {
+        private final java.net.http.WebSocket socket;
+
+        JdkWebSocket(java.net.http.WebSocket socket) {
+            this.socket = socket;
+        }
+
+        @Override
+        public WebSocket send(Message message) {
+            // The JDK allows one outstanding send per socket
+            synchronized (socket) {
+                CompletableFuture<java.net.http.WebSocket> sent;
+                if (message instanceof TextMessage text) {
+                    sent = socket.sendText(text.text(), true);
+                } else if (message instanceof BinaryMessage binary) {
+                    sent = socket.sendBinary(ByteBuffer.wrap(binary.data()), true);
+                } else if (message instanceof CloseMessage close) {
+                    sent = socket.sendClose(close.code(), close.reason());
+                } else {
+                    throw new IllegalArgumentException("Unsupported websocket message: " + message.getClass().getName());
+                }
+                sent.join();
+            }
+            return this;
+        }
+
+        @Override
+        public void close() {
+            if (!socket.isOutputClosed()) {
+                synchronized (socket) {
+                    socket.sendClose(NORMAL_CLOSURE, "").exceptionally(e -> null).join();
+                }
+            }
+            socket.abort();
+        }
+    }
+
+    /**
+     * Hands whole JDK websocket messages to a Selenium listener, joining fragmented frames.
+     */
+    private static final class ForwardingListener implements java.net.http.WebSocket.Listener {
+        private final WebSocket.Listener listener;
+        private final StringBuilder text = new StringBuilder();
+        private final ByteArrayOutputStream binary = new ByteArrayOutputStream();
+
+        ForwardingListener(WebSocket.Listener listener) {
+            this.listener = listener;
+        }
+
+        @Override
+        public CompletionStage<?> onText(java.net.http.WebSocket webSocket, CharSequence data, boolean last) {
+            text.append(data);
+            if (last) {
+                String message = text.toString();
+                text.setLength(0);
+                listener.onText(message);
+            }
+            webSocket.request(1);
+            return null;
+        }
+
+        @Override
+        public CompletionStage<?> onBinary(java.net.http.WebSocket webSocket, ByteBuffer data, boolean last) {
+            byte[] chunk = new byte[data.remaining()];
+            data.get(chunk);
+            binary.writeBytes(chunk);
+            if (last) {
+                byte[] message = binary.toByteArray();
+                binary.reset();
+                listener.onBinary(message);
+            }
+            webSocket.request(1);
+            return null;
+        }
+
+        @Override
+        public CompletionStage<?> onClose(java.net.http.WebSocket webSocket, int statusCode, String reason) {
+            listener.onClose(statusCode, reason);
+            return null;
+        }
+
+        @Override
+        public void onError(java.net.http.WebSocket webSocket, Throwable error) {
+            listener.onError(error);
+        }
+    }
+}
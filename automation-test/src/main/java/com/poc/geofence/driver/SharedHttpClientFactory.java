@@ -0,0 +1,191 @@
+package com.poc.geofence.driver;
+
+import com.poc.geofence.config.ConfigManager;
+import com.poc.geofence.utils.VirtualThreads;
+import org.openqa.selenium.remote.http.ClientConfig;
+import org.openqa.selenium.remote.http.HttpClient;
+import org.openqa.selenium.remote.http.HttpMethod;
+import org.openqa.selenium.remote.http.HttpRequest;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.net.InetSocketAddress;
+import java.net.Proxy;
+import java.net.ProxySelector;
+import java.time.Duration;
+import java.util.concurrent.ExecutorService;
+
+/**
+ * Selenium HTTP client factory whose clients share one tuned JDK HTTP client.
+ *
+ * <p>Every Appium session created by {@link DriverFactory} talks to the same hub, so all
+ * sessions share one connection pool: keep-alive connections opened by one session are
+ * reused by the next instead of paying a TCP (and on BrowserStack, TLS) handshake.
+ * Read timeouts are chosen per command class rather than one value for everything:
+ * session creation may take minutes, scripts and screenshots tens of seconds, while a
+ * stuck element command should fail fast. These replace the read timeout of the callers'
+ * {@link ClientConfig}. HTTP/2 is optional; Appium servers and the BrowserStack hub speak
+ * HTTP/1.1, so it is off by default. A client configured with an HTTP proxy gets its own
+ * connection pool through that proxy; other proxy types are rejected.
+ */
+public class SharedHttpClientFactory implements HttpClient.Factory {
+    private static final Logger log = LoggerFactory.getLogger(SharedHttpClientFactory.class);
+    private static volatile SharedHttpClientFactory instance;
+
+    private final java.net.http.HttpClient transport;
+    private final ExecutorService executor;
+    private final boolean http2;
+    private final Duration connectTimeout;
+    private final Duration sessionTimeout;
+    private final Duration scriptTimeout;
+    private final Duration commandTimeout;
+
+    private SharedHttpClientFactory(Builder builder) {
+        this.sessionTimeout = builder.sessionTimeout;
+        this.scriptTimeout = builder.scriptTimeout;
+        this.commandTimeout = builder.commandTimeout;
+        this.http2 = builder.http2;
+        this.connectTimeout = builder.connectTimeout;
+        // Async plumbing for the JDK client; unbounded, with a new daemon (or virtual) thread per task
+        this.executor = VirtualThreads.newExecutor("appium-http");
+        this.transport = newTransport(null);
+        log.info("Shared Appium HTTP client: {}, connect {}s, session {}s, script {}s, command {}s",
+                builder.http2 ? "HTTP/2" : "HTTP/1.1", builder.connectTimeout.toSeconds(),
+                sessionTimeout.toSeconds(), scriptTimeout.toSeconds(), commandTimeout.toSeconds());
+    }
+
+    /**
+     * Returns the process-wide factory configured from the http.* properties.
+     */
+    public static SharedHttpClientFactory getInstance() {
+        if (instance == null) {
+            synchronized (SharedHttpClientFactory.class) {
+                if (instance == null) {
+                    ConfigManager config = ConfigManager.getInstance();
+                    instance = builder()
+                            .withConnectTimeout(Duration.ofSeconds(config.getHttpConnectTimeoutSeconds()))
+                            .withSessionTimeout(Duration.ofSeconds(config.getHttpSessionTimeoutSeconds()))
+                            .withScriptTimeout(Duration.ofSeconds(config.getHttpScriptTimeoutSeconds()))
+                            .withCommandTimeout(Duration.ofSeconds(config.getHttpCommandTimeoutSeconds()))
+                            .withHttp2(config.isHttp2Enabled())
+                            .build();
+                }
+            }
+        }
+        return instance;
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * Creates a client for one session. Clients are lightweight views over the shared
+     * connection pool; closing one leaves the pool open for other sessions. The config's base
+     * URI, credentials, filters and proxy apply. Its timeouts do not apply to commands: they
+     * connect within this factory's connect timeout, and each waits its command class's read
+     * timeout (see {@link #readTimeout}). An HTTP proxy gets a pool of its own.
+     * @throws IllegalArgumentException if the config names a SOCKS proxy, which the JDK client cannot use
+     */
+    @Override
+    public HttpClient createClient(ClientConfig config) {
+        log.debug("Read timeout {}s of {} replaced by per-command-class timeouts",
+                config.readTimeout().toSeconds(), config.baseUri());
+        Proxy proxy = config.proxy();
+        if (proxy == null || proxy.type() == Proxy.Type.DIRECT) {
+            return new SharedHttpClient(config, transport, this::readTimeout);
+        }
+        if (proxy.type() != Proxy.Type.HTTP || !(proxy.address() instanceof InetSocketAddress address)) {
+            throw new IllegalArgumentException("Unsupported proxy for the shared HTTP client: " + proxy
+                    + " (use an HTTP proxy or http.client.shared=false)");
+        }
+        return new SharedHttpClient(config, newTransport(ProxySelector.of(address)), this::readTimeout);
+    }
+
+    private java.net.http.HttpClient newTransport(ProxySelector proxy) {
+        java.net.http.HttpClient.Builder builder = java.net.http.HttpClient.newBuilder()
+                .version(http2 ? java.net.http.HttpClient.Version.HTTP_2 : java.net.http.HttpClient.Version.HTTP_1_1)
+                .connectTimeout(connectTimeout)
+                .followRedirects(java.net.http.HttpClient.Redirect.NEVER)
+                .executor(executor);
+        if (proxy != null) {
+            builder.proxy(proxy);
+        }
+        return builder.build();
+    }
+
+    /**
+     * Returns the read timeout for a request based on its command class.
+     */
+    Duration readTimeout(HttpRequest request) {
+        return switch (CommandClass.of(request)) {
+            case SESSION -> sessionTimeout;
+            case SCRIPT -> scriptTimeout;
+            case COMMAND -> commandTimeout;
+        };
+    }
+
+    /**
+     * Groups WebDriver endpoints by how long they legitimately take.
+     */
+    enum CommandClass {
+        /** New session: device allocation and app install. */
+        SESSION,
+        /** Scripts (mobile: commands), screenshots, page source and Appium extensions. */
+        SCRIPT,
+        /** Everything else: element finds, clicks, text, alerts. */
+        COMMAND;
+
+        static CommandClass of(HttpRequest request) {
+            String path = request.getUri();
+            if (request.getMethod() == HttpMethod.POST && path.endsWith("/session")) {
+                return SESSION;
+            }
+            if (path.contains("/execute/") || path.endsWith("/screenshot") || path.endsWith("/source")
+                    || path.contains("/appium/")) {
+                return SCRIPT;
+            }
+            return COMMAND;
+        }
+    }
+
+    /**
+     * Fluent builder for SharedHttpClientFactory.
+     */
+    public static class Builder {
+        private Duration connectTimeout = Duration.ofSeconds(10);
+        private Duration sessionTimeout = Duration.ofMinutes(10);
+        private Duration scriptTimeout = Duration.ofMinutes(2);
+        private Duration commandTimeout = Duration.ofMinutes(1);
+        private boolean http2;
+
+        public Builder withConnectTimeout(Duration connectTimeout) {
+            this.connectTimeout = connectTimeout;
+            return this;
+        }
+
+        public Builder withSessionTimeout(Duration sessionTimeout) {
+            this.sessionTimeout = sessionTimeout;
+            return this;
+        }
+
+        public Builder withScriptTimeout(Duration scriptTimeout) {
+            this.scriptTimeout = scriptTimeout;
+            return this;
+        }
+
+        public Builder withCommandTimeout(Duration commandTimeout) {
+            this.commandTimeout = commandTimeout;
+            return this;
+        }
+
+        public Builder withHttp2(boolean http2) {
+            this.http2 = http2;
+            return this;
+        }
+
+        public SharedHttpClientFactory build() {
+            return new SharedHttpClientFactory(this);
+        }
+    }
+}
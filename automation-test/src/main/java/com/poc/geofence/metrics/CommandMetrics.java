@@ -0,0 +1,219 @@
+package com.poc.geofence.metrics;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Registry of per-command Appium latency histograms, tagged by test, platform and command.
+ *
+ * <p>Commands are recorded by {@link RecordingCommandExecutor}; the test tag comes from the
+ * calling thread (set by the metrics listener around each test). Commands issued outside a
+ * test, e.g. background session provisioning, are tagged {@value #NO_TEST}.
+ *
+ * <p>Commands the session state shadow skipped as redundant are counted the same way,
+ * so reports show both what a test sent and what it saved.
+ */
+public class CommandMetrics {
+    private static final Logger log = LoggerFactory.getLogger(CommandMetrics.class);
+    public static final String NO_TEST = "(no test)";
+    public static final String ALL_TESTS = "(all tests)";
+    private static final CommandMetrics INSTANCE = new CommandMetrics();
+
+    private final Map<Key, LatencyHistogram> histograms = new ConcurrentHashMap<>();
+    private final Map<Key, LongAdder> skipped = new ConcurrentHashMap<>();
+    private final ThreadLocal<String> currentTest = new ThreadLocal<>();
+
+    CommandMetrics() {
+    }
+
+    public static CommandMetrics getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Tags commands issued by the current thread with a test name until {@link #endTest()}.
+     */
+    public void startTest(String testName) {
+        currentTest.set(testName);
+    }
+
+    public void endTest() {
+        currentTest.remove();
+    }
+
+    /**
+     * @return the current thread's test tag, or {@value #NO_TEST} outside a test
+     */
+    public String currentTest() {
+        String test = currentTest.get();
+        return test != null ? test : NO_TEST;
+    }
+
+    /**
+     * Records one command round trip for the current thread's test.
+     * @param platform platform tag (e.g., "android")
+     * @param command command name (e.g., "findElements[xpath]", "mobile: getNotifications")
+     * @param nanos elapsed time in nanoseconds
+     */
+    public void record(String platform, String command, long nanos) {
+        String test = currentTest.get();
+        Key key = new Key(test != null ? test : NO_TEST, platform, command);
+        histograms.computeIfAbsent(key, k -> new LatencyHistogram()).record(nanos);
+    }
+
+    /**
+     * Counts one command skipped as redundant for the current thread's test.
+     * @param platform platform tag (e.g., "android")
+     * @param command command name (e.g., "setLocation", "setContext")
+     */
+    public void recordSkipped(String platform, String command) {
+        String test = currentTest.get();
+        skipped.computeIfAbsent(new Key(test != null ? test : NO_TEST, platform, command), k -> new LongAdder())
+                .increment();
+    }
+
+    /**
+     * Returns skipped-command counts for one test, most skipped first.
+     */
+    public List<SkippedStats> skippedForTest(String testName) {
+        List<SkippedStats> stats = new ArrayList<>();
+        skipped.forEach((key, count) -> {
+            if (key.test().equals(testName)) {
+                stats.add(new SkippedStats(key.test(), key.platform(), key.command(), count.sum()));
+            }
+        });
+        stats.sort(Comparator.comparingLong(SkippedStats::count).reversed());
+        return stats;
+    }
+
+    /**
+     * Returns skipped-command counts for every test/platform/command combination, most skipped first.
+     */
+    public List<SkippedStats> allSkipped() {
+        List<SkippedStats> stats = new ArrayList<>();
+        skipped.forEach((key, count) ->
+                stats.add(new SkippedStats(key.test(), key.platform(), key.command(), count.sum())));
+        stats.sort(Comparator.comparingLong(SkippedStats::count).reversed());
+        return stats;
+    }
+
+    /**
+     * Returns stats for one test, slowest total time first.
+     */
+    public List<CommandStats> forTest(String testName) {
+        List<CommandStats> stats = new ArrayList<>();
+        histograms.forEach((key, histogram) -> {
+            if (key.test().equals(testName)) {
+                stats.add(new CommandStats(key.test(), key.platform(), key.command(), histogram.snapshot()));
+            }
+        });
+        stats.sort(Comparator.comparingLong((CommandStats s) -> s.latency().totalMicros()).reversed());
+        return stats;
+    }
+
+    /**
+     * Returns stats for every test/platform/command combination, slowest total time first.
+     */
+    public List<CommandStats> all() {
+        List<CommandStats> stats = new ArrayList<>();
+        histograms.forEach((key, histogram) ->
+                stats.add(new CommandStats(key.test(), key.platform(), key.command(), histogram.snapshot())));
+        stats.sort(Comparator.comparingLong((CommandStats s) -> s.latency().totalMicros()).reversed());
+        return stats;
+    }
+
+    /**
+     * Returns stats per platform and command across all tests, slowest total time first.
+     */
+    public List<CommandStats> byCommand() {
+        Map<Key, LatencyHistogram> merged = new LinkedHashMap<>();
+        histograms.forEach((key, histogram) ->
+                merged.computeIfAbsent(new Key(ALL_TESTS, key.platform(), key.command()), k -> new LatencyHistogram())
+                        .merge(histogram));
+        List<CommandStats> stats = new ArrayList<>();
+        merged.forEach((key, histogram) ->
+                stats.add(new CommandStats(key.test(), key.platform(), key.command(), histogram.snapshot())));
+        stats.sort(Comparator.comparingLong((CommandStats s) -> s.latency().totalMicros()).reversed());
+        return stats;
+    }
+
+    /**
+     * Formats stats as a fixed-width table for logs and Allure attachments.
+     */
+    public static String toTable(List<CommandStats> stats) {
+        StringBuilder sb = new StringBuilder(String.format("%-8s %-36s %7s %9s %9s %9s %9s %10s%n",
+                "platform", "command", "count", "p50 ms", "p95 ms", "p99 ms", "max ms", "total ms"));
+        for (CommandStats s : stats) {
+            LatencyHistogram.Snapshot l = s.latency();
+            sb.append(String.format("%-8s %-36s %7d %9.1f %9.1f %9.1f %9.1f %10.1f%n", s.platform(), s.command(),
+                    l.count(), l.p50Micros() / 1000.0, l.p95Micros() / 1000.0, l.p99Micros() / 1000.0,
+                    l.maxMicros() / 1000.0, l.totalMicros() / 1000.0));
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Formats skipped-command counts as a fixed-width table.
+     */
+    public static String toSkippedTable(List<SkippedStats> stats) {
+        StringBuilder sb = new StringBuilder(String.format("%-8s %-36s %7s%n", "platform", "command", "skipped"));
+        for (SkippedStats s : stats) {
+            sb.append(String.format("%-8s %-36s %7d%n", s.platform(), s.command(), s.count()));
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Writes per-command rollups and per-test stats as JSON.
+     * @param file target file (parent directories are created)
+     */
+    public void writeJson(Path file) {
+        Map<String, Object> report = new LinkedHashMap<>();
+        report.put("byCommand", byCommand());
+        report.put("byTest", all());
+        report.put("skippedByTest", allSkipped());
+        try {
+            Files.createDirectories(file.toAbsolutePath().getParent());
+            new ObjectMapper().enable(SerializationFeature.INDENT_OUTPUT).writeValue(file.toFile(), report);
+            log.info("Command latency report written to {}", file);
+        } catch (IOException e) {
+            log.warn("Could not write command latency report {}: {}", file, e.getMessage());
+        }
+    }
+
+    /**
+     * Drops all recorded data.
+     */
+    public void reset() {
+        histograms.clear();
+        skipped.clear();
+    }
+
+    private record Key(String test, String platform, String command) {
+    }
+
+    /**
+     * Latency of one command within one test on one platform.
+     */
+    public record CommandStats(String test, String platform, String command, LatencyHistogram.Snapshot latency) {
+    }
+
+    /**
+     * Number of times one command was skipped as redundant within one test on one platform.
+     */
+    public record SkippedStats(String test, String platform, String command, long count) {
+    }
+}
@@ -0,0 +1,192 @@
+package com.poc.geofence.metrics;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Find latency per locator (platform, strategy and value), across tests and runs.
+ *
+ * <p>{@link RecordingCommandExecutor} records every find; command metrics only show the
+ * strategy ("findElements[xpath]"), this shows which locator was slow. {@link #writeHistory}
+ * keeps per-locator totals of recent runs on disk, so a locator's cost can be compared before
+ * and after it is rewritten.
+ */
+public class LocatorProfiler {
+    private static final Logger log = LoggerFactory.getLogger(LocatorProfiler.class);
+    private static final int MAX_VALUE_WIDTH = 70;
+    private static final LocatorProfiler INSTANCE = new LocatorProfiler();
+
+    private final Map<Locator, LatencyHistogram> histograms = new ConcurrentHashMap<>();
+
+    LocatorProfiler() {
+    }
+
+    public static LocatorProfiler getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Records one find round trip.
+     * @param platform platform tag (e.g., "android")
+     * @param strategy locator strategy (e.g., "xpath", "-android uiautomator")
+     * @param value the selector
+     * @param nanos elapsed time in nanoseconds
+     */
+    public void record(String platform, String strategy, String value, long nanos) {
+        histograms.computeIfAbsent(new Locator(platform, strategy, value), k -> new LatencyHistogram()).record(nanos);
+    }
+
+    /**
+     * @return this run's stats per locator, highest total time first
+     */
+    public List<LocatorStats> all() {
+        List<LocatorStats> stats = new ArrayList<>();
+        histograms.forEach((locator, histogram) -> stats.add(
+                new LocatorStats(locator.platform(), locator.strategy(), locator.value(), histogram.snapshot())));
+        stats.sort(Comparator.comparingLong((LocatorStats s) -> s.latency().totalMicros()).reversed());
+        return stats;
+    }
+
+    /**
+     * Formats stats as a fixed-width table; long selectors are abbreviated.
+     */
+    public static String toTable(List<LocatorStats> stats) {
+        StringBuilder sb = new StringBuilder(String.format("%-8s %-20s %-" + MAX_VALUE_WIDTH + "s %7s %9s %9s %10s%n",
+                "platform", "strategy", "locator", "count", "p50 ms", "p95 ms", "total ms"));
+        for (LocatorStats s : stats) {
+            LatencyHistogram.Snapshot l = s.latency();
+            String value = s.value().length() > MAX_VALUE_WIDTH
+                    ? s.value().substring(0, MAX_VALUE_WIDTH - 3) + "..." : s.value();
+            sb.append(String.format("%-8s %-20s %-" + MAX_VALUE_WIDTH + "s %7d %9.1f %9.1f %10.1f%n",
+                    s.platform(), s.strategy(), value, l.count(), l.p50Micros() / 1000.0,
+                    l.p95Micros() / 1000.0, l.totalMicros() / 1000.0));
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Appends this run's per-locator totals to a JSON history and recomputes rolling stats
+     * over the retained runs.
+     * @param file history file (created if missing; parent directories are created)
+     * @param maxRuns number of most recent runs to keep
+     * @return rolling stats keyed by "platform strategy=value", empty if nothing was recorded
+     */
+    public Map<String, Rolling> writeHistory(Path file, int maxRuns) {
+        List<LocatorStats> stats = all();
+        if (stats.isEmpty()) {
+            return Map.of();
+        }
+        ObjectMapper mapper = new ObjectMapper().enable(SerializationFeature.INDENT_OUTPUT);
+        List<Map<String, Object>> runs = new ArrayList<>();
+        try {
+            if (Files.exists(file)) {
+                History history = mapper.readValue(file.toFile(), History.class);
+                if (history.runs != null) {
+                    runs.addAll(history.runs);
+                }
+            }
+        } catch (IOException e) {
+            log.warn("Ignoring unreadable locator profile {}: {}", file, e.getMessage());
+        }
+        Map<String, RunTotals> current = new TreeMap<>();
+        for (LocatorStats s : stats) {
+            LatencyHistogram.Snapshot l = s.latency();
+            current.put(s.key(), new RunTotals(l.count(), l.totalMicros(), l.p95Micros(), l.maxMicros()));
+        }
+        Map<String, Object> run = new LinkedHashMap<>();
+        run.put("finishedAt", Instant.now().toString());
+        run.put("locators", current);
+        runs.add(run);
+        if (runs.size() > maxRuns) {
+            runs = new ArrayList<>(runs.subList(runs.size() - maxRuns, runs.size()));
+        }
+
+        Map<String, List<RunTotals>> merged = new TreeMap<>();
+        for (Map<String, Object> past : runs) {
+            Map<String, RunTotals> locators = mapper.convertValue(past.get("locators"),
+                    new TypeReference<Map<String, RunTotals>>() { });
+            if (locators != null) {
+                locators.forEach((key, totals) -> merged.computeIfAbsent(key, k -> new ArrayList<>()).add(totals));
+            }
+        }
+        Map<String, Rolling> rolling = new TreeMap<>();
+        merged.forEach((key, totals) -> rolling.put(key, Rolling.of(totals)));
+
+        History history = new History();
+        history.runs = runs;
+        history.rolling = rolling;
+        try {
+            Files.createDirectories(file.toAbsolutePath().getParent());
+            mapper.writeValue(file.toFile(), history);
+            log.info("Locator profile ({} runs) written to {}", runs.size(), file);
+        } catch (IOException e) {
+            log.warn("Could not write locator profile {}: {}", file, e.getMessage());
+        }
+        return rolling;
+    }
+
+    /**
+     * Drops all recorded data.
+     */
+    public void reset() {
+        histograms.clear();
+    }
+
+    private record Locator(String platform, String strategy, String value) {
+    }
+
+    /**
+     * Find latency of one locator on one platform.
+     */
+    public record LocatorStats(String platform, String strategy, String value, LatencyHistogram.Snapshot latency) {
+
+        /**
+         * @return "platform strategy=value", the key of the on-disk history
+         */
+        public String key() {
+            return platform + " " + strategy + "=" + value;
+        }
+    }
+
+    /**
+     * One locator's finds within one run. Times in microseconds.
+     */
+    public record RunTotals(long count, long totalMicros, long p95Micros, long maxMicros) {
+    }
+
+    /**
+     * One locator's finds over the retained runs. Times in microseconds.
+     * @param worstP95Micros highest per-run p95
+     */
+    public record Rolling(int runs, long count, long meanMicros, long worstP95Micros) {
+        static Rolling of(List<RunTotals> totals) {
+            long count = totals.stream().mapToLong(RunTotals::count).sum();
+            long micros = totals.stream().mapToLong(RunTotals::totalMicros).sum();
+            long worstP95 = totals.stream().mapToLong(RunTotals::p95Micros).max().orElse(0);
+            return new Rolling(totals.size(), count, count == 0 ? 0 : micros / count, worstP95);
+        }
+    }
+
+    /**
+     * On-disk history: per-locator totals per run plus rolling stats over all retained runs.
+     */
+    static final class History {
+        public List<Map<String, Object>> runs;
+        public Map<String, Rolling> rolling;
+    }
+}
@@ -0,0 +1,71 @@
+package com.poc.geofence.metrics;
+
+import com.poc.geofence.config.PlatformType;
+import io.appium.java_client.MobileCommand;
+import io.appium.java_client.remote.AppiumCommandExecutor;
+import org.openqa.selenium.remote.Command;
+import org.openqa.selenium.remote.DriverCommand;
+import org.openqa.selenium.remote.Response;
+import org.openqa.selenium.remote.http.HttpClient;
+
+import java.net.URL;
+
+/**
+ * Appium command executor that times every round trip into {@link CommandMetrics}.
+ *
+ * <p>Decorating the executor rather than the driver keeps the driver a real
+ * AndroidDriver/IOSDriver, and also captures element-level commands (getText,
+ * isDisplayed, click) that never pass through a driver method. Scripts are
+ * recorded by name ("mobile: getNotifications") and finds by locator strategy
+ * ("findElements[xpath]"); finds are also recorded per locator in {@link LocatorProfiler}.
+ */
+public class RecordingCommandExecutor extends AppiumCommandExecutor {
+    private final String platform;
+    private final CommandMetrics metrics;
+    private final LocatorProfiler locators;
+
+    public RecordingCommandExecutor(URL remoteAddress, PlatformType platform) {
+        this(remoteAddress, platform, HttpClient.Factory.createDefault());
+    }
+
+    /**
+     * @param remoteAddress the Appium hub URL
+     * @param platform platform tag for recorded commands
+     * @param httpClientFactory factory for the HTTP client that sends the commands
+     */
+    public RecordingCommandExecutor(URL remoteAddress, PlatformType platform, HttpClient.Factory httpClientFactory) {
+        super(MobileCommand.commandRepository, remoteAddress, httpClientFactory);
+        this.platform = platform.getValue();
+        this.metrics = CommandMetrics.getInstance();
+        this.locators = LocatorProfiler.getInstance();
+    }
+
+    @Override
+    public Response execute(Command command) {
+        long start = System.nanoTime();
+        try {
+            return super.execute(command);
+        } finally {
+            long nanos = System.nanoTime() - start;
+            metrics.record(platform, commandName(command), nanos);
+            Object using = command.getParameters().get("using");
+            if (using != null && command.getName().startsWith("find")) {
+                locators.record(platform, String.valueOf(using), String.valueOf(command.getParameters().get("value")), nanos);
+            }
+        }
+    }
+
+    static String commandName(Command command) {
+        String name = command.getName();
+        Object script = command.getParameters().get("script");
+        if ((DriverCommand.EXECUTE_SCRIPT.equals(name) || DriverCommand.EXECUTE_ASYNC_SCRIPT.equals(name))
+                && script instanceof String s && s.startsWith("mobile:")) {
+            return s;
+        }
+        Object using = command.getParameters().get("using");
+        if (using != null && name.startsWith("find")) {
+            return name + "[" + using + "]";
+        }
+        return name;
+    }
+}
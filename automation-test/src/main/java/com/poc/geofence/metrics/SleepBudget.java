@@ -0,0 +1,173 @@
+package com.poc.geofence.metrics;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Time each test spent pausing, per pause site: readiness waits next to the fixed delays they replaced.
+ *
+ * <p>Pauses are recorded by {@link com.poc.geofence.utils.Waiter}; the test tag comes from
+ * {@link CommandMetrics#currentTest()}. For a readiness wait the bound is the fixed delay it
+ * replaces, so bound minus waited is what the condition saved; a fallback is a wait whose
+ * condition was not met and that cost the full bound.
+ */
+public class SleepBudget {
+    private static final Logger log = LoggerFactory.getLogger(SleepBudget.class);
+    public static final String ALL_SITES = "(all sites)";
+    private static final SleepBudget INSTANCE = new SleepBudget();
+
+    private final Map<Key, Stats> stats = new ConcurrentHashMap<>();
+
+    SleepBudget() {
+    }
+
+    public static SleepBudget getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Records a readiness wait for the current thread's test.
+     * @param site where the pause happens (e.g., "map camera still")
+     * @param ready whether the condition was met before the bound
+     * @param waitedNanos time waited
+     * @param boundNanos the fallback delay, i.e. what a fixed sleep would have cost
+     */
+    public void recordWait(String site, boolean ready, long waitedNanos, long boundNanos) {
+        Stats s = stats(site);
+        s.waits.increment();
+        s.waited.add(waitedNanos);
+        s.bound.add(boundNanos);
+        if (!ready) {
+            s.fallbacks.increment();
+        }
+    }
+
+    private Stats stats(String site) {
+        return stats.computeIfAbsent(new Key(CommandMetrics.getInstance().currentTest(), site), k -> new Stats());
+    }
+
+    /**
+     * @return pause sites of one test, most time first
+     */
+    public List<SiteStats> forTest(String test) {
+        List<SiteStats> result = new ArrayList<>();
+        stats.forEach((key, s) -> {
+            if (key.test().equals(test)) {
+                result.add(s.toSiteStats(test, key.site()));
+            }
+        });
+        result.sort(BY_TIME);
+        return result;
+    }
+
+    /**
+     * @return one row per test, summed over its sites ({@value #ALL_SITES}), most time first
+     */
+    public List<SiteStats> byTest() {
+        Map<String, Stats> totals = new LinkedHashMap<>();
+        stats.forEach((key, s) -> totals.computeIfAbsent(key.test(), t -> new Stats()).add(s));
+        List<SiteStats> result = new ArrayList<>();
+        totals.forEach((test, s) -> result.add(s.toSiteStats(test, ALL_SITES)));
+        result.sort(BY_TIME);
+        return result;
+    }
+
+    /**
+     * @return every test and site, most time first
+     */
+    public List<SiteStats> all() {
+        List<SiteStats> result = new ArrayList<>();
+        stats.forEach((key, s) -> result.add(s.toSiteStats(key.test(), key.site())));
+        result.sort(BY_TIME);
+        return result;
+    }
+
+    /**
+     * Formats stats as a fixed-width table; saved is the bound of met waits minus their wait time.
+     */
+    public static String toTable(List<SiteStats> stats) {
+        StringBuilder sb = new StringBuilder(String.format("%-48s %-28s %6s %9s %9s %9s %9s%n",
+                "test", "site", "waits", "wait ms", "fallbacks", "bound ms", "saved ms"));
+        for (SiteStats s : stats) {
+            sb.append(String.format("%-48s %-28s %6d %9d %9d %9d %9d%n", s.test(), s.site(),
+                    s.waits(), s.waitMillis(), s.fallbacks(), s.boundMillis(), s.savedMillis()));
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Writes all stats as JSON.
+     * @param file target file (parent directories are created)
+     */
+    public void writeJson(Path file) {
+        try {
+            Files.createDirectories(file.toAbsolutePath().getParent());
+            new ObjectMapper().enable(SerializationFeature.INDENT_OUTPUT).writeValue(file.toFile(), all());
+            log.info("Sleep budget written to {}", file);
+        } catch (IOException e) {
+            log.warn("Could not write sleep budget {}: {}", file, e.getMessage());
+        }
+    }
+
+    /**
+     * Drops all recorded data.
+     */
+    public void reset() {
+        stats.clear();
+    }
+
+    private static final Comparator<SiteStats> BY_TIME =
+            Comparator.comparingLong(SiteStats::waitMillis).reversed();
+
+    private record Key(String test, String site) {
+    }
+
+    private static final class Stats {
+        final LongAdder waits = new LongAdder();
+        final LongAdder waited = new LongAdder();
+        final LongAdder bound = new LongAdder();
+        final LongAdder fallbacks = new LongAdder();
+
+        void add(Stats other) {
+            waits.add(other.waits.sum());
+            waited.add(other.waited.sum());
+            bound.add(other.bound.sum());
+            fallbacks.add(other.fallbacks.sum());
+        }
+
+        SiteStats toSiteStats(String test, String site) {
+            return new SiteStats(test, site, waits.sum(), millis(waited),
+                    fallbacks.sum(), millis(bound));
+        }
+
+        private static long millis(LongAdder nanos) {
+            return TimeUnit.NANOSECONDS.toMillis(nanos.sum());
+        }
+    }
+
+    /**
+     * Pauses of one test at one site.
+     * @param waitMillis total time in readiness waits
+     * @param boundMillis total fallback delay of the readiness waits
+     */
+    public record SiteStats(String test, String site, long waits, long waitMillis, long fallbacks,
+                            long boundMillis) {
+        public long savedMillis() {
+            return Math.max(0, boundMillis - waitMillis);
+        }
+    }
+}
@@ -0,0 +1,127 @@
+package com.poc.geofence.metrics;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Time spent in policy waits per policy and condition, next to when the condition was met.
+ *
+ * <p>A wait notices its condition at a poll, but the condition became true somewhere after the
+ * previous poll. The gap between the last miss and the hit is the slack polling added; a wait
+ * whose slack is large compared to its wait time polls too slowly, one that polls many times for
+ * a condition that takes seconds polls too often.
+ */
+public class WaitMetrics {
+    private static final Logger log = LoggerFactory.getLogger(WaitMetrics.class);
+    private static final WaitMetrics INSTANCE = new WaitMetrics();
+
+    private final Map<Key, Stats> stats = new ConcurrentHashMap<>();
+
+    WaitMetrics() {
+    }
+
+    public static WaitMetrics getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Records one finished wait.
+     * @param policy wait policy name
+     * @param condition what was waited for (e.g., "visible", "alertPresent")
+     * @param met whether the condition was met before the deadline
+     * @param waitedNanos time from the first check to the end of the wait
+     * @param lastMissNanos time from the first check to the last check that missed; 0 if none did
+     * @param polls number of checks
+     */
+    public void record(String policy, String condition, boolean met, long waitedNanos, long lastMissNanos, int polls) {
+        Stats s = stats.computeIfAbsent(new Key(policy, condition), k -> new Stats());
+        s.waited.record(waitedNanos);
+        s.polls.add(polls);
+        if (!met) {
+            s.timeouts.increment();
+        } else if (polls > 1) {
+            s.slack.record(waitedNanos - lastMissNanos);
+        }
+    }
+
+    /**
+     * @return stats per policy and condition, highest total wait time first
+     */
+    public List<WaitStats> all() {
+        List<WaitStats> all = new ArrayList<>();
+        stats.forEach((key, s) -> {
+            LatencyHistogram.Snapshot waited = s.waited.snapshot();
+            all.add(new WaitStats(key.policy(), key.condition(), waited.count(), s.timeouts.sum(),
+                    waited.count() == 0 ? 0 : (double) s.polls.sum() / waited.count(), waited, s.slack.snapshot()));
+        });
+        all.sort(Comparator.comparingLong((WaitStats w) -> w.waited().totalMicros()).reversed());
+        return all;
+    }
+
+    /**
+     * Formats stats as a fixed-width table; slack covers waits that missed before they met their condition.
+     */
+    public static String toTable(List<WaitStats> stats) {
+        StringBuilder sb = new StringBuilder(String.format("%-16s %-24s %6s %8s %7s %11s %11s %10s %10s%n",
+                "policy", "condition", "count", "timeouts", "polls", "p50 wait ms", "p95 wait ms",
+                "p50 slack", "p95 slack"));
+        for (WaitStats s : stats) {
+            sb.append(String.format("%-16s %-24s %6d %8d %7.1f %11.1f %11.1f %10.1f %10.1f%n", s.policy(), s.condition(),
+                    s.count(), s.timeouts(), s.pollsPerWait(), s.waited().p50Micros() / 1000.0,
+                    s.waited().p95Micros() / 1000.0, s.slack().p50Micros() / 1000.0, s.slack().p95Micros() / 1000.0));
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Writes all stats as JSON.
+     * @param file target file (parent directories are created)
+     */
+    public void writeJson(Path file) {
+        try {
+            Files.createDirectories(file.toAbsolutePath().getParent());
+            new ObjectMapper().enable(SerializationFeature.INDENT_OUTPUT).writeValue(file.toFile(), all());
+            log.info("Wait policy report written to {}", file);
+        } catch (IOException e) {
+            log.warn("Could not write wait policy report {}: {}", file, e.getMessage());
+        }
+    }
+
+    /**
+     * Drops all recorded data.
+     */
+    public void reset() {
+        stats.clear();
+    }
+
+    private record Key(String policy, String condition) {
+    }
+
+    private static final class Stats {
+        final LatencyHistogram waited = new LatencyHistogram();
+        final LatencyHistogram slack = new LatencyHistogram();
+        final LongAdder timeouts = new LongAdder();
+        final LongAdder polls = new LongAdder();
+    }
+
+    /**
+     * Waits of one condition under one policy.
+     * @param waited time per wait, met or not
+     * @param slack for met waits that missed at least once, time between the last missed check and the hit
+     */
+    public record WaitStats(String policy, String condition, long count, long timeouts, double pollsPerWait,
+                            LatencyHistogram.Snapshot waited, LatencyHistogram.Snapshot slack) {
+    }
+}
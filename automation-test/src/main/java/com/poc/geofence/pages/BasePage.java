@@ -2,74 +2,174 @@ package com.poc.geofence.pages;
 
 import com.poc.geofence.config.ConfigManager;
 import com.poc.geofence.driver.DriverManager;
+import com.poc.geofence.utils.WaitPolicy;
 import io.appium.java_client.AppiumDriver;
 import io.qameta.allure.Allure;
 import org.openqa.selenium.*;
 import org.openqa.selenium.support.ui.ExpectedConditions;
-import org.openqa.selenium.support.ui.WebDriverWait;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.ByteArrayInputStream;
 import java.time.Duration;
+import java.util.List;
+import java.util.Optional;
 
 /**
  * Abstract base page for all page objects.
- * Provides common methods for element interaction and waiting.
+ * Provides common methods for element interaction and waiting; element waits use the
+ * shared "element" {@link WaitPolicy}.
  */
 public abstract class BasePage {
     protected final Logger log = LoggerFactory.getLogger(getClass());
     protected final AppiumDriver driver;
-    protected final WebDriverWait wait;
+    protected final WaitPolicy elementWait;
+    private final WaitPolicy snapshotWait;
     protected final ConfigManager config;
+    protected final GestureComposer gestures;
+    private PageSnapshot snapshot;
 
     protected BasePage() {
         this.driver = DriverManager.getDriver();
         this.config = ConfigManager.getInstance();
-        this.wait = new WebDriverWait(driver,
-                Duration.ofSeconds(config.getDefaultTimeout()));
+        this.elementWait = WaitPolicy.named("element");
+        this.gestures = new GestureComposer(driver);
+        Duration snapshotPoll = Duration.ofMillis(config.getPageSnapshotPollMillis());
+        this.snapshotWait = WaitPolicy.builder("page-snapshot")
+                .withPollIntervals(snapshotPoll, snapshotPoll)
+                .withMultiplier(1)
+                .withJitter(0)
+                .build();
     }
 
     protected WebElement waitForVisible(By locator) {
-        return wait.until(ExpectedConditions.visibilityOfElementLocated(locator));
+        return elementWait.until("visible", () -> ExpectedConditions.visibilityOfElementLocated(locator).apply(driver));
     }
 
     protected WebElement waitForClickable(By locator) {
-        return wait.until(ExpectedConditions.elementToBeClickable(locator));
+        return elementWait.until("clickable", () -> ExpectedConditions.elementToBeClickable(locator).apply(driver));
     }
 
     protected boolean isElementPresent(By locator, int timeoutSeconds) {
         try {
-            new WebDriverWait(driver, Duration.ofSeconds(timeoutSeconds))
-                    .until(ExpectedConditions.presenceOfElementLocated(locator));
-            return true;
+            if (elementWait.await("present", Duration.ofSeconds(timeoutSeconds),
+                    () -> ExpectedConditions.presenceOfElementLocated(locator).apply(driver)).isPresent()) {
+                return true;
+            }
+            log.debug("Element not present: {}", locator);
         } catch (WebDriverException e) {
-            // Catches TimeoutException (subclass) and other WebDriver errors
             log.debug("Element not present: {} - {}", locator, e.getMessage());
+        }
+        return false;
+    }
+
+    /**
+     * Returns a page-source snapshot, fetching a new one if there is none, it was invalidated,
+     * or it is older than page.snapshot.max.age.ms (the app changes the screen on its own).
+     */
+    protected PageSnapshot snapshot() {
+        if (snapshot == null || snapshot.age().toMillis() > config.getPageSnapshotMaxAgeMillis()) {
+            snapshot = PageSnapshot.parse(driver.getPageSource(), DriverManager.platformOf(driver));
+        }
+        return snapshot;
+    }
+
+    /**
+     * Drops the current snapshot; called after every interaction that changes the screen.
+     */
+    protected void invalidateSnapshot() {
+        snapshot = null;
+        gestures.forgetRects();
+    }
+
+    /**
+     * Waits until any of several locators is present, checking all of them against one page
+     * source per poll. Locators that cannot be evaluated locally, and all locators when
+     * page.snapshot.enabled is false, are checked with findElements.
+     * @param timeout how long to wait
+     * @param locators the locators, in order of preference
+     * @return the first present locator, or empty on timeout
+     */
+    protected Optional<By> waitForAnyPresent(Duration timeout, List<By> locators) {
+        Optional<By> present = snapshotWait.await("anyPresent", timeout, () -> {
+            for (By locator : locators) {
+                if (isPresentNow(locator)) {
+                    return locator;
+                }
+            }
+            invalidateSnapshot();
+            return null;
+        });
+        if (present.isEmpty()) {
+            log.debug("None of {} present within {}ms", locators, timeout.toMillis());
+        }
+        return present;
+    }
+
+    private boolean isPresentNow(By locator) {
+        try {
+            if (config.isPageSnapshotEnabled()) {
+                Optional<List<PageSnapshot.SnapshotElement>> matches = snapshot().find(locator);
+                if (matches.isPresent()) {
+                    return !matches.get().isEmpty();
+                }
+            }
+            return !driver.findElements(locator).isEmpty();
+        } catch (WebDriverException | IllegalArgumentException e) {
+            log.debug("Presence check failed for {}: {}", locator, e.getMessage());
             return false;
         }
     }
 
     protected void click(By locator) {
         WebElement element = waitForClickable(locator);
+        invalidateSnapshot();
         element.click();
         log.debug("Clicked element: {}", locator);
     }
 
+    /**
+     * Taps a locator's element at its bounds in the current page snapshot, one performActions
+     * instead of a find, a clickable wait and a click; meant right after a snapshot-based wait
+     * found it. Falls back to {@link #click(By)} when the snapshot cannot place the element.
+     */
+    protected void tap(By locator) {
+        Optional<Rectangle> bounds = Optional.empty();
+        if (config.isPageSnapshotEnabled()) {
+            try {
+                bounds = snapshot().find(locator).flatMap(matches -> matches.stream()
+                        .filter(PageSnapshot.SnapshotElement::isDisplayed).findFirst())
+                        .flatMap(PageSnapshot.SnapshotElement::bounds);
+            } catch (WebDriverException | IllegalArgumentException e) {
+                log.debug("Cannot place {} on a snapshot: {}", locator, e.getMessage());
+            }
+        }
+        if (bounds.isEmpty()) {
+            click(locator);
+            return;
+        }
+        invalidateSnapshot();
+        gestures.tap(bounds.get()).perform();
+        log.debug("Tapped element at {}: {}", bounds.get(), locator);
+    }
+
     protected void click(WebElement element) {
-        wait.until(ExpectedConditions.elementToBeClickable(element));
+        elementWait.until("clickable", () -> ExpectedConditions.elementToBeClickable(element).apply(driver));
+        invalidateSnapshot();
         element.click();
     }
 
     protected void type(By locator, String text) {
         WebElement element = waitForVisible(locator);
+        invalidateSnapshot();
         element.clear();
         element.sendKeys(text);
         log.debug("Typed '{}' into element: {}", text, locator);
     }
 
     protected void type(WebElement element, String text) {
-        wait.until(ExpectedConditions.visibilityOf(element));
+        elementWait.until("visible", () -> ExpectedConditions.visibilityOf(element).apply(driver));
+        invalidateSnapshot();
         element.clear();
         element.sendKeys(text);
     }
@@ -83,6 +183,7 @@ public abstract class BasePage {
     }
 
     protected void hideKeyboard() {
+        invalidateSnapshot();
         try {
             // Use mobile: command for Appium 9.x compatibility
             driver.executeScript("mobile: hideKeyboard");
@@ -100,12 +201,4 @@ public abstract class BasePage {
         Allure.addAttachment(name, "image/png",
                 new ByteArrayInputStream(screenshot), "png");
     }
-
-    protected void sleep(long millis) {
-        try {
-            Thread.sleep(millis);
-        } catch (InterruptedException e) {
-            Thread.currentThread().interrupt();
-        }
-    }
 }
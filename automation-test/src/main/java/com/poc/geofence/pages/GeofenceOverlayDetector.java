@@ -0,0 +1,202 @@
+package com.poc.geofence.pages;
+
+import com.poc.geofence.config.ConfigManager;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+
+/**
+ * Finds a geofence overlay (the red circle and marker the app draws) in a map screenshot.
+ *
+ * <p>Only a square window around the image center is scanned, where a geofence created by
+ * long-clicking the map center is drawn, and only every {@code sampleStep}-th pixel in both
+ * directions, so the scan reads one reused {@code int[]} row at a time and costs well under
+ * the screenshot round trip. A pixel is red when its red channel exceeds both others by
+ * {@code minRedness}; with a baseline screenshot of the map from before the long-click, a
+ * pixel counts when it became that much redder instead, so red map features (roads, POIs)
+ * and the tinted fill over water are told apart. The overlay is found when enough of the
+ * window is red and the red area is centered.
+ */
+public final class GeofenceOverlayDetector {
+    private final int sampleStep;
+    private final double windowFraction;
+    private final int minRedness;
+    private final double minRedFraction;
+    private final double maxCenterOffset;
+
+    private GeofenceOverlayDetector(Builder builder) {
+        this.sampleStep = builder.sampleStep;
+        this.windowFraction = builder.windowFraction;
+        this.minRedness = builder.minRedness;
+        this.minRedFraction = builder.minRedFraction;
+        this.maxCenterOffset = builder.maxCenterOffset;
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * Creates a detector from the geofence.verify.* settings.
+     */
+    public static GeofenceOverlayDetector fromConfig() {
+        ConfigManager config = ConfigManager.getInstance();
+        return builder()
+                .withSampleStep(config.getGeofenceVerifySampleStep())
+                .withMinRedFraction(config.getGeofenceVerifyMinRedFraction())
+                .build();
+    }
+
+    /**
+     * Decodes a PNG screenshot.
+     * @throws UncheckedIOException if the bytes are not an image
+     */
+    public static BufferedImage decode(byte[] png) {
+        try {
+            BufferedImage image = ImageIO.read(new ByteArrayInputStream(png));
+            if (image == null) {
+                throw new IOException("not a supported image format");
+            }
+            return image;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot decode screenshot", e);
+        }
+    }
+
+    /**
+     * Scans a map screenshot for the overlay.
+     * @param image the map, e.g. an element screenshot of the map fragment
+     * @param baseline the same map before the geofence was created, or null; ignored if its size differs
+     * @return what was found, with the scan time
+     */
+    public Result detect(BufferedImage image, BufferedImage baseline) {
+        long start = System.nanoTime();
+        int width = image.getWidth();
+        int height = image.getHeight();
+        if (baseline != null && (baseline.getWidth() != width || baseline.getHeight() != height)) {
+            baseline = null;
+        }
+        int side = Math.max(1, (int) (Math.min(width, height) * windowFraction));
+        int x0 = (width - side) / 2;
+        int y0 = (height - side) / 2;
+        int[] row = new int[side];
+        int[] baseRow = baseline == null ? null : new int[side];
+
+        int sampled = 0;
+        int red = 0;
+        long sumX = 0;
+        long sumY = 0;
+        for (int y = y0; y < y0 + side; y += sampleStep) {
+            image.getRGB(x0, y, side, 1, row, 0, side);
+            if (baseRow != null) {
+                baseline.getRGB(x0, y, side, 1, baseRow, 0, side);
+            }
+            for (int i = 0; i < side; i += sampleStep) {
+                sampled++;
+                int redness = redness(row[i]);
+                boolean isRed = baseRow == null ? redness >= minRedness : redness - redness(baseRow[i]) >= minRedness;
+                if (isRed) {
+                    red++;
+                    sumX += i;
+                    sumY += y - y0;
+                }
+            }
+        }
+
+        double fraction = sampled == 0 ? 0 : (double) red / sampled;
+        double half = side / 2.0;
+        // Centroid offset from the window center, as a fraction of half the window
+        double offsetX = red == 0 ? 1 : ((double) sumX / red - half) / half;
+        double offsetY = red == 0 ? 1 : ((double) sumY / red - half) / half;
+        boolean found = fraction >= minRedFraction
+                && Math.abs(offsetX) <= maxCenterOffset && Math.abs(offsetY) <= maxCenterOffset;
+        return new Result(found, fraction, sampled, offsetX, offsetY, baseline != null, System.nanoTime() - start);
+    }
+
+    private static int redness(int rgb) {
+        int r = (rgb >> 16) & 0xff;
+        int g = (rgb >> 8) & 0xff;
+        int b = rgb & 0xff;
+        return r - Math.max(g, b);
+    }
+
+    /**
+     * Outcome of one scan.
+     * @param redFraction share of sampled pixels that were (or became) red
+     * @param offsetX centroid of the red pixels relative to the window center, -1..1 (1 if none)
+     * @param offsetY as offsetX, vertically
+     * @param againstBaseline whether pixels were compared with a baseline screenshot
+     * @param scanNanos time the scan took, excluding decoding
+     */
+    public record Result(boolean found, double redFraction, int sampled, double offsetX, double offsetY,
+                         boolean againstBaseline, long scanNanos) {
+    }
+
+    /**
+     * Builder for GeofenceOverlayDetector.
+     */
+    public static final class Builder {
+        private int sampleStep = 2;
+        private double windowFraction = 0.5;
+        private int minRedness = 40;
+        private double minRedFraction = 0.02;
+        private double maxCenterOffset = 0.5;
+
+        private Builder() {
+        }
+
+        /**
+         * Sets the sampling stride in pixels, in both directions. Default: 2
+         */
+        public Builder withSampleStep(int sampleStep) {
+            if (sampleStep < 1) {
+                throw new IllegalArgumentException("Sample step must be at least 1: " + sampleStep);
+            }
+            this.sampleStep = sampleStep;
+            return this;
+        }
+
+        /**
+         * Sets the side of the scanned square as a fraction of the image's shorter side. Default: 0.5
+         */
+        public Builder withWindowFraction(double windowFraction) {
+            if (!(windowFraction > 0 && windowFraction <= 1)) {
+                throw new IllegalArgumentException("Window fraction must be in (0, 1]: " + windowFraction);
+            }
+            this.windowFraction = windowFraction;
+            return this;
+        }
+
+        /**
+         * Sets how much the red channel must exceed green and blue (or grow over the baseline). Default: 40
+         */
+        public Builder withMinRedness(int minRedness) {
+            this.minRedness = minRedness;
+            return this;
+        }
+
+        /**
+         * Sets the share of the window that must be red. Default: 0.02
+         */
+        public Builder withMinRedFraction(double minRedFraction) {
+            this.minRedFraction = minRedFraction;
+            return this;
+        }
+
+        /**
+         * Sets how far the red area's centroid may be from the window center, as a fraction of
+         * half the window. Default: 0.5
+         */
+        public Builder withMaxCenterOffset(double maxCenterOffset) {
+            this.maxCenterOffset = maxCenterOffset;
+            return this;
+        }
+
+        public GeofenceOverlayDetector build() {
+            return new GeofenceOverlayDetector(this);
+        }
+    }
+}
@@ -0,0 +1,139 @@
+package com.poc.geofence.pages;
+
+import com.poc.geofence.driver.DriverManager;
+import com.poc.geofence.metrics.CommandMetrics;
+import io.appium.java_client.AppiumDriver;
+import org.openqa.selenium.Point;
+import org.openqa.selenium.Rectangle;
+import org.openqa.selenium.WebElement;
+import org.openqa.selenium.interactions.Pause;
+import org.openqa.selenium.interactions.PointerInput;
+import org.openqa.selenium.interactions.Sequence;
+import org.openqa.selenium.remote.RemoteWebElement;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Builds touch gestures as one W3C pointer sequence and sends them in one performActions call.
+ *
+ * <p>Compound interactions (a tap-through, a long press followed by a tap) cost one round trip
+ * instead of one per gesture. Element positions come from one getRect per element, cached until
+ * {@link #forgetRects()}, where getLocation plus getSize cost two. Gestures saved by batching and
+ * rect cache hits are counted as skipped "actions" and "getElementRect" commands in
+ * {@link CommandMetrics}, next to the commands that were sent.
+ *
+ * <p>A composer is not thread-safe; pages keep one per page object.
+ */
+public final class GestureComposer {
+    private static final Logger log = LoggerFactory.getLogger(GestureComposer.class);
+    private static final Duration TAP_HOLD = Duration.ofMillis(100);
+
+    private final AppiumDriver driver;
+    private final String platform;
+    private final Map<String, Rectangle> rects = new HashMap<>();
+    private final PointerInput finger = new PointerInput(PointerInput.Kind.TOUCH, "finger");
+    private Sequence sequence;
+    private int gestures;
+
+    public GestureComposer(AppiumDriver driver) {
+        this.driver = driver;
+        this.platform = DriverManager.platformOf(driver);
+        this.sequence = new Sequence(finger, 0);
+    }
+
+    /**
+     * Returns an element's rect, from the cache if this composer has read it before.
+     */
+    public Rectangle rect(WebElement element) {
+        String id = element instanceof RemoteWebElement remote ? remote.getId() : null;
+        Rectangle cached = id == null ? null : rects.get(id);
+        if (cached != null) {
+            CommandMetrics.getInstance().recordSkipped(platform, "getElementRect");
+            return cached;
+        }
+        Rectangle rect = element.getRect();
+        if (id != null) {
+            rects.put(id, rect);
+        }
+        return rect;
+    }
+
+    /**
+     * Drops cached rects; call when the layout may have changed.
+     */
+    public void forgetRects() {
+        rects.clear();
+    }
+
+    public GestureComposer tap(WebElement element) {
+        return tap(center(rect(element)));
+    }
+
+    public GestureComposer tap(Rectangle bounds) {
+        return tap(center(bounds));
+    }
+
+    public GestureComposer tap(Point point) {
+        return press(point, point, TAP_HOLD);
+    }
+
+    /**
+     * Presses the element's center and holds it without moving.
+     */
+    public GestureComposer longPress(WebElement element, Duration hold) {
+        Point center = center(rect(element));
+        return press(center, center, hold);
+    }
+
+    /**
+     * Presses at {@code from}, drags to {@code to} over {@code duration} and lifts.
+     */
+    public GestureComposer swipe(Point from, Point to, Duration duration) {
+        return press(from, to, duration);
+    }
+
+    /**
+     * Waits between two gestures, e.g. for a dialog to animate in before tapping it.
+     */
+    public GestureComposer pause(Duration duration) {
+        sequence.addAction(new Pause(finger, duration));
+        return this;
+    }
+
+    private GestureComposer press(Point from, Point to, Duration duration) {
+        sequence.addAction(finger.createPointerMove(Duration.ZERO, PointerInput.Origin.viewport(), from.getX(), from.getY()));
+        sequence.addAction(finger.createPointerDown(PointerInput.MouseButton.LEFT.asArg()));
+        sequence.addAction(finger.createPointerMove(duration, PointerInput.Origin.viewport(), to.getX(), to.getY()));
+        sequence.addAction(finger.createPointerUp(PointerInput.MouseButton.LEFT.asArg()));
+        gestures++;
+        return this;
+    }
+
+    /**
+     * Sends the gestures added since the last perform in one performActions call.
+     * Does nothing if there are none.
+     */
+    public void perform() {
+        if (gestures == 0) {
+            return;
+        }
+        Sequence batch = sequence;
+        int batched = gestures;
+        sequence = new Sequence(finger, 0);
+        gestures = 0;
+        driver.perform(List.of(batch));
+        for (int i = 1; i < batched; i++) {
+            CommandMetrics.getInstance().recordSkipped(platform, "actions");
+        }
+        log.debug("Performed {} gesture(s) in one action sequence", batched);
+    }
+
+    private static Point center(Rectangle rect) {
+        return new Point(rect.getX() + rect.getWidth() / 2, rect.getY() + rect.getHeight() / 2);
+    }
+}
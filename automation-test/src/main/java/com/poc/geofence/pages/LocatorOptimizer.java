@@ -0,0 +1,394 @@
+package com.poc.geofence.pages;
+
+import com.poc.geofence.config.ConfigManager;
+import com.poc.geofence.config.PlatformType;
+import io.appium.java_client.AppiumBy;
+import org.openqa.selenium.By;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Collectors;
+
+/**
+ * Translates XPath locators into native strategies that UiAutomator2 and XCUITest resolve
+ * without serializing the whole UI tree: {@code -android uiautomator} (UiSelector) and
+ * {@code -ios class chain}.
+ *
+ * <p>Only the XPath forms page locators use are translated: descendant steps
+ * ({@code //type} or {@code //*}) with one predicate of {@code contains(@attr, 'x')} or
+ * {@code @attr='x'} terms joined by {@code or} or {@code and}, a position on a single step
+ * ({@code (//type)[n]}) and, on Android, unions. Anything else has no native equivalent.
+ *
+ * <p>Pages declare locators through {@link #optimize}, which follows locator.optimizer.mode:
+ * "suggest" keeps the XPath and logs the equivalent, "substitute" uses it. Substituted
+ * locators keep their XPath, so {@link PageSnapshot} still evaluates them locally.
+ */
+public final class LocatorOptimizer {
+    private static final Logger log = LoggerFactory.getLogger(LocatorOptimizer.class);
+
+    private LocatorOptimizer() {
+    }
+
+    public enum Mode {
+        OFF, SUGGEST, SUBSTITUTE;
+
+        /**
+         * @throws IllegalArgumentException if the mode is unknown
+         */
+        public static Mode fromString(String text) {
+            for (Mode mode : values()) {
+                if (mode.name().equalsIgnoreCase(text)) {
+                    return mode;
+                }
+            }
+            throw new IllegalArgumentException("Unknown locator optimizer mode: " + text);
+        }
+    }
+
+    /**
+     * Applies locator.optimizer.mode to a page locator.
+     * @param locator the locator as written
+     * @param platform the platform the page runs on
+     * @return the native equivalent in substitute mode, otherwise the locator itself
+     */
+    public static By optimize(By locator, PlatformType platform) {
+        Mode mode = Mode.fromString(ConfigManager.getInstance().getLocatorOptimizerMode());
+        if (mode == Mode.OFF) {
+            return locator;
+        }
+        Optional<NativeLocator> equivalent = nativeEquivalent(locator, platform);
+        if (equivalent.isEmpty()) {
+            return locator;
+        }
+        if (mode == Mode.SUBSTITUTE) {
+            log.debug("Using {} for {}", equivalent.get(), locator);
+            return equivalent.get();
+        }
+        log.debug("{} has native equivalent {}", locator, equivalent.get());
+        return locator;
+    }
+
+    /**
+     * @param locator any locator
+     * @param platform the platform it is used on
+     * @return its native equivalent, or empty if it is not an XPath locator in a translatable form
+     */
+    public static Optional<NativeLocator> nativeEquivalent(By locator, PlatformType platform) {
+        if (locator instanceof NativeLocator nativeLocator) {
+            return Optional.of(nativeLocator);
+        }
+        if (!(locator instanceof By.Remotable remotable)
+                || !"xpath".equals(remotable.getRemoteParameters().using())) {
+            return Optional.empty();
+        }
+        String xpath = String.valueOf(remotable.getRemoteParameters().value());
+        try {
+            List<Path> paths = new Parser(xpath).union();
+            return Optional.of(platform == PlatformType.ANDROID
+                    ? new NativeLocator("-android uiautomator", "androidUIAutomator", uiSelector(paths), xpath)
+                    : new NativeLocator("-ios class chain", "iOSClassChain", classChain(paths), xpath));
+        } catch (IllegalArgumentException e) {
+            return Optional.empty();
+        }
+    }
+
+    // ==================== Android ====================
+
+    private static String uiSelector(List<Path> paths) {
+        List<String> selectors = new ArrayList<>();
+        for (Path path : paths) {
+            if (path.position() > 0 && path.steps().size() > 1) {
+                throw new IllegalArgumentException("position on a multi-step path");
+            }
+            String selector = null;
+            for (int i = path.steps().size() - 1; i >= 0; i--) {
+                String step = uiSelector(path.steps().get(i));
+                selector = selector == null ? step : step + ".childSelector(" + selector + ")";
+            }
+            selectors.add(path.position() > 0 ? selector + ".instance(" + (path.position() - 1) + ")" : selector);
+        }
+        // UiAutomator2 returns the matches of all ';'-separated selectors
+        return String.join(";", selectors);
+    }
+
+    private static String uiSelector(Step step) {
+        StringBuilder sb = new StringBuilder("new UiSelector()");
+        if (step.type() != null) {
+            sb.append(".className(").append(javaString(step.type())).append(')');
+        }
+        if (step.terms().size() > 1 && step.or()) {
+            // UiSelector criteria are ANDed; an OR over one attribute becomes a regex alternation
+            Term first = step.terms().get(0);
+            if (step.terms().stream().anyMatch(t -> !t.attribute().equals(first.attribute())
+                    || t.contains() != first.contains())) {
+                throw new IllegalArgumentException("or across attributes");
+            }
+            String alternatives = step.terms().stream().map(t -> regex(t.literal())).collect(Collectors.joining("|"));
+            String pattern = first.contains() ? ".*(" + alternatives + ").*" : "(" + alternatives + ")";
+            return sb.append('.').append(uiSelectorAttribute(first.attribute())).append("Matches(")
+                    .append(javaString(pattern)).append(')').toString();
+        }
+        for (Term term : step.terms()) {
+            String attribute = uiSelectorAttribute(term.attribute());
+            if (!term.contains()) {
+                sb.append('.').append(attribute).append('(').append(javaString(term.literal())).append(')');
+            } else if (attribute.equals("text") || attribute.equals("description")) {
+                sb.append('.').append(attribute).append("Contains(").append(javaString(term.literal())).append(')');
+            } else {
+                sb.append('.').append(attribute).append("Matches(")
+                        .append(javaString(".*" + regex(term.literal()) + ".*")).append(')');
+            }
+        }
+        return sb.toString();
+    }
+
+    private static String uiSelectorAttribute(String attribute) {
+        return switch (attribute) {
+            case "text" -> "text";
+            case "resource-id" -> "resourceId";
+            case "content-desc" -> "description";
+            case "class" -> "className";
+            default -> throw new IllegalArgumentException("no UiSelector criterion for @" + attribute);
+        };
+    }
+
+    private static String regex(String literal) {
+        StringBuilder sb = new StringBuilder();
+        for (char c : literal.toCharArray()) {
+            if ("\\.[]{}()*+?^$|".indexOf(c) >= 0) {
+                sb.append('\\');
+            }
+            sb.append(c);
+        }
+        return sb.toString();
+    }
+
+    private static String javaString(String value) {
+        return "\"" + value.replace("\\", "\\\\").replace("\"", "\\\"") + "\"";
+    }
+
+    // ==================== iOS ====================
+
+    private static String classChain(List<Path> paths) {
+        if (paths.size() > 1) {
+            throw new IllegalArgumentException("class chains have no union");
+        }
+        Path path = paths.get(0);
+        if (path.position() > 0 && path.steps().size() > 1) {
+            throw new IllegalArgumentException("position on a multi-step path");
+        }
+        List<String> steps = new ArrayList<>();
+        for (Step step : path.steps()) {
+            StringBuilder sb = new StringBuilder(step.type() != null ? step.type() : "*");
+            if (!step.terms().isEmpty()) {
+                String joiner = step.or() ? " OR " : " AND ";
+                sb.append("[`").append(step.terms().stream().map(LocatorOptimizer::predicate)
+                        .collect(Collectors.joining(joiner))).append("`]");
+            }
+            steps.add(sb.toString());
+        }
+        String chain = "**/" + String.join("/**/", steps);
+        return path.position() > 0 ? chain + "[" + path.position() + "]" : chain;
+    }
+
+    private static String predicate(Term term) {
+        if (!List.of("name", "label", "value", "type").contains(term.attribute())) {
+            throw new IllegalArgumentException("no class chain attribute for @" + term.attribute());
+        }
+        String literal = "\"" + term.literal().replace("\\", "\\\\").replace("\"", "\\\"") + "\"";
+        return term.attribute() + (term.contains() ? " CONTAINS " : " == ") + literal;
+    }
+
+    // ==================== XPath subset ====================
+
+    private record Path(List<Step> steps, int position) {
+    }
+
+    /**
+     * @param type element type, or null for {@code *}
+     * @param or whether the terms are joined by {@code or} rather than {@code and}
+     */
+    private record Step(String type, List<Term> terms, boolean or) {
+    }
+
+    private record Term(String attribute, boolean contains, String literal) {
+    }
+
+    /**
+     * Recursive-descent parser for the translatable XPath subset; throws
+     * IllegalArgumentException on anything outside it.
+     */
+    private static final class Parser {
+        private final String xpath;
+        private int pos;
+
+        Parser(String xpath) {
+            this.xpath = xpath;
+        }
+
+        List<Path> union() {
+            List<Path> paths = new ArrayList<>();
+            paths.add(path());
+            while (skip("|")) {
+                paths.add(path());
+            }
+            whitespace();
+            if (pos < xpath.length()) {
+                throw unsupported();
+            }
+            return paths;
+        }
+
+        private Path path() {
+            if (!skip("(")) {
+                return new Path(steps(), 0);
+            }
+            List<Step> steps = steps();
+            expect(")");
+            expect("[");
+            whitespace();
+            int start = pos;
+            while (pos < xpath.length() && Character.isDigit(xpath.charAt(pos))) {
+                pos++;
+            }
+            if (start == pos) {
+                throw unsupported();
+            }
+            int position = Integer.parseInt(xpath.substring(start, pos));
+            expect("]");
+            return new Path(steps, position);
+        }
+
+        private List<Step> steps() {
+            List<Step> steps = new ArrayList<>();
+            while (skip("//")) {
+                steps.add(step());
+            }
+            if (steps.isEmpty()) {
+                throw unsupported();
+            }
+            return steps;
+        }
+
+        private Step step() {
+            String type = name();
+            if (type.isEmpty()) {
+                throw unsupported();
+            }
+            List<Term> terms = new ArrayList<>();
+            boolean or = false;
+            if (skip("[")) {
+                terms.add(term());
+                String joiner = null;
+                while (!skip("]")) {
+                    String next = skip("or ") ? "or" : skip("and ") ? "and" : null;
+                    if (next == null || (joiner != null && !joiner.equals(next))) {
+                        throw unsupported();
+                    }
+                    joiner = next;
+                    terms.add(term());
+                }
+                or = "or".equals(joiner);
+            }
+            return new Step(type.equals("*") ? null : type, terms, or);
+        }
+
+        private Term term() {
+            if (skip("contains(")) {
+                expect("@");
+                String attribute = name();
+                expect(",");
+                String literal = literal();
+                expect(")");
+                return new Term(attribute, true, literal);
+            }
+            expect("@");
+            String attribute = name();
+            expect("=");
+            return new Term(attribute, false, literal());
+        }
+
+        private String literal() {
+            whitespace();
+            char quote = pos < xpath.length() ? xpath.charAt(pos) : 0;
+            int end = quote == '\'' || quote == '"' ? xpath.indexOf(quote, pos + 1) : -1;
+            if (end < 0) {
+                throw unsupported();
+            }
+            String literal = xpath.substring(pos + 1, end);
+            pos = end + 1;
+            return literal;
+        }
+
+        private String name() {
+            whitespace();
+            int start = pos;
+            while (pos < xpath.length() && (Character.isLetterOrDigit(xpath.charAt(pos))
+                    || "*_.-".indexOf(xpath.charAt(pos)) >= 0)) {
+                pos++;
+            }
+            return xpath.substring(start, pos);
+        }
+
+        private boolean skip(String token) {
+            whitespace();
+            if (xpath.startsWith(token, pos)) {
+                pos += token.length();
+                return true;
+            }
+            return false;
+        }
+
+        private void expect(String token) {
+            if (!skip(token)) {
+                throw unsupported();
+            }
+        }
+
+        private void whitespace() {
+            while (pos < xpath.length() && Character.isWhitespace(xpath.charAt(pos))) {
+                pos++;
+            }
+        }
+
+        private IllegalArgumentException unsupported() {
+            return new IllegalArgumentException("Not translatable at " + pos + ": " + xpath);
+        }
+    }
+
+    /**
+     * A native locator that remembers the XPath it was translated from.
+     */
+    public static final class NativeLocator extends AppiumBy {
+        private final String xpath;
+
+        NativeLocator(String strategy, String locatorName, String selector, String xpath) {
+            super(strategy, selector, locatorName);
+            this.xpath = xpath;
+        }
+
+        /**
+         * @return the XPath this locator is equivalent to
+         */
+        public String xpath() {
+            return xpath;
+        }
+
+        /**
+         * @return the strategy, e.g. "-android uiautomator"
+         */
+        public String strategy() {
+            return getRemoteParameters().using();
+        }
+
+        /**
+         * @return the native selector
+         */
+        public String selector() {
+            return String.valueOf(getRemoteParameters().value());
+        }
+    }
+}
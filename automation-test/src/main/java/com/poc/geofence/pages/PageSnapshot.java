@@ -0,0 +1,242 @@
+package com.poc.geofence.pages;
+
+import org.openqa.selenium.By;
+import org.openqa.selenium.Rectangle;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.NamedNodeMap;
+import org.w3c.dom.Node;
+import org.w3c.dom.NodeList;
+
+import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.parsers.ParserConfigurationException;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import javax.xml.xpath.XPathConstants;
+import javax.xml.xpath.XPathExpression;
+import javax.xml.xpath.XPathExpressionException;
+import javax.xml.xpath.XPathFactory;
+import java.io.StringReader;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * A parsed page source that locators are evaluated against locally, so checking several
+ * locators costs one {@code getPageSource} round trip instead of one find per locator.
+ *
+ * <p>The source is read with a streaming (StAX) parser into a bare DOM (elements and
+ * attributes only) for XPath evaluation. id, accessibility id, class name and xpath locators
+ * are translated to XPath the way UiAutomator2 and XCUITest match them, and locators the
+ * {@link LocatorOptimizer} substituted use their original XPath; other strategies
+ * (UiSelector, predicate strings, class chains) are not evaluated locally.
+ *
+ * <p>A snapshot is immutable and shows the screen when it was taken; see
+ * {@link BasePage#snapshot()} for when pages take a new one.
+ */
+public final class PageSnapshot {
+    private static final XMLInputFactory XML_INPUT = XMLInputFactory.newFactory();
+    private static final DocumentBuilderFactory DOCUMENTS = DocumentBuilderFactory.newInstance();
+    // XPath objects are not thread-safe; compiled expressions are cached per thread
+    private static final ThreadLocal<Map<String, XPathExpression>> EXPRESSIONS = ThreadLocal.withInitial(HashMap::new);
+
+    static {
+        XML_INPUT.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+        XML_INPUT.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+    }
+
+    private final Document document;
+    private final String platform;
+    private final Instant takenAt;
+
+    private PageSnapshot(Document document, String platform, Instant takenAt) {
+        this.document = document;
+        this.platform = platform;
+        this.takenAt = takenAt;
+    }
+
+    /**
+     * Parses a page source.
+     * @param source the XML returned by getPageSource
+     * @param platform "android" or "ios", for translating id and accessibility id locators
+     * @return the snapshot
+     * @throws IllegalArgumentException if the source is not well-formed XML
+     */
+    public static PageSnapshot parse(String source, String platform) {
+        try {
+            Document document = DOCUMENTS.newDocumentBuilder().newDocument();
+            XMLStreamReader reader = XML_INPUT.createXMLStreamReader(new StringReader(source));
+            Node current = document;
+            try {
+                while (reader.hasNext()) {
+                    switch (reader.next()) {
+                        case XMLStreamConstants.START_ELEMENT -> {
+                            Element element = document.createElement(reader.getLocalName());
+                            for (int i = 0; i < reader.getAttributeCount(); i++) {
+                                element.setAttribute(reader.getAttributeLocalName(i), reader.getAttributeValue(i));
+                            }
+                            current.appendChild(element);
+                            current = element;
+                        }
+                        case XMLStreamConstants.END_ELEMENT -> current = current.getParentNode();
+                        default -> {
+                            // Page sources carry everything in attributes
+                        }
+                    }
+                }
+            } finally {
+                reader.close();
+            }
+            return new PageSnapshot(document, platform, Instant.now());
+        } catch (XMLStreamException | ParserConfigurationException e) {
+            throw new IllegalArgumentException("Unparseable page source: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * @return when the snapshot was taken
+     */
+    public Instant takenAt() {
+        return takenAt;
+    }
+
+    /**
+     * @return how long ago the snapshot was taken
+     */
+    public Duration age() {
+        return Duration.between(takenAt, Instant.now());
+    }
+
+    /**
+     * Finds the elements a locator matches in this snapshot.
+     * @param locator the locator
+     * @return the matches in document order, or empty if the locator cannot be evaluated locally
+     */
+    public Optional<List<SnapshotElement>> find(By locator) {
+        Optional<String> xpath = toXPath(locator, platform);
+        if (xpath.isEmpty()) {
+            return Optional.empty();
+        }
+        NodeList nodes;
+        try {
+            XPathExpression expression = EXPRESSIONS.get().get(xpath.get());
+            if (expression == null) {
+                expression = XPathFactory.newInstance().newXPath().compile(xpath.get());
+                EXPRESSIONS.get().put(xpath.get(), expression);
+            }
+            nodes = (NodeList) expression.evaluate(document, XPathConstants.NODESET);
+        } catch (XPathExpressionException e) {
+            // Let the server report it, or evaluate XPath features the JDK lacks
+            return Optional.empty();
+        }
+        List<SnapshotElement> matches = new ArrayList<>(nodes.getLength());
+        for (int i = 0; i < nodes.getLength(); i++) {
+            if (nodes.item(i) instanceof Element element) {
+                matches.add(SnapshotElement.of(element));
+            }
+        }
+        return Optional.of(matches);
+    }
+
+    /**
+     * Translates a locator to XPath over page source, if it can be evaluated locally.
+     */
+    static Optional<String> toXPath(By locator, String platform) {
+        if (locator instanceof LocatorOptimizer.NativeLocator nativeLocator) {
+            return Optional.of(nativeLocator.xpath());
+        }
+        if (!(locator instanceof By.Remotable remotable)) {
+            return Optional.empty();
+        }
+        By.Remotable.Parameters parameters = remotable.getRemoteParameters();
+        String value = String.valueOf(parameters.value());
+        boolean android = !"ios".equals(platform);
+        return switch (parameters.using()) {
+            case "xpath" -> Optional.of(value);
+            case "id" -> Optional.of("//*[@" + (android ? "resource-id" : "name") + "=" + quote(value) + "]");
+            case "accessibility id" -> Optional.of("//*[@" + (android ? "content-desc" : "name") + "=" + quote(value) + "]");
+            case "class name" -> Optional.of("//" + value);
+            default -> Optional.empty();
+        };
+    }
+
+    private static String quote(String value) {
+        if (!value.contains("'")) {
+            return "'" + value + "'";
+        }
+        if (!value.contains("\"")) {
+            return "\"" + value + "\"";
+        }
+        return "concat('" + value.replace("'", "', \"'\", '") + "')";
+    }
+
+    /**
+     * An element of a snapshot: its type and attributes.
+     */
+    public record SnapshotElement(String type, Map<String, String> attributes) {
+        private static final Pattern ANDROID_BOUNDS = Pattern.compile("\\[(-?\\d+),(-?\\d+)]\\[(-?\\d+),(-?\\d+)]");
+
+        static SnapshotElement of(Element element) {
+            NamedNodeMap attrs = element.getAttributes();
+            Map<String, String> attributes = new LinkedHashMap<>();
+            for (int i = 0; i < attrs.getLength(); i++) {
+                attributes.put(attrs.item(i).getNodeName(), attrs.item(i).getNodeValue());
+            }
+            return new SnapshotElement(element.getTagName(), attributes);
+        }
+
+        /**
+         * @return the text (Android) or value/label (iOS), empty if none
+         */
+        public String text() {
+            for (String name : List.of("text", "value", "label")) {
+                String value = attributes.get(name);
+                if (value != null && !value.isEmpty()) {
+                    return value;
+                }
+            }
+            return "";
+        }
+
+        /**
+         * @return the on-screen rect, from bounds="[x1,y1][x2,y2]" (Android) or x, y, width and
+         * height (iOS); empty if the source has neither
+         */
+        public Optional<Rectangle> bounds() {
+            String bounds = attributes.get("bounds");
+            if (bounds != null) {
+                Matcher m = ANDROID_BOUNDS.matcher(bounds);
+                if (m.matches()) {
+                    int x1 = Integer.parseInt(m.group(1));
+                    int y1 = Integer.parseInt(m.group(2));
+                    return Optional.of(new Rectangle(x1, y1,
+                            Integer.parseInt(m.group(4)) - y1, Integer.parseInt(m.group(3)) - x1));
+                }
+                return Optional.empty();
+            }
+            try {
+                return Optional.of(new Rectangle(Integer.parseInt(attributes.get("x")), Integer.parseInt(attributes.get("y")),
+                        Integer.parseInt(attributes.get("height")), Integer.parseInt(attributes.get("width"))));
+            } catch (NumberFormatException e) {
+                return Optional.empty();
+            }
+        }
+
+        /**
+         * @return the displayed (Android) or visible (iOS) attribute, true if the source has neither
+         */
+        public boolean isDisplayed() {
+            String displayed = attributes.getOrDefault("displayed", attributes.get("visible"));
+            return displayed == null || Boolean.parseBoolean(displayed);
+        }
+    }
+}
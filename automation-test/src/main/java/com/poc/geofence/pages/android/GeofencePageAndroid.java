@@ -1,19 +1,31 @@
 package com.poc.geofence.pages.android;
 
 import com.poc.geofence.components.NotificationHandler;
+import com.poc.geofence.config.PlatformType;
+import com.poc.geofence.driver.DeviceLogListener;
+import com.poc.geofence.driver.DriverManager;
 import com.poc.geofence.pages.BasePage;
+import com.poc.geofence.pages.GeofenceOverlayDetector;
 import com.poc.geofence.pages.GeofencePage;
+import com.poc.geofence.pages.LocatorOptimizer;
+import com.poc.geofence.utils.GeoPoint;
+import com.poc.geofence.utils.LocationPropagationWaiter;
+import com.poc.geofence.utils.WaitPolicy;
+import com.poc.geofence.utils.Waiter;
 import io.appium.java_client.AppiumBy;
 import org.openqa.selenium.By;
-import org.openqa.selenium.Dimension;
-import org.openqa.selenium.Point;
+import org.openqa.selenium.OutputType;
 import org.openqa.selenium.WebElement;
-import org.openqa.selenium.interactions.PointerInput;
-import org.openqa.selenium.interactions.Sequence;
 
+import java.awt.image.BufferedImage;
 import java.time.Duration;
-import java.util.Collections;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicReference;
 
 /**
  * Android implementation of GeofencePage.
@@ -24,16 +36,29 @@ public class GeofencePageAndroid extends BasePage implements GeofencePage {
     private static final By MAP_FRAGMENT = AppiumBy.id("com.eebax.geofencing:id/map");
     private static final By PERMISSION_ALLOW = AppiumBy.id(
             "com.android.permissioncontroller:id/permission_allow_foreground_only_button");
-    private static final By PERMISSION_ALLOW_ALL_TIME = AppiumBy.xpath(
-            "//*[contains(@text,'Allow all the time') or contains(@text,'allow all the time')]");
+    private static final By PERMISSION_ALLOW_ALL_TIME = LocatorOptimizer.optimize(AppiumBy.xpath(
+            "//*[contains(@text,'Allow all the time') or contains(@text,'allow all the time')]"), PlatformType.ANDROID);
     private static final By PERMISSION_ALLOW_BUTTON = AppiumBy.id(
             "com.android.permissioncontroller:id/permission_allow_button");
 
+    // Handle notification permission (Android 13+), "While using the app", then "Allow all the time"
+    private static final Map<By, String> PERMISSION_DIALOGS = new LinkedHashMap<>();
+    private static final Duration PERMISSION_DIALOG_TIMEOUT = Duration.ofSeconds(5);
+
+    static {
+        PERMISSION_DIALOGS.put(PERMISSION_ALLOW_BUTTON, "'Allow' for notification permission");
+        PERMISSION_DIALOGS.put(PERMISSION_ALLOW, "'Allow only while using the app'");
+        PERMISSION_DIALOGS.put(PERMISSION_ALLOW_ALL_TIME, "'Allow all the time'");
+    }
+
     private final NotificationHandler notificationHandler;
+    private byte[] mapBeforeGeofence;
 
     public GeofencePageAndroid() {
         super();
         this.notificationHandler = new NotificationHandler();
+        // Start listening to logcat before anything is triggered; drop events from a previous test
+        DriverManager.getDeviceLog(driver).ifPresent(DeviceLogListener::discardPending);
     }
 
     @Override
@@ -45,29 +70,47 @@ public class GeofencePageAndroid extends BasePage implements GeofencePage {
         // First, set GPS location to the geofence center
         setGpsLocation(latitude, longitude);
 
-        // Wait for map to load and center
+        // Wait for map to load, the location to reach the app and the camera to center on it
         WebElement map = waitForVisible(MAP_FRAGMENT);
-        sleep(3000); // Wait for map tiles to load
+        LocationPropagationWaiter.fromConfig().await(driver, "android", new GeoPoint(latitude, longitude));
+        waitForMapToSettle(map);
 
         // Long-click at center of map to create geofence
         longClickOnElement(map);
         attachScreenshot("geofence_created_android");
     }
 
+    /**
+     * Waits until two screenshots of the map in a row are identical, i.e. the camera has stopped
+     * moving, for at most location.map.settle.ms.
+     */
+    private void waitForMapToSettle(WebElement map) {
+        AtomicReference<byte[]> previous = new AtomicReference<>();
+        Waiter.until("map camera still", Duration.ofMillis(config.getMapSettleMillis()), () -> {
+            byte[] frame = map.getScreenshotAs(OutputType.BYTES);
+            return Arrays.equals(previous.getAndSet(frame), frame);
+        });
+        // The map as it was before the long-click, for telling the overlay from red map features
+        mapBeforeGeofence = previous.get();
+    }
+
     private void setGpsLocation(double latitude, double longitude) {
-        log.info("Setting GPS location: {}, {}", latitude, longitude);
         try {
-            // Cast to AndroidDriver to use setLocation
-            if (driver instanceof io.appium.java_client.android.AndroidDriver androidDriver) {
-                androidDriver.setLocation(new org.openqa.selenium.html5.Location(latitude, longitude, 0.0));
-            } else {
-                driver.executeScript("mobile: setLocation",
-                        Map.of(
-                                "latitude", latitude,
-                                "longitude", longitude,
-                                "altitude", 0.0
-                        ));
-            }
+            // Usually a no-op: the test has just moved the device here via LocationSimulator
+            boolean sent = DriverManager.getSessionState(driver).setLocation(latitude, longitude, () -> {
+                // Cast to AndroidDriver to use setLocation
+                if (driver instanceof io.appium.java_client.android.AndroidDriver androidDriver) {
+                    androidDriver.setLocation(new org.openqa.selenium.html5.Location(latitude, longitude, 0.0));
+                } else {
+                    driver.executeScript("mobile: setLocation",
+                            Map.of(
+                                    "latitude", latitude,
+                                    "longitude", longitude,
+                                    "altitude", 0.0
+                            ));
+                }
+            });
+            log.info("GPS location {}: {}, {}", sent ? "set" : "already", latitude, longitude);
         } catch (Exception e) {
             log.warn("setLocation failed: {}", e.getMessage());
             // Swallow exception - GPS might already be set via capabilities
@@ -75,31 +118,46 @@ public class GeofencePageAndroid extends BasePage implements GeofencePage {
     }
 
     private void longClickOnElement(WebElement element) {
-        Point center = element.getLocation();
-        Dimension size = element.getSize();
-        int centerX = center.getX() + size.getWidth() / 2;
-        int centerY = center.getY() + size.getHeight() / 2;
-
-        PointerInput finger = new PointerInput(PointerInput.Kind.TOUCH, "finger");
-        Sequence longPress = new Sequence(finger, 0);
-
-        longPress.addAction(finger.createPointerMove(
-                Duration.ZERO, PointerInput.Origin.viewport(), centerX, centerY));
-        longPress.addAction(finger.createPointerDown(PointerInput.MouseButton.LEFT.asArg()));
-        longPress.addAction(finger.createPointerMove(
-                Duration.ofSeconds(2), PointerInput.Origin.viewport(), centerX, centerY));
-        longPress.addAction(finger.createPointerUp(PointerInput.MouseButton.LEFT.asArg()));
-
-        driver.perform(Collections.singletonList(longPress));
-        log.debug("Long-clicked at center: ({}, {})", centerX, centerY);
+        gestures.longPress(element, Duration.ofSeconds(2)).perform();
+        log.debug("Long-clicked at center of {}", element);
     }
 
+    /**
+     * Checks that the app drew the geofence: the red circle and marker around the map center,
+     * found in map screenshots under the "geofence-overlay" wait policy. A long-click that did
+     * not register fails here, not after the transition wait.
+     */
     @Override
     public boolean verifyGeofenceCreated() {
-        // Android app shows red circle on map after geofence created
-        // Can verify via visual inspection or log message
-        // For now, assume success if no exception
-        return true;
+        if (!config.isGeofenceVisualVerifyEnabled()) {
+            return true;
+        }
+        WebElement map = waitForVisible(MAP_FRAGMENT);
+        GeofenceOverlayDetector detector = GeofenceOverlayDetector.fromConfig();
+        BufferedImage baseline = mapBeforeGeofence == null ? null : GeofenceOverlayDetector.decode(mapBeforeGeofence);
+        if (baseline != null && detector.detect(baseline, null).found()) {
+            // An earlier geofence at the same spot: the new one cannot be told apart, only the overlay
+            log.info("Map already showed a geofence overlay at its center; checking the overlay only");
+            baseline = null;
+        }
+        BufferedImage before = baseline;
+        AtomicReference<GeofenceOverlayDetector.Result> last = new AtomicReference<>();
+        boolean found = WaitPolicy.named("geofence-overlay").await("overlayDrawn",
+                Duration.ofMillis(config.getGeofenceVerifyTimeoutMillis()), () -> {
+                    GeofenceOverlayDetector.Result result = detector.detect(
+                            GeofenceOverlayDetector.decode(map.getScreenshotAs(OutputType.BYTES)), before);
+                    last.set(result);
+                    return result.found();
+                }).isPresent();
+        GeofenceOverlayDetector.Result result = last.get();
+        if (found) {
+            log.info("Geofence overlay found: {}% red around the map center (scan {}us)",
+                    String.format("%.1f", result.redFraction() * 100), result.scanNanos() / 1000);
+        } else {
+            log.warn("Geofence overlay not found within {}ms: {}", config.getGeofenceVerifyTimeoutMillis(), result);
+            attachScreenshot("geofence_not_drawn_android");
+        }
+        return found;
     }
 
     @Override
@@ -112,22 +170,19 @@ public class GeofencePageAndroid extends BasePage implements GeofencePage {
     public void handlePermissions() {
         log.info("Handling Android permissions");
 
-        // Handle notification permission (Android 13+)
-        if (isElementPresent(PERMISSION_ALLOW_BUTTON, 3)) {
-            click(PERMISSION_ALLOW_BUTTON);
-            log.info("Clicked 'Allow' for notification permission");
-        }
-
-        // Handle "While using the app" permission
-        if (isElementPresent(PERMISSION_ALLOW, 5)) {
-            click(PERMISSION_ALLOW);
-            log.info("Clicked 'Allow only while using the app'");
-        }
-
-        // Handle "Allow all the time" for background location
-        if (isElementPresent(PERMISSION_ALLOW_ALL_TIME, 3)) {
-            click(PERMISSION_ALLOW_ALL_TIME);
-            log.info("Clicked 'Allow all the time'");
+        // Dialogs appear in this order, each only on some devices and Android versions. One page
+        // source per poll checks every dialog that may still come; once one is handled, earlier
+        // ones will not appear any more.
+        List<By> pending = new ArrayList<>(PERMISSION_DIALOGS.keySet());
+        while (!pending.isEmpty()) {
+            Optional<By> dialog = waitForAnyPresent(PERMISSION_DIALOG_TIMEOUT, pending);
+            if (dialog.isEmpty()) {
+                break;
+            }
+            // Found on a snapshot, so its bounds are known: one tap instead of find, wait and click
+            tap(dialog.get());
+            log.info("Tapped {}", PERMISSION_DIALOGS.get(dialog.get()));
+            pending = new ArrayList<>(pending.subList(pending.indexOf(dialog.get()) + 1, pending.size()));
         }
     }
 
@@ -1,10 +1,22 @@
 package com.poc.geofence.pages.ios;
 
 import com.poc.geofence.components.AlertHandler;
+import com.poc.geofence.config.PlatformType;
 import com.poc.geofence.pages.BasePage;
 import com.poc.geofence.pages.GeofencePage;
+import com.poc.geofence.pages.LocatorOptimizer;
+import com.poc.geofence.pages.PageSnapshot;
+import com.poc.geofence.utils.GeofenceTimeline;
+import com.poc.geofence.utils.WaitPolicy;
 import io.appium.java_client.AppiumBy;
 import org.openqa.selenium.By;
+import org.openqa.selenium.WebDriverException;
+import org.openqa.selenium.WebElement;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
 
 /**
  * iOS implementation of GeofencePage.
@@ -13,18 +25,19 @@ import org.openqa.selenium.By;
 public class GeofencePageIOS extends BasePage implements GeofencePage {
     // Locators based on iOS-Geofence-Demo-master ViewController.swift
     // Using position-based XPath since no accessibility IDs present
-    private static final By TXT_LATITUDE = AppiumBy.xpath(
-            "(//XCUIElementTypeTextField)[1]");
-    private static final By TXT_LONGITUDE = AppiumBy.xpath(
-            "(//XCUIElementTypeTextField)[2]");
-    private static final By TXT_RANGE = AppiumBy.xpath(
-            "(//XCUIElementTypeTextField)[3]");
-    private static final By TXT_TITLE = AppiumBy.xpath(
-            "(//XCUIElementTypeTextField)[4]");
-    private static final By TXT_MESSAGE = AppiumBy.xpath(
-            "(//XCUIElementTypeTextField)[5]");
+    private static final By TXT_LATITUDE = textField("(//XCUIElementTypeTextField)[1]");
+    private static final By TXT_LONGITUDE = textField("(//XCUIElementTypeTextField)[2]");
+    private static final By TXT_RANGE = textField("(//XCUIElementTypeTextField)[3]");
+    private static final By TXT_TITLE = textField("(//XCUIElementTypeTextField)[4]");
+    private static final By TXT_MESSAGE = textField("(//XCUIElementTypeTextField)[5]");
+    // All form fields in one query, in screen order
+    private static final By TXT_FIELDS = textField("//XCUIElementTypeTextField");
     private static final By BTN_ADD = AppiumBy.accessibilityId("Add");
 
+    private static By textField(String xpath) {
+        return LocatorOptimizer.optimize(AppiumBy.xpath(xpath), PlatformType.IOS);
+    }
+
     private final AlertHandler alertHandler;
 
     public GeofencePageIOS() {
@@ -37,17 +50,71 @@ public class GeofencePageIOS extends BasePage implements GeofencePage {
         log.info("Creating iOS geofence: lat={}, lng={}, radius={}, title={}",
                 latitude, longitude, radius, title);
 
-        type(TXT_LATITUDE, String.valueOf(latitude));
-        type(TXT_LONGITUDE, String.valueOf(longitude));
-        type(TXT_RANGE, String.valueOf(radius));
-        type(TXT_TITLE, title);
-        type(TXT_MESSAGE, "Geofence zone: " + title);
-
-        hideKeyboard();
+        List<String> values = List.of(String.valueOf(latitude), String.valueOf(longitude),
+                String.valueOf(radius), title, "Geofence zone: " + title);
+        if (config.isFastFormFillEnabled()) {
+            fillForm(values);
+        } else {
+            type(TXT_LATITUDE, values.get(0));
+            type(TXT_LONGITUDE, values.get(1));
+            type(TXT_RANGE, values.get(2));
+            type(TXT_TITLE, values.get(3));
+            type(TXT_MESSAGE, values.get(4));
+            hideKeyboard();
+        }
         click(BTN_ADD);
         attachScreenshot("geofence_created_ios");
     }
 
+    /**
+     * Fills the form fields in order: one query resolves them all and one page snapshot reads
+     * their values, so only fields holding other text are cleared and fields already holding
+     * their value are skipped; each other field gets one sendKeys. A second snapshot verifies.
+     * @throws IllegalStateException if a field does not hold its value afterwards
+     */
+    private void fillForm(List<String> values) {
+        List<WebElement> fields = elementWait.until("formFields", () -> {
+            List<WebElement> found = driver.findElements(TXT_FIELDS);
+            return found.size() >= values.size() ? found : null;
+        });
+        List<PageSnapshot.SnapshotElement> before = fieldSnapshot(values.size());
+        for (int i = 0; i < values.size(); i++) {
+            String value = before.get(i).attributes().get("value");
+            if (values.get(i).equals(value)) {
+                continue;
+            }
+            if (value != null && !value.isEmpty() && !value.equals(before.get(i).attributes().get("placeholderValue"))) {
+                fields.get(i).clear();
+            }
+            fields.get(i).sendKeys(values.get(i));
+        }
+        hideKeyboard();
+
+        List<PageSnapshot.SnapshotElement> after = fieldSnapshot(values.size());
+        List<Integer> wrong = new ArrayList<>();
+        for (int i = 0; i < values.size(); i++) {
+            if (!values.get(i).equals(after.get(i).attributes().get("value"))) {
+                wrong.add(i);
+            }
+        }
+        if (!wrong.isEmpty()) {
+            throw new IllegalStateException("Form fields " + wrong + " do not hold their values " + values);
+        }
+    }
+
+    /**
+     * @return the form fields from a fresh page snapshot, in screen order
+     */
+    private List<PageSnapshot.SnapshotElement> fieldSnapshot(int expected) {
+        invalidateSnapshot();
+        List<PageSnapshot.SnapshotElement> fields = snapshot().find(TXT_FIELDS).orElseThrow(
+                () -> new IllegalStateException("Cannot evaluate " + TXT_FIELDS + " on a page snapshot"));
+        if (fields.size() < expected) {
+            throw new IllegalStateException("Expected " + expected + " form fields in the page source, found " + fields.size());
+        }
+        return fields;
+    }
+
     @Override
     public boolean verifyGeofenceCreated() {
         // iOS app shows "Data Added" alert on success
@@ -91,22 +158,12 @@ public class GeofencePageIOS extends BasePage implements GeofencePage {
     @Override
     public boolean waitForGeofenceExitEvent(int timeoutSeconds) {
         log.info("Waiting up to {}s for iOS geofence exit event", timeoutSeconds);
-        long startTime = System.currentTimeMillis();
-        long timeoutMillis = timeoutSeconds * 1000L;
-
-        while (System.currentTimeMillis() - startTime < timeoutMillis) {
-            if (alertHandler.waitForAlert(5)) {
-                String alertText = alertHandler.getAlertText();
-                // iOS app shows "Exit from [title]" on exit
-                if (alertText.toLowerCase().contains("exit")) {
-                    log.info("Geofence exit detected: {}", alertText);
-                    alertHandler.acceptAlert();
-                    attachScreenshot("geofence_exit_ios");
-                    return true;
-                }
-                alertHandler.acceptAlert();
-            }
-            sleep(2000);
+        // iOS app shows "Exit from [title]" on exit
+        Optional<String> alertText = waitForEventAlert("exit", timeoutSeconds);
+        if (alertText.isPresent()) {
+            log.info("Geofence exit detected: {}", alertText.get());
+            attachScreenshot("geofence_exit_ios");
+            return true;
         }
 
         log.warn("Geofence exit event not detected within {}s", timeoutSeconds);
@@ -117,26 +174,40 @@ public class GeofencePageIOS extends BasePage implements GeofencePage {
     @Override
     public boolean waitForGeofenceEntryEvent(int timeoutSeconds) {
         log.info("Waiting up to {}s for iOS geofence entry event (safe zone)", timeoutSeconds);
-        long startTime = System.currentTimeMillis();
-        long timeoutMillis = timeoutSeconds * 1000L;
-
-        while (System.currentTimeMillis() - startTime < timeoutMillis) {
-            if (alertHandler.waitForAlert(5)) {
-                String alertText = alertHandler.getAlertText();
-                // iOS app shows "Entered [title]" or "Enter to [title]" on entry
-                if (alertText.toLowerCase().contains("enter")) {
-                    log.info("Geofence entry detected (safe zone): {}", alertText);
-                    alertHandler.acceptAlert();
-                    attachScreenshot("geofence_entry_ios");
-                    return true;
-                }
-                alertHandler.acceptAlert();
-            }
-            sleep(2000);
+        // iOS app shows "Entered [title]" or "Enter to [title]" on entry
+        Optional<String> alertText = waitForEventAlert("enter", timeoutSeconds);
+        if (alertText.isPresent()) {
+            log.info("Geofence entry detected (safe zone): {}", alertText.get());
+            attachScreenshot("geofence_entry_ios");
+            return true;
         }
 
         log.warn("Geofence entry event not detected within {}s", timeoutSeconds);
         attachScreenshot("geofence_entry_timeout_ios");
         return false;
     }
+
+    /**
+     * Polls for alerts under the "geofence-event" wait policy until one contains the keyword.
+     * Every alert read is accepted, so an unrelated alert does not hide the next one.
+     */
+    private Optional<String> waitForEventAlert(String keyword, int timeoutSeconds) {
+        return WaitPolicy.named("geofence-event").await("alert:" + keyword, Duration.ofSeconds(timeoutSeconds), () -> {
+            try {
+                if (!alertHandler.isAlertPresent()) {
+                    return null;
+                }
+                String alertText = alertHandler.getAlertText();
+                boolean matches = alertText.toLowerCase().contains(keyword);
+                if (matches) {
+                    GeofenceTimeline.getInstance().detection(driver, "alert", alertText);
+                }
+                alertHandler.acceptAlert();
+                return matches ? alertText : null;
+            } catch (WebDriverException e) {
+                log.debug("Alert check failed: {}", e.getMessage());
+                return null;
+            }
+        });
+    }
 }
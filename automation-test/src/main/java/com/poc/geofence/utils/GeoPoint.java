@@ -0,0 +1,45 @@
+package com.poc.geofence.utils;
+
+/**
+ * A WGS84 position in decimal degrees.
+ * @param latitude latitude, -90 to 90
+ * @param longitude longitude, -180 to 180
+ */
+public record GeoPoint(double latitude, double longitude) {
+    private static final double EARTH_RADIUS_METERS = 6_371_008.8;
+
+    public GeoPoint {
+        if (Double.isNaN(latitude) || latitude < -90 || latitude > 90) {
+            throw new IllegalArgumentException("Latitude out of range: " + latitude);
+        }
+        if (Double.isNaN(longitude) || longitude < -180 || longitude > 180) {
+            throw new IllegalArgumentException("Longitude out of range: " + longitude);
+        }
+    }
+
+    /**
+     * Great-circle (haversine) distance to another point.
+     * @param other the other point
+     * @return distance in meters
+     */
+    public double distanceTo(GeoPoint other) {
+        double dLat = Math.toRadians(other.latitude - latitude);
+        double dLng = Math.toRadians(other.longitude - longitude);
+        double a = Math.pow(Math.sin(dLat / 2), 2)
+                + Math.cos(Math.toRadians(latitude)) * Math.cos(Math.toRadians(other.latitude))
+                * Math.pow(Math.sin(dLng / 2), 2);
+        return 2 * EARTH_RADIUS_METERS * Math.asin(Math.min(1, Math.sqrt(a)));
+    }
+
+    /**
+     * Linear interpolation towards another point. Accurate to centimeters over the
+     * tens-of-meters segments of a recorded route.
+     * @param other the segment end
+     * @param fraction 0 for this point, 1 for the other
+     * @return the point in between
+     */
+    public GeoPoint interpolate(GeoPoint other, double fraction) {
+        return new GeoPoint(latitude + (other.latitude - latitude) * fraction,
+                longitude + (other.longitude - longitude) * fraction);
+    }
+}
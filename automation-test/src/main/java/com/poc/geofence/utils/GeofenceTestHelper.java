@@ -1,10 +1,25 @@
 package com.poc.geofence.utils;
 
+import com.poc.geofence.config.ConfigManager;
+import com.poc.geofence.driver.DriverManager;
+import com.poc.geofence.driver.SessionState;
+import io.appium.java_client.AppiumBy;
 import io.appium.java_client.AppiumDriver;
+import org.openqa.selenium.By;
+import org.openqa.selenium.WebDriverException;
+import org.openqa.selenium.WebElement;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
 
 /**
  * Helper for triggering geofence events via deep link on the Android app.
@@ -14,6 +29,8 @@ import java.util.Map;
  * Uses deep links (geofence://test/trigger?transition=X) which work on BrowserStack
  * because Appium can open URLs that the app handles.
  *
+ * Several transitions can be sent as one timed {@link TransitionSequence}, replayed by the app.
+ *
  * The Android app must be a debug build with deep link handler enabled.
  */
 public class GeofenceTestHelper {
@@ -22,72 +39,107 @@ public class GeofenceTestHelper {
     // Geofence transition types (matches Android Geofence constants)
     public static final int GEOFENCE_ENTER = 1;
     public static final int GEOFENCE_EXIT = 2;
+    public static final int GEOFENCE_DWELL = 4;
 
     // Deep link base URL (must match AndroidManifest intent-filter)
     private static final String DEEP_LINK_BASE = "geofence://test/trigger";
+    private static final String APP_PACKAGE = "com.eebax.geofencing";
+    private static final String RECEIPT_POLICY = "trigger-receipt";
+
+    // Trigger tier that last worked, by device
+    private static final Map<String, TriggerTier> preferredTiers = new ConcurrentHashMap<>();
 
     private GeofenceTestHelper() {
         // Utility class
     }
 
     /**
-     * Triggers a geofence event using multiple methods.
-     * Strategy: Terminate app, then activate with deep link to ensure intent is received.
+     * Triggers a geofence event, trying the cheapest delivery first.
+     * Strategy: warm deep link to the running app, then a VIEW intent via startActivity, then
+     * terminate and relaunch with the deep link, and finally driver.get(). The next tier is
+     * tried when sending throws, or when the app's receipt channels (status text, notifications)
+     * can be read but do not show the transition in time: a running app may drop a deep link
+     * without any error. Only when neither channel can be read is a send without error taken
+     * as delivered, since another tier might deliver the transition twice. The tier that
+     * delivered it is remembered per device and tried first next time.
      *
      * @param driver The Appium driver
      * @param transition The transition type: GEOFENCE_ENTER (1), GEOFENCE_EXIT (2), or GEOFENCE_DWELL (4)
-     * @return true if the trigger was successful
+     * @return true if the trigger was delivered (confirmed, or sent without error when the
+     *         app's receipt cannot be read)
      */
     public static boolean triggerGeofenceEvent(AppiumDriver driver, int transition) {
-        String transitionName = getTransitionName(transition);
         String intentUri = DEEP_LINK_BASE + "?transition=" + transition;
+        return deliver(driver, intentUri, getTransitionName(transition), Duration.ZERO) != null;
+    }
 
-        log.info("Triggering geofence event: {} ({})", transitionName, intentUri);
-
-        // Method 1: Try mobile: deepLink with terminate/activate cycle
-        try {
-            log.info("Attempting terminate-deepLink-activate approach");
-            // Terminate app first
-            driver.executeScript("mobile: terminateApp", Map.of("appId", "com.eebax.geofencing"));
-            Thread.sleep(1000);
-
-            // Launch app with deep link
-            driver.executeScript("mobile: deepLink", Map.of(
-                    "url", intentUri,
-                    "package", "com.eebax.geofencing"
-            ));
-            Thread.sleep(3000);
-            log.info("deepLink executed after terminate: {}", transitionName);
-            return true;
-        } catch (Exception e) {
-            log.warn("terminate-deepLink failed: {}, trying startActivity", e.getMessage());
-        }
+    /**
+     * Triggers a whole timed sequence of transitions with one deep link, so a journey with
+     * several transitions pays for one delivery. Delivery uses the same tiers as
+     * {@link #triggerGeofenceEvent}; receipt is confirmed by the first step.
+     *
+     * @param driver The Appium driver
+     * @param sequence the transitions and their offsets
+     * @return a handle for matching observed events to steps, or empty if delivery failed
+     */
+    public static Optional<TransitionSequence.Handle> triggerSequence(AppiumDriver driver, TransitionSequence sequence) {
+        String intentUri = DEEP_LINK_BASE + "?" + sequence.toQuery();
+        TransitionSequence.Step first = sequence.steps().get(0);
+        Instant sentAt = deliver(driver, intentUri, getTransitionName(first.transition()), first.offset());
+        return Optional.ofNullable(sentAt).map(sequence::launched);
+    }
 
-        // Method 2: Try mobile: startActivity
-        try {
-            driver.executeScript("mobile: startActivity", Map.of(
-                    "intent", "android.intent.action.VIEW",
-                    "package", "com.eebax.geofencing",
-                    "activity", ".MapsActivity",
-                    "optionalIntentArguments", "-d " + intentUri
-            ));
-            Thread.sleep(2000);
-            log.info("startActivity executed: {}", transitionName);
-            return true;
-        } catch (Exception e) {
-            log.warn("startActivity failed: {}, trying driver.get()", e.getMessage());
+    /**
+     * Sends a trigger deep link through the delivery tiers.
+     * @param firstEventDelay how long after receipt the app shows the first event
+     * @return when the deep link was sent by the tier that delivered it, or null if no tier did
+     */
+    private static Instant deliver(AppiumDriver driver, String intentUri, String transitionName,
+                                   Duration firstEventDelay) {
+        String expected = "Test: " + transitionName;
+        String device = DriverManager.deviceId(driver);
+        TriggerTier preferred = preferredTiers.get(device);
+
+        log.info("Triggering geofence event: {} ({}) on {}, preferred tier {}", transitionName, intentUri, device,
+                preferred != null ? preferred : "(none yet)");
+        List<TriggerTier> tiers = new ArrayList<>(List.of(TriggerTier.values()));
+        if (preferred != null) {
+            tiers.remove(preferred);
+            tiers.add(0, preferred);
         }
 
-        // Method 3: Try driver.get() as fallback
-        try {
-            driver.get(intentUri);
-            Thread.sleep(2000);
-            log.info("driver.get() executed: {}", transitionName);
-            return true;
-        } catch (Exception e) {
-            log.error("All trigger methods failed: {}", e.getMessage());
-            return false;
+        for (TriggerTier tier : tiers) {
+            Receipt baseline = Receipt.observe(driver, expected);
+            Instant sentAt = Instant.now();
+            long start = System.nanoTime();
+            try {
+                tier.send(driver, intentUri);
+            } catch (Exception e) {
+                log.warn("{} failed: {}", tier, e.getMessage());
+                continue;
+            }
+            GeofenceTimeline.getInstance().stimulus(driver, "trigger", transitionName + " via " + tier, sentAt);
+            Receipt receipt = awaitReceipt(driver, expected, baseline, firstEventDelay);
+            if (receipt.isNewerThan(baseline)) {
+                GeofenceTimeline.getInstance().detection(driver, "trigger-receipt", expected);
+                log.info("{} delivered via {} in {}ms", transitionName, tier,
+                        TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+            } else if (receipt.readable()) {
+                log.warn("{} sent via {} but the app did not show it within {}ms", transitionName, tier,
+                        TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+                continue;
+            } else {
+                // Nothing shows receipt: another tier could deliver the transition a second time
+                log.warn("{} sent via {} but the app's receipt cannot be read; assuming it was delivered",
+                        transitionName, tier);
+            }
+            remember(device, tier);
+            return sentAt;
         }
+
+        preferredTiers.remove(device);
+        log.error("No trigger method delivered {}", transitionName);
+        return null;
     }
 
     /**
@@ -112,11 +164,149 @@ public class GeofenceTestHelper {
         return triggerGeofenceEvent(driver, GEOFENCE_ENTER);
     }
 
-    private static String getTransitionName(int transition) {
+    /**
+     * Forgets which trigger tier worked on which device.
+     */
+    public static void forgetPreferredTiers() {
+        preferredTiers.clear();
+    }
+
+    static TriggerTier preferredTier(AppiumDriver driver) {
+        return preferredTiers.get(DriverManager.deviceId(driver));
+    }
+
+    private static void remember(String device, TriggerTier tier) {
+        if (preferredTiers.put(device, tier) != tier) {
+            log.info("Using {} first for geofence triggers on {}", tier, device);
+        }
+    }
+
+    /**
+     * Waits for the app to show the transition, under the "trigger-receipt" policy; the time
+     * appears in the test's sleep budget and wait metrics.
+     * @return the last observation, newer than the baseline if the app confirmed receipt
+     */
+    private static Receipt awaitReceipt(AppiumDriver driver, String expected, Receipt baseline,
+                                        Duration firstEventDelay) {
+        Duration bound = firstEventDelay.plusMillis(ConfigManager.getInstance().getTriggerReceiptTimeoutMillis());
+        AtomicReference<Receipt> last = new AtomicReference<>(baseline);
+        Waiter.until("trigger receipt", WaitPolicy.named(RECEIPT_POLICY), bound, () -> {
+            last.set(Receipt.observe(driver, expected));
+            return last.get().isNewerThan(baseline);
+        });
+        return last.get();
+    }
+
+    static String getTransitionName(int transition) {
         return switch (transition) {
             case GEOFENCE_ENTER -> "GEOFENCE_TRANSITION_ENTER";
             case GEOFENCE_EXIT -> "GEOFENCE_TRANSITION_EXIT";
+            case GEOFENCE_DWELL -> "GEOFENCE_TRANSITION_DWELL";
             default -> "UNKNOWN(" + transition + ")";
         };
     }
+
+    /**
+     * Ways to deliver the trigger deep link, cheapest first.
+     */
+    public enum TriggerTier {
+        /** mobile: deepLink to the app as it is; a running app receives it without restarting */
+        WARM_DEEP_LINK {
+            @Override
+            void send(AppiumDriver driver, String uri) {
+                driver.executeScript("mobile: deepLink", Map.of("url", uri, "package", APP_PACKAGE));
+                DriverManager.getSessionState(driver).appOpened(APP_PACKAGE);
+            }
+        },
+        /** VIEW intent with the deep link as data, sent to MapsActivity */
+        INTENT {
+            @Override
+            void send(AppiumDriver driver, String uri) {
+                driver.executeScript("mobile: startActivity", Map.of(
+                        "intent", "android.intent.action.VIEW",
+                        "package", APP_PACKAGE,
+                        "activity", ".MapsActivity",
+                        "optionalIntentArguments", "-d " + uri
+                ));
+                DriverManager.getSessionState(driver).appOpened(APP_PACKAGE);
+            }
+        },
+        /** Terminate, then cold start through the deep link */
+        COLD_RELAUNCH {
+            @Override
+            void send(AppiumDriver driver, String uri) {
+                SessionState state = DriverManager.getSessionState(driver);
+                // Skipped if the app is known to be stopped
+                state.terminateApp(APP_PACKAGE,
+                        () -> driver.executeScript("mobile: terminateApp", Map.of("appId", APP_PACKAGE)));
+                WARM_DEEP_LINK.send(driver, uri);
+            }
+        },
+        /** driver.get() as a last resort */
+        OPEN_URL {
+            @Override
+            void send(AppiumDriver driver, String uri) {
+                DriverManager.getSessionState(driver).forgetForeground();
+                driver.get(uri);
+            }
+        };
+
+        abstract void send(AppiumDriver driver, String uri);
+    }
+
+    /**
+     * What the app shows of a transition: whether its status text names it and how many
+     * notifications mention it. The deep link handler updates both on receipt.
+     * {@code readable} is false if neither the status text nor the notifications could be read.
+     */
+    private record Receipt(boolean statusShowing, int notifications, boolean readable) {
+        private static final By STATUS_TEXT = AppiumBy.id(APP_PACKAGE + ":id/testStatusText");
+
+        static Receipt observe(AppiumDriver driver, String expected) {
+            boolean showing = false;
+            boolean readable = false;
+            try {
+                for (WebElement element : driver.findElements(STATUS_TEXT)) {
+                    String text = element.getText();
+                    showing |= text != null && text.contains(expected);
+                    readable = true;
+                }
+            } catch (WebDriverException e) {
+                log.debug("Status text not readable: {}", e.getMessage());
+            }
+            int count = 0;
+            try {
+                count = countMentions(driver.executeScript("mobile: getNotifications"), expected);
+                readable = true;
+            } catch (WebDriverException e) {
+                log.debug("Notifications not readable: {}", e.getMessage());
+            }
+            return new Receipt(showing, count, readable);
+        }
+
+        boolean isNewerThan(Receipt baseline) {
+            return (statusShowing && !baseline.statusShowing) || notifications > baseline.notifications;
+        }
+
+        private static int countMentions(Object node, String expected) {
+            if (node instanceof Map<?, ?> map) {
+                if (String.valueOf(map.get("text")).contains(expected)) {
+                    return 1;
+                }
+                int count = 0;
+                for (Object value : map.values()) {
+                    count += countMentions(value, expected);
+                }
+                return count;
+            }
+            if (node instanceof List<?> list) {
+                int count = 0;
+                for (Object item : list) {
+                    count += countMentions(item, expected);
+                }
+                return count;
+            }
+            return 0;
+        }
+    }
 }
@@ -0,0 +1,300 @@
+package com.poc.geofence.utils;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.poc.geofence.driver.DriverManager;
+import com.poc.geofence.metrics.CommandMetrics;
+import io.appium.java_client.AppiumDriver;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.WeakHashMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Records when the framework moves the device or triggers a transition (stimuli) and when
+ * the app is seen to surface a transition (detections), to measure detection latency.
+ *
+ * <p>A detection is attributed to the latest stimulus on the same device, once per detection
+ * source, so a trigger confirmed by its receipt and later seen in the notification shade yields
+ * one latency for each. Latencies are keyed by platform, device and
+ * {@code stimulus->detection} source (e.g. "trigger->status", "location->notification").
+ *
+ * <p>Events are tagged with the test running on the recording thread; background threads
+ * (route playback) use the last test seen on that device. {@link #writeHistory} appends
+ * this run's raw latencies to a JSON file and recomputes rolling percentiles over the
+ * retained runs, the data for sizing geofence wait timeouts.
+ */
+public class GeofenceTimeline {
+    private static final Logger log = LoggerFactory.getLogger(GeofenceTimeline.class);
+    private static final GeofenceTimeline INSTANCE = new GeofenceTimeline();
+
+    private final List<Event> events = new CopyOnWriteArrayList<>();
+    private final Map<String, DeviceState> devices = new ConcurrentHashMap<>();
+    // Latest stimulus per session; devices can be shared by sessions that run one after another
+    private final Map<AppiumDriver, Instant> sessionStimuli = Collections.synchronizedMap(new WeakHashMap<>());
+
+    GeofenceTimeline() {
+    }
+
+    public static GeofenceTimeline getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Records that the framework changed what the app should detect.
+     * @param driver the session acted on
+     * @param source "location", "route" or "trigger"
+     * @param detail what was done, e.g. the coordinates or transition
+     */
+    public void stimulus(AppiumDriver driver, String source, String detail) {
+        stimulus(driver, source, detail, Instant.now());
+    }
+
+    /**
+     * Records a stimulus that happened at a known time, e.g. when a command was sent.
+     */
+    public void stimulus(AppiumDriver driver, String source, String detail, Instant at) {
+        DeviceState device = device(driver);
+        Event event = new Event(at, device.test(), device.platform, device.id,
+                Kind.STIMULUS, source, detail, null);
+        synchronized (device) {
+            device.lastStimulus = event;
+            device.detectedBy.clear();
+        }
+        sessionStimuli.merge(driver, at, (previous, latest) -> latest.isAfter(previous) ? latest : previous);
+        events.add(event);
+    }
+
+    /**
+     * @param driver a session
+     * @return when the latest stimulus on that session happened, if any
+     */
+    public Optional<Instant> lastStimulusAt(AppiumDriver driver) {
+        return Optional.ofNullable(sessionStimuli.get(driver));
+    }
+
+    /**
+     * Records that the app surfaced a transition.
+     * @param driver the session observed
+     * @param source where it was seen: "status", "toast", "notification", "alert" or "trigger-receipt"
+     * @param detail the observed text
+     * @return the latency since the latest stimulus, or null if none or this source already
+     *         reported it
+     */
+    public Duration detection(AppiumDriver driver, String source, String detail) {
+        DeviceState device = device(driver);
+        Instant now = Instant.now();
+        Duration latency = null;
+        String key = source;
+        synchronized (device) {
+            Event stimulus = device.lastStimulus;
+            if (stimulus != null && device.detectedBy.add(source)) {
+                latency = Duration.between(stimulus.at(), now);
+                key = stimulus.source() + "->" + source;
+            }
+        }
+        events.add(new Event(now, device.test(), device.platform, device.id, Kind.DETECTION, key, detail,
+                latency != null ? latency.toMillis() : null));
+        if (latency != null) {
+            log.info("Detected via {} after {}ms: {}", key, latency.toMillis(), detail);
+        }
+        return latency;
+    }
+
+    /**
+     * @return this run's events for one test, in time order
+     */
+    public List<Event> forTest(String test) {
+        return events.stream().filter(e -> e.test().equals(test)).sorted(Comparator.comparing(Event::at)).toList();
+    }
+
+    /**
+     * @return this run's detection latencies in milliseconds, by platform, device and source
+     */
+    public Map<String, List<Long>> latencies() {
+        Map<String, List<Long>> samples = new TreeMap<>();
+        for (Event event : events) {
+            if (event.latencyMillis() != null) {
+                samples.computeIfAbsent(event.platform() + "|" + event.device() + "|" + event.source(),
+                        k -> new ArrayList<>()).add(event.latencyMillis());
+            }
+        }
+        return samples;
+    }
+
+    /**
+     * Formats a test's timeline with times relative to its first event.
+     */
+    public static String toTable(List<Event> timeline) {
+        StringBuilder sb = new StringBuilder(String.format("%9s  %-9s %-28s %10s  %s%n",
+                "t+ ms", "kind", "source", "latency ms", "detail"));
+        Instant start = timeline.isEmpty() ? Instant.EPOCH : timeline.get(0).at();
+        for (Event e : timeline) {
+            sb.append(String.format("%9d  %-9s %-28s %10s  %s%n", Duration.between(start, e.at()).toMillis(),
+                    e.kind(), e.source(), e.latencyMillis() != null ? e.latencyMillis() : "", e.detail()));
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Formats latency distributions (count, p50, p95, max) as a fixed-width table.
+     */
+    public static String toLatencyTable(Map<String, Stats> stats) {
+        StringBuilder sb = new StringBuilder(String.format("%-8s %-28s %-32s %6s %9s %9s %9s%n",
+                "platform", "device", "source", "count", "p50 ms", "p95 ms", "max ms"));
+        stats.forEach((key, s) -> {
+            String[] parts = key.split("\\|", 3);
+            sb.append(String.format("%-8s %-28s %-32s %6d %9d %9d %9d%n",
+                    parts[0], parts[1], parts[2], s.count(), s.p50(), s.p95(), s.max()));
+        });
+        return sb.toString();
+    }
+
+    /**
+     * Appends this run's latencies to a JSON history, keeps the latest runs and recomputes
+     * rolling distributions over them.
+     * @param file history file (created with parent directories if missing)
+     * @param maxRuns number of runs to retain
+     * @return the rolling distributions, or an empty map if nothing was recorded
+     */
+    public Map<String, Stats> writeHistory(Path file, int maxRuns) {
+        Map<String, List<Long>> run = latencies();
+        if (run.isEmpty()) {
+            return Map.of();
+        }
+        ObjectMapper mapper = new ObjectMapper().enable(SerializationFeature.INDENT_OUTPUT);
+        List<Map<String, Object>> runs = new ArrayList<>();
+        try {
+            if (Files.exists(file)) {
+                History history = mapper.readValue(file.toFile(), History.class);
+                if (history.runs != null) {
+                    runs.addAll(history.runs);
+                }
+            }
+        } catch (IOException e) {
+            log.warn("Ignoring unreadable timeline history {}: {}", file, e.getMessage());
+        }
+        Map<String, Object> current = new LinkedHashMap<>();
+        current.put("finishedAt", Instant.now().toString());
+        current.put("latencies", run);
+        runs.add(current);
+        if (runs.size() > maxRuns) {
+            runs = new ArrayList<>(runs.subList(runs.size() - maxRuns, runs.size()));
+        }
+
+        Map<String, List<Long>> merged = new TreeMap<>();
+        for (Map<String, Object> past : runs) {
+            Map<String, List<Long>> latencies = mapper.convertValue(past.get("latencies"),
+                    new TypeReference<Map<String, List<Long>>>() { });
+            if (latencies != null) {
+                latencies.forEach((key, values) -> merged.computeIfAbsent(key, k -> new ArrayList<>()).addAll(values));
+            }
+        }
+        Map<String, Stats> rolling = new TreeMap<>();
+        merged.forEach((key, values) -> rolling.put(key, Stats.of(values)));
+
+        History history = new History();
+        history.runs = runs;
+        history.rolling = rolling;
+        try {
+            Files.createDirectories(file.toAbsolutePath().getParent());
+            mapper.writeValue(file.toFile(), history);
+            log.info("Geofence detection latency history ({} runs) written to {}", runs.size(), file);
+        } catch (IOException e) {
+            log.warn("Could not write timeline history {}: {}", file, e.getMessage());
+        }
+        return rolling;
+    }
+
+    /**
+     * Drops all recorded events.
+     */
+    public void reset() {
+        events.clear();
+        devices.clear();
+        sessionStimuli.clear();
+    }
+
+    private DeviceState device(AppiumDriver driver) {
+        DeviceState device = devices.computeIfAbsent(DriverManager.deviceId(driver),
+                id -> new DeviceState(id, DriverManager.platformOf(driver)));
+        String test = CommandMetrics.getInstance().currentTest();
+        if (!CommandMetrics.NO_TEST.equals(test)) {
+            device.lastTest = test;
+        }
+        return device;
+    }
+
+    private static final class DeviceState {
+        final String id;
+        final String platform;
+        volatile String lastTest = CommandMetrics.NO_TEST;
+        // Guarded by this
+        Event lastStimulus;
+        final Set<String> detectedBy = new HashSet<>();
+
+        DeviceState(String id, String platform) {
+            this.id = id;
+            this.platform = platform;
+        }
+
+        String test() {
+            String test = CommandMetrics.getInstance().currentTest();
+            return CommandMetrics.NO_TEST.equals(test) ? lastTest : test;
+        }
+    }
+
+    public enum Kind {
+        STIMULUS, DETECTION
+    }
+
+    /**
+     * One timeline entry.
+     * @param latencyMillis for detections, time since the attributed stimulus; otherwise null
+     */
+    public record Event(Instant at, String test, String platform, String device, Kind kind,
+                        String source, String detail, Long latencyMillis) {
+    }
+
+    /**
+     * Distribution of detection latencies.
+     */
+    public record Stats(int count, long p50, long p95, long max) {
+        static Stats of(List<Long> values) {
+            List<Long> sorted = values.stream().sorted().toList();
+            return new Stats(sorted.size(), percentile(sorted, 0.50), percentile(sorted, 0.95),
+                    sorted.get(sorted.size() - 1));
+        }
+
+        private static long percentile(List<Long> sorted, double quantile) {
+            int index = (int) Math.ceil(quantile * sorted.size()) - 1;
+            return sorted.get(Math.max(0, Math.min(index, sorted.size() - 1)));
+        }
+    }
+
+    /**
+     * On-disk history: raw latencies per run plus rolling distributions over all retained runs.
+     */
+    static final class History {
+        public List<Map<String, Object>> runs;
+        public Map<String, Stats> rolling;
+    }
+}
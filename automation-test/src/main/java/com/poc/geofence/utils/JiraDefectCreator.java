@@ -54,11 +54,8 @@ public class JiraDefectCreator {
     public JiraDefectCreator() {
         this.config = ConfigManager.getInstance();
         this.objectMapper = new ObjectMapper();
-        this.executor = Executors.newSingleThreadExecutor(r -> {
-            Thread t = new Thread(r, "jira-defect-creator");
-            t.setDaemon(true);
-            return t;
-        });
+        // One defect at a time keeps Jira calls ordered; the thread is virtual when enabled
+        this.executor = Executors.newSingleThreadExecutor(VirtualThreads.threadFactory("jira-defect-creator"));
     }
 
     /**
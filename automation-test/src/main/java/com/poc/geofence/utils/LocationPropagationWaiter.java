@@ -0,0 +1,200 @@
+package com.poc.geofence.utils;
+
+import com.poc.geofence.config.ConfigManager;
+import com.poc.geofence.metrics.CommandMetrics;
+import io.appium.java_client.AppiumDriver;
+import io.appium.java_client.remote.SupportsLocation;
+import org.openqa.selenium.html5.Location;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Waits until a simulated location has reached the device, instead of sleeping a fixed time
+ * after each set-location command.
+ *
+ * <p>Polls the location the device reports ({@code getLocation}, or {@code mobile: getGeolocation}
+ * for drivers without it) with an exponential backoff and returns as soon as it is within
+ * tolerance of the target. If the device cannot report its location (unsupported command,
+ * missing permission), the full timeout is waited as before; if it reports a different location
+ * until the timeout, the wait ends there too.
+ *
+ * <p>Every wait is recorded in {@link CommandMetrics} as {@value #CONFIRMED} or {@value #UNCONFIRMED},
+ * so the per-test latency report shows how long propagation really takes compared to the timeout.
+ */
+public final class LocationPropagationWaiter {
+    private static final Logger log = LoggerFactory.getLogger(LocationPropagationWaiter.class);
+    public static final String CONFIRMED = "locationPropagation";
+    public static final String UNCONFIRMED = "locationPropagation[unconfirmed]";
+
+    private final Duration timeout;
+    private final double toleranceMeters;
+    private final Duration initialPollInterval;
+    private final Duration maxPollInterval;
+
+    private LocationPropagationWaiter(Builder builder) {
+        this.timeout = builder.timeout;
+        this.toleranceMeters = builder.toleranceMeters;
+        this.initialPollInterval = builder.initialPollInterval;
+        this.maxPollInterval = builder.maxPollInterval;
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * Creates a waiter from location.propagation.* settings.
+     */
+    public static LocationPropagationWaiter fromConfig() {
+        ConfigManager config = ConfigManager.getInstance();
+        return builder()
+                .withTimeout(Duration.ofMillis(config.getLocationPropagationTimeoutMillis()))
+                .withToleranceMeters(config.getLocationPropagationToleranceMeters())
+                .withPollIntervals(Duration.ofMillis(config.getLocationPropagationInitialPollMillis()),
+                        Duration.ofMillis(config.getLocationPropagationMaxPollMillis()))
+                .build();
+    }
+
+    /**
+     * Waits until the device reports the target location.
+     * @param driver the session that was sent the location
+     * @param platform platform tag for metrics (e.g., "android")
+     * @param target the location that was set
+     * @return how the wait ended
+     */
+    public Result await(AppiumDriver driver, String platform, GeoPoint target) {
+        return await(() -> readLocation(driver), platform, target);
+    }
+
+    /**
+     * Waits until {@code reader} reports the target location. The reader returns null or throws
+     * when the location cannot be read.
+     */
+    Result await(Supplier<GeoPoint> reader, String platform, GeoPoint target) {
+        long start = System.nanoTime();
+        long deadline = start + timeout.toNanos();
+        long interval = initialPollInterval.toNanos();
+        int polls = 0;
+        boolean readable = true;
+        GeoPoint reported = null;
+
+        try {
+            while (true) {
+                if (readable) {
+                    polls++;
+                    try {
+                        reported = reader.get();
+                    } catch (RuntimeException e) {
+                        log.debug("Device location not readable, waiting out the timeout: {}", e.getMessage());
+                        reported = null;
+                    }
+                    if (reported == null) {
+                        readable = false;
+                    } else if (reported.distanceTo(target) <= toleranceMeters) {
+                        return finish(platform, true, polls, start, reported);
+                    }
+                }
+                long remaining = deadline - System.nanoTime();
+                if (remaining <= 0) {
+                    return finish(platform, false, polls, start, reported);
+                }
+                TimeUnit.NANOSECONDS.sleep(readable ? Math.min(interval, remaining) : remaining);
+                interval = Math.min(interval * 2, maxPollInterval.toNanos());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return finish(platform, false, polls, start, reported);
+        }
+    }
+
+    private Result finish(String platform, boolean confirmed, int polls, long start, GeoPoint reported) {
+        long elapsed = System.nanoTime() - start;
+        CommandMetrics.getInstance().record(platform, confirmed ? CONFIRMED : UNCONFIRMED, elapsed);
+        Result result = new Result(confirmed, Duration.ofNanos(elapsed), polls);
+        if (confirmed) {
+            log.debug("Location confirmed after {}ms ({} polls), {}ms under the {}ms timeout",
+                    result.elapsed().toMillis(), polls, timeout.minus(result.elapsed()).toMillis(), timeout.toMillis());
+        } else {
+            log.info("Location not confirmed within {}ms (device reports {})", timeout.toMillis(), reported);
+        }
+        return result;
+    }
+
+    private static GeoPoint readLocation(AppiumDriver driver) {
+        if (driver instanceof SupportsLocation supportsLocation) {
+            Location location = supportsLocation.location();
+            return location == null ? null : new GeoPoint(location.getLatitude(), location.getLongitude());
+        }
+        Object response = driver.executeScript("mobile: getGeolocation");
+        if (response instanceof Map<?, ?> map && map.get("latitude") instanceof Number lat
+                && map.get("longitude") instanceof Number lng) {
+            return new GeoPoint(lat.doubleValue(), lng.doubleValue());
+        }
+        return null;
+    }
+
+    /**
+     * Outcome of one wait.
+     * @param confirmed true if the device reported the target location in time
+     * @param elapsed time from the first poll to the end of the wait
+     * @param polls number of location reads
+     */
+    public record Result(boolean confirmed, Duration elapsed, int polls) {
+    }
+
+    /**
+     * Builder for LocationPropagationWaiter.
+     */
+    public static final class Builder {
+        private Duration timeout = Duration.ofSeconds(2);
+        private double toleranceMeters = 10;
+        private Duration initialPollInterval = Duration.ofMillis(100);
+        private Duration maxPollInterval = Duration.ofMillis(500);
+
+        private Builder() {
+        }
+
+        /**
+         * Sets the longest wait, also used when the location cannot be read. Default: 2s
+         */
+        public Builder withTimeout(Duration timeout) {
+            if (timeout.isNegative()) {
+                throw new IllegalArgumentException("Timeout cannot be negative: " + timeout);
+            }
+            this.timeout = timeout;
+            return this;
+        }
+
+        /**
+         * Sets how far the reported location may be from the target. Default: 10m
+         */
+        public Builder withToleranceMeters(double toleranceMeters) {
+            if (!(toleranceMeters >= 0)) {
+                throw new IllegalArgumentException("Tolerance cannot be negative: " + toleranceMeters);
+            }
+            this.toleranceMeters = toleranceMeters;
+            return this;
+        }
+
+        /**
+         * Sets the first poll delay, doubled after each miss up to the maximum. Default: 100ms, 500ms
+         */
+        public Builder withPollIntervals(Duration initial, Duration max) {
+            if (initial.isNegative() || initial.isZero() || max.compareTo(initial) < 0) {
+                throw new IllegalArgumentException("Invalid poll intervals: " + initial + ", " + max);
+            }
+            this.initialPollInterval = initial;
+            this.maxPollInterval = max;
+            return this;
+        }
+
+        public LocationPropagationWaiter build() {
+            return new LocationPropagationWaiter(this);
+        }
+    }
+}
@@ -3,15 +3,20 @@ package com.poc.geofence.utils;
 import com.poc.geofence.config.ConfigManager;
 import com.poc.geofence.config.PlatformType;
 import com.poc.geofence.driver.DriverManager;
+import com.poc.geofence.driver.SessionState;
 import io.appium.java_client.AppiumDriver;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.time.Duration;
 import java.util.Map;
 
 /**
  * Utility for simulating GPS location on mobile devices.
  * Supports both Android and iOS platforms using mobile: commands for Appium 9.x.
+ *
+ * <p>{@link #setLocation} teleports to one point; {@link #playRoute} moves the device along a
+ * {@link Route} in the background at a realistic speed and update rate.
  */
 public class LocationSimulator {
     private static final Logger log = LoggerFactory.getLogger(LocationSimulator.class);
@@ -22,7 +27,7 @@ public class LocationSimulator {
 
     public static void setLocation(double latitude, double longitude) {
         AppiumDriver driver = DriverManager.getDriver();
-        PlatformType platform = ConfigManager.getInstance().getPlatform();
+        PlatformType platform = PlatformType.fromString(DriverManager.platformOf(driver));
 
         if (platform == PlatformType.ANDROID) {
             setAndroidLocation(driver, latitude, longitude);
@@ -33,30 +38,105 @@ public class LocationSimulator {
         }
     }
 
-    private static void setAndroidLocation(AppiumDriver driver,
-                                            double latitude, double longitude) {
-        log.info("Setting Android location: {}, {}", latitude, longitude);
+    /**
+     * Moves the current thread's device along a route at the configured speed and update rate
+     * (location.route.speed.mps, location.route.update.interval.ms). Returns immediately.
+     * @param route the route to travel
+     * @return the started player; its completion() completes when the route ends
+     */
+    public static RoutePlayer playRoute(Route route) {
+        ConfigManager config = ConfigManager.getInstance();
+        return playRoute(route, config.getRouteSpeedMetersPerSecond(),
+                Duration.ofMillis(config.getRouteUpdateIntervalMillis()));
+    }
 
-        // Cast to AndroidDriver for context switching and setLocation
-        if (!(driver instanceof io.appium.java_client.android.AndroidDriver androidDriver)) {
-            // Fallback to mobile: command if not AndroidDriver
-            try {
+    /**
+     * Moves the current thread's device along a route. Returns immediately.
+     * @param route the route to travel
+     * @param speedMetersPerSecond travel speed (1.4 walking, 14 city driving)
+     * @param updateInterval time between location updates
+     * @return the started player; its completion() completes when the route ends
+     */
+    public static RoutePlayer playRoute(Route route, double speedMetersPerSecond, Duration updateInterval) {
+        // Updates are sent from a background thread, so capture this thread's session now
+        AppiumDriver driver = DriverManager.getDriver();
+        // The session's own platform: matrix and pooled runs mix platforms in one suite
+        PlatformType platform = PlatformType.fromString(DriverManager.platformOf(driver));
+        GeofenceTimeline.getInstance().stimulus(driver, "route", route.toString());
+        return RoutePlayer.builder(route)
+                .withSpeedMetersPerSecond(speedMetersPerSecond)
+                .withUpdateInterval(updateInterval)
+                .withSink(point -> pushLocation(driver, platform, point))
+                .build()
+                .start();
+    }
+
+    /**
+     * Sends one location update without the context switch and settle delay of setLocation;
+     * failures propagate so route playback can stop on them.
+     */
+    private static void pushLocation(AppiumDriver driver, PlatformType platform, GeoPoint point) {
+        log.debug("Route update: {}, {}", point.latitude(), point.longitude());
+        // Through the session shadow, so a later setLocation knows where the device is
+        DriverManager.getSessionState(driver).setLocation(point.latitude(), point.longitude(), () -> {
+            if (platform == PlatformType.IOS) {
+                driver.executeScript("mobile: setSimulatedLocation", Map.of(
+                        "latitude", point.latitude(),
+                        "longitude", point.longitude()
+                ));
+            } else if (driver instanceof io.appium.java_client.android.AndroidDriver androidDriver) {
+                androidDriver.setLocation(new org.openqa.selenium.html5.Location(point.latitude(), point.longitude(), 0.0));
+            } else {
                 driver.executeScript("mobile: setLocation", Map.of(
-                        "latitude", latitude,
-                        "longitude", longitude,
+                        "latitude", point.latitude(),
+                        "longitude", point.longitude(),
                         "altitude", 0.0
                 ));
-                log.info("Location set via mobile: setLocation command");
-            } catch (Exception e) {
-                log.warn("setLocation failed: {}", e.getMessage());
             }
-            return;
+        });
+    }
+
+    private static void setAndroidLocation(AppiumDriver driver,
+                                            double latitude, double longitude) {
+        log.info("Setting Android location: {}, {}", latitude, longitude);
+        SessionState state = DriverManager.getSessionState(driver);
+
+        try {
+            boolean sent = state.setLocation(latitude, longitude, () -> {
+                // Cast to AndroidDriver for context switching and setLocation
+                if (driver instanceof io.appium.java_client.android.AndroidDriver androidDriver) {
+                    setNativeLocation(androidDriver, state, latitude, longitude);
+                    log.info("Location set via AndroidDriver.setLocation()");
+                } else {
+                    // Fallback to mobile: command if not AndroidDriver
+                    driver.executeScript("mobile: setLocation", Map.of(
+                            "latitude", latitude,
+                            "longitude", longitude,
+                            "altitude", 0.0
+                    ));
+                    log.info("Location set via mobile: setLocation command");
+                }
+            });
+            if (!sent) {
+                log.info("Device already at {}, {} - setLocation skipped", latitude, longitude);
+                return;
+            }
+            GeofenceTimeline.getInstance().stimulus(driver, "location", latitude + ", " + longitude);
+            // Wait until the location has propagated to FusedLocationProvider
+            LocationPropagationWaiter.fromConfig()
+                    .await(driver, PlatformType.ANDROID.getValue(), new GeoPoint(latitude, longitude));
+        } catch (Exception e) {
+            log.warn("setLocation failed: {}", e.getMessage());
+            // Swallow exception - GPS might already be set via capabilities
         }
+    }
 
-        // Store current context to restore later
+    private static void setNativeLocation(io.appium.java_client.android.AndroidDriver androidDriver,
+                                          SessionState state, double latitude, double longitude) {
+        // Store current context to restore later (known from the session shadow after the first call)
         String currentContext = null;
         try {
-            currentContext = androidDriver.getContext();
+            currentContext = state.context(androidDriver::getContext);
         } catch (Exception e) {
             log.debug("Could not get current context: {}", e.getMessage());
         }
@@ -66,28 +146,21 @@ public class LocationSimulator {
             // This ensures location is set at device level, not just webview
             // Required for geofence triggers to work on BrowserStack
             try {
-                androidDriver.context("NATIVE_APP");
-                log.debug("Switched to NATIVE_APP context for location update");
+                if (state.switchContext("NATIVE_APP", () -> androidDriver.context("NATIVE_APP"))) {
+                    log.debug("Switched to NATIVE_APP context for location update");
+                }
             } catch (Exception e) {
                 log.debug("Context switch not needed or failed: {}", e.getMessage());
             }
 
-            // Set location
             androidDriver.setLocation(new org.openqa.selenium.html5.Location(latitude, longitude, 0.0));
-            log.info("Location set via AndroidDriver.setLocation()");
-
-            // Allow time for location to propagate to FusedLocationProvider
-            Thread.sleep(2000);
-
-        } catch (Exception e) {
-            log.warn("setLocation failed: {}", e.getMessage());
-            // Swallow exception - GPS might already be set via capabilities
         } finally {
             // Restore original context if needed
-            if (currentContext != null && !currentContext.equals("NATIVE_APP")) {
+            String restore = currentContext;
+            if (restore != null && !restore.equals("NATIVE_APP")) {
                 try {
-                    androidDriver.context(currentContext);
-                    log.debug("Restored context to: {}", currentContext);
+                    state.switchContext(restore, () -> androidDriver.context(restore));
+                    log.debug("Restored context to: {}", restore);
                 } catch (Exception e) {
                     log.debug("Could not restore context: {}", e.getMessage());
                 }
@@ -99,9 +172,15 @@ public class LocationSimulator {
                                         double latitude, double longitude) {
         log.info("Setting iOS location: {}, {}", latitude, longitude);
         // iOS uses different command
-        driver.executeScript("mobile: setSimulatedLocation", Map.of(
-                "latitude", latitude,
-                "longitude", longitude
-        ));
+        boolean sent = DriverManager.getSessionState(driver).setLocation(latitude, longitude, () ->
+                driver.executeScript("mobile: setSimulatedLocation", Map.of(
+                        "latitude", latitude,
+                        "longitude", longitude
+                )));
+        if (!sent) {
+            log.info("Device already at {}, {} - setSimulatedLocation skipped", latitude, longitude);
+            return;
+        }
+        GeofenceTimeline.getInstance().stimulus(driver, "location", latitude + ", " + longitude);
     }
 }
@@ -1,5 +1,7 @@
 package com.poc.geofence.utils;
 
+import com.poc.geofence.driver.SessionCircuitBreaker;
+import com.poc.geofence.driver.SessionFailureKind;
 import org.testng.IRetryAnalyzer;
 import org.testng.ITestResult;
 import org.slf4j.Logger;
@@ -8,6 +10,9 @@ import org.slf4j.LoggerFactory;
 /**
  * TestNG retry analyzer for flaky tests.
  * Retries failed tests up to MAX_RETRY_COUNT times.
+ * Failures that cannot recover on retry (expired BrowserStack plan, bad credentials,
+ * missing app - see SessionFailureKind) are not retried, nor is anything once the
+ * session circuit breaker has opened.
  * Thread-safe: uses test result attribute to track retry count per test instance.
  */
 public class RetryAnalyzer implements IRetryAnalyzer {
@@ -17,6 +22,15 @@ public class RetryAnalyzer implements IRetryAnalyzer {
 
     @Override
     public boolean retry(ITestResult result) {
+        SessionFailureKind kind = SessionFailureKind.classify(result.getThrowable());
+        if (!kind.isTransient()) {
+            log.warn("Not retrying test '{}' - {}", result.getName(), kind.getDescription());
+            return false;
+        }
+        if (SessionCircuitBreaker.getInstance().isOpen()) {
+            log.warn("Not retrying test '{}' - session circuit is open", result.getName());
+            return false;
+        }
         int retryCount = getRetryCount(result);
         if (retryCount < MAX_RETRY_COUNT) {
             retryCount++;
@@ -0,0 +1,228 @@
+package com.poc.geofence.utils;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * An immutable path of waypoints, measured along the ground, for {@link RoutePlayer}.
+ *
+ * <p>Routes come from a list of waypoints, a GPX file (track points, else route points,
+ * else waypoints) or a GeoJSON LineString (bare, in a Feature, or the first one in a
+ * FeatureCollection). Timestamps in the source are ignored: playback speed is set on the player.
+ */
+public final class Route {
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    private final List<GeoPoint> waypoints;
+    // Distance from the start to each waypoint, in meters
+    private final double[] offsets;
+
+    private Route(List<GeoPoint> waypoints) {
+        if (waypoints.isEmpty()) {
+            throw new IllegalArgumentException("Route needs at least one waypoint");
+        }
+        this.waypoints = List.copyOf(waypoints);
+        this.offsets = new double[waypoints.size()];
+        for (int i = 1; i < offsets.length; i++) {
+            offsets[i] = offsets[i - 1] + waypoints.get(i - 1).distanceTo(waypoints.get(i));
+        }
+    }
+
+    /**
+     * @param waypoints the waypoints in travel order
+     * @return the route through them
+     */
+    public static Route of(List<GeoPoint> waypoints) {
+        return new Route(waypoints);
+    }
+
+    /**
+     * @param waypoints the waypoints in travel order
+     * @return the route through them
+     */
+    public static Route of(GeoPoint... waypoints) {
+        return new Route(Arrays.asList(waypoints));
+    }
+
+    /**
+     * Loads a route file, choosing the format by extension (.gpx, otherwise GeoJSON).
+     * @param file a .gpx, .geojson or .json file
+     * @return the route
+     * @throws IOException if the file cannot be read
+     * @throws IllegalArgumentException if the file holds no usable route
+     */
+    public static Route load(Path file) throws IOException {
+        try (InputStream in = Files.newInputStream(file)) {
+            return file.getFileName().toString().toLowerCase(Locale.ROOT).endsWith(".gpx")
+                    ? fromGpx(in) : fromGeoJson(in);
+        }
+    }
+
+    /**
+     * Loads a route from the classpath, e.g. "routes/exit-north.gpx".
+     * @param resource classpath resource name
+     * @return the route
+     * @throws IllegalArgumentException if the resource is missing or holds no usable route
+     */
+    public static Route fromResource(String resource) {
+        try (InputStream in = Route.class.getClassLoader().getResourceAsStream(resource)) {
+            if (in == null) {
+                throw new IllegalArgumentException("Route resource not found: " + resource);
+            }
+            return resource.toLowerCase(Locale.ROOT).endsWith(".gpx") ? fromGpx(in) : fromGeoJson(in);
+        } catch (IOException e) {
+            throw new IllegalArgumentException("Could not read route " + resource, e);
+        }
+    }
+
+    /**
+     * Parses GPX 1.0/1.1. Track points win over route points, which win over waypoints.
+     * @param in the GPX document
+     * @return the route
+     * @throws IllegalArgumentException if the document is malformed or has no points
+     */
+    public static Route fromGpx(InputStream in) {
+        XMLInputFactory factory = XMLInputFactory.newFactory();
+        factory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+        factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+        List<GeoPoint> track = new ArrayList<>();
+        List<GeoPoint> route = new ArrayList<>();
+        List<GeoPoint> loose = new ArrayList<>();
+        try {
+            XMLStreamReader reader = factory.createXMLStreamReader(in);
+            try {
+                while (reader.hasNext()) {
+                    if (reader.next() != XMLStreamReader.START_ELEMENT) {
+                        continue;
+                    }
+                    List<GeoPoint> target = switch (reader.getLocalName()) {
+                        case "trkpt" -> track;
+                        case "rtept" -> route;
+                        case "wpt" -> loose;
+                        default -> null;
+                    };
+                    if (target != null) {
+                        target.add(new GeoPoint(Double.parseDouble(reader.getAttributeValue(null, "lat")),
+                                Double.parseDouble(reader.getAttributeValue(null, "lon"))));
+                    }
+                }
+            } finally {
+                reader.close();
+            }
+        } catch (XMLStreamException | RuntimeException e) {
+            throw new IllegalArgumentException("Invalid GPX route: " + e.getMessage(), e);
+        }
+        return new Route(!track.isEmpty() ? track : !route.isEmpty() ? route : loose);
+    }
+
+    /**
+     * Parses a GeoJSON LineString or MultiLineString geometry, Feature or FeatureCollection.
+     * @param in the GeoJSON document
+     * @return the route
+     * @throws IOException if the document cannot be read
+     * @throws IllegalArgumentException if it holds no line geometry
+     */
+    public static Route fromGeoJson(InputStream in) throws IOException {
+        return fromGeoJson(MAPPER.readTree(in));
+    }
+
+    /**
+     * Parses a GeoJSON LineString or MultiLineString geometry, Feature or FeatureCollection.
+     * @param json the GeoJSON text
+     * @return the route
+     * @throws IllegalArgumentException if the text is not JSON or holds no line geometry
+     */
+    public static Route fromGeoJson(String json) {
+        try {
+            return fromGeoJson(MAPPER.readTree(json));
+        } catch (IOException e) {
+            throw new IllegalArgumentException("Invalid GeoJSON route: " + e.getMessage(), e);
+        }
+    }
+
+    private static Route fromGeoJson(JsonNode node) {
+        List<GeoPoint> points = new ArrayList<>();
+        collectLine(node, points);
+        if (points.isEmpty()) {
+            throw new IllegalArgumentException("GeoJSON has no LineString geometry");
+        }
+        return new Route(points);
+    }
+
+    private static void collectLine(JsonNode node, List<GeoPoint> points) {
+        switch (node.path("type").asText()) {
+            case "FeatureCollection" -> {
+                for (JsonNode feature : node.path("features")) {
+                    collectLine(feature, points);
+                    if (!points.isEmpty()) {
+                        return;
+                    }
+                }
+            }
+            case "Feature" -> collectLine(node.path("geometry"), points);
+            case "LineString" -> node.path("coordinates").forEach(position -> points.add(position(position)));
+            case "MultiLineString" -> node.path("coordinates")
+                    .forEach(line -> line.forEach(position -> points.add(position(position))));
+            default -> {
+                // Points and polygons are not routes
+            }
+        }
+    }
+
+    private static GeoPoint position(JsonNode position) {
+        // GeoJSON positions are [longitude, latitude(, altitude)]
+        return new GeoPoint(position.path(1).asDouble(), position.path(0).asDouble());
+    }
+
+    /**
+     * @return the waypoints in travel order
+     */
+    public List<GeoPoint> waypoints() {
+        return waypoints;
+    }
+
+    /**
+     * @return the total length along the ground, in meters
+     */
+    public double lengthMeters() {
+        return offsets[offsets.length - 1];
+    }
+
+    /**
+     * Returns the position a given distance along the route.
+     * @param meters distance from the start; clamped to [0, length]
+     * @return the interpolated position
+     */
+    public GeoPoint pointAt(double meters) {
+        if (meters <= 0 || waypoints.size() == 1) {
+            return waypoints.get(0);
+        }
+        if (meters >= lengthMeters()) {
+            return waypoints.get(waypoints.size() - 1);
+        }
+        int index = Arrays.binarySearch(offsets, meters);
+        if (index >= 0) {
+            return waypoints.get(index);
+        }
+        int end = -index - 1;
+        double segment = offsets[end] - offsets[end - 1];
+        return waypoints.get(end - 1).interpolate(waypoints.get(end), (meters - offsets[end - 1]) / segment);
+    }
+
+    @Override
+    public String toString() {
+        return String.format("Route[%d waypoints, %.0fm]", waypoints.size(), lengthMeters());
+    }
+}
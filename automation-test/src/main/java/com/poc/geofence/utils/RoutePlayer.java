@@ -0,0 +1,295 @@
+package com.poc.geofence.utils;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import java.util.function.LongSupplier;
+
+/**
+ * Plays a {@link Route} back as a stream of location updates at a given speed and update
+ * rate, without blocking the test thread.
+ *
+ * <p>The position is derived from elapsed playback time rather than from the number of updates
+ * sent, so a slow device command delays the next update but never slows the simulated
+ * movement. Updates for one player never overlap; the next one is scheduled after the
+ * previous one was delivered. The clock runs on a single shared thread and deliveries run on
+ * {@link VirtualThreads} workers, so parallel devices do not wait on each other.
+ *
+ * <p>Usage:
+ * <pre>
+ * RoutePlayer player = LocationSimulator.playRoute(Route.fromResource("routes/bonn-exit-north.gpx"));
+ * // ... wait for the geofence exit notification while the device moves ...
+ * player.completion().get(2, TimeUnit.MINUTES);
+ * </pre>
+ */
+public final class RoutePlayer {
+    private static final Logger log = LoggerFactory.getLogger(RoutePlayer.class);
+    private static final ScheduledExecutorService CLOCK = Executors.newSingleThreadScheduledExecutor(
+            VirtualThreads.threadFactory("route-player-clock", false));
+    private static final ExecutorService WORKERS = VirtualThreads.newExecutor("route-player");
+
+    private final Route route;
+    private final double speedMetersPerSecond;
+    private final long intervalNanos;
+    private final Consumer<GeoPoint> sink;
+    private final LongSupplier nanoTime;
+    private final CompletableFuture<Void> completion = new CompletableFuture<>();
+    // Serializes deliveries; a lock rather than synchronized so a virtual worker never pins its carrier
+    private final ReentrantLock deliveryLock = new ReentrantLock();
+    // Bumped by pause/resume/seek so ticks scheduled before the change drop out
+    private final AtomicLong generation = new AtomicLong();
+    private final AtomicLong updates = new AtomicLong();
+
+    // Guarded by this
+    private double anchorMeters;
+    private long anchorNanos;
+    private boolean paused = true;
+    private ScheduledFuture<?> nextTick;
+    private boolean started;
+    private long startedNanos;
+
+    private RoutePlayer(Builder builder) {
+        this.route = builder.route;
+        this.speedMetersPerSecond = builder.speedMetersPerSecond;
+        this.intervalNanos = builder.updateInterval.toNanos();
+        this.sink = builder.sink;
+        this.nanoTime = builder.nanoTime;
+    }
+
+    /**
+     * @param route the route to play
+     * @return a builder; a sink is required
+     */
+    public static Builder builder(Route route) {
+        return new Builder(route);
+    }
+
+    /**
+     * Starts playback from the beginning of the route. The first update is sent immediately.
+     * @return this player
+     * @throws IllegalStateException if already started
+     */
+    public RoutePlayer start() {
+        synchronized (this) {
+            if (started) {
+                throw new IllegalStateException("Route playback already started");
+            }
+            started = true;
+            startedNanos = nanoTime.getAsLong();
+        }
+        log.info("Playing {} at {} m/s, one update every {}ms", route, speedMetersPerSecond,
+                TimeUnit.NANOSECONDS.toMillis(intervalNanos));
+        resume();
+        return this;
+    }
+
+    /**
+     * Freezes the simulated position. The device keeps the last location sent.
+     */
+    public synchronized void pause() {
+        if (paused || completion.isDone()) {
+            return;
+        }
+        anchorMeters = distanceAt(nanoTime.getAsLong());
+        paused = true;
+        generation.incrementAndGet();
+        cancelNextTick();
+    }
+
+    /**
+     * Continues from the paused position and sends it immediately.
+     */
+    public synchronized void resume() {
+        if (!started || !paused || completion.isDone()) {
+            return;
+        }
+        anchorNanos = nanoTime.getAsLong();
+        paused = false;
+        scheduleTick(generation.incrementAndGet(), 0);
+    }
+
+    /**
+     * Jumps to a distance along the route and sends that position immediately, even while paused.
+     * @param meters distance from the start; clamped to the route
+     */
+    public synchronized void seek(double meters) {
+        if (completion.isDone()) {
+            return;
+        }
+        anchorMeters = Math.max(0, Math.min(meters, route.lengthMeters()));
+        anchorNanos = nanoTime.getAsLong();
+        cancelNextTick();
+        scheduleTick(generation.incrementAndGet(), 0);
+    }
+
+    /**
+     * Stops playback; {@link #completion()} completes exceptionally with a CancellationException.
+     */
+    public synchronized void cancel() {
+        generation.incrementAndGet();
+        cancelNextTick();
+        completion.cancel(false);
+    }
+
+    /**
+     * Returns a future that completes once the last waypoint was sent, or exceptionally if
+     * an update failed or the player was cancelled. Cancelling the returned future does not
+     * stop playback; use {@link #cancel()}.
+     * @return the completion future
+     */
+    public CompletableFuture<Void> completion() {
+        return completion.copy();
+    }
+
+    /**
+     * @return the current simulated distance along the route, in meters
+     */
+    public synchronized double distanceMeters() {
+        return distanceAt(nanoTime.getAsLong());
+    }
+
+    /**
+     * @return the current simulated position
+     */
+    public GeoPoint position() {
+        return route.pointAt(distanceMeters());
+    }
+
+    /**
+     * @return true if paused (or not started yet)
+     */
+    public synchronized boolean isPaused() {
+        return paused;
+    }
+
+    /**
+     * @return the number of location updates delivered so far
+     */
+    public long updateCount() {
+        return updates.get();
+    }
+
+    private double distanceAt(long now) {
+        double meters = paused ? anchorMeters
+                : anchorMeters + speedMetersPerSecond * (now - anchorNanos) / 1_000_000_000.0;
+        return Math.min(meters, route.lengthMeters());
+    }
+
+    private void scheduleTick(long tickGeneration, long delayNanos) {
+        nextTick = CLOCK.schedule(() -> WORKERS.execute(() -> tick(tickGeneration)),
+                delayNanos, TimeUnit.NANOSECONDS);
+    }
+
+    private void cancelNextTick() {
+        if (nextTick != null) {
+            nextTick.cancel(false);
+            nextTick = null;
+        }
+    }
+
+    private void tick(long tickGeneration) {
+        long tickStart = 0;
+        double meters = 0;
+        deliveryLock.lock();
+        try {
+            synchronized (this) {
+                // A pause, resume or seek since this tick was scheduled has its own tick
+                if (completion.isDone() || generation.get() != tickGeneration) {
+                    return;
+                }
+                tickStart = nanoTime.getAsLong();
+                meters = distanceAt(tickStart);
+            }
+            sink.accept(route.pointAt(meters));
+            updates.incrementAndGet();
+        } catch (RuntimeException e) {
+            log.warn("Route playback stopped at {}m: {}", Math.round(meters), e.getMessage());
+            completion.completeExceptionally(e);
+            return;
+        } finally {
+            deliveryLock.unlock();
+        }
+
+        synchronized (this) {
+            if (meters >= route.lengthMeters()) {
+                log.info("Route finished: {} updates over {}m in {}ms", updates.get(), Math.round(meters),
+                        TimeUnit.NANOSECONDS.toMillis(nanoTime.getAsLong() - startedNanos));
+                completion.complete(null);
+            } else if (!paused && generation.get() == tickGeneration) {
+                long elapsed = nanoTime.getAsLong() - tickStart;
+                scheduleTick(tickGeneration, Math.max(0, intervalNanos - elapsed));
+            }
+        }
+    }
+
+    /**
+     * Builder for RoutePlayer.
+     */
+    public static final class Builder {
+        private final Route route;
+        private double speedMetersPerSecond = 1.4;
+        private Duration updateInterval = Duration.ofSeconds(1);
+        private Consumer<GeoPoint> sink;
+        private LongSupplier nanoTime = System::nanoTime;
+
+        private Builder(Route route) {
+            if (route == null) {
+                throw new IllegalArgumentException("Route cannot be null");
+            }
+            this.route = route;
+        }
+
+        /**
+         * Sets the travel speed. Default: 1.4 m/s (walking)
+         */
+        public Builder withSpeedMetersPerSecond(double speedMetersPerSecond) {
+            if (!(speedMetersPerSecond > 0)) {
+                throw new IllegalArgumentException("Speed must be positive: " + speedMetersPerSecond);
+            }
+            this.speedMetersPerSecond = speedMetersPerSecond;
+            return this;
+        }
+
+        /**
+         * Sets the time between location updates. Default: 1s (a typical GPS fix rate)
+         */
+        public Builder withUpdateInterval(Duration updateInterval) {
+            if (updateInterval.isNegative() || updateInterval.isZero()) {
+                throw new IllegalArgumentException("Update interval must be positive: " + updateInterval);
+            }
+            this.updateInterval = updateInterval;
+            return this;
+        }
+
+        /**
+         * Sets where positions are delivered, e.g. a device's set-location command.
+         * Called from a background thread; an exception stops playback.
+         */
+        public Builder withSink(Consumer<GeoPoint> sink) {
+            this.sink = sink;
+            return this;
+        }
+
+        Builder withNanoTime(LongSupplier nanoTime) {
+            this.nanoTime = nanoTime;
+            return this;
+        }
+
+        public RoutePlayer build() {
+            if (sink == null) {
+                throw new IllegalStateException("Route player needs a location sink");
+            }
+            return new RoutePlayer(this);
+        }
+    }
+}
@@ -0,0 +1,249 @@
+package com.poc.geofence.utils;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+/**
+ * A timed sequence of geofence transitions delivered to the debug app in one deep link,
+ * e.g. EXIT at t+0, ENTER at t+5s, DWELL at t+30s.
+ *
+ * <p>The deep link carries the whole sequence
+ * ({@code geofence://test/trigger?transition=2&sequence=2@0,1@5000,4@30000&sequenceId=1a2b3c4d});
+ * the app replays each step at its offset from receipt and tags what it shows with
+ * {@code [sequenceId#step]}, e.g. "Test: GEOFENCE_TRANSITION_ENTER [1a2b3c4d#1]". An app that
+ * does not know sequences still fires the first transition from the plain {@code transition}
+ * parameter.
+ *
+ * <p>Usage:
+ * <pre>
+ * TransitionSequence sequence = TransitionSequence.builder()
+ *         .at(Duration.ZERO, GeofenceTestHelper.GEOFENCE_EXIT)
+ *         .at(Duration.ofSeconds(5), GeofenceTestHelper.GEOFENCE_ENTER)
+ *         .build();
+ * TransitionSequence.Handle handle = GeofenceTestHelper.triggerSequence(driver, sequence).orElseThrow();
+ * for (TransitionSequence.Scheduled step : handle.scheduled()) {
+ *     notificationHandler.waitForToastOrNotification(step.expectedText(),
+ *             handle.timeoutSeconds(step, Duration.ofSeconds(30)));
+ * }
+ * </pre>
+ */
+public final class TransitionSequence {
+    private static final Pattern TAG = Pattern.compile("\\[(\\w+)#(\\d+)]");
+
+    private final String id;
+    private final List<Step> steps;
+
+    private TransitionSequence(String id, List<Step> steps) {
+        this.id = id;
+        this.steps = List.copyOf(steps);
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * @return the id the app tags this sequence's events with
+     */
+    public String id() {
+        return id;
+    }
+
+    /**
+     * @return the steps, ordered by offset
+     */
+    public List<Step> steps() {
+        return steps;
+    }
+
+    /**
+     * @return the deep-link query for this sequence, without the leading '?'
+     */
+    public String toQuery() {
+        return "transition=" + steps.get(0).transition()
+                + "&sequence=" + steps.stream()
+                        .map(step -> step.transition() + "@" + step.offset().toMillis())
+                        .collect(Collectors.joining(","))
+                + "&sequenceId=" + id;
+    }
+
+    /**
+     * Starts tracking this sequence as delivered at {@code launchedAt}.
+     * @param launchedAt when the deep link was sent
+     * @return a handle for matching observed events to steps
+     */
+    public Handle launched(Instant launchedAt) {
+        return new Handle(this, launchedAt);
+    }
+
+    @Override
+    public String toString() {
+        return "TransitionSequence[" + id + ": " + steps + "]";
+    }
+
+    /**
+     * One transition of a sequence.
+     * @param transition Android transition constant (GEOFENCE_ENTER, GEOFENCE_EXIT, GEOFENCE_DWELL)
+     * @param offset delay from receipt of the deep link
+     */
+    public record Step(int transition, Duration offset) {
+        @Override
+        public String toString() {
+            return GeofenceTestHelper.getTransitionName(transition) + "@" + offset.toMillis() + "ms";
+        }
+    }
+
+    /**
+     * A step of a launched sequence.
+     * @param step index in the sequence
+     * @param transition Android transition constant
+     * @param dueAt earliest time the app can show the event
+     */
+    public record Scheduled(int step, int transition, Instant dueAt) {
+        /**
+         * @return the text the app shows for this step, without its sequence tag
+         */
+        public String expectedText() {
+            return "Test: " + GeofenceTestHelper.getTransitionName(transition);
+        }
+    }
+
+    /**
+     * A sequence that was delivered to the app. Matches observed event texts to the step
+     * that produced them: by the {@code [sequenceId#step]} tag when the app adds it, otherwise
+     * to the earliest unmatched step of that transition that was due by then.
+     */
+    public static final class Handle {
+        private final TransitionSequence sequence;
+        private final Instant launchedAt;
+        private final List<Scheduled> scheduled = new ArrayList<>();
+        // Guarded by this
+        private final boolean[] observed;
+
+        private Handle(TransitionSequence sequence, Instant launchedAt) {
+            this.sequence = sequence;
+            this.launchedAt = launchedAt;
+            for (int i = 0; i < sequence.steps.size(); i++) {
+                Step step = sequence.steps.get(i);
+                scheduled.add(new Scheduled(i, step.transition(), launchedAt.plus(step.offset())));
+            }
+            this.observed = new boolean[scheduled.size()];
+        }
+
+        public TransitionSequence sequence() {
+            return sequence;
+        }
+
+        public Instant launchedAt() {
+            return launchedAt;
+        }
+
+        /**
+         * @return the steps with their due times, in order
+         */
+        public List<Scheduled> scheduled() {
+            return List.copyOf(scheduled);
+        }
+
+        /**
+         * Matches an observed event text (status text, toast or notification) to the step that
+         * produced it and marks that step observed.
+         * @param text the observed text
+         * @param observedAt when it was observed
+         * @return the matching step, or empty if the text belongs to no unmatched step
+         */
+        public synchronized Optional<Scheduled> match(String text, Instant observedAt) {
+            if (text == null) {
+                return Optional.empty();
+            }
+            Matcher tag = TAG.matcher(text);
+            while (tag.find()) {
+                if (tag.group(1).equals(sequence.id)) {
+                    int step = Integer.parseInt(tag.group(2));
+                    if (step < scheduled.size() && text.contains(scheduled.get(step).expectedText())) {
+                        return observe(scheduled.get(step));
+                    }
+                }
+            }
+            return scheduled.stream()
+                    .filter(s -> !observed[s.step()] && text.contains(s.expectedText()))
+                    .min(Comparator.comparing((Scheduled s) -> s.dueAt().isAfter(observedAt))
+                            .thenComparing(Scheduled::dueAt))
+                    .flatMap(this::observe);
+        }
+
+        /**
+         * @return true once every step was matched
+         */
+        public synchronized boolean allObserved() {
+            for (boolean done : observed) {
+                if (!done) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        /**
+         * Returns how long a waiter should wait for a step from now: until it is due, plus slack
+         * for the app and device to show it.
+         * @param step the step to wait for
+         * @param slack allowance after the due time
+         * @return whole seconds, at least 1
+         */
+        public int timeoutSeconds(Scheduled step, Duration slack) {
+            Duration remaining = Duration.between(Instant.now(), step.dueAt().plus(slack));
+            return (int) Math.max(1, (remaining.toMillis() + 999) / 1000);
+        }
+
+        private Optional<Scheduled> observe(Scheduled step) {
+            if (observed[step.step()]) {
+                return Optional.empty();
+            }
+            observed[step.step()] = true;
+            return Optional.of(step);
+        }
+    }
+
+    /**
+     * Builder for TransitionSequence.
+     */
+    public static final class Builder {
+        private final List<Step> steps = new ArrayList<>();
+
+        private Builder() {
+        }
+
+        /**
+         * Adds a transition at an offset from receipt of the deep link.
+         */
+        public Builder at(Duration offset, int transition) {
+            if (offset.isNegative()) {
+                throw new IllegalArgumentException("Offset cannot be negative: " + offset);
+            }
+            if (transition != GeofenceTestHelper.GEOFENCE_ENTER && transition != GeofenceTestHelper.GEOFENCE_EXIT
+                    && transition != GeofenceTestHelper.GEOFENCE_DWELL) {
+                throw new IllegalArgumentException("Unknown transition: " + transition);
+            }
+            steps.add(new Step(transition, offset));
+            return this;
+        }
+
+        public TransitionSequence build() {
+            if (steps.isEmpty()) {
+                throw new IllegalStateException("Transition sequence needs at least one step");
+            }
+            List<Step> ordered = new ArrayList<>(steps);
+            ordered.sort(Comparator.comparing(Step::offset));
+            return new TransitionSequence(UUID.randomUUID().toString().substring(0, 8), ordered);
+        }
+    }
+}
@@ -0,0 +1,149 @@
+package com.poc.geofence.utils;
+
+import com.poc.geofence.config.ConfigManager;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Thread factories and executors for the framework's I/O-bound work: session provisioning,
+ * Appium HTTP plumbing, Jira calls and test bodies that mostly wait on a device.
+ *
+ * <p>With threads.virtual.enabled=true on Java 21+, tasks run on virtual threads, so a
+ * blocked command or Thread.sleep parks the task instead of holding an OS thread. The build
+ * targets Java 17, so the virtual thread API is looked up reflectively; on older JVMs (or
+ * with the flag off) the same calls return daemon platform threads and behavior is unchanged.
+ *
+ * <p>Code that runs on these threads must not block inside synchronized blocks (that pins
+ * the carrier thread before Java 24) and must not expect the caller's ThreadLocals; use
+ * {@link com.poc.geofence.driver.DriverManager#propagate(java.util.concurrent.Callable)}
+ * to hand the current driver to a task.
+ */
+public final class VirtualThreads {
+    private static final Logger log = LoggerFactory.getLogger(VirtualThreads.class);
+    private static final Method OF_VIRTUAL = lookup(Thread.class, "ofVirtual");
+    private static final Method NEW_THREAD_PER_TASK_EXECUTOR = lookup(Executors.class,
+            "newThreadPerTaskExecutor", ThreadFactory.class);
+    private static final AtomicBoolean UNSUPPORTED_LOGGED = new AtomicBoolean();
+
+    private VirtualThreads() {
+        // Utility class
+    }
+
+    /**
+     * @return true if this JVM can create virtual threads (Java 21+)
+     */
+    public static boolean isSupported() {
+        // Java 19-20 have the API only as a preview feature
+        return Runtime.version().feature() >= 21 && OF_VIRTUAL != null && NEW_THREAD_PER_TASK_EXECUTOR != null;
+    }
+
+    /**
+     * Returns whether virtual threads are requested by config and available on this JVM.
+     * @return true if {@link #threadFactory(String)} and {@link #newExecutor(String)} create virtual threads
+     */
+    public static boolean isEnabled() {
+        if (!ConfigManager.getInstance().isVirtualThreadsEnabled()) {
+            return false;
+        }
+        if (!isSupported()) {
+            if (UNSUPPORTED_LOGGED.compareAndSet(false, true)) {
+                log.warn("threads.virtual.enabled=true but Java {} has no virtual threads; using platform threads",
+                        Runtime.version().feature());
+            }
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Creates a thread factory in the configured mode.
+     * @param name thread name prefix, e.g. "driver-provisioner"
+     * @return a factory of virtual threads, or of daemon platform threads
+     */
+    public static ThreadFactory threadFactory(String name) {
+        return threadFactory(name, isEnabled());
+    }
+
+    /**
+     * Creates a thread factory in the given mode, regardless of config.
+     * @param name thread name prefix; threads are numbered "name-0", "name-1", ...
+     * @param virtual true for virtual threads, false for daemon platform threads
+     * @return the thread factory
+     * @throws UnsupportedOperationException if virtual threads are requested on a JVM without them
+     */
+    public static ThreadFactory threadFactory(String name, boolean virtual) {
+        if (!virtual) {
+            AtomicLong counter = new AtomicLong();
+            return r -> {
+                Thread t = new Thread(r, name + "-" + counter.getAndIncrement());
+                t.setDaemon(true);
+                return t;
+            };
+        }
+        requireSupported();
+        try {
+            Object builder = OF_VIRTUAL.invoke(null);
+            Class<?> builderType = Class.forName("java.lang.Thread$Builder");
+            builderType.getMethod("name", String.class, long.class).invoke(builder, name + "-", 0L);
+            return (ThreadFactory) builderType.getMethod("factory").invoke(builder);
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("Could not create virtual thread factory", unwrap(e));
+        }
+    }
+
+    /**
+     * Creates an unbounded executor in the configured mode.
+     * @param name thread name prefix
+     * @return a thread-per-task executor of virtual threads, or a cached pool of daemon platform threads
+     */
+    public static ExecutorService newExecutor(String name) {
+        return newExecutor(name, isEnabled());
+    }
+
+    /**
+     * Creates an unbounded executor in the given mode, regardless of config.
+     * Virtual threads are cheap and never pooled, so virtual mode starts one per task.
+     * @param name thread name prefix
+     * @param virtual true for virtual threads, false for daemon platform threads
+     * @return the executor
+     * @throws UnsupportedOperationException if virtual threads are requested on a JVM without them
+     */
+    public static ExecutorService newExecutor(String name, boolean virtual) {
+        ThreadFactory factory = threadFactory(name, virtual);
+        if (!virtual) {
+            return Executors.newCachedThreadPool(factory);
+        }
+        try {
+            return (ExecutorService) NEW_THREAD_PER_TASK_EXECUTOR.invoke(null, factory);
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("Could not create virtual thread executor", unwrap(e));
+        }
+    }
+
+    private static void requireSupported() {
+        if (!isSupported()) {
+            throw new UnsupportedOperationException("Virtual threads need Java 21+, running on Java "
+                    + Runtime.version().feature());
+        }
+    }
+
+    private static Method lookup(Class<?> type, String name, Class<?>... parameterTypes) {
+        try {
+            return type.getMethod(name, parameterTypes);
+        } catch (NoSuchMethodException e) {
+            return null;
+        }
+    }
+
+    private static Throwable unwrap(ReflectiveOperationException e) {
+        return e instanceof InvocationTargetException && e.getCause() != null ? e.getCause() : e;
+    }
+}
@@ -0,0 +1,218 @@
+package com.poc.geofence.utils;
+
+import com.poc.geofence.config.ConfigManager;
+import com.poc.geofence.metrics.WaitMetrics;
+import org.openqa.selenium.NotFoundException;
+import org.openqa.selenium.StaleElementReferenceException;
+import org.openqa.selenium.TimeoutException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * How to poll for a condition: check at once, then after an initial interval that grows by a
+ * multiplier up to a maximum, with random jitter, until an absolute deadline.
+ *
+ * <p>Policies are immutable and shared; {@link #named} builds each configured policy once
+ * (wait.policy.NAME.*), so pages and components no longer construct a WebDriverWait per call.
+ * Like Selenium's waits, a condition is met when it returns something other than null or
+ * false, and NotFoundException and StaleElementReferenceException count as a miss.
+ *
+ * <p>Every wait is recorded in {@link WaitMetrics} by policy and condition: time waited, polls,
+ * and the slack between the last miss and the hit, the data for tuning each policy.
+ */
+public final class WaitPolicy {
+    private static final Logger log = LoggerFactory.getLogger(WaitPolicy.class);
+    private static final Map<String, WaitPolicy> NAMED = new ConcurrentHashMap<>();
+
+    private final String name;
+    private final Duration initialInterval;
+    private final Duration maxInterval;
+    private final double multiplier;
+    private final double jitter;
+    private final Duration timeout;
+
+    private WaitPolicy(Builder builder) {
+        this.name = builder.name;
+        this.initialInterval = builder.initialInterval;
+        this.maxInterval = builder.maxInterval;
+        this.multiplier = builder.multiplier;
+        this.jitter = builder.jitter;
+        this.timeout = builder.timeout;
+    }
+
+    public static Builder builder(String name) {
+        return new Builder(name);
+    }
+
+    /**
+     * Returns the policy configured under wait.policy.NAME.*, built on first use.
+     * Unset settings fall back to wait.policy.default.*, and the timeout to default.timeout.
+     */
+    public static WaitPolicy named(String name) {
+        return NAMED.computeIfAbsent(name, WaitPolicy::fromConfig);
+    }
+
+    private static WaitPolicy fromConfig(String name) {
+        ConfigManager config = ConfigManager.getInstance();
+        long initial = Long.parseLong(config.getWaitPolicySetting(name, "initial.ms", "100"));
+        long max = Long.parseLong(config.getWaitPolicySetting(name, "max.ms", "1000"));
+        return builder(name)
+                .withPollIntervals(Duration.ofMillis(initial), Duration.ofMillis(Math.max(initial, max)))
+                .withMultiplier(Double.parseDouble(config.getWaitPolicySetting(name, "multiplier", "1.5")))
+                .withJitter(Double.parseDouble(config.getWaitPolicySetting(name, "jitter", "0.1")))
+                .withTimeout(Duration.ofMillis(Long.parseLong(config.getWaitPolicySetting(name, "timeout.ms",
+                        String.valueOf(config.getDefaultTimeout() * 1000L)))))
+                .build();
+    }
+
+    public String name() {
+        return name;
+    }
+
+    public Duration timeout() {
+        return timeout;
+    }
+
+    /**
+     * Waits up to the policy timeout.
+     * @return the condition's value, or empty if it was not met in time
+     */
+    public <T> Optional<T> await(String condition, Supplier<T> check) {
+        return await(condition, timeout, check);
+    }
+
+    /**
+     * Waits up to {@code timeout}, e.g. a caller-specific deadline.
+     * @param condition what is waited for, the metrics label
+     * @param check returns null or false while the condition is not met
+     * @return the condition's value, or empty if it was not met in time
+     */
+    public <T> Optional<T> await(String condition, Duration timeout, Supplier<T> check) {
+        long start = System.nanoTime();
+        long deadline = start + timeout.toNanos();
+        double interval = initialInterval.toNanos();
+        long lastMiss = 0;
+        int polls = 0;
+        try {
+            while (true) {
+                polls++;
+                T value = check(check);
+                long now = System.nanoTime();
+                if (value != null && !Boolean.FALSE.equals(value)) {
+                    WaitMetrics.getInstance().record(name, condition, true, now - start, lastMiss, polls);
+                    return Optional.of(value);
+                }
+                lastMiss = now - start;
+                long remaining = deadline - now;
+                if (remaining <= 0) {
+                    break;
+                }
+                TimeUnit.NANOSECONDS.sleep(Math.min(jittered(interval), remaining));
+                interval = Math.min(interval * multiplier, maxInterval.toNanos());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        WaitMetrics.getInstance().record(name, condition, false, System.nanoTime() - start, lastMiss, polls);
+        log.debug("Wait '{}' for {} not met within {}ms ({} polls)", name, condition, timeout.toMillis(), polls);
+        return Optional.empty();
+    }
+
+    /**
+     * Waits up to the policy timeout.
+     * @return the condition's value
+     * @throws TimeoutException if it was not met in time, as WebDriverWait would
+     */
+    public <T> T until(String condition, Supplier<T> check) {
+        return await(condition, check).orElseThrow(() -> new TimeoutException(
+                "Expected condition failed: waiting for " + condition + " (tried for "
+                        + timeout.toMillis() + "ms with policy '" + name + "')"));
+    }
+
+    private static <T> T check(Supplier<T> check) {
+        try {
+            return check.get();
+        } catch (NotFoundException | StaleElementReferenceException e) {
+            return null;
+        }
+    }
+
+    private long jittered(double interval) {
+        double factor = jitter == 0 ? 1 : 1 + ThreadLocalRandom.current().nextDouble(-jitter, jitter);
+        return (long) (interval * factor);
+    }
+
+    /**
+     * Builder for WaitPolicy.
+     */
+    public static final class Builder {
+        private final String name;
+        private Duration initialInterval = Duration.ofMillis(100);
+        private Duration maxInterval = Duration.ofSeconds(1);
+        private double multiplier = 1.5;
+        private double jitter = 0.1;
+        private Duration timeout = Duration.ofSeconds(30);
+
+        private Builder(String name) {
+            this.name = name;
+        }
+
+        /**
+         * Sets the delay after the first check, and the cap it grows to. Default: 100ms, 1s
+         */
+        public Builder withPollIntervals(Duration initial, Duration max) {
+            if (initial.isNegative() || initial.isZero() || max.compareTo(initial) < 0) {
+                throw new IllegalArgumentException("Invalid poll intervals: " + initial + ", " + max);
+            }
+            this.initialInterval = initial;
+            this.maxInterval = max;
+            return this;
+        }
+
+        /**
+         * Sets how much the interval grows after each miss; 1 polls at a fixed rate. Default: 1.5
+         */
+        public Builder withMultiplier(double multiplier) {
+            if (!(multiplier >= 1)) {
+                throw new IllegalArgumentException("Multiplier must be at least 1: " + multiplier);
+            }
+            this.multiplier = multiplier;
+            return this;
+        }
+
+        /**
+         * Sets the random +/- fraction applied to each interval, so parallel waits do not poll in
+         * lockstep. Default: 0.1
+         */
+        public Builder withJitter(double jitter) {
+            if (!(jitter >= 0 && jitter < 1)) {
+                throw new IllegalArgumentException("Jitter must be in [0, 1): " + jitter);
+            }
+            this.jitter = jitter;
+            return this;
+        }
+
+        /**
+         * Sets the deadline of waits that do not pass their own. Default: 30s
+         */
+        public Builder withTimeout(Duration timeout) {
+            if (timeout.isNegative()) {
+                throw new IllegalArgumentException("Timeout cannot be negative: " + timeout);
+            }
+            this.timeout = timeout;
+            return this;
+        }
+
+        public WaitPolicy build() {
+            return new WaitPolicy(this);
+        }
+    }
+}
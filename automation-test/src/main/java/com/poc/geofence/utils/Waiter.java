@@ -0,0 +1,64 @@
+package com.poc.geofence.utils;
+
+import com.poc.geofence.metrics.SleepBudget;
+import org.openqa.selenium.WebDriverException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+import java.util.function.BooleanSupplier;
+
+/**
+ * The one place tests and pages pause. A pause that used to be a fixed sleep waits for a
+ * readiness condition instead, under the "settle" {@link WaitPolicy} unless another is given,
+ * with the old delay as the bound: once the screen is ready the test moves on, and when the
+ * condition cannot be observed the test loses no more than it did before.
+ *
+ * <p>Every pause is recorded per test and site in {@link SleepBudget}, so reports show actual
+ * wait time next to the delay it replaced.
+ */
+public final class Waiter {
+    private static final Logger log = LoggerFactory.getLogger(Waiter.class);
+    static final String POLICY = "settle";
+
+    private Waiter() {
+    }
+
+    /**
+     * Waits until {@code ready} returns true, for at most {@code maxDelay}.
+     * WebDriver errors from the condition count as not ready.
+     * @param site where the pause happens, the report label (e.g., "notification shade open")
+     * @param maxDelay the fallback delay
+     * @return true if the condition was met, false if the full delay elapsed
+     */
+    public static boolean until(String site, Duration maxDelay, BooleanSupplier ready) {
+        return until(site, WaitPolicy.named(POLICY), maxDelay, ready);
+    }
+
+    /**
+     * Waits until {@code ready} returns true, for at most {@code maxDelay}, polling as
+     * {@code policy} does, e.g. for a condition that costs more than one command to check.
+     * @param site where the pause happens, the report label
+     * @param policy how often to check
+     * @param maxDelay the fallback delay
+     * @return true if the condition was met, false if the full delay elapsed
+     */
+    public static boolean until(String site, WaitPolicy policy, Duration maxDelay, BooleanSupplier ready) {
+        long start = System.nanoTime();
+        boolean met = policy.await(site, maxDelay, () -> probe(site, ready)).isPresent();
+        SleepBudget.getInstance().recordWait(site, met, System.nanoTime() - start, maxDelay.toNanos());
+        if (!met) {
+            log.debug("'{}' not ready within {}ms, continuing", site, maxDelay.toMillis());
+        }
+        return met;
+    }
+
+    private static boolean probe(String site, BooleanSupplier ready) {
+        try {
+            return ready.getAsBoolean();
+        } catch (WebDriverException e) {
+            log.debug("Readiness check '{}' failed: {}", site, e.getMessage());
+            return false;
+        }
+    }
+}
@@ -2,13 +2,16 @@ package com.poc.geofence.base;
 
 import com.poc.geofence.config.ConfigManager;
 import com.poc.geofence.config.PlatformType;
+import com.poc.geofence.driver.DeviceProfile;
 import com.poc.geofence.driver.DriverFactory;
 import com.poc.geofence.driver.DriverManager;
+import com.poc.geofence.driver.DriverPool;
+import com.poc.geofence.driver.SessionKey;
 import com.poc.geofence.pages.GeofencePage;
 import com.poc.geofence.pages.PageFactory;
 import com.poc.geofence.utils.AllureUtils;
-import io.appium.java_client.AppiumDriver;
 import io.qameta.allure.Allure;
+import org.openqa.selenium.NoSuchSessionException;
 import org.testng.ITestResult;
 import org.testng.annotations.*;
 import org.slf4j.Logger;
@@ -17,7 +20,7 @@ import org.slf4j.LoggerFactory;
 /**
  * Base test class with setup/teardown and common test infrastructure.
  */
-@Listeners(TestListener.class)
+@Listeners({TestListener.class, MetricsListener.class})
 public abstract class BaseTest {
     protected final Logger log = LoggerFactory.getLogger(getClass());
     protected ConfigManager config;
@@ -33,8 +36,10 @@ public abstract class BaseTest {
     }
 
     @BeforeMethod
-    @Parameters({"platform"})
-    public void setUp(@Optional("") String platformParam) {
+    @Parameters({"platform", "deviceName", "osVersion"})
+    public void setUp(@Optional("") String platformParam,
+                      @Optional("") String deviceName,
+                      @Optional("") String osVersion) {
         // Ensure config is initialized (defensive - handles suite ordering issues)
         if (config == null) {
             config = ConfigManager.getInstance();
@@ -50,10 +55,19 @@ public abstract class BaseTest {
         log.info("Setting up test for platform: {}", platform);
         Allure.parameter("Platform", platform.getValue());
 
-        // Create driver
+        // Lease driver (reuses a warm pooled session when driver.pool.enabled=true)
+        // Device-matrix runs pass an explicit device per <test>; otherwise use the configured one
         DriverFactory factory = new DriverFactory();
-        AppiumDriver driver = factory.createDriver(platform, config.getEnvironment());
-        DriverManager.setDriver(driver);
+        SessionKey sessionKey = deviceName.isEmpty()
+                ? factory.sessionKey(platform, config.getEnvironment())
+                : factory.sessionKey(new DeviceProfile(platform, deviceName, osVersion), config.getEnvironment());
+        Allure.parameter("Device", sessionKey.deviceName() + " " + sessionKey.osVersion());
+        DriverManager.leaseDriver(sessionKey, () -> factory.createDriver(sessionKey));
+        DriverPool.LeaseOutcome lease = DriverManager.getLastLease();
+        if (lease != null) {
+            log.info("Session source: {} (startup time saved: {}ms)", lease.source(), lease.saved().toMillis());
+            Allure.parameter("Session Source", lease.source().name());
+        }
 
         // Initialize page object
         geofencePage = PageFactory.getGeofencePage(platform);
@@ -78,24 +92,19 @@ public abstract class BaseTest {
                 }
             }
         } finally {
-            DriverManager.quitDriver();
+            if (result.getThrowable() instanceof NoSuchSessionException) {
+                // The hub already ended the session; resetting it would only wait out command timeouts
+                DriverManager.discardDriver();
+            } else {
+                DriverManager.releaseDriver();
+            }
             log.info("Test cleanup complete");
         }
     }
 
     @AfterSuite
     public void afterSuite() {
+        DriverManager.shutdownPool();
         log.info("Test suite completed");
     }
-
-    /**
-     * Utility sleep method for tests.
-     */
-    protected void sleep(long millis) {
-        try {
-            Thread.sleep(millis);
-        } catch (InterruptedException e) {
-            Thread.currentThread().interrupt();
-        }
-    }
 }
@@ -0,0 +1,111 @@
+package com.poc.geofence.base;
+
+import com.poc.geofence.config.ConfigManager;
+import com.poc.geofence.config.PlatformType;
+import com.poc.geofence.driver.DeviceProfile;
+import org.testng.IAlterSuiteListener;
+import org.testng.xml.XmlClass;
+import org.testng.xml.XmlSuite;
+import org.testng.xml.XmlTest;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Expands every platform journey {@code <test>} into one {@code <test>} per matrix device
+ * and runs them in parallel, one thread per BrowserStack slot.
+ *
+ * <p>Devices come from device.matrix; the thread count comes from driver.max.sessions,
+ * which also caps live sessions in DriverManager. Journeys are interleaved round-robin
+ * across devices so every device gets a slot early. Tests without a platform parameter
+ * (API tests) are kept as-is.
+ *
+ * <p>Usage: mvn test -DsuiteXml=testng-matrix.xml -Ddevice.matrix=... -Ddriver.max.sessions=N
+ */
+public class DeviceMatrixListener implements IAlterSuiteListener {
+    private static final Logger log = LoggerFactory.getLogger(DeviceMatrixListener.class);
+
+    @Override
+    public void alter(List<XmlSuite> suites) {
+        ConfigManager config = ConfigManager.getInstance();
+        List<DeviceProfile> devices = DeviceProfile.parseMatrix(config.getDeviceMatrix());
+        if (devices.isEmpty()) {
+            log.info("No device.matrix configured - running suite as declared");
+            return;
+        }
+        int slots = config.getMaxSessions();
+        for (XmlSuite suite : suites) {
+            expand(suite, devices, slots);
+        }
+    }
+
+    private void expand(XmlSuite suite, List<DeviceProfile> devices, int slots) {
+        List<XmlTest> originals = new ArrayList<>(suite.getTests());
+        List<XmlTest> shared = new ArrayList<>();
+        List<List<XmlTest>> perDevice = new ArrayList<>();
+        for (int i = 0; i < devices.size(); i++) {
+            perDevice.add(new ArrayList<>());
+        }
+
+        for (XmlTest test : originals) {
+            String platformParam = test.getParameter("platform");
+            if (platformParam == null || platformParam.isEmpty()) {
+                shared.add(test);
+                continue;
+            }
+            PlatformType platform = PlatformType.fromString(platformParam);
+            for (int i = 0; i < devices.size(); i++) {
+                DeviceProfile device = devices.get(i);
+                if (device.platform() == platform) {
+                    perDevice.get(i).add(copyForDevice(suite, test, device));
+                }
+            }
+        }
+
+        // Round-robin across devices so the fair slot queue serves every device early
+        List<XmlTest> expanded = new ArrayList<>(shared);
+        for (int round = 0; ; round++) {
+            boolean added = false;
+            for (List<XmlTest> tests : perDevice) {
+                if (round < tests.size()) {
+                    expanded.add(tests.get(round));
+                    added = true;
+                }
+            }
+            if (!added) {
+                break;
+            }
+        }
+
+        suite.setTests(expanded);
+        suite.setParallel(XmlSuite.ParallelMode.TESTS);
+        suite.setThreadCount(slots);
+        log.info("Device matrix: {} test(s) across {} device(s), {} parallel slot(s)",
+                expanded.size(), devices.size(), slots);
+    }
+
+    private XmlTest copyForDevice(XmlSuite suite, XmlTest test, DeviceProfile device) {
+        XmlTest copy = new XmlTest();
+        copy.setXmlSuite(suite);
+        copy.setName(test.getName() + " [" + device + "]");
+        List<XmlClass> classes = new ArrayList<>();
+        for (XmlClass xmlClass : test.getXmlClasses()) {
+            classes.add((XmlClass) xmlClass.clone());
+        }
+        copy.setXmlClasses(classes);
+        copy.setIncludedGroups(test.getIncludedGroups());
+        copy.setExcludedGroups(test.getExcludedGroups());
+        copy.setPreserveOrder(test.getPreserveOrder());
+
+        Map<String, String> parameters = new HashMap<>(test.getLocalParameters());
+        parameters.put("platform", device.platform().getValue());
+        parameters.put("deviceName", device.deviceName());
+        parameters.put("osVersion", device.osVersion());
+        copy.setParameters(parameters);
+        return copy;
+    }
+}
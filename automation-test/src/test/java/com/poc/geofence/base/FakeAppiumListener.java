@@ -0,0 +1,57 @@
+package com.poc.geofence.base;
+
+import com.poc.geofence.config.ConfigManager;
+import com.poc.geofence.fake.FakeAppiumServer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.testng.IAlterSuiteListener;
+import org.testng.ISuite;
+import org.testng.ISuiteListener;
+import org.testng.xml.XmlSuite;
+
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * Suite listener that runs the journeys against an embedded {@link FakeAppiumServer}
+ * instead of BrowserStack or a real device.
+ *
+ * <p>Switches the run to environment=local with appium.local.url pointing at the fake
+ * server, so DriverFactory needs no changes. Command counts are logged at suite end
+ * as a measure of framework overhead.
+ *
+ * <p>The server starts while suites are being prepared rather than in onStart, because
+ * TestNG starts annotation-registered suite listeners (pre-flight checks, look-ahead
+ * provisioning) before listeners declared in the suite XML.
+ */
+public class FakeAppiumListener implements IAlterSuiteListener, ISuiteListener {
+    private static final Logger log = LoggerFactory.getLogger(FakeAppiumListener.class);
+    private FakeAppiumServer server;
+
+    @Override
+    public void alter(List<XmlSuite> suites) {
+        if (server != null) {
+            return;
+        }
+        ConfigManager config = ConfigManager.getInstance();
+        server = FakeAppiumServer.builder()
+                .withPort(Integer.parseInt(config.getProperty("fake.appium.port", "0")))
+                .withLatency(Duration.ofMillis(Long.parseLong(config.getProperty("fake.appium.latency.ms", "0"))))
+                .withLatency("newSession",
+                        Duration.ofMillis(Long.parseLong(config.getProperty("fake.appium.session.latency.ms", "0"))))
+                .withEventDelay(Duration.ofMillis(Long.parseLong(config.getProperty("fake.appium.event.delay.ms", "200"))))
+                .build()
+                .start();
+        System.setProperty("environment", "local");
+        System.setProperty("appium.local.url", server.getUrl());
+    }
+
+    @Override
+    public void onFinish(ISuite suite) {
+        if (server != null) {
+            log.info("Fake Appium commands: {}", server.commandCounts());
+            server.stop();
+            server = null;
+        }
+    }
+}
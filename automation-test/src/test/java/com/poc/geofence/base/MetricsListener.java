@@ -0,0 +1,180 @@
+package com.poc.geofence.base;
+
+import com.poc.geofence.config.ConfigManager;
+import com.poc.geofence.config.PlatformType;
+import com.poc.geofence.metrics.CommandMetrics;
+import com.poc.geofence.metrics.LocatorProfiler;
+import com.poc.geofence.metrics.SleepBudget;
+import com.poc.geofence.metrics.WaitMetrics;
+import com.poc.geofence.pages.LocatorOptimizer;
+import com.poc.geofence.utils.AllureUtils;
+import com.poc.geofence.utils.GeofenceTimeline;
+import io.appium.java_client.AppiumBy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.testng.IConfigurationListener;
+import org.testng.ISuite;
+import org.testng.ISuiteListener;
+import org.testng.ITestListener;
+import org.testng.ITestNGMethod;
+import org.testng.ITestResult;
+
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Tags Appium command latencies with the running test and reports them.
+ *
+ * <p>The tag is set before @BeforeMethod (so session setup counts towards the test)
+ * and cleared after @AfterMethod. Each test gets a "Command Latency" Allure attachment, plus
+ * "Skipped Commands" when the session state shadow or gesture batching saved round trips, plus
+ * "Geofence Timeline" when it moved the device or triggered transitions, plus "Sleep Budget"
+ * when it paused; the suite writes command-latency.json, wait-policies.json and
+ * sleep-budget.json and appends to geofence-timeline-history.json and locator-profile.json
+ * in metrics.report.dir.
+ */
+public class MetricsListener implements IConfigurationListener, ITestListener, ISuiteListener {
+    private static final Logger log = LoggerFactory.getLogger(MetricsListener.class);
+    private static final int SLOWEST_COMMANDS_LOGGED = 10;
+    private static final int SLOWEST_LOCATORS_LOGGED = 10;
+    private final CommandMetrics metrics = CommandMetrics.getInstance();
+    private final GeofenceTimeline timeline = GeofenceTimeline.getInstance();
+
+    @Override
+    public void beforeConfiguration(ITestResult result, ITestNGMethod testMethod) {
+        if (testMethod != null && result.getMethod().isBeforeMethodConfiguration()) {
+            metrics.startTest(testName(testMethod));
+        }
+    }
+
+    @Override
+    public void onConfigurationSuccess(ITestResult result, ITestNGMethod testMethod) {
+        endTestAfterCleanup(result);
+    }
+
+    @Override
+    public void onConfigurationFailure(ITestResult result, ITestNGMethod testMethod) {
+        endTestAfterCleanup(result);
+    }
+
+    @Override
+    public void onConfigurationSkip(ITestResult result, ITestNGMethod testMethod) {
+        endTestAfterCleanup(result);
+    }
+
+    private void endTestAfterCleanup(ITestResult result) {
+        if (result.getMethod().isAfterMethodConfiguration()) {
+            metrics.endTest();
+        }
+    }
+
+    @Override
+    public void onTestStart(ITestResult result) {
+        metrics.startTest(testName(result.getMethod()));
+    }
+
+    @Override
+    public void onTestSuccess(ITestResult result) {
+        attachSummary(result);
+    }
+
+    @Override
+    public void onTestFailure(ITestResult result) {
+        attachSummary(result);
+    }
+
+    @Override
+    public void onTestSkipped(ITestResult result) {
+        attachSummary(result);
+    }
+
+    private void attachSummary(ITestResult result) {
+        String test = testName(result.getMethod());
+        List<GeofenceTimeline.Event> events = timeline.forTest(test);
+        if (!events.isEmpty()) {
+            AllureUtils.attachText("Geofence Timeline", GeofenceTimeline.toTable(events));
+        }
+        List<SleepBudget.SiteStats> pauses = SleepBudget.getInstance().forTest(test);
+        if (!pauses.isEmpty()) {
+            AllureUtils.attachText("Sleep Budget", SleepBudget.toTable(pauses));
+        }
+        List<CommandMetrics.SkippedStats> skipped = metrics.skippedForTest(test);
+        if (!skipped.isEmpty()) {
+            log.info("{} skipped {} redundant commands", test,
+                    skipped.stream().mapToLong(CommandMetrics.SkippedStats::count).sum());
+            AllureUtils.attachText("Skipped Commands", CommandMetrics.toSkippedTable(skipped));
+        }
+        if (!ConfigManager.getInstance().isCommandMetricsEnabled()) {
+            return;
+        }
+        List<CommandMetrics.CommandStats> stats = metrics.forTest(test);
+        if (!stats.isEmpty()) {
+            AllureUtils.attachText("Command Latency", CommandMetrics.toTable(stats));
+        }
+    }
+
+    @Override
+    public void onFinish(ISuite suite) {
+        long skipped = metrics.allSkipped().stream().mapToLong(CommandMetrics.SkippedStats::count).sum();
+        if (skipped > 0) {
+            log.info("Skipped {} redundant Appium commands (session state shadow, gesture batching)", skipped);
+        }
+        ConfigManager config = ConfigManager.getInstance();
+        Map<String, GeofenceTimeline.Stats> rolling = timeline.writeHistory(
+                Path.of(config.getMetricsReportDir(), "geofence-timeline-history.json"), config.getTimelineHistoryMaxRuns());
+        if (!rolling.isEmpty()) {
+            log.info("Geofence detection latency over recent runs:\n{}", GeofenceTimeline.toLatencyTable(rolling));
+        }
+        List<WaitMetrics.WaitStats> waits = WaitMetrics.getInstance().all();
+        if (!waits.isEmpty()) {
+            log.info("Time in policy waits (slack = last miss to hit):\n{}", WaitMetrics.toTable(waits));
+            WaitMetrics.getInstance().writeJson(Path.of(config.getMetricsReportDir(), "wait-policies.json"));
+        }
+        List<SleepBudget.SiteStats> pausesByTest = SleepBudget.getInstance().byTest();
+        if (!pausesByTest.isEmpty()) {
+            log.info("Sleep budget per test (saved = fallback delay not spent):\n{}", SleepBudget.toTable(pausesByTest));
+            SleepBudget.getInstance().writeJson(Path.of(config.getMetricsReportDir(), "sleep-budget.json"));
+        }
+        if (!config.isCommandMetricsEnabled()) {
+            return;
+        }
+        List<CommandMetrics.CommandStats> byCommand = metrics.byCommand();
+        if (byCommand.isEmpty()) {
+            return;
+        }
+        log.info("Slowest Appium commands by total time:\n{}",
+                CommandMetrics.toTable(byCommand.subList(0, Math.min(SLOWEST_COMMANDS_LOGGED, byCommand.size()))));
+        metrics.writeJson(Path.of(config.getMetricsReportDir(), "command-latency.json"));
+        reportLocators(config);
+    }
+
+    private static void reportLocators(ConfigManager config) {
+        LocatorProfiler profiler = LocatorProfiler.getInstance();
+        List<LocatorProfiler.LocatorStats> byLocator = profiler.all();
+        if (byLocator.isEmpty()) {
+            return;
+        }
+        List<LocatorProfiler.LocatorStats> slowest = byLocator.subList(0, Math.min(SLOWEST_LOCATORS_LOGGED, byLocator.size()));
+        StringBuilder report = new StringBuilder(LocatorProfiler.toTable(slowest));
+        for (LocatorProfiler.LocatorStats stats : slowest) {
+            if ("xpath".equals(stats.strategy())) {
+                LocatorOptimizer.nativeEquivalent(AppiumBy.xpath(stats.value()), PlatformType.fromString(stats.platform()))
+                        .ifPresent(equivalent -> report.append(String.format("%s%n    -> %s: %s%n",
+                                stats.value(), equivalent.strategy(), equivalent.selector())));
+            }
+        }
+        log.info("Slowest locators by total find time (with native equivalents):\n{}", report);
+        profiler.writeHistory(Path.of(config.getMetricsReportDir(), "locator-profile.json"),
+                config.getLocatorProfileHistoryMaxRuns());
+    }
+
+    /**
+     * Class.method, plus the device for device-matrix runs where the same method runs per device.
+     */
+    static String testName(ITestNGMethod method) {
+        String name = method.getRealClass().getSimpleName() + "." + method.getMethodName();
+        String device = method.getXmlTest().getParameter("deviceName");
+        return device == null || device.isEmpty() ? name : name + " @ " + device;
+    }
+}
@@ -1,25 +1,53 @@
 package com.poc.geofence.base;
 
+import com.poc.geofence.config.ConfigManager;
+import com.poc.geofence.config.PlatformType;
+import com.poc.geofence.driver.DeviceProfile;
+import com.poc.geofence.driver.DriverFactory;
 import com.poc.geofence.driver.DriverManager;
+import com.poc.geofence.driver.LookAheadProvisioner;
+import com.poc.geofence.driver.PreflightChecker;
+import com.poc.geofence.driver.PreflightReport;
+import com.poc.geofence.driver.SessionCircuitBreaker;
+import com.poc.geofence.driver.SessionKey;
 import com.poc.geofence.utils.AllureUtils;
 import com.poc.geofence.utils.JiraDefectCreator;
+import org.testng.ISuite;
+import org.testng.ISuiteListener;
 import org.testng.ITestContext;
 import org.testng.ITestListener;
+import org.testng.ITestNGMethod;
 import org.testng.ITestResult;
+import org.testng.xml.XmlTest;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
 /**
  * TestNG listener for test lifecycle hooks, reporting, and auto defect creation.
  *
  * Features:
  * - Allure artifact attachment (screenshots, page source, error details)
  * - Automatic Jira defect creation on test failure (optional)
+ * - Pre-flight readiness checks before any session is created (optional)
+ * - Look-ahead session pre-provisioning (optional)
  * - Suite-level statistics logging
  */
-public class TestListener implements ITestListener {
+public class TestListener implements ITestListener, ISuiteListener {
     private static final Logger log = LoggerFactory.getLogger(TestListener.class);
     private final JiraDefectCreator jiraDefectCreator;
+    // Plan positions by test method, one per planned invocation, in plan order
+    private final Map<String, Deque<Integer>> plannedInvocations = new HashMap<>();
+    private LookAheadProvisioner provisioner;
 
     public TestListener() {
         this.jiraDefectCreator = new JiraDefectCreator();
@@ -28,6 +56,22 @@ public class TestListener implements ITestListener {
     @Override
     public void onTestStart(ITestResult result) {
         log.info("========== Starting test: {} ==========", result.getName());
+        if (provisioner != null) {
+            provisioner.onTestStarted(nextPlanIndex(planId(result.getMethod())));
+        }
+    }
+
+    /**
+     * Returns the plan position of a starting invocation: each planned invocation in turn, then
+     * the method's last position for invocations beyond the plan (retries, data-provider rows).
+     * @return the position, or -1 if the method was not planned
+     */
+    private synchronized int nextPlanIndex(String planId) {
+        Deque<Integer> positions = plannedInvocations.get(planId);
+        if (positions == null || positions.isEmpty()) {
+            return -1;
+        }
+        return positions.size() > 1 ? positions.pollFirst() : positions.peekFirst();
     }
 
     @Override
@@ -105,6 +149,91 @@ public class TestListener implements ITestListener {
         log.info("========== Test Suite Started: {} ==========", context.getName());
     }
 
+    @Override
+    public void onStart(ISuite suite) {
+        runPreflight(suite);
+        startLookAheadProvisioning(suite);
+    }
+
+    @Override
+    public void onFinish(ISuite suite) {
+        if (provisioner != null) {
+            provisioner.finish();
+            provisioner = null;
+        }
+    }
+
+    /**
+     * Checks hub, credentials, plan quota and apps for the suite's platforms before any session
+     * is requested. A failed check opens the session circuit breaker, so every test fails
+     * immediately with the reason instead of each one waiting for the hub to refuse it.
+     */
+    private void runPreflight(ISuite suite) {
+        ConfigManager config = ConfigManager.getInstance();
+        if (!config.isPreflightEnabled()) {
+            return;
+        }
+        Set<PlatformType> platforms = EnumSet.noneOf(PlatformType.class);
+        for (ITestNGMethod method : suite.getAllMethods()) {
+            if (BaseTest.class.isAssignableFrom(method.getRealClass())) {
+                platforms.add(platformOf(method.getXmlTest(), config));
+            }
+        }
+        if (platforms.isEmpty()) {
+            return;
+        }
+        PreflightReport report = new PreflightChecker(config.getEnvironment()).run(platforms);
+        report.firstFailure().ifPresent(failure -> SessionCircuitBreaker.getInstance()
+                .open(failure.failureKind(), failure.name() + ": " + failure.detail()));
+    }
+
+    /**
+     * Plans one session per E2E test invocation (invocationCount) across the whole suite, so
+     * the next platform's session can be created while the current test runs.
+     * API tests need no session and are planned as gaps.
+     */
+    private synchronized void startLookAheadProvisioning(ISuite suite) {
+        ConfigManager config = ConfigManager.getInstance();
+        if (!config.isDriverPoolEnabled() || !config.isLookAheadProvisioningEnabled()) {
+            return;
+        }
+        DriverFactory factory = new DriverFactory();
+        List<SessionKey> plan = new ArrayList<>();
+        plannedInvocations.clear();
+        for (ITestNGMethod method : suite.getAllMethods()) {
+            SessionKey key = null;
+            if (BaseTest.class.isAssignableFrom(method.getRealClass())) {
+                XmlTest xmlTest = method.getXmlTest();
+                String deviceName = xmlTest.getParameter("deviceName");
+                PlatformType platform = platformOf(xmlTest, config);
+                key = deviceName != null && !deviceName.isEmpty()
+                        ? factory.sessionKey(new DeviceProfile(platform, deviceName, xmlTest.getParameter("osVersion")),
+                                config.getEnvironment())
+                        : factory.sessionKey(platform, config.getEnvironment());
+            }
+            Deque<Integer> positions = plannedInvocations.computeIfAbsent(planId(method), id -> new ArrayDeque<>());
+            for (int i = 0; i < Math.max(1, method.getInvocationCount()); i++) {
+                positions.addLast(plan.size());
+                plan.add(key);
+            }
+        }
+        if (plan.stream().allMatch(Objects::isNull)) {
+            return;
+        }
+        provisioner = new LookAheadProvisioner(DriverManager.getPool(), factory, config.getMaxSessions());
+        provisioner.plan(plan);
+    }
+
+    private static PlatformType platformOf(XmlTest xmlTest, ConfigManager config) {
+        String platformParam = xmlTest.getParameter("platform");
+        return platformParam != null && !platformParam.isEmpty()
+                ? PlatformType.fromString(platformParam) : config.getPlatform();
+    }
+
+    private static String planId(ITestNGMethod method) {
+        return method.getXmlTest().getName() + "#" + method.getQualifiedName();
+    }
+
     @Override
     public void onFinish(ITestContext context) {
         log.info("========== Test Suite Finished: {} ==========", context.getName());
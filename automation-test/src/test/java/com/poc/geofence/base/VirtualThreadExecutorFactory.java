@@ -0,0 +1,42 @@
+package com.poc.geofence.base;
+
+import com.poc.geofence.utils.VirtualThreads;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.testng.IExecutorServiceFactory;
+
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * TestNG worker pool whose workers are virtual threads when threads.virtual.enabled=true on Java 21+.
+ *
+ * <p>The pool keeps TestNG's sizing, so a suite's thread-count still bounds how many test
+ * bodies run at once; what changes is that a body blocked on an Appium command, a wait or a
+ * sleep parks instead of holding an OS thread. DriverManager's bindings work unchanged, since
+ * each worker keeps its thread for the whole test method.
+ *
+ * <p>Surefire cannot pass a thread-pool factory to TestNG, so this applies to runs through the
+ * TestNG command line:
+ * <pre>
+ * java -cp "target/classes:target/test-classes:$(cat cp.txt)" -Dthreads.virtual.enabled=true \
+ *     org.testng.TestNG -threadpoolfactoryclass com.poc.geofence.base.VirtualThreadExecutorFactory testng-matrix.xml
+ * </pre>
+ */
+public class VirtualThreadExecutorFactory implements IExecutorServiceFactory {
+    private static final Logger log = LoggerFactory.getLogger(VirtualThreadExecutorFactory.class);
+
+    @Override
+    public ExecutorService create(int corePoolSize, int maximumPoolSize, long keepAliveTime, TimeUnit unit,
+                                  BlockingQueue<Runnable> workQueue, ThreadFactory threadFactory) {
+        ThreadFactory workers = threadFactory;
+        if (VirtualThreads.isEnabled()) {
+            workers = VirtualThreads.threadFactory("TestNG-virtual");
+            log.info("TestNG workers run on virtual threads (max {})", maximumPoolSize);
+        }
+        return new ThreadPoolExecutor(corePoolSize, maximumPoolSize, keepAliveTime, unit, workQueue, workers);
+    }
+}
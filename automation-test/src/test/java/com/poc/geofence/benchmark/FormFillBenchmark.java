@@ -0,0 +1,114 @@
+package com.poc.geofence.benchmark;
+
+import com.poc.geofence.config.ConfigManager;
+import com.poc.geofence.driver.DriverManager;
+import com.poc.geofence.fake.FakeAppiumServer;
+import com.poc.geofence.metrics.LatencyHistogram;
+import com.poc.geofence.pages.ios.GeofencePageIOS;
+import com.poc.geofence.utils.AllureUtils;
+import io.appium.java_client.ios.IOSDriver;
+import io.appium.java_client.ios.options.XCUITestOptions;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.testng.Assert;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+import java.net.URI;
+import java.net.URL;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Compares GeofencePageIOS.createGeofence with the per-field form entry (wait, clear and type
+ * each field) and the batched one (ios.form.fast.fill: one query, one sendKeys per field, one
+ * snapshot to verify), by wall time and Appium commands per geofence.
+ *
+ * <p>The fake server adds a fixed latency to every command, standing in for the WebDriverAgent
+ * round trip. The first geofence fills an empty form; later ones overwrite the previous values,
+ * as consecutive geofences in one session do.
+ * Usage: mvn test -DsuiteXml=testng-benchmark.xml [-Dbenchmark.form.iterations=10]
+ * [-Dbenchmark.form.latency.ms=20]
+ */
+public class FormFillBenchmark {
+    private static final Logger log = LoggerFactory.getLogger(FormFillBenchmark.class);
+
+    private final ConfigManager config = ConfigManager.getInstance();
+    private FakeAppiumServer server;
+    private URL url;
+
+    @BeforeClass
+    public void startServer() throws Exception {
+        server = FakeAppiumServer.builder()
+                .withLatency(Duration.ofMillis(Long.parseLong(config.getProperty("benchmark.form.latency.ms", "20"))))
+                .withEventDelay(Duration.ZERO)
+                .withLocationTransitions(false)
+                .build()
+                .start();
+        url = URI.create(server.getUrl()).toURL();
+    }
+
+    @AfterClass(alwaysRun = true)
+    public void stopServer() {
+        System.clearProperty("ios.form.fast.fill");
+        if (server != null) {
+            server.stop();
+        }
+    }
+
+    @Test
+    public void compareFormFill() {
+        int iterations = Integer.parseInt(config.getProperty("benchmark.form.iterations", "10"));
+        Map<String, Result> results = new LinkedHashMap<>();
+        results.put("per field", run(false, iterations));
+        results.put("batched", run(true, iterations));
+
+        StringBuilder table = new StringBuilder(String.format("%-10s %10s %10s %10s %12s%n",
+                "form fill", "p50 ms", "p95 ms", "max ms", "commands"));
+        results.forEach((mode, result) -> table.append(String.format("%-10s %10.1f %10.1f %10.1f %12.1f%n", mode,
+                result.latency().p50Micros() / 1000.0, result.latency().p95Micros() / 1000.0,
+                result.latency().maxMicros() / 1000.0, result.commandsPerFill())));
+        log.info("iOS geofence form ({} geofences each, {}ms per command):\n{}", iterations,
+                config.getProperty("benchmark.form.latency.ms", "20"), table);
+        AllureUtils.attachText("Form Fill Benchmark", table.toString());
+
+        Assert.assertTrue(results.get("batched").commandsPerFill() < results.get("per field").commandsPerFill(),
+                "batched form fill should send fewer commands: " + results);
+    }
+
+    private Result run(boolean batched, int iterations) {
+        System.setProperty("ios.form.fast.fill", String.valueOf(batched));
+        IOSDriver driver = new IOSDriver(url, new XCUITestOptions().setDeviceName("Fake iPhone"));
+        LatencyHistogram latency = new LatencyHistogram();
+        long commands = 0;
+        try {
+            DriverManager.runWithDriver(driver, () -> new GeofencePageIOS().handlePermissions());
+            for (int i = 0; i < iterations; i++) {
+                double offset = i / 1000.0;
+                int radius = 100 + i;
+                String title = "Zone " + i;
+                long before = totalCommands();
+                long start = System.nanoTime();
+                DriverManager.runWithDriver(driver, () -> {
+                    GeofencePageIOS page = new GeofencePageIOS();
+                    page.createGeofence(37.422 + offset, -122.084 - offset, radius, title);
+                    Assert.assertTrue(page.verifyGeofenceCreated(), "geofence " + title + " not added");
+                });
+                latency.record(System.nanoTime() - start);
+                commands += totalCommands() - before;
+            }
+        } finally {
+            driver.quit();
+        }
+        return new Result(latency.snapshot(), (double) commands / iterations);
+    }
+
+    private long totalCommands() {
+        return server.commandCounts().values().stream().mapToLong(Long::longValue).sum();
+    }
+
+    private record Result(LatencyHistogram.Snapshot latency, double commandsPerFill) {
+    }
+}
@@ -0,0 +1,134 @@
+package com.poc.geofence.benchmark;
+
+import com.poc.geofence.config.ConfigManager;
+import com.poc.geofence.config.PlatformType;
+import com.poc.geofence.driver.SharedHttpClientFactory;
+import com.poc.geofence.fake.FakeAppiumServer;
+import com.poc.geofence.metrics.CommandMetrics;
+import com.poc.geofence.metrics.LatencyHistogram;
+import com.poc.geofence.metrics.RecordingCommandExecutor;
+import com.poc.geofence.utils.AllureUtils;
+import io.appium.java_client.AppiumBy;
+import io.appium.java_client.android.AndroidDriver;
+import io.appium.java_client.android.options.UiAutomator2Options;
+import org.openqa.selenium.WebElement;
+import org.openqa.selenium.remote.http.HttpClient;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.testng.Assert;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+import java.net.URI;
+import java.net.URL;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Measures per-command HTTP overhead of Selenium's default client against the shared,
+ * tuned client, using the fake Appium server (zero server latency, so every measured
+ * microsecond is client and transport overhead).
+ *
+ * <p>Each run opens a few sessions back to back and issues the small commands journeys
+ * are made of (find, getText, isDisplayed, mobile: queryAppState). Results are logged and
+ * attached as "HTTP Transport Benchmark".
+ * Usage: mvn test -DsuiteXml=testng-benchmark.xml [-Dbenchmark.http.iterations=500]
+ */
+public class HttpTransportBenchmark {
+    private static final Logger log = LoggerFactory.getLogger(HttpTransportBenchmark.class);
+    private static final String DEFAULT_CLIENT = "selenium default";
+    private static final String SHARED_CLIENT = "shared tuned";
+    private static final String PERMISSION_MESSAGE = "com.android.permissioncontroller:id/permission_message";
+    private static final int SESSIONS = 3;
+    private static final int WARMUP_ITERATIONS = 200;
+
+    private final CommandMetrics metrics = CommandMetrics.getInstance();
+    private FakeAppiumServer server;
+    private URL url;
+
+    @BeforeClass
+    public void startServer() throws Exception {
+        server = FakeAppiumServer.builder().withLocationTransitions(false).build().start();
+        url = URI.create(server.getUrl()).toURL();
+        metrics.reset();
+    }
+
+    @AfterClass(alwaysRun = true)
+    public void stopServer() {
+        if (server != null) {
+            server.stop();
+        }
+    }
+
+    @Test
+    public void compareHttpTransports() {
+        int iterations = Integer.parseInt(ConfigManager.getInstance().getProperty("benchmark.http.iterations", "300"));
+
+        // Warm both clients up first so neither run pays for JIT compilation of the other
+        run(DEFAULT_CLIENT + " (warmup)", HttpClient.Factory.createDefault(), 1, WARMUP_ITERATIONS);
+        run(SHARED_CLIENT + " (warmup)", SharedHttpClientFactory.getInstance(), 1, WARMUP_ITERATIONS);
+        run(DEFAULT_CLIENT, HttpClient.Factory.createDefault(), SESSIONS, iterations);
+        run(SHARED_CLIENT, SharedHttpClientFactory.getInstance(), SESSIONS, iterations);
+
+        List<CommandMetrics.CommandStats> before = metrics.forTest(DEFAULT_CLIENT);
+        List<CommandMetrics.CommandStats> after = metrics.forTest(SHARED_CLIENT);
+        String report = DEFAULT_CLIENT + ":\n" + CommandMetrics.toTable(before)
+                + "\n" + SHARED_CLIENT + ":\n" + CommandMetrics.toTable(after)
+                + "\n" + comparison(before, after);
+        log.info("HTTP transport benchmark ({} sessions x {} iterations):\n{}", SESSIONS, iterations, report);
+        AllureUtils.attachText("HTTP Transport Benchmark", report);
+
+        Assert.assertEquals(totalCount(after), totalCount(before), "both transports should issue the same commands");
+    }
+
+    private void run(String label, HttpClient.Factory factory, int sessions, int iterations) {
+        metrics.startTest(label);
+        try {
+            for (int session = 0; session < sessions; session++) {
+                AndroidDriver driver = new AndroidDriver(
+                        new RecordingCommandExecutor(url, PlatformType.ANDROID, factory),
+                        new UiAutomator2Options().setDeviceName("Fake Pixel"));
+                try {
+                    issueCommands(driver, iterations);
+                } finally {
+                    driver.quit();
+                }
+            }
+        } finally {
+            metrics.endTest();
+        }
+    }
+
+    private static void issueCommands(AndroidDriver driver, int iterations) {
+        for (int i = 0; i < iterations; i++) {
+            WebElement message = driver.findElement(AppiumBy.id(PERMISSION_MESSAGE));
+            message.getText();
+            message.isDisplayed();
+            driver.executeScript("mobile: queryAppState", Map.of("appId", "com.eebax.geofencing"));
+        }
+    }
+
+    private static String comparison(List<CommandMetrics.CommandStats> before, List<CommandMetrics.CommandStats> after) {
+        Map<String, LatencyHistogram.Snapshot> afterByCommand = after.stream()
+                .collect(Collectors.toMap(CommandMetrics.CommandStats::command, CommandMetrics.CommandStats::latency));
+        StringBuilder sb = new StringBuilder(String.format("%-36s %12s %12s %12s %12s%n",
+                "command", "p50 before", "p50 after", "p95 before", "p95 after"));
+        Function<Long, String> ms = micros -> String.format("%.2f ms", micros / 1000.0);
+        for (CommandMetrics.CommandStats stats : before) {
+            LatencyHistogram.Snapshot b = stats.latency();
+            LatencyHistogram.Snapshot a = afterByCommand.get(stats.command());
+            if (a != null) {
+                sb.append(String.format("%-36s %12s %12s %12s %12s%n", stats.command(),
+                        ms.apply(b.p50Micros()), ms.apply(a.p50Micros()), ms.apply(b.p95Micros()), ms.apply(a.p95Micros())));
+            }
+        }
+        return sb.toString();
+    }
+
+    private static long totalCount(List<CommandMetrics.CommandStats> stats) {
+        return stats.stream().mapToLong(s -> s.latency().count()).sum();
+    }
+}
@@ -0,0 +1,192 @@
+package com.poc.geofence.benchmark;
+
+import com.poc.geofence.config.ConfigManager;
+import com.poc.geofence.config.PlatformType;
+import com.poc.geofence.driver.DriverManager;
+import com.poc.geofence.driver.SharedHttpClientFactory;
+import com.poc.geofence.fake.FakeAppiumServer;
+import com.poc.geofence.metrics.RecordingCommandExecutor;
+import com.poc.geofence.utils.AllureUtils;
+import com.poc.geofence.utils.VirtualThreads;
+import io.appium.java_client.AppiumDriver;
+import io.appium.java_client.android.AndroidDriver;
+import io.appium.java_client.android.options.UiAutomator2Options;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.testng.Assert;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.net.URI;
+import java.net.URL;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Measures how many concurrent geofence journeys one JVM can orchestrate against the fake
+ * Appium server, comparing today's model (a fixed pool of platform threads, like a TestNG
+ * thread-count) with one thread per journey on platform threads and on virtual threads.
+ *
+ * <p>A journey is what the E2E tests spend their time on: open a session, terminate the app,
+ * trigger ENTER by deep link, poll the notification shade with sleeps until it shows up, and
+ * quit. Every step is blocking I/O or a sleep, so wall time should stay flat as journeys are
+ * added until the orchestration model runs out of threads. Virtual threads need Java 21+;
+ * on older JVMs that mode is reported as skipped.
+ * Usage: mvn test -DsuiteXml=testng-benchmark.xml [-Dbenchmark.journeys.levels=50,200,500]
+ */
+public class JourneyConcurrencyBenchmark {
+    private static final Logger log = LoggerFactory.getLogger(JourneyConcurrencyBenchmark.class);
+    private static final String APP_ID = "com.eebax.geofencing";
+    private static final Duration POLL_INTERVAL = Duration.ofMillis(250);
+    private static final Duration POLL_TIMEOUT = Duration.ofSeconds(10);
+
+    private final ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final AtomicInteger peakInFlight = new AtomicInteger();
+    private FakeAppiumServer server;
+    private URL url;
+
+    @BeforeClass
+    public void startServer() throws Exception {
+        ConfigManager config = ConfigManager.getInstance();
+        server = FakeAppiumServer.builder()
+                .withLatency(Duration.ofMillis(Long.parseLong(config.getProperty("benchmark.journeys.latency.ms", "20"))))
+                .withLatency("newSession", Duration.ofMillis(200))
+                .withEventDelay(Duration.ofMillis(500))
+                .withLocationTransitions(false)
+                .build()
+                .start();
+        url = URI.create(server.getUrl()).toURL();
+    }
+
+    @AfterClass(alwaysRun = true)
+    public void stopServer() {
+        if (server != null) {
+            server.stop();
+        }
+    }
+
+    @Test
+    public void compareOrchestrationModes() throws Exception {
+        ConfigManager config = ConfigManager.getInstance();
+        int poolThreads = Integer.parseInt(config.getProperty("benchmark.journeys.pool.threads", "32"));
+        int[] levels = Arrays.stream(config.getProperty("benchmark.journeys.levels", "50,200,500").split(","))
+                .map(String::trim).mapToInt(Integer::parseInt).toArray();
+
+        // Warm up session creation and the HTTP stack so the first measured mode is not penalized
+        run("warmup", Executors.newFixedThreadPool(8), 16);
+
+        List<Result> results = new ArrayList<>();
+        for (int journeys : levels) {
+            results.add(run("platform pool (" + poolThreads + ")", Executors.newFixedThreadPool(poolThreads,
+                    VirtualThreads.threadFactory("journey-pool", false)), journeys));
+            results.add(run("platform per journey", VirtualThreads.newExecutor("journey", false), journeys));
+            if (VirtualThreads.isSupported()) {
+                results.add(run("virtual per journey", VirtualThreads.newExecutor("journey", true), journeys));
+            }
+        }
+
+        String report = toTable(results) + (VirtualThreads.isSupported() ? ""
+                : "virtual per journey: skipped, Java " + Runtime.version().feature() + " has no virtual threads\n");
+        log.info("Journey concurrency benchmark:\n{}", report);
+        AllureUtils.attachText("Journey Concurrency Benchmark", report);
+
+        // A rare dropped connection under hundreds of platform threads is part of what is measured
+        for (Result result : results) {
+            Assert.assertTrue(result.failures() <= result.journeys() / 100,
+                    result.mode() + " x " + result.journeys() + ": " + result.failures() + " failed journeys");
+        }
+    }
+
+    private Result run(String mode, ExecutorService executor, int journeys) throws Exception {
+        threads.resetPeakThreadCount();
+        peakInFlight.set(0);
+        long start = System.nanoTime();
+        int failures = 0;
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int i = 0; i < journeys; i++) {
+                futures.add(executor.submit(this::journey));
+            }
+            for (Future<?> future : futures) {
+                try {
+                    future.get(5, TimeUnit.MINUTES);
+                } catch (Exception e) {
+                    failures++;
+                    log.warn("{} journey failed", mode, e);
+                }
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        Duration wall = Duration.ofNanos(System.nanoTime() - start);
+        return new Result(mode, journeys, wall, peakInFlight.get(), threads.getPeakThreadCount(), failures);
+    }
+
+    private Void journey() throws Exception {
+        peakInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+        try {
+            return runJourney();
+        } finally {
+            inFlight.decrementAndGet();
+        }
+    }
+
+    private Void runJourney() throws Exception {
+        AppiumDriver driver = new AndroidDriver(
+                new RecordingCommandExecutor(url, PlatformType.ANDROID, SharedHttpClientFactory.getInstance()),
+                new UiAutomator2Options().setDeviceName("Fake Pixel"));
+        try {
+            return DriverManager.callWithDriver(driver, () -> {
+                AppiumDriver current = DriverManager.getDriver();
+                current.executeScript("mobile: terminateApp", Map.of("appId", APP_ID));
+                current.executeScript("mobile: deepLink",
+                        Map.of("url", "geofence://test/trigger?transition=1", "package", APP_ID));
+                awaitNotification(current);
+                return null;
+            });
+        } finally {
+            driver.quit();
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static void awaitNotification(AppiumDriver driver) throws InterruptedException {
+        long deadline = System.nanoTime() + POLL_TIMEOUT.toNanos();
+        while (System.nanoTime() < deadline) {
+            Map<String, Object> shade = (Map<String, Object>) driver.executeScript("mobile: getNotifications");
+            if (!((List<?>) shade.get("statusBarNotifications")).isEmpty()) {
+                return;
+            }
+            Thread.sleep(POLL_INTERVAL.toMillis());
+        }
+        throw new IllegalStateException("No geofence notification within " + POLL_TIMEOUT.toSeconds() + "s");
+    }
+
+    private static String toTable(List<Result> results) {
+        // JVM threads include the in-process fake server's handlers (platform threads before Java 21)
+        StringBuilder sb = new StringBuilder(String.format("%-24s %9s %10s %12s %10s %12s %9s%n",
+                "mode", "journeys", "wall", "journeys/s", "in flight", "JVM threads", "failures"));
+        for (Result r : results) {
+            sb.append(String.format("%-24s %9d %8dms %12.1f %10d %12d %9d%n", r.mode(), r.journeys(),
+                    r.wall().toMillis(), r.journeys() * 1000.0 / Math.max(1, r.wall().toMillis()),
+                    r.peakInFlight(), r.peakJvmThreads(), r.failures()));
+        }
+        return sb.toString();
+    }
+
+    private record Result(String mode, int journeys, Duration wall, int peakInFlight, int peakJvmThreads,
+                          int failures) {
+    }
+}
@@ -0,0 +1,217 @@
+package com.poc.geofence.benchmark;
+
+import com.poc.geofence.components.NotificationHandler;
+import com.poc.geofence.config.ConfigManager;
+import com.poc.geofence.config.PlatformType;
+import com.poc.geofence.driver.DriverFactory;
+import com.poc.geofence.fake.FakeAppiumServer;
+import com.poc.geofence.metrics.LatencyHistogram;
+import com.poc.geofence.pages.LocatorOptimizer;
+import com.poc.geofence.pages.android.GeofencePageAndroid;
+import com.poc.geofence.pages.ios.GeofencePageIOS;
+import com.poc.geofence.utils.AllureUtils;
+import io.appium.java_client.AppiumBy;
+import io.appium.java_client.AppiumDriver;
+import io.appium.java_client.android.AndroidDriver;
+import io.appium.java_client.android.options.UiAutomator2Options;
+import io.appium.java_client.ios.IOSDriver;
+import io.appium.java_client.ios.options.XCUITestOptions;
+import org.openqa.selenium.By;
+import org.openqa.selenium.WebElement;
+import org.openqa.selenium.remote.RemoteWebElement;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.testng.Assert;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.net.URI;
+import java.net.URL;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * Compares find latency of the XPath locators in GeofencePageAndroid, GeofencePageIOS and
+ * NotificationHandler with their {@link LocatorOptimizer} native equivalents (UiSelector,
+ * iOS class chain), and checks both forms find the same elements.
+ *
+ * <p>By default both platforms run against the fake Appium server. The fake evaluates every
+ * strategy in the JVM, so there it proves equivalence and shows per-find overhead only; the
+ * XPath penalty (serializing the whole UI tree) shows on devices. With
+ * {@code -Dbenchmark.locator.device=true} the configured platform and environment are used
+ * instead, e.g. a local emulator or a BrowserStack device.
+ * Usage: mvn test -DsuiteXml=testng-benchmark.xml [-Dbenchmark.locator.iterations=50]
+ */
+public class LocatorStrategyBenchmark {
+    private static final Logger log = LoggerFactory.getLogger(LocatorStrategyBenchmark.class);
+    private static final String APP_ID = "com.eebax.geofencing";
+    private static final int WARMUP_ITERATIONS = 10;
+
+    private final ConfigManager config = ConfigManager.getInstance();
+    private final StringBuilder report = new StringBuilder();
+    private FakeAppiumServer server;
+    private URL url;
+
+    @BeforeClass
+    public void startServer() throws Exception {
+        if (!onDevice()) {
+            server = FakeAppiumServer.builder().withEventDelay(Duration.ZERO).withLocationTransitions(false).build().start();
+            url = URI.create(server.getUrl()).toURL();
+        }
+    }
+
+    @AfterClass(alwaysRun = true)
+    public void stopServer() {
+        if (report.length() > 0) {
+            AllureUtils.attachText("Locator Strategy Benchmark", report.toString());
+        }
+        if (server != null) {
+            server.stop();
+        }
+    }
+
+    @Test
+    public void compareAndroidLocatorStrategies() {
+        compare(PlatformType.ANDROID, GeofencePageAndroid.class, NotificationHandler.class);
+    }
+
+    @Test
+    public void compareIOSLocatorStrategies() {
+        compare(PlatformType.IOS, GeofencePageIOS.class);
+    }
+
+    private void compare(PlatformType platform, Class<?>... owners) {
+        if (onDevice() && platform != config.getPlatform()) {
+            log.info("Skipping {} locators: benchmark.locator.device runs the configured platform only", platform);
+            return;
+        }
+        int iterations = Integer.parseInt(config.getProperty("benchmark.locator.iterations", "50"));
+        Map<String, LocatorOptimizer.NativeLocator> locators = new LinkedHashMap<>();
+        for (Class<?> owner : owners) {
+            locators.putAll(pageLocators(owner, platform));
+        }
+        Assert.assertFalse(locators.isEmpty(), "no translatable locators found for " + platform);
+
+        AppiumDriver driver = onDevice() ? new DriverFactory().createDriver() : fakeDriver(platform);
+        List<Row> rows = new ArrayList<>();
+        List<String> mismatches = new ArrayList<>();
+        try {
+            if (!onDevice() && platform == PlatformType.ANDROID) {
+                showTransition(driver);
+            }
+            locators.forEach((name, nativeLocator) -> {
+                By xpath = AppiumBy.xpath(nativeLocator.xpath());
+                Set<String> xpathIds = ids(driver.findElements(xpath));
+                Set<String> nativeIds = ids(driver.findElements(nativeLocator));
+                if (!xpathIds.equals(nativeIds)) {
+                    mismatches.add(name + ": xpath " + xpathIds + " vs " + nativeLocator.strategy() + " " + nativeIds);
+                }
+                time(driver, xpath, WARMUP_ITERATIONS);
+                time(driver, nativeLocator, WARMUP_ITERATIONS);
+                // Interleave the forms so drift on the device affects both equally
+                LatencyHistogram xpathLatency = new LatencyHistogram();
+                LatencyHistogram nativeLatency = new LatencyHistogram();
+                for (int i = 0; i < iterations; i++) {
+                    xpathLatency.merge(time(driver, xpath, 1));
+                    nativeLatency.merge(time(driver, nativeLocator, 1));
+                }
+                rows.add(new Row(name, nativeLocator.strategy(), xpathIds.size(),
+                        xpathLatency.snapshot(), nativeLatency.snapshot()));
+            });
+        } finally {
+            driver.quit();
+        }
+
+        String table = toTable(rows);
+        log.info("{} locator strategies ({} iterations, {}):\n{}", platform.getValue(), iterations,
+                onDevice() ? "device" : "fake server", table);
+        report.append(platform.getValue()).append(":\n").append(table).append('\n');
+        if (onDevice()) {
+            mismatches.forEach(mismatch -> log.warn("Locator forms disagree (screen may have changed): {}", mismatch));
+        } else {
+            Assert.assertTrue(mismatches.isEmpty(), "native locators must match their XPath: " + mismatches);
+        }
+    }
+
+    /**
+     * Static By fields of a class that have a native equivalent, by "Class.FIELD".
+     */
+    static Map<String, LocatorOptimizer.NativeLocator> pageLocators(Class<?> owner, PlatformType platform) {
+        Map<String, LocatorOptimizer.NativeLocator> locators = new LinkedHashMap<>();
+        for (Field field : owner.getDeclaredFields()) {
+            if (!Modifier.isStatic(field.getModifiers()) || !By.class.isAssignableFrom(field.getType())) {
+                continue;
+            }
+            try {
+                field.setAccessible(true);
+                LocatorOptimizer.nativeEquivalent((By) field.get(null), platform).ifPresent(
+                        nativeLocator -> locators.put(owner.getSimpleName() + "." + field.getName(), nativeLocator));
+            } catch (IllegalAccessException e) {
+                throw new IllegalStateException("Cannot read " + field, e);
+            }
+        }
+        return locators;
+    }
+
+    private AppiumDriver fakeDriver(PlatformType platform) {
+        return platform == PlatformType.ANDROID
+                ? new AndroidDriver(url, new UiAutomator2Options().setDeviceName("Fake Pixel"))
+                : new IOSDriver(url, new XCUITestOptions().setDeviceName("Fake iPhone"));
+    }
+
+    /**
+     * Puts the app's status text on the fake screen, so the event-text locators have a match.
+     */
+    private void showTransition(AppiumDriver driver) {
+        driver.executeScript("mobile: activateApp", Map.of("appId", APP_ID));
+        server.emitTransition("GEOFENCE_TRANSITION_EXIT");
+        By status = AppiumBy.id(APP_ID + ":id/testStatusText");
+        long deadline = System.nanoTime() + Duration.ofSeconds(5).toNanos();
+        while (driver.findElements(status).stream().allMatch(element -> element.getText().isEmpty())) {
+            Assert.assertTrue(System.nanoTime() < deadline, "fake transition not shown");
+        }
+    }
+
+    private boolean onDevice() {
+        return Boolean.parseBoolean(config.getProperty("benchmark.locator.device", "false"));
+    }
+
+    private static LatencyHistogram time(AppiumDriver driver, By locator, int iterations) {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (int i = 0; i < iterations; i++) {
+            long start = System.nanoTime();
+            driver.findElements(locator);
+            histogram.record(System.nanoTime() - start);
+        }
+        return histogram;
+    }
+
+    private static Set<String> ids(List<WebElement> elements) {
+        Set<String> ids = new TreeSet<>();
+        elements.forEach(element -> ids.add(((RemoteWebElement) element).getId()));
+        return ids;
+    }
+
+    private static String toTable(List<Row> rows) {
+        StringBuilder sb = new StringBuilder(String.format("%-46s %-20s %7s %12s %12s %12s %12s%n",
+                "locator", "native strategy", "matches", "xpath p50", "native p50", "xpath p95", "native p95"));
+        for (Row row : rows) {
+            sb.append(String.format("%-46s %-20s %7d %9.2f ms %9.2f ms %9.2f ms %9.2f ms%n", row.name(), row.strategy(),
+                    row.matches(), row.xpath().p50Micros() / 1000.0, row.nativeForm().p50Micros() / 1000.0,
+                    row.xpath().p95Micros() / 1000.0, row.nativeForm().p95Micros() / 1000.0));
+        }
+        return sb.toString();
+    }
+
+    private record Row(String name, String strategy, int matches,
+                       LatencyHistogram.Snapshot xpath, LatencyHistogram.Snapshot nativeForm) {
+    }
+}
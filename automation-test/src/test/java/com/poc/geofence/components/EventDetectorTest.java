@@ -0,0 +1,113 @@
+package com.poc.geofence.components;
+
+import com.poc.geofence.components.EventDetector.Source;
+import com.poc.geofence.metrics.CommandMetrics;
+import com.poc.geofence.metrics.SleepBudget;
+import org.openqa.selenium.WebDriverException;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.time.Duration;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Unit tests for EventDetector source selection and shade gating.
+ */
+public class EventDetectorTest {
+    private static final String EXIT = "Test: GEOFENCE_TRANSITION_EXIT";
+
+    @Test
+    public void probesSlowUnproductiveSourcesLessOften() {
+        for (int wait = 0; wait < 3; wait++) {
+            AtomicInteger statusCalls = new AtomicInteger();
+            Optional<EventDetector.Detection> detection = detector("learning-device")
+                    .withProbe(Source.STATUS, () -> statusCalls.incrementAndGet() >= 3 ? EXIT : "")
+                    .withProbe(Source.TOAST, () -> {
+                        sleep(15);
+                        return "";
+                    })
+                    .build()
+                    .await(EXIT, Duration.ofSeconds(2));
+            Assert.assertEquals(detection.orElseThrow().source(), Source.STATUS);
+        }
+
+        EventDetector detector = detector("learning-device")
+                .withProbe(Source.STATUS, () -> "")
+                .withProbe(Source.TOAST, () -> "")
+                .build();
+        Assert.assertEquals(detector.model(Source.STATUS).hits(), 3);
+        Assert.assertEquals(detector.roundPlan(0, EnumSet.noneOf(Source.class)), List.of(Source.STATUS, Source.TOAST));
+        Assert.assertEquals(detector.roundPlan(1, EnumSet.noneOf(Source.class)), List.of(Source.STATUS));
+        Assert.assertTrue(detector.model(Source.TOAST).probes() < detector.model(Source.STATUS).probes());
+    }
+
+    @Test
+    public void recordsEachWaitInTheSleepBudget() {
+        CommandMetrics.getInstance().startTest("EventDetectorTest");
+        try {
+            detector("budget-device").withProbe(Source.STATUS, () -> EXIT).build().await(EXIT, Duration.ofSeconds(2));
+            detector("budget-device").withProbe(Source.STATUS, () -> "").build().await(EXIT, Duration.ofMillis(100));
+
+            SleepBudget.SiteStats site = SleepBudget.getInstance().forTest("EventDetectorTest").stream()
+                    .filter(s -> s.site().equals("event detection")).findFirst().orElseThrow();
+            Assert.assertEquals(site.waits(), 2);
+            Assert.assertEquals(site.fallbacks(), 1);
+            Assert.assertEquals(site.boundMillis(), 2100);
+            Assert.assertTrue(site.waitMillis() >= 100, "waited " + site.waitMillis() + "ms");
+        } finally {
+            CommandMetrics.getInstance().endTest();
+        }
+    }
+
+    @Test
+    public void opensShadeOnlyAfterCheaperSourcesMissed() {
+        AtomicInteger shadeCalls = new AtomicInteger();
+        Optional<EventDetector.Detection> detection = detector("shade-device")
+                .withProbe(Source.STATUS, () -> "Test: ready")
+                .withProbe(Source.SHADE, () -> {
+                    shadeCalls.incrementAndGet();
+                    return "Geofence " + EXIT;
+                })
+                .withShade(Duration.ofMillis(150), Duration.ofSeconds(5))
+                .build()
+                .await(EXIT, Duration.ofSeconds(2));
+
+        Assert.assertEquals(detection.orElseThrow().source(), Source.SHADE);
+        Assert.assertEquals(shadeCalls.get(), 1);
+        Assert.assertTrue(detection.get().elapsed().toMillis() >= 150);
+        Assert.assertEquals(Source.SHADE.timelineName(), "notification");
+    }
+
+    @Test
+    public void stopsProbingSourcesThatFail() {
+        AtomicInteger apiCalls = new AtomicInteger();
+        Optional<EventDetector.Detection> detection = detector("no-api-device")
+                .withProbe(Source.NOTIFICATIONS, () -> {
+                    apiCalls.incrementAndGet();
+                    throw new WebDriverException("Unknown mobile command");
+                })
+                .withProbe(Source.STATUS, () -> "")
+                .build()
+                .await(EXIT, Duration.ofMillis(300));
+
+        Assert.assertTrue(detection.isEmpty());
+        Assert.assertEquals(apiCalls.get(), 1);
+    }
+
+    private static EventDetector.Builder detector(String deviceId) {
+        return EventDetector.builder(deviceId)
+                .withPollIntervals(Duration.ofMillis(10), Duration.ofMillis(40))
+                .withShade(Duration.ofMinutes(1), Duration.ofMinutes(1));
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
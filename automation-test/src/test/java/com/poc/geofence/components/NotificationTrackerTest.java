@@ -0,0 +1,94 @@
+package com.poc.geofence.components;
+
+import com.poc.geofence.components.NotificationEvent.Transition;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Unit tests for NotificationTracker incremental reads and staleness filtering.
+ */
+public class NotificationTrackerTest {
+    private static final Instant T0 = Instant.parse("2026-10-17T10:00:00Z");
+
+    @Test
+    public void processesOnlyNewOrUpdatedNotifications() {
+        NotificationTracker tracker = new NotificationTracker(10, Duration.ZERO);
+        Map<String, Object> exit = entry(1, T0, "Test: GEOFENCE_TRANSITION_EXIT");
+        Map<String, Object> other = entry(2, T0, "Location sharing is on");
+
+        List<NotificationEvent> first = tracker.update(shade(exit, other), T0.plusSeconds(1));
+        Assert.assertEquals(first.stream().map(NotificationEvent::transition).toList(),
+                List.of(Transition.EXIT, Transition.NONE));
+        Assert.assertEquals(first.get(0).content(), "Geofence Transition Test: GEOFENCE_TRANSITION_EXIT");
+        Assert.assertTrue(tracker.update(shade(exit, other), T0.plusSeconds(2)).isEmpty());
+
+        // The app reuses its notification id for the next transition
+        Map<String, Object> enter = entry(1, T0.plusSeconds(5), "Test: GEOFENCE_TRANSITION_ENTER");
+        List<NotificationEvent> updated = tracker.update(shade(enter, other), T0.plusSeconds(6));
+        Assert.assertEquals(updated.size(), 1);
+        Assert.assertEquals(updated.get(0).transition(), Transition.ENTER);
+        Assert.assertEquals(tracker.history().size(), 2);
+    }
+
+    @Test
+    public void filtersStaleNotificationsAndBoundsHistory() {
+        NotificationTracker tracker = new NotificationTracker(2, Duration.ofSeconds(1));
+        tracker.update(shade(entry(1, T0, "Test: GEOFENCE_TRANSITION_EXIT"),
+                entry(2, T0.plusSeconds(10), "Test: GEOFENCE_TRANSITION_EXIT"),
+                entry(3, T0.plusSeconds(20), "Test: GEOFENCE_TRANSITION_ENTER")), T0.plusSeconds(21));
+
+        Assert.assertEquals(tracker.history().stream().map(NotificationEvent::postedAt).toList(),
+                List.of(T0.plusSeconds(10), T0.plusSeconds(20)), "oldest entry dropped");
+        Assert.assertEquals(tracker.postedSince(T0.plusMillis(20_500)).size(), 1, "within clock skew");
+        Assert.assertTrue(tracker.postedSince(T0.plusSeconds(30)).isEmpty());
+    }
+
+    @Test
+    public void acceptsPlainListWithoutKeysOrPostTimes() {
+        NotificationTracker tracker = new NotificationTracker(10, Duration.ZERO);
+        List<Object> plain = List.of(Map.of("title", "Geofence", "text", "GEOFENCE_TRANSITION_DWELL",
+                "bigText", "GEOFENCE_TRANSITION_DWELL"));
+
+        NotificationEvent event = tracker.update(plain, T0).get(0);
+        Assert.assertEquals(event.text(), "GEOFENCE_TRANSITION_DWELL");
+        Assert.assertEquals(event.postedAt(), Instant.EPOCH, "age unknown at the first read");
+        Assert.assertEquals(event.transition(), Transition.DWELL);
+        Assert.assertTrue(tracker.update(plain, T0.plusSeconds(1)).isEmpty());
+    }
+
+    @Test
+    public void treatsNotificationsWithoutPostTimeFromBeforeTheTriggerAsStale() {
+        NotificationTracker tracker = new NotificationTracker(10, Duration.ZERO);
+        Map<String, Object> old = Map.of("title", "Geofence", "text", "Test: GEOFENCE_TRANSITION_EXIT");
+        Instant trigger = T0.plusSeconds(10);
+
+        // First read only after the trigger: the old notification must not count as posted since
+        tracker.update(List.of(old), trigger.plusSeconds(1));
+        Assert.assertTrue(tracker.postedSince(trigger).isEmpty());
+        Assert.assertTrue(tracker.isStaleText("Test: GEOFENCE_TRANSITION_EXIT", trigger));
+
+        // One that appears between reads is dated at the read that first showed it
+        Map<String, Object> exit = Map.of("title", "Geofence", "text", "Test: GEOFENCE_TRANSITION_EXIT again");
+        tracker.update(List.of(old, exit), trigger.plusSeconds(2));
+        Assert.assertEquals(tracker.postedSince(trigger).stream().map(NotificationEvent::text).toList(),
+                List.of("Test: GEOFENCE_TRANSITION_EXIT again"));
+        Assert.assertFalse(tracker.isStaleText("Test: GEOFENCE_TRANSITION_EXIT", trigger), "also in the new one");
+        Assert.assertFalse(tracker.isStaleText("Location sharing is on", trigger), "never read, age unknown");
+    }
+
+    private static Map<String, Object> entry(int id, Instant postTime, String text) {
+        return Map.of("packageName", "com.eebax.geofencing", "id", id,
+                "key", "0|com.eebax.geofencing|" + id + "|null|10001", "postTime", postTime.toEpochMilli(),
+                "notification", Map.of("title", "Geofence Transition", "text", text));
+    }
+
+    @SafeVarargs
+    private static Map<String, Object> shade(Map<String, Object>... entries) {
+        return Map.of("statusBarNotifications", List.of(entries));
+    }
+}
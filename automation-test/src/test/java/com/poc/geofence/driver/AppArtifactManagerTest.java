@@ -0,0 +1,127 @@
+package com.poc.geofence.driver;
+
+import com.sun.net.httpserver.HttpServer;
+import org.testng.Assert;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Unit tests for AppArtifactManager with BrowserStackAppUploader against a local upload stand-in.
+ */
+public class AppArtifactManagerTest {
+    private HttpServer server;
+    private String apiUrl;
+    private final List<String> uploads = new CopyOnWriteArrayList<>();
+    private Path dir;
+
+    @BeforeClass
+    public void startStub() throws Exception {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/app-automate/upload", exchange -> {
+            String body = new String(exchange.getRequestBody().readAllBytes(), StandardCharsets.ISO_8859_1);
+            uploads.add(body);
+            byte[] response = ("{\"app_url\":\"bs://upload" + uploads.size() + "\"}").getBytes(StandardCharsets.UTF_8);
+            exchange.sendResponseHeaders(200, response.length);
+            exchange.getResponseBody().write(response);
+            exchange.close();
+        });
+        server.start();
+        apiUrl = "http://127.0.0.1:" + server.getAddress().getPort();
+    }
+
+    @AfterClass(alwaysRun = true)
+    public void stopStub() {
+        server.stop(0);
+    }
+
+    @BeforeMethod
+    public void setUp() throws Exception {
+        uploads.clear();
+        dir = Files.createTempDirectory("app-artifacts");
+    }
+
+    @Test
+    public void uploadsEachBinaryOnce() throws Exception {
+        Path apk = Files.writeString(dir.resolve("app-debug.apk"), "apk v1");
+        Path cache = dir.resolve("cache/app-uploads.json");
+
+        String first = manager(cache, Clock.systemUTC()).resolve(apk.toString());
+        AppArtifactManager manager = manager(cache, Clock.systemUTC());
+        String again = manager.resolve(apk.toString());
+
+        Assert.assertEquals(first, "bs://upload1");
+        Assert.assertEquals(again, first, "a new manager should reuse the persisted upload");
+        Assert.assertEquals(uploads.size(), 1);
+        Assert.assertTrue(uploads.get(0).contains("name=\"custom_id\""), uploads.get(0));
+        Assert.assertTrue(uploads.get(0).contains("filename=\"app-debug.apk\""), uploads.get(0));
+        Assert.assertTrue(uploads.get(0).contains("apk v1"), uploads.get(0));
+
+        Files.writeString(apk, "apk v2");
+        Files.setLastModifiedTime(apk, FileTime.from(Instant.now().plusSeconds(5)));
+        Assert.assertEquals(manager.resolve(apk.toString()), "bs://upload2", "changed content needs a new upload");
+    }
+
+    @Test
+    public void reuploadsExpiredEntries() throws Exception {
+        Path apk = Files.writeString(dir.resolve("app.apk"), "apk");
+        Path cache = dir.resolve("app-uploads.json");
+        Instant start = Instant.parse("2026-01-01T00:00:00Z");
+
+        manager(cache, Clock.fixed(start, ZoneOffset.UTC)).resolve(apk.toString());
+        manager(cache, Clock.fixed(start.plus(Duration.ofDays(28)), ZoneOffset.UTC)).resolve(apk.toString());
+        Assert.assertEquals(uploads.size(), 1);
+
+        manager(cache, Clock.fixed(start.plus(Duration.ofDays(30)), ZoneOffset.UTC)).resolve(apk.toString());
+        Assert.assertEquals(uploads.size(), 2);
+    }
+
+    @Test
+    public void cachesPerAccountAndReuploadsEvictedEntries() throws Exception {
+        Path apk = Files.writeString(dir.resolve("app.apk"), "apk");
+        Path cache = dir.resolve("app-uploads.json");
+
+        String first = manager(cache, Clock.systemUTC()).resolve(apk.toString());
+        AppArtifactManager otherAccount = new AppArtifactManager(
+                new BrowserStackAppUploader(apiUrl, "teammate", "key"), cache, Duration.ofDays(29), Clock.systemUTC());
+        Assert.assertEquals(otherAccount.resolve(apk.toString()), "bs://upload2",
+                "ids do not carry over between accounts");
+
+        // The hub rejected the cached id, e.g. BrowserStack deleted the upload early
+        AppArtifactManager manager = manager(cache, Clock.systemUTC());
+        Assert.assertEquals(manager.cachedUpload(apk.toString()).orElseThrow(), first);
+        Assert.assertTrue(manager.evict(apk.toString()));
+        Assert.assertFalse(manager.evict(apk.toString()), "nothing left to evict");
+        Assert.assertTrue(manager(cache, Clock.systemUTC()).cachedUpload(apk.toString()).isEmpty(),
+                "eviction is persisted");
+        Assert.assertEquals(manager.resolve(apk.toString()), "bs://upload3");
+        Assert.assertEquals(otherAccount.resolve(apk.toString()), "bs://upload2");
+        Assert.assertEquals(uploads.size(), 3);
+    }
+
+    @Test
+    public void passesCloudIdsThrough() {
+        AppArtifactManager manager = manager(dir.resolve("app-uploads.json"), Clock.systemUTC());
+
+        Assert.assertEquals(manager.resolve("bs://e33d5d4f475a"), "bs://e33d5d4f475a");
+        Assert.assertNull(manager.resolve(null));
+        Assert.assertTrue(uploads.isEmpty());
+    }
+
+    private AppArtifactManager manager(Path cache, Clock clock) {
+        return new AppArtifactManager(new BrowserStackAppUploader(apiUrl, "user", "key"), cache, Duration.ofDays(29), clock);
+    }
+}
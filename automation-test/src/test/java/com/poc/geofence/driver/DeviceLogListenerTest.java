@@ -0,0 +1,110 @@
+package com.poc.geofence.driver;
+
+import com.poc.geofence.fake.FakeLogBroadcastServer;
+import io.appium.java_client.AppiumDriver;
+import org.openqa.selenium.WebDriver;
+import org.openqa.selenium.WebDriverException;
+import org.openqa.selenium.logging.LogEntries;
+import org.openqa.selenium.logging.LogEntry;
+import org.openqa.selenium.logging.Logs;
+import org.openqa.selenium.remote.SessionId;
+import org.testng.Assert;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.Test;
+
+import java.net.URL;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Unit tests for DeviceLogListener against a websocket stand-in and a polled log.
+ */
+public class DeviceLogListenerTest {
+    private static final long T0 = 1_700_000_000_000L;
+
+    @AfterClass(alwaysRun = true)
+    public void tearDown() {
+        System.clearProperty("device.log.poll.ms");
+    }
+
+    @Test
+    public void queuesTransitionsFromLogBroadcast() throws Exception {
+        try (FakeLogBroadcastServer server = new FakeLogBroadcastServer()) {
+            AppiumDriver driver = mock(AppiumDriver.class);
+            when(driver.getRemoteAddress()).thenReturn(new URL(server.getUrl()));
+            when(driver.getSessionId()).thenReturn(new SessionId("abc"));
+
+            try (DeviceLogListener listener = DeviceLogListener.start(driver).orElseThrow()) {
+                Assert.assertEquals(listener.mode(), DeviceLogListener.Mode.BROADCAST);
+                Assert.assertTrue(server.awaitClient(Duration.ofSeconds(5)));
+                Assert.assertEquals(server.paths(), List.of("/ws/session/abc/appium/device/logcat"));
+                Assert.assertFalse(listener.hasSeenTransitions());
+
+                server.send("D/MapsActivity: camera idle");
+                server.send("{\"timestamp\":" + T0 + ",\"level\":\"INFO\",\"message\":"
+                        + "\"I/GeofenceBroadcastReceiver: GEOFENCE_TRANSITION_EXIT: Home\"}");
+                Optional<DeviceLogListener.LogEvent> exit =
+                        listener.await("GEOFENCE_TRANSITION_EXIT", Instant.EPOCH, Duration.ofSeconds(5));
+
+                Assert.assertEquals(exit.orElseThrow().transition(), "GEOFENCE_TRANSITION_EXIT");
+                Assert.assertEquals(exit.get().at(), Instant.ofEpochMilli(T0));
+                Assert.assertTrue(listener.hasSeenTransitions());
+                Assert.assertTrue(listener.await("GEOFENCE_TRANSITION_EXIT", Instant.EPOCH, Duration.ofMillis(100))
+                        .isEmpty(), "each event is handed out once");
+            }
+        }
+    }
+
+    @Test
+    public void pollsLogWithCursorWhenBroadcastIsUnavailable() {
+        System.setProperty("device.log.poll.ms", "20");
+        LogEntry old = new LogEntry(Level.INFO, T0, "GEOFENCE_TRANSITION_EXIT: before listening");
+        LogEntry enter = new LogEntry(Level.INFO, T0 + 10, "GEOFENCE_TRANSITION_ENTER: Home");
+        AtomicInteger reads = new AtomicInteger();
+        Logs logs = mock(Logs.class);
+        // Servers that keep returning the whole log must not yield duplicates
+        when(logs.get(anyString())).thenAnswer(invocation -> reads.getAndIncrement() == 0
+                ? new LogEntries(List.of(old)) : new LogEntries(List.of(old, enter)));
+        WebDriver.Options options = mock(WebDriver.Options.class);
+        when(options.logs()).thenReturn(logs);
+        AppiumDriver driver = mock(AppiumDriver.class);
+        when(driver.executeScript("mobile: startLogsBroadcast"))
+                .thenThrow(new WebDriverException("Unknown mobile command"));
+        when(driver.manage()).thenReturn(options);
+        when(driver.getSessionId()).thenReturn(new SessionId("def"));
+
+        try (DeviceLogListener listener = DeviceLogListener.start(driver).orElseThrow()) {
+            Assert.assertEquals(listener.mode(), DeviceLogListener.Mode.POLLING);
+            Assert.assertTrue(listener.await("GEOFENCE_TRANSITION_ENTER", Instant.EPOCH, Duration.ofSeconds(2))
+                    .isPresent());
+            Assert.assertTrue(listener.poll("GEOFENCE_TRANSITION_EXIT", Instant.EPOCH).isEmpty(),
+                    "logged before the listener started");
+            Assert.assertTrue(listener.poll("GEOFENCE_TRANSITION_ENTER", Instant.EPOCH).isEmpty());
+        }
+    }
+
+    @Test
+    public void skipsEventsLoggedBeforeTheStimulus() {
+        AppiumDriver driver = mock(AppiumDriver.class);
+        DeviceLogListener listener = new DeviceLogListener(driver);
+        Instant stimulus = Instant.ofEpochMilli(T0 + 1000);
+        // A location-driven EXIT logged before the deep-link EXIT the test waits for
+        listener.onLine("{\"timestamp\":" + T0 + ",\"message\":\"GEOFENCE_TRANSITION_EXIT: Home\"}", Instant.now());
+
+        Assert.assertTrue(listener.await("GEOFENCE_TRANSITION_EXIT", stimulus, Duration.ofMillis(50)).isEmpty());
+
+        listener.onLine("{\"timestamp\":" + (T0 + 1500) + ",\"message\":\"GEOFENCE_TRANSITION_EXIT: Home\"}",
+                Instant.now());
+        Assert.assertEquals(listener.poll("GEOFENCE_TRANSITION_EXIT", stimulus).orElseThrow().at(),
+                Instant.ofEpochMilli(T0 + 1500));
+        Assert.assertTrue(listener.poll("GEOFENCE_TRANSITION_EXIT", Instant.EPOCH).isEmpty(), "stale event was dropped");
+    }
+}
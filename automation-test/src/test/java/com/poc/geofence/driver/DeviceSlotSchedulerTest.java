@@ -0,0 +1,82 @@
+package com.poc.geofence.driver;
+
+import com.poc.geofence.config.Environment;
+import com.poc.geofence.config.PlatformType;
+import io.appium.java_client.AppiumDriver;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.time.Duration;
+import java.util.List;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+
+/**
+ * Unit tests for DeviceSlotScheduler capacity, utilization and pool integration.
+ */
+public class DeviceSlotSchedulerTest {
+
+    @Test
+    public void neverGrantsMoreSlotsThanCapacity() {
+        DeviceSlotScheduler scheduler = new DeviceSlotScheduler(2);
+
+        DeviceSlotScheduler.Slot first = scheduler.tryAcquire();
+        DeviceSlotScheduler.Slot second = scheduler.tryAcquire();
+
+        Assert.assertNotNull(first);
+        Assert.assertNotNull(second);
+        Assert.assertNull(scheduler.tryAcquire());
+
+        first.release();
+        first.release(); // idempotent
+        Assert.assertNotNull(scheduler.tryAcquire());
+        Assert.assertNull(scheduler.tryAcquire());
+        Assert.assertEquals(scheduler.stats().peak(), 2);
+    }
+
+    @Test
+    public void reportsUtilizationOfHeldSlots() throws Exception {
+        DeviceSlotScheduler scheduler = new DeviceSlotScheduler(2);
+
+        DeviceSlotScheduler.Slot slot = scheduler.tryAcquire();
+        Thread.sleep(50);
+        slot.release();
+
+        // One of two slots busy for the whole window
+        Assert.assertEquals(scheduler.stats().utilization(), 0.5, 0.05);
+    }
+
+    @Test
+    public void poolEvictsIdleSessionOfAnotherDeviceWhenCapReached() {
+        DeviceSlotScheduler scheduler = new DeviceSlotScheduler(1);
+        DriverPool pool = new DriverPool(Duration.ofMinutes(1), (key, driver) -> true, (key, driver) -> { },
+                scheduler, Duration.ofSeconds(5));
+        SessionKey pixel = new SessionKey(PlatformType.ANDROID, Environment.BROWSERSTACK, "Google Pixel 7", "13");
+        SessionKey galaxy = new SessionKey(PlatformType.ANDROID, Environment.BROWSERSTACK, "Samsung Galaxy S23", "13");
+
+        AppiumDriver pixelDriver = pool.lease(pixel, () -> mock(AppiumDriver.class));
+        pool.release(pixelDriver);
+        AppiumDriver galaxyDriver = pool.lease(galaxy, () -> mock(AppiumDriver.class));
+
+        verify(pixelDriver).quit();
+        Assert.assertNotSame(galaxyDriver, pixelDriver);
+        Assert.assertEquals(scheduler.stats().peak(), 1);
+    }
+
+    @Test
+    public void parsesDeviceMatrix() {
+        List<DeviceProfile> devices = DeviceProfile.parseMatrix(
+                "android:Google Pixel 7:13, ios:iPhone 14:16");
+
+        Assert.assertEquals(devices, List.of(
+                new DeviceProfile(PlatformType.ANDROID, "Google Pixel 7", "13"),
+                new DeviceProfile(PlatformType.IOS, "iPhone 14", "16")));
+        Assert.assertTrue(DeviceProfile.parseMatrix("").isEmpty());
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void rejectsMalformedMatrixEntry() {
+        DeviceProfile.parseMatrix("android:Google Pixel 7");
+    }
+}
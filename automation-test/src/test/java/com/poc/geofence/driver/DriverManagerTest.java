@@ -0,0 +1,67 @@
+package com.poc.geofence.driver;
+
+import com.poc.geofence.utils.VirtualThreads;
+import io.appium.java_client.AppiumDriver;
+import org.testng.Assert;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.Test;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+/**
+ * Unit tests for DriverManager's thread and scoped driver bindings.
+ */
+public class DriverManagerTest {
+
+    @AfterMethod(alwaysRun = true)
+    public void tearDown() {
+        DriverManager.quitDriver();
+    }
+
+    @Test
+    public void propagatedTaskSeesCallersDriverOnAnotherThread() throws Exception {
+        AppiumDriver driver = mock(AppiumDriver.class);
+        DriverManager.setDriver(driver);
+        ExecutorService executor = VirtualThreads.newExecutor("driver-manager-test");
+        try {
+            Assert.assertSame(executor.submit(DriverManager.propagate(DriverManager::getDriver)).get(5, TimeUnit.SECONDS),
+                    driver);
+            Assert.assertFalse(executor.submit(DriverManager::hasDriver).get(5, TimeUnit.SECONDS),
+                    "a plain task must not inherit the driver");
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void scopedBindingShadowsAndRestores() throws Exception {
+        AppiumDriver owned = mock(AppiumDriver.class);
+        AppiumDriver outer = mock(AppiumDriver.class);
+        AppiumDriver inner = mock(AppiumDriver.class);
+        DriverManager.setDriver(owned);
+
+        DriverManager.callWithDriver(outer, () -> {
+            Assert.assertSame(DriverManager.getDriver(), outer);
+            DriverManager.runWithDriver(inner, () -> Assert.assertSame(DriverManager.getDriver(), inner));
+            Assert.assertSame(DriverManager.getDriver(), outer);
+            return null;
+        });
+
+        Assert.assertSame(DriverManager.getDriver(), owned);
+    }
+
+    @Test
+    public void borrowedDriverIsNeverReleased() {
+        AppiumDriver driver = mock(AppiumDriver.class);
+
+        DriverManager.runWithDriver(driver, DriverManager::releaseDriver);
+
+        verify(driver, never()).quit();
+        Assert.assertFalse(DriverManager.hasDriver());
+    }
+}
@@ -0,0 +1,233 @@
+package com.poc.geofence.driver;
+
+import com.poc.geofence.config.Environment;
+import com.poc.geofence.config.PlatformType;
+import io.appium.java_client.AppiumDriver;
+import org.openqa.selenium.remote.SessionId;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Unit tests for DriverPool lease/release, eviction and health checks.
+ */
+public class DriverPoolTest {
+    private static final SessionKey PIXEL = new SessionKey(
+            PlatformType.ANDROID, Environment.BROWSERSTACK, "Google Pixel 7", "13");
+    private static final SessionKey IPHONE = new SessionKey(
+            PlatformType.IOS, Environment.BROWSERSTACK, "iPhone 14", "16");
+
+    private AppiumDriver newDriver() {
+        AppiumDriver driver = mock(AppiumDriver.class);
+        when(driver.getSessionId()).thenReturn(new SessionId("s-" + System.nanoTime()));
+        return driver;
+    }
+
+    @Test
+    public void releasedSessionIsReusedForSameKey() {
+        AtomicInteger resets = new AtomicInteger();
+        DriverPool pool = new DriverPool(Duration.ofMinutes(1),
+                (key, driver) -> true, (key, driver) -> resets.incrementAndGet());
+
+        AppiumDriver first = pool.lease(PIXEL, this::newDriver);
+        pool.release(first);
+        AppiumDriver second = pool.lease(PIXEL, this::newDriver);
+
+        Assert.assertSame(second, first);
+        Assert.assertEquals(resets.get(), 1);
+        Assert.assertEquals(pool.stats().hits(), 1);
+        Assert.assertEquals(pool.stats().misses(), 1);
+        verify(first, never()).quit();
+    }
+
+    @Test
+    public void sessionsAreNotSharedAcrossKeys() {
+        DriverPool pool = new DriverPool(Duration.ofMinutes(1), (key, driver) -> true, (key, driver) -> { });
+
+        AppiumDriver android = pool.lease(PIXEL, this::newDriver);
+        pool.release(android);
+        AppiumDriver ios = pool.lease(IPHONE, this::newDriver);
+
+        Assert.assertNotSame(ios, android);
+        Assert.assertEquals(pool.stats().misses(), 2);
+        Assert.assertEquals(pool.stats().idle(), 1);
+    }
+
+    @Test
+    public void unhealthySessionIsQuitAndReplaced() {
+        DriverPool pool = new DriverPool(Duration.ofMinutes(1), (key, driver) -> false, (key, driver) -> { });
+
+        AppiumDriver stale = pool.lease(PIXEL, this::newDriver);
+        pool.release(stale);
+        AppiumDriver fresh = pool.lease(PIXEL, this::newDriver);
+
+        Assert.assertNotSame(fresh, stale);
+        verify(stale).quit();
+        Assert.assertEquals(pool.stats().healthCheckFailures(), 1);
+    }
+
+    @Test
+    public void idleSessionBeyondMaxIdleIsEvicted() {
+        DriverPool pool = new DriverPool(Duration.ZERO, (key, driver) -> true, (key, driver) -> { });
+
+        AppiumDriver driver = pool.lease(PIXEL, this::newDriver);
+        pool.release(driver);
+
+        Assert.assertEquals(pool.evictIdle(), 1);
+        verify(driver).quit();
+        Assert.assertEquals(pool.stats().idle(), 0);
+    }
+
+    @Test
+    public void releaseEvictsExpiredSessionsOfOtherDevices() {
+        DriverPool pool = new DriverPool(Duration.ZERO, (key, driver) -> true, (key, driver) -> { });
+
+        AppiumDriver android = pool.lease(PIXEL, this::newDriver);
+        pool.release(android);
+        AppiumDriver ios = pool.lease(IPHONE, this::newDriver);
+        pool.release(ios);
+
+        verify(android).quit();
+        verify(ios, never()).quit();
+        Assert.assertEquals(pool.stats().evictions(), 1);
+        Assert.assertEquals(pool.stats().idle(), 1);
+    }
+
+    @Test
+    public void discardQuitsWithoutResetAndEndsTheLease() {
+        AtomicInteger resets = new AtomicInteger();
+        DriverPool pool = new DriverPool(Duration.ofMinutes(1),
+                (key, driver) -> true, (key, driver) -> resets.incrementAndGet());
+
+        AppiumDriver released = pool.lease(PIXEL, this::newDriver);
+        Assert.assertEquals(pool.lastLease().source(), DriverPool.LeaseSource.MISS);
+        pool.release(released);
+        Assert.assertNull(pool.lastLease(), "released with the session");
+
+        AppiumDriver dead = pool.lease(PIXEL, this::newDriver);
+        pool.discard(dead);
+
+        verify(dead).quit();
+        Assert.assertEquals(resets.get(), 1);
+        Assert.assertNull(pool.lastLease());
+        Assert.assertEquals(pool.stats().leased(), 0);
+        Assert.assertEquals(pool.stats().idle(), 0);
+    }
+
+    @Test
+    public void quitHooksRunForEverySessionThePoolQuits() {
+        List<AppiumDriver> quit = new CopyOnWriteArrayList<>();
+        DriverPool pool = new DriverPool(Duration.ofMinutes(1), (key, driver) -> false, (key, driver) -> { });
+        pool.onQuit(quit::add);
+
+        AppiumDriver unhealthy = pool.lease(PIXEL, this::newDriver);
+        pool.release(unhealthy);
+        AppiumDriver leased = pool.lease(PIXEL, this::newDriver);
+        AppiumDriver idle = pool.lease(IPHONE, this::newDriver);
+        pool.release(idle);
+        pool.shutdown();
+
+        Assert.assertEquals(quit, List.of(unhealthy, idle), "leased sessions stay with their owner");
+        verify(leased, never()).quit();
+    }
+
+    @Test
+    public void failedResetDiscardsSession() {
+        DriverPool pool = new DriverPool(Duration.ofMinutes(1), (key, driver) -> true,
+                (key, driver) -> { throw new IllegalStateException("app crashed"); });
+
+        AppiumDriver driver = pool.lease(PIXEL, this::newDriver);
+        pool.release(driver);
+
+        verify(driver).quit();
+        Assert.assertEquals(pool.stats().idle(), 0);
+    }
+
+    @Test
+    public void leaseClaimsPendingPrefetch() {
+        DriverPool pool = new DriverPool(Duration.ofMinutes(1), (key, driver) -> true, (key, driver) -> { });
+        AppiumDriver prefetched = newDriver();
+
+        pool.prefetch(IPHONE, () -> prefetched, Runnable::run);
+        AppiumDriver leased = pool.lease(IPHONE, this::newDriver);
+
+        Assert.assertSame(leased, prefetched);
+        Assert.assertEquals(pool.stats().prefetchHits(), 1);
+        Assert.assertEquals(pool.stats().misses(), 0);
+        Assert.assertEquals(pool.lastLease().source(), DriverPool.LeaseSource.PREFETCHED);
+    }
+
+    @Test
+    public void cancelledInFlightPrefetchIsRecycledIntoPool() throws Exception {
+        DriverPool pool = new DriverPool(Duration.ofMinutes(1), (key, driver) -> true, (key, driver) -> { });
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        AppiumDriver prefetched = newDriver();
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            pool.prefetch(IPHONE, () -> {
+                started.countDown();
+                awaitQuietly(release);
+                return prefetched;
+            }, executor);
+
+            // Cancel only once the creation is in flight; before that it would be skipped
+            Assert.assertTrue(started.await(5, TimeUnit.SECONDS));
+            Assert.assertEquals(pool.cancelPrefetches(), 1);
+            release.countDown();
+            executor.shutdown();
+            executor.awaitTermination(5, TimeUnit.SECONDS);
+
+            Assert.assertSame(pool.lease(IPHONE, this::newDriver), prefetched);
+            Assert.assertEquals(pool.stats().prefetchCancels(), 1);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void prefetchCancelledBeforeStartNeverCreatesSession() throws Exception {
+        DriverPool pool = new DriverPool(Duration.ofMinutes(1), (key, driver) -> true, (key, driver) -> { });
+        AtomicInteger created = new AtomicInteger();
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        CountDownLatch blocker = new CountDownLatch(1);
+        try {
+            executor.execute(() -> awaitQuietly(blocker));
+            pool.prefetch(PIXEL, () -> {
+                created.incrementAndGet();
+                return newDriver();
+            }, executor);
+
+            pool.cancelPrefetches();
+            blocker.countDown();
+            executor.shutdown();
+            executor.awaitTermination(5, TimeUnit.SECONDS);
+
+            Assert.assertEquals(created.get(), 0);
+            Assert.assertEquals(pool.stats().idle(), 0);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private static void awaitQuietly(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,167 @@
+package com.poc.geofence.driver;
+
+import com.poc.geofence.config.Environment;
+import com.poc.geofence.config.PlatformType;
+import com.poc.geofence.driver.PreflightReport.Status;
+import com.sun.net.httpserver.HttpServer;
+import org.testng.Assert;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Clock;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * Unit tests for PreflightChecker against a stub hub and BrowserStack API.
+ */
+public class PreflightCheckerTest {
+    private static final String APP_ID = "bs://e33d5d4f475a627432c0447088b2031492437772";
+    private HttpServer server;
+    private String baseUrl;
+
+    @BeforeClass
+    public void startStub() throws Exception {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        respond("/wd/hub/status", 200, "{\"value\":{\"ready\":true}}");
+        respond("/expired/app-automate/plan.json", 403,
+                "{\"message\":\"App Automate testing time has expired.\"}");
+        respond("/expired/app-automate/recent_apps", 200,
+                "[{\"app_name\":\"app-debug.apk\",\"app_url\":\"" + APP_ID + "\"}]");
+        respond("/empty/app-automate/plan.json", 200,
+                "{\"automate_plan\":\"Free Trial\",\"parallel_sessions_running\":0,\"parallel_sessions_max_allowed\":1}");
+        respond("/empty/app-automate/recent_apps", 200, "{\"message\":\"No results found\"}");
+        respond("/forbidden/app-automate/plan.json", 403,
+                "{\"message\":\"User does not have permission to access this resource\"}");
+        respond("/forbidden/app-automate/recent_apps", 200,
+                "[{\"app_name\":\"app-debug.apk\",\"app_url\":\"" + APP_ID + "\"}]");
+        server.createContext("/slow/status", exchange -> {
+            try {
+                Thread.sleep(2000);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            exchange.sendResponseHeaders(200, -1);
+            exchange.close();
+        });
+        server.start();
+        baseUrl = "http://127.0.0.1:" + server.getAddress().getPort();
+    }
+
+    @AfterClass(alwaysRun = true)
+    public void stopStub() {
+        server.stop(0);
+    }
+
+    @Test
+    public void reportsExpiredPlanAsQuotaFailure() {
+        PreflightReport report = checker(Environment.BROWSERSTACK, baseUrl + "/wd/hub", baseUrl + "/expired")
+                .run(List.of(PlatformType.ANDROID));
+
+        Assert.assertEquals(statuses(report), Map.of("Hub reachable", Status.PASS,
+                "BrowserStack credentials", Status.PASS, "BrowserStack plan quota", Status.FAIL,
+                "App android", Status.PASS));
+        Assert.assertEquals(report.firstFailure().orElseThrow().failureKind(), SessionFailureKind.QUOTA_EXHAUSTED);
+    }
+
+    @Test
+    public void warnsOnForbiddenPlanQueryInsteadOfFailing() {
+        // A 403 that is not about the plan running out, e.g. a sub-user without plan access
+        PreflightReport report = checker(Environment.BROWSERSTACK, baseUrl + "/wd/hub", baseUrl + "/forbidden")
+                .run(List.of(PlatformType.ANDROID));
+
+        Assert.assertEquals(statuses(report).get("BrowserStack credentials"), Status.WARN);
+        Assert.assertEquals(statuses(report).get("BrowserStack plan quota"), Status.WARN);
+        Assert.assertTrue(report.firstFailure().isEmpty(), report.toTable());
+    }
+
+    @Test
+    public void warnsOnSlowHub() {
+        PreflightReport report = new PreflightChecker(Environment.LOCAL, baseUrl + "/slow", baseUrl, "user", "key",
+                platform -> APP_ID, null, Duration.ofMillis(300))
+                .run(List.of(PlatformType.ANDROID));
+
+        Assert.assertEquals(statuses(report).get("Hub reachable"), Status.WARN);
+        Assert.assertTrue(report.firstFailure().isEmpty(), "a timeout is not proof the hub is down");
+    }
+
+    @Test
+    public void reportsMissingApp() {
+        PreflightReport report = checker(Environment.BROWSERSTACK, baseUrl + "/wd/hub", baseUrl + "/empty")
+                .run(List.of(PlatformType.ANDROID));
+
+        Assert.assertEquals(statuses(report).get("BrowserStack plan quota"), Status.PASS);
+        Assert.assertEquals(report.firstFailure().orElseThrow().failureKind(), SessionFailureKind.APP_UNAVAILABLE);
+    }
+
+    @Test
+    public void evictsCachedUploadsBrowserStackNoLongerHas() throws Exception {
+        Path apk = Files.writeString(Files.createTempDirectory("preflight").resolve("app.apk"), "apk");
+        AppUploader uploader = new AppUploader() {
+            @Override
+            public String upload(Path app, String customId) {
+                return "bs://deleted-early";
+            }
+
+            @Override
+            public String account() {
+                return "user@api-cloud.browserstack.com";
+            }
+        };
+        AppArtifactManager uploads = new AppArtifactManager(uploader, apk.resolveSibling("app-uploads.json"),
+                Duration.ofDays(29), Clock.systemUTC());
+        uploads.resolve(apk.toString());
+
+        PreflightReport report = new PreflightChecker(Environment.BROWSERSTACK, baseUrl + "/wd/hub", baseUrl + "/empty",
+                "user", "key", platform -> apk.toString(), uploads, Duration.ofSeconds(5))
+                .run(List.of(PlatformType.ANDROID));
+
+        Assert.assertEquals(statuses(report).get("App android"), Status.WARN);
+        Assert.assertTrue(report.firstFailure().isEmpty(), "a stale cache entry must not block the run");
+        Assert.assertTrue(uploads.cachedUpload(apk.toString()).isEmpty());
+    }
+
+    @Test
+    public void reportsUnreachableHub() throws Exception {
+        int closedPort;
+        try (ServerSocket socket = new ServerSocket(0)) {
+            closedPort = socket.getLocalPort();
+        }
+
+        PreflightReport report = checker(Environment.LOCAL, "http://127.0.0.1:" + closedPort, baseUrl)
+                .run(List.of(PlatformType.ANDROID));
+
+        Assert.assertEquals(statuses(report), Map.of("Hub reachable", Status.FAIL,
+                "BrowserStack credentials", Status.SKIPPED, "BrowserStack plan quota", Status.SKIPPED,
+                "App android", Status.SKIPPED));
+        Assert.assertEquals(report.firstFailure().orElseThrow().failureKind(), SessionFailureKind.HUB_UNREACHABLE);
+    }
+
+    private static PreflightChecker checker(Environment environment, String hubUrl, String apiUrl) {
+        return new PreflightChecker(environment, hubUrl, apiUrl, "user", "key", platform -> APP_ID, null,
+                Duration.ofSeconds(5));
+    }
+
+    private static Map<String, Status> statuses(PreflightReport report) {
+        return report.checks().stream()
+                .collect(Collectors.toMap(PreflightReport.CheckResult::name,
+                        PreflightReport.CheckResult::status));
+    }
+
+    private void respond(String path, int status, String body) {
+        server.createContext(path, exchange -> {
+            byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+            exchange.sendResponseHeaders(status, bytes.length);
+            exchange.getResponseBody().write(bytes);
+            exchange.close();
+        });
+    }
+}
@@ -0,0 +1,62 @@
+package com.poc.geofence.driver;
+
+import org.openqa.selenium.SessionNotCreatedException;
+import org.openqa.selenium.WebDriverException;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+/**
+ * Unit tests for SessionCircuitBreaker and SessionFailureKind classification.
+ */
+public class SessionCircuitBreakerTest {
+
+    @Test
+    public void opensOnFirstNonTransientFailure() {
+        SessionCircuitBreaker breaker = new SessionCircuitBreaker(3);
+        // As seen in test-phase07.log: the reason is in the cause, not the outer message
+        Exception expired = new SessionNotCreatedException("Could not start a new session.",
+                new WebDriverException("App Automate testing time has expired. Contact BrowserStack Support"));
+
+        Assert.assertEquals(breaker.recordFailure(expired), SessionFailureKind.QUOTA_EXHAUSTED);
+
+        Assert.assertTrue(breaker.isOpen());
+        SessionCircuitOpenException open = Assert.expectThrows(SessionCircuitOpenException.class, breaker::checkClosed);
+        Assert.assertEquals(open.getKind(), SessionFailureKind.QUOTA_EXHAUSTED);
+        Assert.assertTrue(open.getMessage().startsWith("Session circuit open"), open.getMessage());
+        Assert.assertTrue(open.getMessage().contains("App Automate testing time has expired"), open.getMessage());
+        Assert.assertSame(open.getCause(), expired);
+        Assert.assertNotSame(Assert.expectThrows(SessionCircuitOpenException.class, breaker::checkClosed), open,
+                "each caller gets its own stack trace");
+    }
+
+    @Test
+    public void opensAfterConsecutiveTransientFailures() {
+        SessionCircuitBreaker breaker = new SessionCircuitBreaker(3);
+        Exception timeout = new SessionNotCreatedException("Read timed out");
+
+        breaker.recordFailure(timeout);
+        breaker.recordFailure(timeout);
+        breaker.recordSuccess();
+        breaker.recordFailure(timeout);
+        breaker.recordFailure(timeout);
+        Assert.assertFalse(breaker.isOpen(), "a success in between resets the count");
+
+        Assert.assertEquals(breaker.recordFailure(timeout), SessionFailureKind.TRANSIENT);
+        Assert.assertTrue(breaker.isOpen());
+
+        breaker.reset();
+        breaker.checkClosed();
+    }
+
+    @Test
+    public void classifiesKnownFailures() {
+        Assert.assertEquals(SessionFailureKind.classify(new IllegalStateException(
+                "BrowserStack username not configured. Set BROWSERSTACK_USERNAME env var")),
+                SessionFailureKind.INVALID_CREDENTIALS);
+        Assert.assertEquals(SessionFailureKind.classify(new WebDriverException(
+                "[BROWSERSTACK_INVALID_APP_CAP] Invalid app url")), SessionFailureKind.APP_UNAVAILABLE);
+        Assert.assertEquals(SessionFailureKind.classify(new WebDriverException("Connection refused")),
+                SessionFailureKind.TRANSIENT);
+        Assert.assertEquals(SessionFailureKind.classify(null), SessionFailureKind.TRANSIENT);
+    }
+}
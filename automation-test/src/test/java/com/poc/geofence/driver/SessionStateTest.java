@@ -0,0 +1,86 @@
+package com.poc.geofence.driver;
+
+import com.poc.geofence.metrics.CommandMetrics;
+import org.testng.Assert;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.Test;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Unit tests for SessionState skip decisions and skip reporting.
+ */
+public class SessionStateTest {
+    private static final String TEST = "SessionStateTest";
+    private final CommandMetrics metrics = CommandMetrics.getInstance();
+
+    @AfterMethod(alwaysRun = true)
+    public void tearDown() {
+        metrics.endTest();
+    }
+
+    @Test
+    public void skipsRepeatedLocationAndContext() {
+        metrics.startTest(TEST + ".repeat");
+        SessionState state = new SessionState("android", true);
+        AtomicInteger sent = new AtomicInteger();
+
+        Assert.assertTrue(state.setLocation(50.7333, 7.1032, sent::incrementAndGet));
+        Assert.assertFalse(state.setLocation(50.7333, 7.1032, sent::incrementAndGet));
+        Assert.assertTrue(state.setLocation(50.7358, 7.1032, sent::incrementAndGet));
+        Assert.assertEquals(state.context(() -> {
+            sent.incrementAndGet();
+            return "NATIVE_APP";
+        }), "NATIVE_APP");
+        Assert.assertEquals(state.context(() -> "WEBVIEW_1"), "NATIVE_APP");
+        Assert.assertFalse(state.switchContext("NATIVE_APP", sent::incrementAndGet));
+
+        Assert.assertEquals(sent.get(), 3);
+        Assert.assertEquals(state.skippedCommands(), Map.of("setLocation", 1L, "getContext", 1L, "setContext", 1L));
+        List<CommandMetrics.SkippedStats> skipped = metrics.skippedForTest(TEST + ".repeat");
+        Assert.assertEquals(skipped.stream().mapToLong(CommandMetrics.SkippedStats::count).sum(), 3);
+    }
+
+    @Test
+    public void tracksAppLifecycle() {
+        SessionState state = new SessionState("android", true);
+        AtomicInteger sent = new AtomicInteger();
+
+        Assert.assertTrue(state.terminateApp("com.eebax.geofencing", sent::incrementAndGet));
+        Assert.assertFalse(state.terminateApp("com.eebax.geofencing", sent::incrementAndGet));
+        Assert.assertTrue(state.terminateApp("com.other.app", sent::incrementAndGet), "state of another app is unknown");
+        state.appOpened("com.eebax.geofencing");
+        Assert.assertFalse(state.activateApp("com.eebax.geofencing", sent::incrementAndGet));
+
+        state.forgetForeground();
+        Assert.assertTrue(state.activateApp("com.eebax.geofencing", sent::incrementAndGet));
+        Assert.assertEquals(sent.get(), 3);
+    }
+
+    @Test
+    public void failedCommandMakesStateUnknown() {
+        SessionState state = new SessionState("android", true);
+        state.setLocation(50.7333, 7.1032, () -> { });
+
+        Assert.assertThrows(IllegalStateException.class, () -> state.setLocation(50.7358, 7.1032, () -> {
+            throw new IllegalStateException("session gone");
+        }));
+
+        Assert.assertFalse(state.isAt(50.7333, 7.1032));
+        Assert.assertTrue(state.setLocation(50.7333, 7.1032, () -> { }), "unknown location must be sent again");
+    }
+
+    @Test
+    public void disabledShadowSendsEverything() {
+        SessionState state = new SessionState("android", false);
+        AtomicInteger sent = new AtomicInteger();
+
+        state.setLocation(50.7333, 7.1032, sent::incrementAndGet);
+        state.setLocation(50.7333, 7.1032, sent::incrementAndGet);
+
+        Assert.assertEquals(sent.get(), 2);
+        Assert.assertTrue(state.skippedCommands().isEmpty());
+    }
+}
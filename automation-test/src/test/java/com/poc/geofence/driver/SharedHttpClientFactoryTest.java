@@ -0,0 +1,135 @@
+package com.poc.geofence.driver;
+
+import com.poc.geofence.fake.FakeLogBroadcastServer;
+import com.sun.net.httpserver.HttpServer;
+import org.openqa.selenium.remote.http.ClientConfig;
+import org.openqa.selenium.remote.http.Contents;
+import org.openqa.selenium.remote.http.HttpClient;
+import org.openqa.selenium.remote.http.HttpMethod;
+import org.openqa.selenium.remote.http.HttpRequest;
+import org.openqa.selenium.remote.http.HttpResponse;
+import org.openqa.selenium.remote.http.WebSocket;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.net.InetSocketAddress;
+import java.net.Proxy;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Unit tests for SharedHttpClientFactory request mapping, proxies, command-class timeouts and websockets.
+ */
+public class SharedHttpClientFactoryTest {
+
+    @Test
+    public void sendsRequestsRelativeToHubPath() throws Exception {
+        AtomicReference<String> received = new AtomicReference<>();
+        HttpServer server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/", exchange -> {
+            String body = new String(exchange.getRequestBody().readAllBytes(), StandardCharsets.UTF_8);
+            received.set(exchange.getRequestMethod() + " " + exchange.getRequestURI() + " " + body);
+            byte[] response = "{\"value\":null}".getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().add("Content-Type", "application/json");
+            exchange.sendResponseHeaders(200, response.length);
+            exchange.getResponseBody().write(response);
+            exchange.close();
+        });
+        server.start();
+        try {
+            URI hub = URI.create("http://127.0.0.1:" + server.getAddress().getPort() + "/wd/hub/");
+            HttpClient client = SharedHttpClientFactory.builder().build()
+                    .createClient(ClientConfig.defaultConfig().baseUri(hub));
+            HttpRequest request = new HttpRequest(HttpMethod.POST, "/session/abc/element")
+                    .addQueryParameter("q", "a b");
+            request.setContent(Contents.utf8String("{\"using\":\"id\"}"));
+
+            HttpResponse response = client.execute(request);
+
+            Assert.assertEquals(response.getStatus(), 200);
+            Assert.assertEquals(Contents.string(response), "{\"value\":null}");
+            Assert.assertEquals(response.getHeader("Content-Type"), "application/json");
+            Assert.assertEquals(received.get(), "POST /wd/hub/session/abc/element?q=a+b {\"using\":\"id\"}");
+        } finally {
+            server.stop(0);
+        }
+    }
+
+    @Test
+    public void opensWebSocketsRelativeToHubPath() throws Exception {
+        try (FakeLogBroadcastServer server = new FakeLogBroadcastServer()) {
+            HttpClient client = SharedHttpClientFactory.builder().build()
+                    .createClient(ClientConfig.defaultConfig().baseUri(URI.create(server.getUrl() + "/wd/hub/")));
+            BlockingQueue<String> received = new LinkedBlockingQueue<>();
+
+            WebSocket socket = client.openSocket(new HttpRequest(HttpMethod.GET, "/session/abc/se/bidi"),
+                    new WebSocket.Listener() {
+                        @Override
+                        public void onText(CharSequence data) {
+                            received.add(data.toString());
+                        }
+                    });
+            try {
+                Assert.assertTrue(server.awaitClient(Duration.ofSeconds(5)));
+                Assert.assertEquals(server.paths(), List.of("/wd/hub/session/abc/se/bidi"));
+                socket.sendText("{\"id\":1,\"method\":\"session.status\"}");
+                server.send("{\"id\":1,\"result\":{}}");
+
+                Assert.assertEquals(received.poll(5, TimeUnit.SECONDS), "{\"id\":1,\"result\":{}}");
+            } finally {
+                socket.close();
+            }
+        }
+    }
+
+    @Test
+    public void sendsThroughTheConfiguredHttpProxy() throws Exception {
+        AtomicReference<String> received = new AtomicReference<>();
+        HttpServer proxy = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        proxy.createContext("/", exchange -> {
+            received.set(exchange.getRequestMethod() + " " + exchange.getRequestURI());
+            exchange.sendResponseHeaders(200, -1);
+            exchange.close();
+        });
+        proxy.start();
+        try {
+            SharedHttpClientFactory factory = SharedHttpClientFactory.builder().build();
+            HttpClient client = factory.createClient(ClientConfig.defaultConfig()
+                    .baseUri(URI.create("http://hub.invalid:4723/wd/hub"))
+                    .proxy(new Proxy(Proxy.Type.HTTP, proxy.getAddress())));
+
+            Assert.assertEquals(client.execute(new HttpRequest(HttpMethod.GET, "/status")).getStatus(), 200);
+            Assert.assertEquals(received.get(), "GET http://hub.invalid:4723/wd/hub/status");
+            Assert.expectThrows(IllegalArgumentException.class, () -> factory.createClient(ClientConfig.defaultConfig()
+                    .baseUri(URI.create("http://hub.invalid:4723/wd/hub"))
+                    .proxy(new Proxy(Proxy.Type.SOCKS, proxy.getAddress()))));
+        } finally {
+            proxy.stop(0);
+        }
+    }
+
+    @Test
+    public void choosesReadTimeoutByCommandClass() {
+        SharedHttpClientFactory factory = SharedHttpClientFactory.builder()
+                .withSessionTimeout(Duration.ofSeconds(600))
+                .withScriptTimeout(Duration.ofSeconds(120))
+                .withCommandTimeout(Duration.ofSeconds(30))
+                .build();
+
+        Assert.assertEquals(factory.readTimeout(new HttpRequest(HttpMethod.POST, "/session")), Duration.ofSeconds(600));
+        Assert.assertEquals(factory.readTimeout(new HttpRequest(HttpMethod.POST, "/session/abc/execute/sync")),
+                Duration.ofSeconds(120));
+        Assert.assertEquals(factory.readTimeout(new HttpRequest(HttpMethod.GET, "/session/abc/screenshot")),
+                Duration.ofSeconds(120));
+        Assert.assertEquals(factory.readTimeout(new HttpRequest(HttpMethod.POST, "/session/abc/element")),
+                Duration.ofSeconds(30));
+        Assert.assertEquals(factory.readTimeout(new HttpRequest(HttpMethod.DELETE, "/session/abc")),
+                Duration.ofSeconds(30));
+    }
+}
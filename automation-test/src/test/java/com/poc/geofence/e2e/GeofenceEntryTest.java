@@ -114,9 +114,6 @@ public class GeofenceEntryTest extends BaseTest {
         LocationSimulator.setLocation(centerLat, centerLng);
         AllureUtils.attachScreenshot("State 1 - Child Inside Safe Zone");
 
-        // Allow map to center
-        sleep(3000);
-
         // Step 2: Create geofence (Android: long-click on map)
         AllureUtils.step("Create geofence zone via map long-click");
         geofencePage.createGeofence(centerLat, centerLng, radius, title);
@@ -107,9 +107,6 @@ public class GeofenceExitTest extends BaseTest {
         LocationSimulator.setLocation(centerLat, centerLng);
         AllureUtils.attachScreenshot("Location Set - Inside Geofence");
 
-        // Allow map to center
-        sleep(3000);
-
         // Step 2: Create geofence (Android: long-click on map)
         AllureUtils.step("Create geofence zone via map long-click");
         geofencePage.createGeofence(centerLat, centerLng, radius, title);
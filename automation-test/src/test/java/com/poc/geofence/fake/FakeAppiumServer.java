@@ -0,0 +1,481 @@
+package com.poc.geofence.fake;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.poc.geofence.config.PlatformType;
+import com.poc.geofence.utils.VirtualThreads;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Embeddable stand-in for an Appium server, speaking the W3C WebDriver protocol
+ * for the endpoints the framework uses.
+ *
+ * <p>Lets the E2E journeys run without BrowserStack or a device, so framework overhead
+ * (waits, retries, command count) can be measured and optimized in isolation. Each command
+ * can be given an artificial latency to mimic a real device or cloud round trip, and geofence
+ * transitions are scripted from deep links and simulated location changes.
+ *
+ * <p>Usage:
+ * <pre>
+ * try (FakeAppiumServer server = FakeAppiumServer.builder()
+ *         .withLatency(Duration.ofMillis(50))
+ *         .withLatency("newSession", Duration.ofSeconds(2))
+ *         .build()
+ *         .start()) {
+ *     System.setProperty("appium.local.url", server.getUrl());
+ * }
+ * </pre>
+ */
+public class FakeAppiumServer implements AutoCloseable {
+    private static final Logger log = LoggerFactory.getLogger(FakeAppiumServer.class);
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+    private static final String ELEMENT_KEY = "element-6066-11e4-a52e-4f735466cecf";
+
+    private final int port;
+    private final Duration defaultLatency;
+    private final Map<String, Duration> latencies;
+    private final Duration eventDelay;
+    private final boolean locationTransitions;
+    private final boolean warmIntentsIgnored;
+    private final Map<String, FakeDevice> sessions = new ConcurrentHashMap<>();
+    private final Map<String, LongAdder> commandCounts = new ConcurrentHashMap<>();
+    private final ScheduledExecutorService eventScheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "fake-appium-events");
+        t.setDaemon(true);
+        return t;
+    });
+    private HttpServer server;
+    private ExecutorService handlers;
+
+    private FakeAppiumServer(Builder builder) {
+        this.port = builder.port;
+        this.defaultLatency = builder.defaultLatency;
+        this.latencies = Map.copyOf(builder.latencies);
+        this.eventDelay = builder.eventDelay;
+        this.locationTransitions = builder.locationTransitions;
+        this.warmIntentsIgnored = builder.warmIntentsIgnored;
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * Starts listening on 127.0.0.1.
+     * @return this server
+     * @throws IllegalStateException if the port cannot be bound
+     */
+    public FakeAppiumServer start() {
+        // Without TCP_NODELAY, Nagle plus delayed ACKs add ~40ms to every small response
+        System.setProperty("sun.net.httpserver.nodelay", "true");
+        try {
+            // Large accept backlog: concurrency benchmarks open hundreds of sessions at once
+            server = HttpServer.create(new InetSocketAddress("127.0.0.1", port), 1024);
+        } catch (IOException e) {
+            throw new IllegalStateException("Could not start fake Appium server on port " + port, e);
+        }
+        // Handlers mostly sleep out the simulated latency, so use virtual threads where the JVM has them
+        handlers = VirtualThreads.newExecutor("fake-appium-http", VirtualThreads.isSupported());
+        server.setExecutor(handlers);
+        server.createContext("/", this::handle);
+        server.start();
+        log.info("Fake Appium server listening on {}", getUrl());
+        return this;
+    }
+
+    /**
+     * Stops the server and drops all sessions.
+     */
+    public void stop() {
+        if (server != null) {
+            server.stop(0);
+            handlers.shutdownNow();
+            server = null;
+        }
+        eventScheduler.shutdownNow();
+        sessions.clear();
+    }
+
+    @Override
+    public void close() {
+        stop();
+    }
+
+    /**
+     * @return the base URL to use as the Appium hub, e.g. http://127.0.0.1:4723
+     */
+    public String getUrl() {
+        return "http://127.0.0.1:" + server.getAddress().getPort();
+    }
+
+    /**
+     * @return number of open sessions
+     */
+    public int sessionCount() {
+        return sessions.size();
+    }
+
+    /**
+     * @return how often each command was received, by command name
+     */
+    public Map<String, Long> commandCounts() {
+        Map<String, Long> counts = new TreeMap<>();
+        commandCounts.forEach((command, count) -> counts.put(command, count.sum()));
+        return counts;
+    }
+
+    /**
+     * Scripts a geofence transition on every open session, as if the OS had raised it.
+     * @param transition e.g. GEOFENCE_TRANSITION_EXIT or GEOFENCE_TRANSITION_ENTER
+     */
+    public void emitTransition(String transition) {
+        sessions.values().forEach(device -> eventScheduler.schedule(
+                () -> device.deliver(transition, "Scripted", false), eventDelay.toMillis(), TimeUnit.MILLISECONDS));
+    }
+
+    // ==================== HTTP dispatch ====================
+
+    private void handle(HttpExchange exchange) throws IOException {
+        int status = 200;
+        Object value;
+        try {
+            String path = exchange.getRequestURI().getPath();
+            if (path.startsWith("/wd/hub")) {
+                path = path.substring("/wd/hub".length());
+            }
+            List<String> segments = new ArrayList<>();
+            for (String segment : path.split("/")) {
+                if (!segment.isEmpty()) {
+                    segments.add(segment);
+                }
+            }
+            value = route(exchange.getRequestMethod(), segments, readBody(exchange));
+        } catch (W3CException e) {
+            status = e.status;
+            value = Map.of("error", e.error, "message", e.getMessage(), "stacktrace", "");
+        } catch (RuntimeException e) {
+            log.warn("Fake Appium server failed to handle {}: {}", exchange.getRequestURI(), e.toString());
+            status = 500;
+            value = Map.of("error", "unknown error", "message", e.toString(), "stacktrace", "");
+        }
+        Map<String, Object> response = new HashMap<>();
+        response.put("value", value);
+        byte[] body = MAPPER.writeValueAsBytes(response);
+        exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+        exchange.sendResponseHeaders(status, body.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(body);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private Map<String, Object> readBody(HttpExchange exchange) throws IOException {
+        try (InputStream in = exchange.getRequestBody()) {
+            byte[] bytes = in.readAllBytes();
+            if (bytes.length == 0) {
+                return Map.of();
+            }
+            return MAPPER.readValue(new String(bytes, StandardCharsets.UTF_8), Map.class);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private Object route(String method, List<String> path, Map<String, Object> body) {
+        if (path.equals(List.of("status"))) {
+            command("status");
+            return Map.of("ready", true, "message", "Fake Appium server is ready",
+                    "build", Map.of("version", "fake"));
+        }
+        if (path.isEmpty() || !path.get(0).equals("session")) {
+            throw unknownCommand(method, path);
+        }
+        if (path.size() == 1 && method.equals("POST")) {
+            command("newSession");
+            return newSession(body);
+        }
+        String sessionId = path.get(1);
+        FakeDevice device = sessions.get(sessionId);
+        if (device == null) {
+            throw new W3CException(404, "invalid session id", "A session is either terminated or not started");
+        }
+        String resource = String.join("/", path.subList(2, path.size()));
+        String route = method + " " + resource.replaceAll("element/[^/]+", "element/:id")
+                .replaceAll("attribute/[^/]+", "attribute/:name");
+        String elementId = path.size() > 3 && path.get(2).equals("element") ? path.get(3) : null;
+
+        switch (route) {
+            case "DELETE " -> {
+                command("deleteSession");
+                sessions.remove(sessionId);
+                return null;
+            }
+            case "POST execute/sync", "POST execute/async" -> {
+                return executeScript(device, body);
+            }
+            case "POST element", "POST elements", "POST element/:id/element", "POST element/:id/elements" -> {
+                boolean many = resource.endsWith("elements");
+                command(many ? "findElements" : "findElement");
+                List<String> ids = device.find(String.valueOf(body.get("using")), String.valueOf(body.get("value")),
+                        resource.startsWith("element/") ? elementId : null);
+                if (many) {
+                    return ids.stream().map(FakeAppiumServer::elementReference).toList();
+                }
+                if (ids.isEmpty()) {
+                    throw new W3CException(404, "no such element",
+                            "An element could not be located on the page using the given search parameters.");
+                }
+                return elementReference(ids.get(0));
+            }
+            case "GET element/:id/text", "GET element/:id/displayed", "GET element/:id/enabled",
+                 "GET element/:id/selected", "GET element/:id/name", "GET element/:id/rect" -> {
+                String property = path.get(4);
+                command("getElement" + Character.toUpperCase(property.charAt(0)) + property.substring(1));
+                return device.elementProperty(elementId, property);
+            }
+            case "GET element/:id/attribute/:name" -> {
+                command("getElementAttribute");
+                return device.elementAttribute(elementId, path.get(5));
+            }
+            case "POST element/:id/click" -> {
+                command("clickElement");
+                device.click(elementId);
+                return null;
+            }
+            case "POST element/:id/clear" -> {
+                command("clearElement");
+                device.clear(elementId);
+                return null;
+            }
+            case "POST element/:id/value" -> {
+                command("sendKeys");
+                Object text = body.get("text");
+                if (text == null && body.get("value") instanceof List<?> chars) {
+                    text = String.join("", (List<String>) chars);
+                }
+                device.sendKeys(elementId, String.valueOf(text));
+                return null;
+            }
+            case "GET source" -> {
+                command("getPageSource");
+                return device.pageSource();
+            }
+            case "GET screenshot", "GET element/:id/screenshot" -> {
+                command("screenshot");
+                return device.screenshot();
+            }
+            case "GET location" -> {
+                command("getLocation");
+                return device.location();
+            }
+            case "POST location" -> {
+                command("setLocation");
+                Map<String, Object> location = (Map<String, Object>) body.getOrDefault("location", body);
+                device.moveTo(((Number) location.get("latitude")).doubleValue(),
+                        ((Number) location.get("longitude")).doubleValue());
+                return null;
+            }
+            case "GET context" -> {
+                command("getContext");
+                return device.context();
+            }
+            case "POST context" -> {
+                command("setContext");
+                device.context(String.valueOf(body.get("name")));
+                return null;
+            }
+            case "GET contexts" -> {
+                command("getContexts");
+                return List.of("NATIVE_APP");
+            }
+            case "GET alert/text" -> {
+                command("getAlertText");
+                return device.alertText();
+            }
+            case "POST alert/accept", "POST alert/dismiss" -> {
+                command(resource.endsWith("accept") ? "acceptAlert" : "dismissAlert");
+                device.dismissAlert();
+                return null;
+            }
+            case "POST actions" -> {
+                command("performActions");
+                device.performActions((List<Map<String, Object>>) body.getOrDefault("actions", List.of()));
+                return null;
+            }
+            case "DELETE actions" -> {
+                command("releaseActions");
+                return null;
+            }
+            case "POST url" -> {
+                command("navigateTo");
+                device.openUrl(String.valueOf(body.get("url")));
+                return null;
+            }
+            case "POST se/log" -> {
+                command("getLog");
+                return device.readLog(String.valueOf(body.get("type")));
+            }
+            case "POST timeouts" -> {
+                command("setTimeouts");
+                return null;
+            }
+            default -> throw unknownCommand(method, path);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private Object executeScript(FakeDevice device, Map<String, Object> body) {
+        String script = String.valueOf(body.get("script")).trim();
+        command(script.startsWith("mobile:") ? script : "executeScript");
+        if (!script.startsWith("mobile:")) {
+            throw new W3CException(500, "unsupported operation",
+                    "Only 'mobile:' extension scripts are supported in the native context");
+        }
+        List<Object> args = (List<Object>) body.getOrDefault("args", List.of());
+        Map<String, Object> params = !args.isEmpty() && args.get(0) instanceof Map<?, ?> map
+                ? (Map<String, Object>) map : Map.of();
+        return device.executeMobile(script.substring("mobile:".length()).trim(), params);
+    }
+
+    @SuppressWarnings("unchecked")
+    private Object newSession(Map<String, Object> body) {
+        Map<String, Object> w3c = (Map<String, Object>) body.getOrDefault("capabilities", Map.of());
+        Map<String, Object> caps = new LinkedHashMap<>((Map<String, Object>) w3c.getOrDefault("alwaysMatch", Map.of()));
+        List<Map<String, Object>> firstMatch = (List<Map<String, Object>>) w3c.getOrDefault("firstMatch", List.of());
+        if (!firstMatch.isEmpty()) {
+            caps.putAll(firstMatch.get(0));
+        }
+        PlatformType platform = PlatformType.fromString(String.valueOf(caps.getOrDefault("platformName", "android")));
+        String appId = String.valueOf(caps.getOrDefault(platform == PlatformType.IOS ? "appium:bundleId" : "appium:appPackage",
+                platform == PlatformType.IOS ? "com.example.GeofenceDemo" : "com.eebax.geofencing"));
+        String sessionId = UUID.randomUUID().toString();
+        sessions.put(sessionId, new FakeDevice(platform, appId, eventScheduler, eventDelay,
+                locationTransitions, warmIntentsIgnored));
+        caps.put("platformName", platform == PlatformType.IOS ? "iOS" : "Android");
+        caps.putIfAbsent("appium:automationName", platform == PlatformType.IOS ? "XCUITest" : "UiAutomator2");
+        log.debug("Fake session {} created for {}", sessionId, platform.getValue());
+        return Map.of("sessionId", sessionId, "capabilities", caps);
+    }
+
+    private void command(String name) {
+        commandCounts.computeIfAbsent(name, k -> new LongAdder()).increment();
+        Duration latency = latencies.getOrDefault(name, defaultLatency);
+        if (!latency.isZero()) {
+            try {
+                Thread.sleep(latency.toMillis());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    private static Map<String, String> elementReference(String id) {
+        return Map.of(ELEMENT_KEY, id, "ELEMENT", id);
+    }
+
+    private static W3CException unknownCommand(String method, List<String> path) {
+        return new W3CException(404, "unknown command",
+                "The requested resource could not be found: " + method + " /" + String.join("/", path));
+    }
+
+    /**
+     * A W3C WebDriver error response.
+     */
+    static class W3CException extends RuntimeException {
+        private final int status;
+        private final String error;
+
+        W3CException(int status, String error, String message) {
+            super(message);
+            this.status = status;
+            this.error = error;
+        }
+    }
+
+    /**
+     * Fluent builder for FakeAppiumServer.
+     */
+    public static class Builder {
+        private int port;
+        private Duration defaultLatency = Duration.ZERO;
+        private final Map<String, Duration> latencies = new HashMap<>();
+        private Duration eventDelay = Duration.ofMillis(200);
+        private boolean locationTransitions = true;
+        private boolean warmIntentsIgnored;
+
+        /**
+         * @param port port to listen on; 0 picks a free port (default)
+         */
+        public Builder withPort(int port) {
+            this.port = port;
+            return this;
+        }
+
+        /**
+         * Sets the latency added to every command without a specific latency.
+         */
+        public Builder withLatency(Duration latency) {
+            this.defaultLatency = latency;
+            return this;
+        }
+
+        /**
+         * Sets the latency of one command, e.g. "newSession", "findElements" or "mobile: deepLink".
+         */
+        public Builder withLatency(String command, Duration latency) {
+            latencies.put(command, latency);
+            return this;
+        }
+
+        /**
+         * Sets the delay between a trigger (deep link, location change) and the app showing the event.
+         */
+        public Builder withEventDelay(Duration eventDelay) {
+            this.eventDelay = eventDelay;
+            return this;
+        }
+
+        /**
+         * Sets whether simulated location changes crossing a geofence raise transitions.
+         * Disable to mimic BrowserStack, where only the deep-link trigger works.
+         */
+        public Builder withLocationTransitions(boolean enabled) {
+            this.locationTransitions = enabled;
+            return this;
+        }
+
+        /**
+         * Sets whether the running app silently drops deep links and VIEW intents, so only a
+         * cold start delivers them.
+         */
+        public Builder withWarmIntentsIgnored(boolean ignored) {
+            this.warmIntentsIgnored = ignored;
+            return this;
+        }
+
+        public FakeAppiumServer build() {
+            return new FakeAppiumServer(this);
+        }
+    }
+}
@@ -0,0 +1,879 @@
+package com.poc.geofence.fake;
+
+import com.poc.geofence.config.PlatformType;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.Node;
+import org.w3c.dom.NodeList;
+
+import javax.imageio.ImageIO;
+import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.parsers.ParserConfigurationException;
+import javax.xml.transform.OutputKeys;
+import javax.xml.transform.Transformer;
+import javax.xml.transform.TransformerException;
+import javax.xml.transform.TransformerFactory;
+import javax.xml.transform.dom.DOMSource;
+import javax.xml.transform.stream.StreamResult;
+import javax.xml.xpath.XPathConstants;
+import javax.xml.xpath.XPathExpressionException;
+import javax.xml.xpath.XPathFactory;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * State of one fake device session: app lifecycle, GPS location, registered geofences,
+ * and the UI the geofence apps would show (permission dialogs, map, status text,
+ * notification shade on Android; form, alerts on iOS).
+ *
+ * <p>Geofence transitions are raised by deep links (as the Android debug build does) and,
+ * when enabled, by location updates crossing a registered geofence. Both are delivered
+ * after the configured event delay, like the real apps' asynchronous callbacks. A deep link
+ * with a {@code sequence} parameter replays each of its transitions at its offset, tagged
+ * with the sequence id and step.
+ */
+class FakeDevice {
+    static final int APP_NOT_RUNNING = 1;
+    static final int APP_RUNNING_IN_FOREGROUND = 4;
+
+    private static final int SCREEN_WIDTH = 1080;
+    private static final int SCREEN_HEIGHT = 2400;
+    private static final long LONG_PRESS_MILLIS = 500;
+    private static final String ANDROID_APP = "com.eebax.geofencing";
+    private static final String PERMISSION_PACKAGE = "com.android.permissioncontroller";
+    private static final String IOS_APP_TITLE = "GeofenceDemo";
+    private static final String[] IOS_FIELDS = {"Latitude", "Longitude", "Range", "Title", "Message"};
+    private static final int ANDROID_GEOFENCE_RADIUS = 200;
+    private static final Pattern CSS_ATTRIBUTE = Pattern.compile("\\*?\\[(id|name)=[\"'](.*)[\"']]");
+
+    private final PlatformType platform;
+    private final String appId;
+    private final ScheduledExecutorService scheduler;
+    private final Duration eventDelay;
+    private final boolean locationTransitions;
+    private final boolean warmIntentsIgnored;
+
+    private int appState = APP_RUNNING_IN_FOREGROUND;
+    private String context = "NATIVE_APP";
+    private double latitude;
+    private double longitude;
+    private final List<Geofence> geofences = new ArrayList<>();
+
+    // Android UI state
+    private final Deque<String> pendingPermissions = new ArrayDeque<>(
+            List.of("notifications", "foreground-location", "background-location"));
+    private String statusText = "";
+    private final List<Map<String, String>> notifications = new ArrayList<>();
+    private int nextNotificationId = 1;
+    // logcat entries not yet read; Appium returns each entry once
+    private final List<Map<String, Object>> logcat = new ArrayList<>();
+    private boolean shadeOpen;
+
+    // iOS UI state
+    private final String[] fieldValues = new String[IOS_FIELDS.length];
+    private final Deque<String> alerts = new ArrayDeque<>();
+    private boolean keyboardShown;
+
+    FakeDevice(PlatformType platform, String appId, ScheduledExecutorService scheduler,
+               Duration eventDelay, boolean locationTransitions, boolean warmIntentsIgnored) {
+        this.platform = platform;
+        this.appId = appId;
+        this.scheduler = scheduler;
+        this.eventDelay = eventDelay;
+        this.locationTransitions = locationTransitions;
+        this.warmIntentsIgnored = warmIntentsIgnored;
+        if (platform == PlatformType.IOS) {
+            alerts.add("Allow “" + IOS_APP_TITLE + "” to use your location?");
+        }
+    }
+
+    PlatformType platform() {
+        return platform;
+    }
+
+    // ==================== Mobile commands ====================
+
+    synchronized Object executeMobile(String command, Map<String, Object> args) {
+        switch (command) {
+            case "deepLink" -> {
+                if (!ignoresIntent()) {
+                    openUrl(string(args, "url"));
+                }
+                return null;
+            }
+            case "startActivity" -> {
+                if (ignoresIntent()) {
+                    return null;
+                }
+                String intentArgs = string(args, "optionalIntentArguments");
+                appState = APP_RUNNING_IN_FOREGROUND;
+                if (intentArgs != null && intentArgs.startsWith("-d ")) {
+                    openUrl(intentArgs.substring(3).trim());
+                }
+                return null;
+            }
+            case "terminateApp" -> {
+                boolean wasRunning = appState != APP_NOT_RUNNING;
+                appState = APP_NOT_RUNNING;
+                statusText = "";
+                shadeOpen = false;
+                keyboardShown = false;
+                return wasRunning;
+            }
+            case "activateApp", "launchApp" -> {
+                appState = APP_RUNNING_IN_FOREGROUND;
+                return null;
+            }
+            case "queryAppState" -> {
+                return appState;
+            }
+            case "activeAppInfo" -> {
+                return Map.of("bundleId", appId, "name", IOS_APP_TITLE, "pid", 4242);
+            }
+            case "getNotifications" -> {
+                return notificationsPayload();
+            }
+            case "swipeGesture" -> {
+                swipe(string(args, "direction"), number(args, "top", 0).intValue());
+                return false;
+            }
+            case "longClickGesture" -> {
+                longPressAt(number(args, "x", 0).intValue(), number(args, "y", 0).intValue());
+                return null;
+            }
+            case "clickGesture", "tap" -> {
+                tapAt(number(args, "x", 0).intValue(), number(args, "y", 0).intValue());
+                return null;
+            }
+            case "setSimulatedLocation", "setLocation", "setGeolocation" -> {
+                moveTo(number(args, "latitude", 0).doubleValue(), number(args, "longitude", 0).doubleValue());
+                return null;
+            }
+            case "getSimulatedLocation", "getGeolocation" -> {
+                return Map.of("latitude", latitude, "longitude", longitude, "altitude", 0.0);
+            }
+            case "hideKeyboard" -> {
+                boolean wasShown = keyboardShown;
+                keyboardShown = false;
+                return wasShown;
+            }
+            case "isKeyboardShown" -> {
+                return keyboardShown;
+            }
+            default -> throw new FakeAppiumServer.W3CException(404, "unknown method",
+                    "Unsupported mobile command: mobile: " + command);
+        }
+    }
+
+    /**
+     * True if the running app drops a new intent without error, like an activity that
+     * handles its deep link only on create.
+     */
+    private boolean ignoresIntent() {
+        return warmIntentsIgnored && appState == APP_RUNNING_IN_FOREGROUND;
+    }
+
+    private Map<String, Object> notificationsPayload() {
+        List<Map<String, Object>> entries = new ArrayList<>();
+        for (Map<String, String> notification : notifications) {
+            Map<String, Object> entry = new LinkedHashMap<>();
+            entry.put("packageName", ANDROID_APP);
+            entry.put("id", Integer.parseInt(notification.get("id")));
+            entry.put("key", "0|" + ANDROID_APP + "|" + notification.get("id") + "|null|10001");
+            entry.put("postTime", Long.parseLong(notification.get("postTime")));
+            entry.put("isClearable", true);
+            entry.put("notification", Map.of("title", notification.get("title"), "text", notification.get("text")));
+            entries.add(entry);
+        }
+        return Map.of("statusBarNotifications", entries);
+    }
+
+    // ==================== Location and geofences ====================
+
+    synchronized void moveTo(double lat, double lng) {
+        latitude = lat;
+        longitude = lng;
+        for (Geofence geofence : geofences) {
+            boolean inside = geofence.contains(lat, lng);
+            if (inside != geofence.inside) {
+                geofence.inside = inside;
+                if (locationTransitions) {
+                    schedule(inside ? "GEOFENCE_TRANSITION_ENTER" : "GEOFENCE_TRANSITION_EXIT",
+                            geofence.title, false);
+                }
+            }
+        }
+    }
+
+    synchronized Map<String, Object> location() {
+        return Map.of("latitude", latitude, "longitude", longitude, "altitude", 0.0);
+    }
+
+    synchronized void openUrl(String url) {
+        appState = APP_RUNNING_IN_FOREGROUND;
+        if (url == null || !url.startsWith("geofence://test/trigger")) {
+            return;
+        }
+        String title = geofences.isEmpty() ? "Test" : geofences.get(geofences.size() - 1).title;
+        String sequence = queryParam(url, "sequence");
+        if (sequence.isEmpty()) {
+            schedule(transitionName(queryParam(url, "transition")), title, "", 0);
+            return;
+        }
+        // Replays "transition@offsetMillis,..." from receipt, tagging each event [sequenceId#step]
+        String sequenceId = queryParam(url, "sequenceId");
+        String[] steps = sequence.split(",");
+        for (int i = 0; i < steps.length; i++) {
+            String[] step = steps[i].split("@", 2);
+            schedule(transitionName(step[0]), title, " [" + sequenceId + "#" + i + "]", Long.parseLong(step[1]));
+        }
+    }
+
+    private static String transitionName(String transition) {
+        return switch (transition) {
+            case "1" -> "GEOFENCE_TRANSITION_ENTER";
+            case "2" -> "GEOFENCE_TRANSITION_EXIT";
+            case "4" -> "GEOFENCE_TRANSITION_DWELL";
+            default -> "UNKNOWN";
+        };
+    }
+
+    /**
+     * Delivers a transition as the app would: status text and notification on Android,
+     * an alert on iOS.
+     */
+    synchronized void deliver(String transition, String title, boolean fromDeepLink) {
+        deliver(transition, title, fromDeepLink, "");
+    }
+
+    private synchronized void deliver(String transition, String title, boolean fromDeepLink, String tag) {
+        if (platform == PlatformType.ANDROID) {
+            String text = (fromDeepLink ? "Test: " + transition : transition + ": " + title) + tag;
+            if (appState == APP_RUNNING_IN_FOREGROUND) {
+                statusText = text;
+            }
+            notifications.add(0, Map.of("title", "Geofence Transition", "text", text,
+                    "id", String.valueOf(nextNotificationId++), "postTime", String.valueOf(System.currentTimeMillis())));
+            logcat.add(Map.of("timestamp", System.currentTimeMillis(), "level", "INFO",
+                    "message", "I/GeofenceBroadcastReceiver: Geofence transition: " + text));
+        } else {
+            alerts.add(transition.endsWith("EXIT") ? "Exit from " + title : "Entered " + title);
+        }
+    }
+
+    private void schedule(String transition, String title, boolean fromDeepLink) {
+        scheduler.schedule(() -> deliver(transition, title, fromDeepLink),
+                eventDelay.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    private void schedule(String transition, String title, String tag, long offsetMillis) {
+        scheduler.schedule(() -> deliver(transition, title, true, tag),
+                eventDelay.toMillis() + offsetMillis, TimeUnit.MILLISECONDS);
+    }
+
+    private void addGeofence(double lat, double lng, int radius, String title) {
+        Geofence geofence = new Geofence(lat, lng, radius, title);
+        geofence.inside = geofence.contains(latitude, longitude);
+        geofences.add(geofence);
+    }
+
+    // ==================== Context ====================
+
+    synchronized String context() {
+        return context;
+    }
+
+    synchronized void context(String name) {
+        if (!"NATIVE_APP".equals(name)) {
+            throw new FakeAppiumServer.W3CException(404, "no such context", "No such context: " + name);
+        }
+        context = name;
+    }
+
+    // ==================== Elements ====================
+
+    synchronized List<String> find(String using, String value, String fromId) {
+        Rendered rendered = render();
+        Node contextNode = rendered.document;
+        if (fromId != null) {
+            contextNode = rendered.nodeFor(element(rendered, fromId));
+        }
+        List<Node> nodes = new ArrayList<>();
+        try {
+            if (FakeNativeLocators.supports(using)) {
+                nodes.addAll(FakeNativeLocators.find(using, value, contextNode));
+            } else {
+                NodeList list = (NodeList) XPathFactory.newInstance().newXPath()
+                        .evaluate(toXPath(using, value), contextNode, XPathConstants.NODESET);
+                for (int i = 0; i < list.getLength(); i++) {
+                    nodes.add(list.item(i));
+                }
+            }
+        } catch (XPathExpressionException | IllegalArgumentException e) {
+            throw new FakeAppiumServer.W3CException(400, "invalid selector",
+                    "Invalid locator " + using + "=" + value + ": " + e.getMessage());
+        }
+        List<String> ids = new ArrayList<>();
+        for (Node node : nodes) {
+            FakeElement element = rendered.elementFor(node);
+            if (element != null) {
+                ids.add(element.id);
+            }
+        }
+        return ids;
+    }
+
+    synchronized Object elementProperty(String elementId, String property) {
+        FakeElement element = element(render(), elementId);
+        return switch (property) {
+            case "text" -> element.text();
+            case "displayed" -> element.displayed;
+            case "enabled" -> element.enabled;
+            case "selected" -> false;
+            case "name" -> element.type;
+            case "rect" -> Map.of("x", element.x, "y", element.y, "width", element.width, "height", element.height);
+            default -> throw new FakeAppiumServer.W3CException(404, "unknown command",
+                    "Unknown element property: " + property);
+        };
+    }
+
+    synchronized Object elementAttribute(String elementId, String name) {
+        FakeElement element = element(render(), elementId);
+        return switch (name) {
+            case "displayed", "visible" -> String.valueOf(element.displayed);
+            case "enabled" -> String.valueOf(element.enabled);
+            default -> element.attributes.get(name);
+        };
+    }
+
+    synchronized void click(String elementId) {
+        FakeElement element = element(render(), elementId);
+        activate(element);
+    }
+
+    synchronized void clear(String elementId) {
+        setFieldValue(element(render(), elementId), "");
+    }
+
+    synchronized void sendKeys(String elementId, String text) {
+        FakeElement element = element(render(), elementId);
+        int field = fieldIndex(element);
+        String current = field >= 0 && fieldValues[field] != null ? fieldValues[field] : "";
+        setFieldValue(element, current + text);
+    }
+
+    private void setFieldValue(FakeElement element, String value) {
+        int field = fieldIndex(element);
+        if (field < 0) {
+            throw new FakeAppiumServer.W3CException(400, "invalid element state",
+                    "Element is not editable: " + element.type);
+        }
+        fieldValues[field] = value;
+        keyboardShown = true;
+    }
+
+    private static int fieldIndex(FakeElement element) {
+        return element.id.startsWith("ios-field-") ? Integer.parseInt(element.id.substring(10)) : -1;
+    }
+
+    private void activate(FakeElement element) {
+        switch (element.id) {
+            case "permission-allow", "permission-allow-foreground", "permission-allow-always",
+                 "permission-deny" -> pendingPermissions.poll();
+            case "ios-add" -> addIOSGeofence();
+            case "ios-alert-ok" -> alerts.poll();
+            default -> {
+                if (element.id.startsWith("ios-field-")) {
+                    keyboardShown = true;
+                }
+            }
+        }
+    }
+
+    private void addIOSGeofence() {
+        try {
+            double lat = Double.parseDouble(fieldValues[0]);
+            double lng = Double.parseDouble(fieldValues[1]);
+            int radius = (int) Double.parseDouble(fieldValues[2]);
+            addGeofence(lat, lng, radius, fieldValues[3]);
+            alerts.add("Data Added");
+        } catch (NumberFormatException | NullPointerException e) {
+            alerts.add("Please enter valid data");
+        }
+    }
+
+    // ==================== Alerts ====================
+
+    synchronized String alertText() {
+        String alert = alerts.peek();
+        if (alert == null) {
+            throw new FakeAppiumServer.W3CException(404, "no such alert", "An attempt was made to operate on a modal dialog when one was not open");
+        }
+        return alert;
+    }
+
+    synchronized void dismissAlert() {
+        alertText();
+        alerts.poll();
+    }
+
+    // ==================== Device log ====================
+
+    /**
+     * Returns logcat entries logged since the last read, as Appium's getLog does.
+     */
+    synchronized List<Map<String, Object>> readLog(String type) {
+        if (platform != PlatformType.ANDROID || !"logcat".equals(type)) {
+            throw new FakeAppiumServer.W3CException(400, "invalid argument", "Unsupported log type: " + type);
+        }
+        List<Map<String, Object>> entries = List.copyOf(logcat);
+        logcat.clear();
+        return entries;
+    }
+
+    // ==================== Gestures ====================
+
+    /**
+     * Replays W3C pointer actions: a press held at least 500ms is a long press,
+     * a vertical drag is a swipe, anything else is a tap.
+     */
+    @SuppressWarnings("unchecked")
+    synchronized void performActions(List<Map<String, Object>> sources) {
+        for (Map<String, Object> source : sources) {
+            if (!"pointer".equals(source.get("type"))) {
+                continue;
+            }
+            int x = 0;
+            int y = 0;
+            int downX = 0;
+            int downY = 0;
+            long heldMillis = 0;
+            boolean down = false;
+            for (Map<String, Object> action : (List<Map<String, Object>>) source.get("actions")) {
+                long duration = number(action, "duration", 0).longValue();
+                switch (String.valueOf(action.get("type"))) {
+                    case "pointerMove" -> {
+                        x = number(action, "x", x).intValue();
+                        y = number(action, "y", y).intValue();
+                        if (down) {
+                            heldMillis += duration;
+                        }
+                    }
+                    case "pause" -> {
+                        if (down) {
+                            heldMillis += duration;
+                        }
+                    }
+                    case "pointerDown" -> {
+                        down = true;
+                        downX = x;
+                        downY = y;
+                        heldMillis = 0;
+                    }
+                    case "pointerUp" -> {
+                        if (down) {
+                            gesture(downX, downY, x, y, heldMillis);
+                        }
+                        down = false;
+                    }
+                    default -> {
+                        // keyboard/wheel actions are not modelled
+                    }
+                }
+            }
+        }
+    }
+
+    private void gesture(int fromX, int fromY, int toX, int toY, long heldMillis) {
+        int dy = toY - fromY;
+        if (Math.abs(dy) > 100 && Math.abs(dy) > Math.abs(toX - fromX)) {
+            swipe(dy > 0 ? "down" : "up", fromY);
+        } else if (heldMillis >= LONG_PRESS_MILLIS) {
+            longPressAt(toX, toY);
+        } else {
+            tapAt(toX, toY);
+        }
+    }
+
+    private void swipe(String direction, int top) {
+        if (platform != PlatformType.ANDROID || direction == null) {
+            return;
+        }
+        if (direction.equalsIgnoreCase("down") && top < 100) {
+            shadeOpen = true;
+        } else if (direction.equalsIgnoreCase("up")) {
+            shadeOpen = false;
+        }
+    }
+
+    private void longPressAt(int x, int y) {
+        FakeElement target = hit(render().root, x, y);
+        if (target != null && "map".equals(target.id)) {
+            // MapsActivity adds a fixed 200m geofence at the long-clicked (centred) position
+            addGeofence(latitude, longitude, ANDROID_GEOFENCE_RADIUS, "Geofence " + (geofences.size() + 1));
+        }
+    }
+
+    private void tapAt(int x, int y) {
+        FakeElement target = hit(render().root, x, y);
+        if (target != null) {
+            activate(target);
+        }
+    }
+
+    private static FakeElement hit(FakeElement element, int x, int y) {
+        // Last matching child wins: later siblings are drawn on top
+        for (int i = element.children.size() - 1; i >= 0; i--) {
+            FakeElement found = hit(element.children.get(i), x, y);
+            if (found != null) {
+                return found;
+            }
+        }
+        return element.displayed && element.contains(x, y) ? element : null;
+    }
+
+    // ==================== Page source and screenshots ====================
+
+    synchronized String pageSource() {
+        try {
+            Transformer transformer = TransformerFactory.newInstance().newTransformer();
+            transformer.setOutputProperty(OutputKeys.INDENT, "yes");
+            StringWriter writer = new StringWriter();
+            transformer.transform(new DOMSource(render().document), new StreamResult(writer));
+            return writer.toString();
+        } catch (TransformerException e) {
+            throw new FakeAppiumServer.W3CException(500, "unknown error", "Could not serialize page source: " + e);
+        }
+    }
+
+    /**
+     * Renders a quarter-scale PNG of the current screen as base64.
+     */
+    synchronized String screenshot() {
+        BufferedImage image = new BufferedImage(SCREEN_WIDTH / 4, SCREEN_HEIGHT / 4, BufferedImage.TYPE_INT_RGB);
+        Graphics2D g = image.createGraphics();
+        try {
+            paint(g, render().root);
+        } finally {
+            g.dispose();
+        }
+        try (ByteArrayOutputStream out = new ByteArrayOutputStream()) {
+            ImageIO.write(image, "png", out);
+            return Base64.getEncoder().encodeToString(out.toByteArray());
+        } catch (IOException e) {
+            throw new FakeAppiumServer.W3CException(500, "unknown error", "Could not encode screenshot: " + e);
+        }
+    }
+
+    private void paint(Graphics2D g, FakeElement element) {
+        if (!element.displayed) {
+            return;
+        }
+        Color fill = switch (element.id) {
+            case "screen" -> Color.WHITE;
+            case "map" -> new Color(170, 211, 223);
+            case "shade" -> new Color(32, 33, 36);
+            case "permission-dialog", "ios-alert" -> new Color(240, 240, 240);
+            default -> null;
+        };
+        if (fill != null) {
+            g.setColor(fill);
+            g.fillRect(element.x / 4, element.y / 4, element.width / 4, element.height / 4);
+        }
+        if ("map".equals(element.id) && !geofences.isEmpty()) {
+            int cx = (element.x + element.width / 2) / 4;
+            int cy = (element.y + element.height / 2) / 4;
+            g.setColor(new Color(255, 0, 0, 96));
+            g.fillOval(cx - 40, cy - 40, 80, 80);
+        }
+        for (FakeElement child : element.children) {
+            paint(g, child);
+        }
+    }
+
+    private Rendered render() {
+        FakeElement root = platform == PlatformType.ANDROID ? renderAndroid() : renderIOS();
+        return new Rendered(root, platform);
+    }
+
+    private FakeElement renderAndroid() {
+        FakeElement screen = new FakeElement("screen", "hierarchy").bounds(0, 0, SCREEN_WIDTH, SCREEN_HEIGHT);
+        if (appState == APP_RUNNING_IN_FOREGROUND) {
+            screen.child(androidNode("app", "android.widget.FrameLayout", ANDROID_APP, null, null)
+                    .bounds(0, 0, SCREEN_WIDTH, SCREEN_HEIGHT)
+                    .child(androidNode("map", "android.view.View", ANDROID_APP, ANDROID_APP + ":id/map", null)
+                            .attr("content-desc", "Google Map").bounds(0, 210, SCREEN_WIDTH, 1980))
+                    .child(androidNode("status", "android.widget.TextView", ANDROID_APP,
+                            ANDROID_APP + ":id/testStatusText", statusText)
+                            .bounds(40, 2200, 1000, 80).displayed(!statusText.isEmpty())));
+            String permission = pendingPermissions.peek();
+            if (permission != null) {
+                screen.child(permissionDialog(permission));
+            }
+        }
+        if (shadeOpen) {
+            FakeElement shade = androidNode("shade", "android.widget.FrameLayout", "com.android.systemui",
+                    "com.android.systemui:id/notification_stack_scroller", null).bounds(0, 0, SCREEN_WIDTH, 1600);
+            int y = 200;
+            for (int i = 0; i < notifications.size(); i++, y += 200) {
+                Map<String, String> notification = notifications.get(i);
+                shade.child(androidNode("notification-" + i, "android.widget.FrameLayout", "com.android.systemui",
+                                "com.android.systemui:id/expandableNotificationRow", null)
+                        .bounds(0, y, SCREEN_WIDTH, 180)
+                        .child(androidNode("notification-" + i + "-title", "android.widget.TextView",
+                                "com.android.systemui", "android:id/title", notification.get("title"))
+                                .bounds(40, y + 20, 1000, 60))
+                        .child(androidNode("notification-" + i + "-text", "android.widget.TextView",
+                                "com.android.systemui", "android:id/text", notification.get("text"))
+                                .bounds(40, y + 90, 1000, 60)));
+            }
+            screen.child(shade);
+        }
+        return screen;
+    }
+
+    private FakeElement permissionDialog(String permission) {
+        FakeElement dialog = androidNode("permission-dialog", "android.widget.LinearLayout", PERMISSION_PACKAGE,
+                PERMISSION_PACKAGE + ":id/grant_dialog", null).bounds(60, 700, 960, 1000);
+        switch (permission) {
+            case "notifications" -> dialog
+                    .child(androidNode("permission-message", "android.widget.TextView", PERMISSION_PACKAGE,
+                            PERMISSION_PACKAGE + ":id/permission_message",
+                            "Allow Geofencing to send you notifications?").bounds(100, 760, 880, 200))
+                    .child(androidNode("permission-allow", "android.widget.Button", PERMISSION_PACKAGE,
+                            PERMISSION_PACKAGE + ":id/permission_allow_button", "Allow").bounds(100, 1400, 880, 120))
+                    .child(androidNode("permission-deny", "android.widget.Button", PERMISSION_PACKAGE,
+                            PERMISSION_PACKAGE + ":id/permission_deny_button", "Don’t allow").bounds(100, 1540, 880, 120));
+            case "foreground-location" -> dialog
+                    .child(androidNode("permission-message", "android.widget.TextView", PERMISSION_PACKAGE,
+                            PERMISSION_PACKAGE + ":id/permission_message",
+                            "Allow Geofencing to access this device’s location?").bounds(100, 760, 880, 200))
+                    .child(androidNode("permission-allow-foreground", "android.widget.Button", PERMISSION_PACKAGE,
+                            PERMISSION_PACKAGE + ":id/permission_allow_foreground_only_button",
+                            "While using the app").bounds(100, 1400, 880, 120))
+                    .child(androidNode("permission-deny", "android.widget.Button", PERMISSION_PACKAGE,
+                            PERMISSION_PACKAGE + ":id/permission_deny_button", "Don’t allow").bounds(100, 1540, 880, 120));
+            default -> dialog
+                    .child(androidNode("permission-allow-always", "android.widget.RadioButton", PERMISSION_PACKAGE,
+                            PERMISSION_PACKAGE + ":id/allow_always_radio_button", "Allow all the time")
+                            .bounds(100, 900, 880, 120))
+                    .child(androidNode("permission-deny", "android.widget.RadioButton", PERMISSION_PACKAGE,
+                            PERMISSION_PACKAGE + ":id/deny_radio_button", "Don’t allow").bounds(100, 1040, 880, 120));
+        }
+        return dialog;
+    }
+
+    private static FakeElement androidNode(String id, String className, String pkg, String resourceId, String text) {
+        return new FakeElement(id, className)
+                .attr("class", className)
+                .attr("package", pkg)
+                .attr("resource-id", resourceId)
+                .attr("text", text == null ? "" : text);
+    }
+
+    private FakeElement renderIOS() {
+        FakeElement app = new FakeElement("screen", "XCUIElementTypeApplication")
+                .attr("name", IOS_APP_TITLE).attr("label", IOS_APP_TITLE).bounds(0, 0, SCREEN_WIDTH, SCREEN_HEIGHT);
+        if (appState != APP_RUNNING_IN_FOREGROUND) {
+            return app;
+        }
+        for (int i = 0; i < IOS_FIELDS.length; i++) {
+            app.child(new FakeElement("ios-field-" + i, "XCUIElementTypeTextField")
+                    .attr("value", fieldValues[i] == null || fieldValues[i].isEmpty() ? IOS_FIELDS[i] : fieldValues[i])
+                    .attr("placeholderValue", IOS_FIELDS[i])
+                    .bounds(60, 200 + i * 140, 960, 110));
+        }
+        app.child(new FakeElement("ios-add", "XCUIElementTypeButton")
+                .attr("name", "Add").attr("label", "Add").bounds(390, 920, 300, 120));
+        app.child(new FakeElement("map", "XCUIElementTypeMap").bounds(0, 1100, SCREEN_WIDTH, 1300));
+        if (keyboardShown) {
+            app.child(new FakeElement("ios-keyboard", "XCUIElementTypeKeyboard").bounds(0, 1500, SCREEN_WIDTH, 900));
+        }
+        String alert = alerts.peek();
+        if (alert != null) {
+            app.child(new FakeElement("ios-alert", "XCUIElementTypeAlert")
+                    .attr("name", alert).attr("label", alert).bounds(140, 900, 800, 400)
+                    .child(new FakeElement("ios-alert-text", "XCUIElementTypeStaticText")
+                            .attr("name", alert).attr("label", alert).bounds(180, 950, 720, 150))
+                    .child(new FakeElement("ios-alert-ok", "XCUIElementTypeButton")
+                            .attr("name", "OK").attr("label", "OK").bounds(140, 1180, 800, 120)));
+        }
+        return app;
+    }
+
+    private String toXPath(String using, String value) {
+        String nameAttribute = platform == PlatformType.ANDROID ? "resource-id" : "name";
+        return switch (using) {
+            case "xpath" -> value;
+            case "id" -> "//*[@" + nameAttribute + "=" + quote(value) + "]";
+            case "accessibility id" -> platform == PlatformType.ANDROID
+                    ? "//*[@content-desc=" + quote(value) + "]" : "//*[@name=" + quote(value) + "]";
+            case "class name" -> "//" + value;
+            case "css selector" -> cssToXPath(value, nameAttribute);
+            default -> throw new FakeAppiumServer.W3CException(400, "invalid selector",
+                    "Locator strategy '" + using + "' is not supported by the fake server");
+        };
+    }
+
+    private static String cssToXPath(String css, String nameAttribute) {
+        // Only the forms Selenium generates for By.id / By.name
+        if (css.startsWith("#")) {
+            return "//*[@" + nameAttribute + "=" + quote(css.substring(1).replace("\\", "")) + "]";
+        }
+        Matcher m = CSS_ATTRIBUTE.matcher(css);
+        if (m.matches()) {
+            return "//*[@" + nameAttribute + "=" + quote(m.group(2)) + "]";
+        }
+        throw new FakeAppiumServer.W3CException(400, "invalid selector", "Unsupported CSS selector: " + css);
+    }
+
+    private static String quote(String value) {
+        return value.contains("'") ? "\"" + value + "\"" : "'" + value + "'";
+    }
+
+    private static FakeElement element(Rendered rendered, String id) {
+        FakeElement element = rendered.index.get(id);
+        if (element == null) {
+            throw new FakeAppiumServer.W3CException(404, "stale element reference",
+                    "The element '" + id + "' is no longer attached to the page");
+        }
+        return element;
+    }
+
+    // ==================== Helpers ====================
+
+    private static String queryParam(String url, String name) {
+        int query = url.indexOf('?');
+        if (query < 0) {
+            return "";
+        }
+        for (String pair : url.substring(query + 1).split("&")) {
+            String[] kv = pair.split("=", 2);
+            if (kv[0].equals(name) && kv.length == 2) {
+                return kv[1];
+            }
+        }
+        return "";
+    }
+
+    private static String string(Map<String, Object> args, String key) {
+        Object value = args.get(key);
+        return value == null ? null : value.toString();
+    }
+
+    private static Number number(Map<String, Object> args, String key, Number fallback) {
+        Object value = args.get(key);
+        if (value instanceof Number n) {
+            return n;
+        }
+        if (value instanceof String s && !s.isEmpty()) {
+            return Double.parseDouble(s);
+        }
+        return fallback;
+    }
+
+    private static final class Geofence {
+        private final double latitude;
+        private final double longitude;
+        private final int radius;
+        private final String title;
+        private boolean inside;
+
+        private Geofence(double latitude, double longitude, int radius, String title) {
+            this.latitude = latitude;
+            this.longitude = longitude;
+            this.radius = radius;
+            this.title = title;
+        }
+
+        private boolean contains(double lat, double lng) {
+            return distanceMeters(latitude, longitude, lat, lng) <= radius;
+        }
+
+        private static double distanceMeters(double lat1, double lng1, double lat2, double lng2) {
+            double dLat = Math.toRadians(lat2 - lat1);
+            double dLng = Math.toRadians(lng2 - lng1);
+            double a = Math.sin(dLat / 2) * Math.sin(dLat / 2)
+                    + Math.cos(Math.toRadians(lat1)) * Math.cos(Math.toRadians(lat2))
+                    * Math.sin(dLng / 2) * Math.sin(dLng / 2);
+            return 6_371_000 * 2 * Math.atan2(Math.sqrt(a), Math.sqrt(1 - a));
+        }
+    }
+
+    /**
+     * One rendering of the UI tree as both element index and DOM, so XPath results map back to elements.
+     */
+    private static final class Rendered {
+        private final FakeElement root;
+        private final Document document;
+        private final Map<String, FakeElement> index = new HashMap<>();
+        private final Map<Node, FakeElement> elementsByNode = new IdentityHashMap<>();
+        private final Map<FakeElement, Node> nodesByElement = new IdentityHashMap<>();
+
+        private Rendered(FakeElement root, PlatformType platform) {
+            this.root = root;
+            root.collect(index);
+            try {
+                document = DocumentBuilderFactory.newInstance().newDocumentBuilder().newDocument();
+            } catch (ParserConfigurationException e) {
+                throw new IllegalStateException("No XML parser available", e);
+            }
+            Node top = platform == PlatformType.ANDROID ? document : document.appendChild(document.createElement("AppiumAUT"));
+            top.appendChild(toNode(root, platform, 0));
+        }
+
+        private Element toNode(FakeElement element, PlatformType platform, int index) {
+            Element node = document.createElement(element.type);
+            if (platform == PlatformType.ANDROID) {
+                node.setAttribute("index", String.valueOf(index));
+                element.attributes.forEach(node::setAttribute);
+                node.setAttribute("content-desc", element.attributes.getOrDefault("content-desc", ""));
+                node.setAttribute("enabled", String.valueOf(element.enabled));
+                node.setAttribute("displayed", String.valueOf(element.displayed));
+                node.setAttribute("bounds", "[" + element.x + "," + element.y + "]["
+                        + (element.x + element.width) + "," + (element.y + element.height) + "]");
+            } else {
+                node.setAttribute("type", element.type);
+                element.attributes.forEach(node::setAttribute);
+                node.setAttribute("enabled", String.valueOf(element.enabled));
+                node.setAttribute("visible", String.valueOf(element.displayed));
+                node.setAttribute("x", String.valueOf(element.x));
+                node.setAttribute("y", String.valueOf(element.y));
+                node.setAttribute("width", String.valueOf(element.width));
+                node.setAttribute("height", String.valueOf(element.height));
+            }
+            elementsByNode.put(node, element);
+            nodesByElement.put(element, node);
+            for (int i = 0; i < element.children.size(); i++) {
+                node.appendChild(toNode(element.children.get(i), platform, i));
+            }
+            return node;
+        }
+
+        private FakeElement elementFor(Node node) {
+            return elementsByNode.get(node);
+        }
+
+        private Node nodeFor(FakeElement element) {
+            return nodesByElement.get(element);
+        }
+    }
+}
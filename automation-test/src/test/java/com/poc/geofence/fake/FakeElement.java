@@ -0,0 +1,79 @@
+package com.poc.geofence.fake;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A node of the fake device's UI tree.
+ * Ids are stable per logical element so references survive re-rendering,
+ * and an element missing from the current tree is reported as stale.
+ */
+class FakeElement {
+    final String id;
+    final String type;
+    final Map<String, String> attributes = new LinkedHashMap<>();
+    final List<FakeElement> children = new ArrayList<>();
+    int x;
+    int y;
+    int width;
+    int height;
+    boolean displayed = true;
+    boolean enabled = true;
+
+    FakeElement(String id, String type) {
+        this.id = id;
+        this.type = type;
+    }
+
+    FakeElement attr(String name, String value) {
+        if (value != null) {
+            attributes.put(name, value);
+        }
+        return this;
+    }
+
+    FakeElement bounds(int x, int y, int width, int height) {
+        this.x = x;
+        this.y = y;
+        this.width = width;
+        this.height = height;
+        return this;
+    }
+
+    FakeElement displayed(boolean displayed) {
+        this.displayed = displayed;
+        return this;
+    }
+
+    FakeElement child(FakeElement child) {
+        children.add(child);
+        return this;
+    }
+
+    /**
+     * Visible text as returned by getText(): Android "text", iOS "value" then "label".
+     */
+    String text() {
+        String text = attributes.get("text");
+        if (text == null) {
+            text = attributes.get("value");
+        }
+        if (text == null) {
+            text = attributes.get("label");
+        }
+        return text == null ? "" : text;
+    }
+
+    boolean contains(int px, int py) {
+        return px >= x && px < x + width && py >= y && py < y + height;
+    }
+
+    void collect(Map<String, FakeElement> index) {
+        index.put(id, this);
+        for (FakeElement child : children) {
+            child.collect(index);
+        }
+    }
+}
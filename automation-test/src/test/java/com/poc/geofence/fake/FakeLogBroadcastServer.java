@@ -0,0 +1,145 @@
+package com.poc.geofence.fake;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.Base64;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Minimal websocket server standing in for Appium's device log broadcast
+ * ({@code /ws/session/<id>/appium/device/logcat}), so log streaming can be tested without a device.
+ *
+ * <p>Accepts any path, records it, and pushes text frames to every connected client. Frames
+ * sent by clients are not read.
+ */
+public class FakeLogBroadcastServer implements AutoCloseable {
+    private static final Logger log = LoggerFactory.getLogger(FakeLogBroadcastServer.class);
+    private static final String WEBSOCKET_GUID = "258EAFA5-E914-47DA-95CA-C5AB0DC85B11";
+
+    private final ServerSocket serverSocket;
+    private final List<Socket> clients = new CopyOnWriteArrayList<>();
+    private final List<String> paths = new CopyOnWriteArrayList<>();
+    private final CountDownLatch connected = new CountDownLatch(1);
+
+    public FakeLogBroadcastServer() throws IOException {
+        serverSocket = new ServerSocket(0, 50, InetAddress.getLoopbackAddress());
+        Thread acceptor = new Thread(this::acceptLoop, "fake-log-broadcast");
+        acceptor.setDaemon(true);
+        acceptor.start();
+    }
+
+    /**
+     * @return the base URL to use as the Appium server address, e.g. http://127.0.0.1:53111
+     */
+    public String getUrl() {
+        return "http://127.0.0.1:" + serverSocket.getLocalPort();
+    }
+
+    /**
+     * @return request paths of all websocket connections so far
+     */
+    public List<String> paths() {
+        return List.copyOf(paths);
+    }
+
+    /**
+     * Waits for the first client to connect.
+     * @return true if a client connected in time
+     */
+    public boolean awaitClient(Duration timeout) throws InterruptedException {
+        return connected.await(timeout.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Sends one text frame to every connected client.
+     */
+    public void send(String text) throws IOException {
+        byte[] payload = text.getBytes(StandardCharsets.UTF_8);
+        byte[] header;
+        if (payload.length < 126) {
+            header = new byte[] {(byte) 0x81, (byte) payload.length};
+        } else {
+            header = new byte[] {(byte) 0x81, 126, (byte) (payload.length >> 8), (byte) payload.length};
+        }
+        for (Socket client : clients) {
+            OutputStream out = client.getOutputStream();
+            synchronized (client) {
+                out.write(header);
+                out.write(payload);
+                out.flush();
+            }
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        serverSocket.close();
+        for (Socket client : clients) {
+            client.close();
+        }
+    }
+
+    private void acceptLoop() {
+        while (!serverSocket.isClosed()) {
+            try {
+                Socket socket = serverSocket.accept();
+                handshake(socket);
+                clients.add(socket);
+                connected.countDown();
+            } catch (IOException e) {
+                if (!serverSocket.isClosed()) {
+                    log.warn("Fake log broadcast connection failed: {}", e.getMessage());
+                }
+            }
+        }
+    }
+
+    private void handshake(Socket socket) throws IOException {
+        BufferedReader in = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.US_ASCII));
+        String requestLine = in.readLine();
+        String key = null;
+        for (String line = in.readLine(); line != null && !line.isEmpty(); line = in.readLine()) {
+            int colon = line.indexOf(':');
+            if (colon > 0 && line.substring(0, colon).trim().equalsIgnoreCase("Sec-WebSocket-Key")) {
+                key = line.substring(colon + 1).trim();
+            }
+        }
+        if (requestLine == null || key == null) {
+            socket.close();
+            throw new IOException("Not a websocket upgrade: " + requestLine);
+        }
+        paths.add(requestLine.split(" ")[1]);
+        String response = "HTTP/1.1 101 Switching Protocols\r\n"
+                + "Upgrade: websocket\r\n"
+                + "Connection: Upgrade\r\n"
+                + "Sec-WebSocket-Accept: " + accept(key) + "\r\n\r\n";
+        OutputStream out = socket.getOutputStream();
+        out.write(response.getBytes(StandardCharsets.US_ASCII));
+        out.flush();
+    }
+
+    private static String accept(String key) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-1")
+                    .digest((key + WEBSOCKET_GUID).getBytes(StandardCharsets.US_ASCII));
+            return Base64.getEncoder().encodeToString(digest);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,326 @@
+package com.poc.geofence.fake;
+
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.Node;
+import org.w3c.dom.NodeList;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Predicate;
+import java.util.regex.Pattern;
+
+/**
+ * Evaluates the native locator strategies against the fake device's rendered DOM:
+ * {@code -android uiautomator} (UiSelector chains, ';'-separated), {@code -ios class chain}
+ * and {@code -ios predicate string}.
+ *
+ * <p>Covers the criteria the framework's locators use (className, text, resourceId and
+ * description with their Contains/Matches/StartsWith forms, instance, childSelector; class
+ * chain steps with index and {@code ==}/{@code CONTAINS}/{@code BEGINSWITH} predicates joined
+ * by AND or OR). Anything else is rejected as an invalid selector, like a real driver would.
+ */
+final class FakeNativeLocators {
+
+    private FakeNativeLocators() {
+    }
+
+    static boolean supports(String using) {
+        return using.equals("-android uiautomator") || using.equals("-ios class chain")
+                || using.equals("-ios predicate string");
+    }
+
+    /**
+     * @return matching elements below the context node
+     * @throws IllegalArgumentException if the selector cannot be parsed
+     */
+    static List<Node> find(String using, String value, Node context) {
+        return switch (using) {
+            case "-android uiautomator" -> uiAutomator(value, context);
+            case "-ios class chain" -> classChain(value, context);
+            case "-ios predicate string" -> descendants(context).stream()
+                    .filter(nsPredicate(value)).map(Node.class::cast).toList();
+            default -> throw new IllegalArgumentException("Unsupported strategy " + using);
+        };
+    }
+
+    // ==================== UiSelector ====================
+
+    private static List<Node> uiAutomator(String value, Node context) {
+        Set<Node> matches = new LinkedHashSet<>();
+        Cursor cursor = new Cursor(value);
+        do {
+            matches.addAll(selector(cursor).find(context));
+        } while (cursor.skip(";") && !cursor.atEnd());
+        if (!cursor.atEnd()) {
+            throw cursor.error();
+        }
+        return new ArrayList<>(matches);
+    }
+
+    private static Selector selector(Cursor cursor) {
+        cursor.expect("new");
+        cursor.expect("UiSelector");
+        cursor.expect("(");
+        cursor.expect(")");
+        Selector selector = new Selector();
+        while (cursor.skip(".")) {
+            String method = cursor.identifier();
+            cursor.expect("(");
+            switch (method) {
+                case "childSelector" -> selector.child = selector(cursor);
+                case "instance" -> selector.instance = cursor.integer();
+                default -> selector.criteria.add(criterion(method, cursor.string()));
+            }
+            cursor.expect(")");
+        }
+        return selector;
+    }
+
+    private static Predicate<Element> criterion(String method, String argument) {
+        String[] forms = {"Contains", "Matches", "StartsWith"};
+        String form = "";
+        String attribute = method;
+        for (String candidate : forms) {
+            if (method.endsWith(candidate)) {
+                form = candidate;
+                attribute = method.substring(0, method.length() - candidate.length());
+            }
+        }
+        String name = switch (attribute) {
+            case "className" -> "class";
+            case "text" -> "text";
+            case "resourceId" -> "resource-id";
+            case "description" -> "content-desc";
+            default -> throw new IllegalArgumentException("Unsupported UiSelector method " + method);
+        };
+        Pattern pattern = form.equals("Matches") ? Pattern.compile(argument) : null;
+        String matchForm = form;
+        return element -> {
+            String actual = name.equals("class") ? element.getTagName() : element.getAttribute(name);
+            return switch (matchForm) {
+                case "Contains" -> actual.contains(argument);
+                case "StartsWith" -> actual.startsWith(argument);
+                case "Matches" -> pattern.matcher(actual).matches();
+                default -> actual.equals(argument);
+            };
+        };
+    }
+
+    private static final class Selector {
+        private final List<Predicate<Element>> criteria = new ArrayList<>();
+        private Selector child;
+        private int instance = -1;
+
+        List<Node> find(Node context) {
+            List<Element> matches = new ArrayList<>();
+            for (Element element : descendants(context)) {
+                if (criteria.stream().allMatch(c -> c.test(element))) {
+                    matches.add(element);
+                }
+            }
+            if (instance >= 0) {
+                matches = instance < matches.size() ? List.of(matches.get(instance)) : List.of();
+            }
+            if (child == null) {
+                return new ArrayList<>(matches);
+            }
+            Set<Node> children = new LinkedHashSet<>();
+            matches.forEach(match -> children.addAll(child.find(match)));
+            return new ArrayList<>(children);
+        }
+    }
+
+    // ==================== Class chain and predicates ====================
+
+    private static List<Node> classChain(String value, Node context) {
+        List<Node> current = List.of(context);
+        Cursor cursor = new Cursor(value);
+        while (!cursor.atEnd()) {
+            boolean deep = cursor.skip("**/");
+            String type = cursor.skip("*") ? null : cursor.identifier();
+            List<Element> next = new ArrayList<>();
+            for (Node parent : current) {
+                for (Element candidate : deep ? descendants(parent) : children(parent)) {
+                    if ((type == null || candidate.getTagName().equals(type)) && !next.contains(candidate)) {
+                        next.add(candidate);
+                    }
+                }
+            }
+            while (cursor.skip("[")) {
+                if (cursor.skip("`")) {
+                    next = next.stream().filter(nsPredicate(cursor.until('`'))).toList();
+                } else {
+                    // 1-based; negative counts from the end
+                    int index = cursor.integer();
+                    int at = index > 0 ? index - 1 : next.size() + index;
+                    next = at >= 0 && at < next.size() ? List.of(next.get(at)) : List.of();
+                }
+                cursor.expect("]");
+            }
+            current = new ArrayList<>(next);
+            if (!cursor.atEnd()) {
+                cursor.expect("/");
+            }
+        }
+        return current;
+    }
+
+    private static Predicate<Element> nsPredicate(String expression) {
+        Cursor cursor = new Cursor(expression);
+        Predicate<Element> predicate = comparison(cursor);
+        while (!cursor.atEnd()) {
+            if (cursor.skip("AND")) {
+                predicate = predicate.and(comparison(cursor));
+            } else if (cursor.skip("OR")) {
+                predicate = predicate.or(comparison(cursor));
+            } else {
+                throw cursor.error();
+            }
+        }
+        return predicate;
+    }
+
+    private static Predicate<Element> comparison(Cursor cursor) {
+        String attribute = cursor.identifier();
+        String operator = cursor.skip("==") ? "==" : cursor.skip("CONTAINS") ? "CONTAINS"
+                : cursor.skip("BEGINSWITH") ? "BEGINSWITH" : null;
+        if (operator == null) {
+            throw cursor.error();
+        }
+        String expected = cursor.string();
+        return element -> {
+            String actual = element.getAttribute(attribute);
+            return switch (operator) {
+                case "CONTAINS" -> actual.contains(expected);
+                case "BEGINSWITH" -> actual.startsWith(expected);
+                default -> actual.equals(expected);
+            };
+        };
+    }
+
+    // ==================== Helpers ====================
+
+    private static List<Element> descendants(Node node) {
+        List<Element> elements = new ArrayList<>();
+        NodeList nodes = node instanceof Element element
+                ? element.getElementsByTagName("*") : ((Document) node).getElementsByTagName("*");
+        for (int i = 0; i < nodes.getLength(); i++) {
+            elements.add((Element) nodes.item(i));
+        }
+        return elements;
+    }
+
+    private static List<Element> children(Node parent) {
+        List<Element> elements = new ArrayList<>();
+        for (Node child = parent.getFirstChild(); child != null; child = child.getNextSibling()) {
+            if (child instanceof Element element) {
+                elements.add(element);
+            }
+        }
+        return elements;
+    }
+
+    private static final class Cursor {
+        private final String text;
+        private int pos;
+
+        Cursor(String text) {
+            this.text = text;
+        }
+
+        boolean atEnd() {
+            whitespace();
+            return pos >= text.length();
+        }
+
+        boolean skip(String token) {
+            whitespace();
+            if (text.startsWith(token, pos)) {
+                pos += token.length();
+                return true;
+            }
+            return false;
+        }
+
+        void expect(String token) {
+            if (!skip(token)) {
+                throw error();
+            }
+        }
+
+        String identifier() {
+            whitespace();
+            int start = pos;
+            while (pos < text.length() && (Character.isLetterOrDigit(text.charAt(pos)) || text.charAt(pos) == '_')) {
+                pos++;
+            }
+            if (start == pos) {
+                throw error();
+            }
+            return text.substring(start, pos);
+        }
+
+        int integer() {
+            whitespace();
+            int start = pos;
+            if (pos < text.length() && text.charAt(pos) == '-') {
+                pos++;
+            }
+            while (pos < text.length() && Character.isDigit(text.charAt(pos))) {
+                pos++;
+            }
+            try {
+                return Integer.parseInt(text.substring(start, pos));
+            } catch (NumberFormatException e) {
+                throw error();
+            }
+        }
+
+        /**
+         * Reads a double- or single-quoted string with backslash escapes.
+         */
+        String string() {
+            whitespace();
+            char quote = pos < text.length() ? text.charAt(pos) : 0;
+            if (quote != '"' && quote != '\'') {
+                throw error();
+            }
+            StringBuilder sb = new StringBuilder();
+            for (pos++; pos < text.length(); pos++) {
+                char c = text.charAt(pos);
+                if (c == '\\' && pos + 1 < text.length()) {
+                    sb.append(text.charAt(++pos));
+                } else if (c == quote) {
+                    pos++;
+                    return sb.toString();
+                } else {
+                    sb.append(c);
+                }
+            }
+            throw error();
+        }
+
+        String until(char end) {
+            int close = text.indexOf(end, pos);
+            if (close < 0) {
+                throw error();
+            }
+            String value = text.substring(pos, close);
+            pos = close + 1;
+            return value;
+        }
+
+        private void whitespace() {
+            while (pos < text.length() && Character.isWhitespace(text.charAt(pos))) {
+                pos++;
+            }
+        }
+
+        IllegalArgumentException error() {
+            return new IllegalArgumentException("Cannot parse at " + pos + ": " + text);
+        }
+    }
+}
@@ -0,0 +1,49 @@
+package com.poc.geofence.metrics;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+/**
+ * Unit tests for LatencyHistogram bucketing and percentiles.
+ */
+public class LatencyHistogramTest {
+
+    @Test
+    public void bucketsCoverValuesWithBoundedError() {
+        for (long micros : new long[]{0, 1, 15, 16, 17, 31, 32, 1_000, 123_456, 60_000_000}) {
+            long upper = LatencyHistogram.bucketUpperBound(LatencyHistogram.bucketIndex(micros));
+            Assert.assertTrue(upper >= micros, "bucket upper bound below value " + micros);
+            Assert.assertTrue(upper <= micros * 1.07 + 1, "bucket too wide for " + micros + ": " + upper);
+        }
+    }
+
+    @Test
+    public void reportsPercentilesAndMax() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (int ms = 1; ms <= 100; ms++) {
+            histogram.record(ms * 1_000_000L);
+        }
+
+        LatencyHistogram.Snapshot snapshot = histogram.snapshot();
+
+        Assert.assertEquals(snapshot.count(), 100);
+        Assert.assertEquals(snapshot.p50Micros() / 1000.0, 50.0, 50 * 0.07);
+        Assert.assertEquals(snapshot.p95Micros() / 1000.0, 95.0, 95 * 0.07);
+        Assert.assertEquals(snapshot.p99Micros() / 1000.0, 99.0, 99 * 0.07);
+        Assert.assertEquals(snapshot.maxMicros(), 100_000);
+        Assert.assertEquals(snapshot.total().toMillis(), 5050);
+    }
+
+    @Test
+    public void mergeCombinesObservations() {
+        LatencyHistogram a = new LatencyHistogram();
+        LatencyHistogram b = new LatencyHistogram();
+        a.record(2_000_000);
+        b.record(8_000_000);
+
+        a.merge(b);
+
+        Assert.assertEquals(a.snapshot().count(), 2);
+        Assert.assertEquals(a.snapshot().maxMicros(), 8_000);
+    }
+}
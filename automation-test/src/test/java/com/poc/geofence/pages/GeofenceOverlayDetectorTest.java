@@ -0,0 +1,85 @@
+package com.poc.geofence.pages;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import javax.imageio.ImageIO;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+
+/**
+ * Unit tests for GeofenceOverlayDetector on synthetic map screenshots.
+ */
+public class GeofenceOverlayDetectorTest {
+    private static final Color WATER = new Color(170, 211, 223);
+    private static final Color HIGHWAY = new Color(233, 120, 70);
+    private static final Color FILL = new Color(255, 0, 0, 64);
+
+    private final GeofenceOverlayDetector detector = GeofenceOverlayDetector.builder().build();
+
+    @Test
+    public void findsTheCenteredOverlayAgainstTheBaseline() throws IOException {
+        BufferedImage before = map();
+        BufferedImage after = map();
+        circle(after, 540, 990, 200);
+
+        // Round trip through PNG, as screenshots arrive
+        GeofenceOverlayDetector.Result result = detector.detect(
+                GeofenceOverlayDetector.decode(png(after)), GeofenceOverlayDetector.decode(png(before)));
+
+        Assert.assertTrue(result.found(), result.toString());
+        Assert.assertTrue(result.againstBaseline());
+        Assert.assertTrue(Math.abs(result.offsetX()) < 0.1 && Math.abs(result.offsetY()) < 0.1, result.toString());
+        // Every second pixel of a 540px window in both directions
+        Assert.assertEquals(result.sampled(), 270 * 270);
+    }
+
+    @Test
+    public void ignoresRedMapFeaturesAndOffCenterOverlays() {
+        BufferedImage before = map();
+
+        // Without a baseline the highway alone looks like an overlay; against it nothing changed
+        Assert.assertTrue(detector.detect(before, null).redFraction() > 0.05);
+        Assert.assertFalse(detector.detect(map(), before).found(), "long-click did nothing");
+
+        BufferedImage offCenter = map();
+        circle(offCenter, 900, 1700, 150);
+        Assert.assertFalse(detector.detect(offCenter, before).found(), "overlay outside the expected spot");
+
+        Assert.assertThrows(UncheckedIOException.class, () -> GeofenceOverlayDetector.decode(new byte[]{1, 2, 3}));
+        Assert.assertThrows(IllegalArgumentException.class, () -> GeofenceOverlayDetector.builder().withSampleStep(0));
+    }
+
+    /**
+     * A 1080x1980 map: water with a red-orange highway through the center.
+     */
+    private static BufferedImage map() {
+        BufferedImage image = new BufferedImage(1080, 1980, BufferedImage.TYPE_INT_RGB);
+        Graphics2D g = image.createGraphics();
+        g.setColor(WATER);
+        g.fillRect(0, 0, 1080, 1980);
+        g.setColor(HIGHWAY);
+        g.fillRect(0, 960, 1080, 60);
+        g.dispose();
+        return image;
+    }
+
+    private static void circle(BufferedImage image, int cx, int cy, int radius) {
+        Graphics2D g = image.createGraphics();
+        g.setColor(FILL);
+        g.fillOval(cx - radius, cy - radius, 2 * radius, 2 * radius);
+        g.setColor(Color.RED);
+        g.fillOval(cx - 12, cy - 40, 24, 40);
+        g.dispose();
+    }
+
+    private static byte[] png(BufferedImage image) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ImageIO.write(image, "png", out);
+        return out.toByteArray();
+    }
+}
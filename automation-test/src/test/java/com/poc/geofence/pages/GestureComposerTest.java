@@ -0,0 +1,80 @@
+package com.poc.geofence.pages;
+
+import com.poc.geofence.fake.FakeAppiumServer;
+import com.poc.geofence.metrics.CommandMetrics;
+import io.appium.java_client.AppiumBy;
+import io.appium.java_client.android.AndroidDriver;
+import io.appium.java_client.android.options.UiAutomator2Options;
+import org.openqa.selenium.Point;
+import org.openqa.selenium.WebElement;
+import org.testng.Assert;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+import java.net.URI;
+import java.time.Duration;
+import java.util.Map;
+
+/**
+ * Unit tests for GestureComposer batching and rect caching, counted on the fake Appium server.
+ */
+public class GestureComposerTest {
+    private static final String TEST = "GestureComposerTest";
+
+    private FakeAppiumServer server;
+    private AndroidDriver driver;
+
+    @BeforeClass
+    public void startSession() throws Exception {
+        server = FakeAppiumServer.builder().withEventDelay(Duration.ZERO).withLocationTransitions(false).build().start();
+        driver = new AndroidDriver(URI.create(server.getUrl()).toURL(), new UiAutomator2Options().setDeviceName("Fake Pixel"));
+        driver.executeScript("mobile: activateApp", Map.of("appId", "com.eebax.geofencing"));
+    }
+
+    @AfterClass(alwaysRun = true)
+    public void stopSession() {
+        CommandMetrics.getInstance().endTest();
+        if (driver != null) {
+            driver.quit();
+        }
+        if (server != null) {
+            server.stop();
+        }
+    }
+
+    @Test
+    public void sendsCompoundGesturesInOneCallWithOneRectPerElement() {
+        CommandMetrics.getInstance().startTest(TEST);
+        WebElement map = driver.findElement(AppiumBy.id("com.eebax.geofencing:id/map"));
+        GestureComposer gestures = new GestureComposer(driver);
+        Map<String, Long> before = server.commandCounts();
+
+        gestures.longPress(map, Duration.ofSeconds(2))
+                .pause(Duration.ofMillis(50))
+                .tap(map)
+                .swipe(new Point(550, 0), new Point(550, 375), Duration.ofMillis(300))
+                .perform();
+        gestures.perform();
+
+        Assert.assertEquals(delta(before, "performActions"), 1);
+        Assert.assertEquals(delta(before, "getElementRect"), 1);
+        Assert.assertEquals(skipped("actions"), 2);
+        Assert.assertEquals(skipped("getElementRect"), 1);
+
+        gestures.forgetRects();
+        gestures.tap(map).perform();
+        Assert.assertEquals(delta(before, "getElementRect"), 2);
+    }
+
+    private long delta(Map<String, Long> before, String command) {
+        return server.commandCounts().getOrDefault(command, 0L) - before.getOrDefault(command, 0L);
+    }
+
+    private static long skipped(String command) {
+        return CommandMetrics.getInstance().skippedForTest(TEST).stream()
+                .filter(s -> s.command().equals(command))
+                .mapToLong(CommandMetrics.SkippedStats::count)
+                .sum();
+    }
+}
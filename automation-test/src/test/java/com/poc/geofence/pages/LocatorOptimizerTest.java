@@ -0,0 +1,78 @@
+package com.poc.geofence.pages;
+
+import com.poc.geofence.config.PlatformType;
+import io.appium.java_client.AppiumBy;
+import org.openqa.selenium.By;
+import org.testng.Assert;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.Test;
+
+import java.util.Optional;
+
+/**
+ * Unit tests for LocatorOptimizer XPath translation and modes.
+ */
+public class LocatorOptimizerTest {
+
+    @AfterClass(alwaysRun = true)
+    public void clearProperties() {
+        System.clearProperty("locator.optimizer.mode");
+    }
+
+    @Test
+    public void translatesPageLocatorsToUiSelectors() {
+        Assert.assertEquals(selector(AppiumBy.xpath(
+                "//*[contains(@text,'Allow all the time') or contains(@text,'allow all the time')]"), PlatformType.ANDROID),
+                "new UiSelector().textMatches(\".*(Allow all the time|allow all the time).*\")");
+        Assert.assertEquals(selector(AppiumBy.xpath(
+                "//android.widget.TextView[contains(@resource-id, 'android:id/text') or "
+                        + "contains(@resource-id, 'android:id/title')]"), PlatformType.ANDROID),
+                "new UiSelector().className(\"android.widget.TextView\")"
+                        + ".resourceIdMatches(\".*(android:id/text|android:id/title).*\")");
+        Assert.assertEquals(selector(AppiumBy.xpath(
+                "//android.widget.Toast//android.widget.TextView | //*[contains(@class, 'Toast')]"), PlatformType.ANDROID),
+                "new UiSelector().className(\"android.widget.Toast\")"
+                        + ".childSelector(new UiSelector().className(\"android.widget.TextView\"));"
+                        + "new UiSelector().classNameMatches(\".*Toast.*\")");
+        Assert.assertEquals(selector(AppiumBy.xpath("//*[@text='Test: 1.5' and @content-desc=\"x\"]"), PlatformType.ANDROID),
+                "new UiSelector().text(\"Test: 1.5\").description(\"x\")");
+    }
+
+    @Test
+    public void translatesPageLocatorsToClassChains() {
+        Assert.assertEquals(selector(AppiumBy.xpath("(//XCUIElementTypeTextField)[3]"), PlatformType.IOS),
+                "**/XCUIElementTypeTextField[3]");
+        Assert.assertEquals(selector(AppiumBy.xpath(
+                "//XCUIElementTypeAlert//*[contains(@label, 'Data') or @name='OK']"), PlatformType.IOS),
+                "**/XCUIElementTypeAlert/**/*[`label CONTAINS \"Data\" OR name == \"OK\"`]");
+
+        // Outside the translatable subset
+        Assert.assertTrue(LocatorOptimizer.nativeEquivalent(AppiumBy.xpath("//a | //b"), PlatformType.IOS).isEmpty());
+        Assert.assertTrue(LocatorOptimizer.nativeEquivalent(AppiumBy.xpath("//*[@text='x']"), PlatformType.IOS).isEmpty());
+        Assert.assertTrue(LocatorOptimizer.nativeEquivalent(
+                AppiumBy.xpath("//*[@text='a' or @content-desc='b']"), PlatformType.ANDROID).isEmpty());
+        Assert.assertTrue(LocatorOptimizer.nativeEquivalent(
+                AppiumBy.xpath("//a/b[last()]"), PlatformType.ANDROID).isEmpty());
+        Assert.assertTrue(LocatorOptimizer.nativeEquivalent(AppiumBy.id("map"), PlatformType.ANDROID).isEmpty());
+    }
+
+    @Test
+    public void substitutesOnlyInSubstituteModeAndKeepsXPathForSnapshots() {
+        By xpath = AppiumBy.xpath("(//XCUIElementTypeTextField)[1]");
+
+        System.setProperty("locator.optimizer.mode", "suggest");
+        Assert.assertSame(LocatorOptimizer.optimize(xpath, PlatformType.IOS), xpath);
+
+        System.setProperty("locator.optimizer.mode", "substitute");
+        By substituted = LocatorOptimizer.optimize(xpath, PlatformType.IOS);
+        Assert.assertEquals(((By.Remotable) substituted).getRemoteParameters().using(), "-ios class chain");
+        Assert.assertEquals(PageSnapshot.toXPath(substituted, "ios"), Optional.of("(//XCUIElementTypeTextField)[1]"));
+
+        System.setProperty("locator.optimizer.mode", "off");
+        Assert.assertSame(LocatorOptimizer.optimize(xpath, PlatformType.IOS), xpath);
+    }
+
+    private static String selector(By xpath, PlatformType platform) {
+        return LocatorOptimizer.nativeEquivalent(xpath, platform).orElseThrow().selector();
+    }
+}
@@ -0,0 +1,73 @@
+package com.poc.geofence.pages;
+
+import io.appium.java_client.AppiumBy;
+import org.openqa.selenium.By;
+import org.openqa.selenium.Rectangle;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Unit tests for PageSnapshot parsing and local locator evaluation.
+ */
+public class PageSnapshotTest {
+    private static final String ANDROID_SOURCE = """
+            <?xml version="1.0" encoding="UTF-8"?>
+            <hierarchy rotation="0">
+              <android.widget.FrameLayout package="com.android.permissioncontroller" displayed="true">
+                <android.widget.TextView text="Allow Geofencing to access this device's location?"
+                    resource-id="com.android.permissioncontroller:id/permission_message" displayed="true"/>
+                <android.widget.Button text="While using the app" content-desc="While using"
+                    resource-id="com.android.permissioncontroller:id/permission_allow_foreground_only_button" displayed="true"/>
+                <android.widget.Button text="Don't allow" displayed="false"
+                    resource-id="com.android.permissioncontroller:id/permission_deny_button"/>
+              </android.widget.FrameLayout>
+            </hierarchy>
+            """;
+
+    @Test
+    public void evaluatesLocatorsAgainstOneSource() {
+        PageSnapshot snapshot = PageSnapshot.parse(ANDROID_SOURCE, "android");
+
+        Assert.assertEquals(snapshot.find(AppiumBy.id(
+                "com.android.permissioncontroller:id/permission_allow_foreground_only_button")).orElseThrow().size(), 1);
+        Assert.assertTrue(snapshot.find(AppiumBy.id(
+                "com.android.permissioncontroller:id/permission_allow_button")).orElseThrow().isEmpty());
+        Assert.assertEquals(snapshot.find(AppiumBy.accessibilityId("While using")).orElseThrow().get(0).text(),
+                "While using the app");
+        Assert.assertEquals(snapshot.find(By.className("android.widget.Button")).orElseThrow().size(), 2);
+
+        List<PageSnapshot.SnapshotElement> allow = snapshot.find(AppiumBy.xpath(
+                "//*[contains(@text,'Allow all the time')] | //android.widget.Button[contains(@text, \"Don't\")]"))
+                .orElseThrow();
+        Assert.assertEquals(allow.size(), 1);
+        Assert.assertFalse(allow.get(0).isDisplayed());
+        Assert.assertEquals(allow.get(0).type(), "android.widget.Button");
+    }
+
+    @Test
+    public void leavesStrategiesItCannotEvaluateToTheServer() {
+        PageSnapshot snapshot = PageSnapshot.parse(ANDROID_SOURCE, "android");
+
+        Assert.assertTrue(snapshot.find(AppiumBy.androidUIAutomator("new UiSelector().text(\"Allow\")")).isEmpty());
+        Assert.assertTrue(snapshot.find(By.cssSelector("#permission_message")).isEmpty());
+        Assert.assertTrue(snapshot.find(AppiumBy.xpath("//*[")).isEmpty(), "invalid XPath");
+        Assert.assertEquals(PageSnapshot.toXPath(AppiumBy.id("Add"), "ios").orElseThrow(), "//*[@name='Add']");
+        Assert.assertThrows(IllegalArgumentException.class, () -> PageSnapshot.parse("<hierarchy>", "android"));
+    }
+
+    @Test
+    public void readsElementBounds() {
+        PageSnapshot android = PageSnapshot.parse(
+                "<hierarchy><android.widget.Button resource-id='ok' bounds='[100,1400][980,1520]'/></hierarchy>", "android");
+        Assert.assertEquals(android.find(AppiumBy.id("ok")).orElseThrow().get(0).bounds(),
+                Optional.of(new Rectangle(100, 1400, 120, 880)));
+
+        PageSnapshot ios = PageSnapshot.parse("<XCUIElementTypeApplication><XCUIElementTypeButton name='Add' "
+                + "x='390' y='920' width='300' height='120'/></XCUIElementTypeApplication>", "ios");
+        Assert.assertEquals(ios.find(AppiumBy.accessibilityId("Add")).orElseThrow().get(0).bounds(),
+                Optional.of(new Rectangle(390, 920, 120, 300)));
+    }
+}
@@ -0,0 +1,172 @@
+package com.poc.geofence.utils;
+
+import com.poc.geofence.fake.FakeAppiumServer;
+import io.appium.java_client.AppiumDriver;
+import io.appium.java_client.android.AndroidDriver;
+import io.appium.java_client.android.options.UiAutomator2Options;
+import org.openqa.selenium.By;
+import org.openqa.selenium.ImmutableCapabilities;
+import org.openqa.selenium.WebDriverException;
+import org.testng.Assert;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.net.URI;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+/**
+ * Unit tests for GeofenceTestHelper tier fallback, receipt confirmation and per-device memory.
+ */
+public class GeofenceTestHelperTest {
+
+    @BeforeClass
+    public void shortenReceiptWait() {
+        System.setProperty("trigger.receipt.timeout.ms", "200");
+    }
+
+    @AfterClass(alwaysRun = true)
+    public void restoreReceiptWait() {
+        System.clearProperty("trigger.receipt.timeout.ms");
+    }
+
+    @BeforeMethod
+    public void setUp() {
+        GeofenceTestHelper.forgetPreferredTiers();
+    }
+
+    @Test
+    public void fallsBackPastTiersThatThrowAndRemembersTheOneThatSent() {
+        // This device rejects warm deep links; a VIEW intent posts the notification
+        List<Map<String, Object>> notifications = new ArrayList<>();
+        AppiumDriver driver = device("pixel-7", command -> {
+            if (command.equals("mobile: deepLink")) {
+                throw new WebDriverException("Unknown mobile command");
+            }
+            if (command.equals("mobile: startActivity")) {
+                notifications.add(Map.of("notification", Map.of("text", "Test: GEOFENCE_TRANSITION_EXIT")));
+            }
+        }, notifications);
+
+        Assert.assertTrue(GeofenceTestHelper.triggerExitEvent(driver));
+        Assert.assertEquals(GeofenceTestHelper.preferredTier(driver), GeofenceTestHelper.TriggerTier.INTENT);
+        verify(driver, never()).executeScript(eq("mobile: terminateApp"), any(Map.class));
+
+        // Next trigger goes straight to the intent
+        AppiumDriver sameDevice = device("pixel-7", command -> {
+            if (command.equals("mobile: startActivity")) {
+                notifications.add(Map.of("notification", Map.of("text", "Test: GEOFENCE_TRANSITION_EXIT")));
+            }
+        }, notifications);
+        Assert.assertTrue(GeofenceTestHelper.triggerExitEvent(sameDevice));
+        verify(sameDevice, never()).executeScript(eq("mobile: deepLink"), any(Map.class));
+    }
+
+    @Test
+    public void fallsBackPastTiersTheRunningAppSilentlyDrops() throws Exception {
+        // The running app ignores new intents; only a cold start reads the deep link
+        try (FakeAppiumServer server = FakeAppiumServer.builder().withEventDelay(Duration.ofMillis(50))
+                .withLocationTransitions(false).withWarmIntentsIgnored(true).build().start()) {
+            AndroidDriver driver = new AndroidDriver(URI.create(server.getUrl()).toURL(),
+                    new UiAutomator2Options().setDeviceName("Fake Pixel").setUdid("fake-pixel"));
+            try {
+                Assert.assertTrue(GeofenceTestHelper.triggerExitEvent(driver));
+
+                Map<String, Long> commands = server.commandCounts();
+                Assert.assertEquals(commands.get("mobile: deepLink"), 2L, "warm link, then the relaunch's link");
+                Assert.assertEquals(commands.get("mobile: startActivity"), 1L);
+                Assert.assertEquals(commands.get("mobile: terminateApp"), 1L);
+                Assert.assertEquals(GeofenceTestHelper.preferredTier(driver),
+                        GeofenceTestHelper.TriggerTier.COLD_RELAUNCH);
+            } finally {
+                driver.quit();
+            }
+        }
+    }
+
+    @Test
+    public void sendsOnceWhenReceiptCannotBeRead() {
+        // Neither the status text nor notifications can be read; a second tier could deliver EXIT twice
+        AppiumDriver driver = device("pixel-6", command -> {
+        }, null);
+
+        Assert.assertTrue(GeofenceTestHelper.triggerExitEvent(driver));
+        Assert.assertTrue(GeofenceTestHelper.triggerExitEvent(driver));
+
+        verify(driver, times(2)).executeScript(eq("mobile: deepLink"), any(Map.class));
+        verify(driver, never()).executeScript(eq("mobile: startActivity"), any(Map.class));
+        verify(driver, never()).executeScript(eq("mobile: terminateApp"), any(Map.class));
+        verify(driver, never()).get(anyString());
+        Assert.assertEquals(GeofenceTestHelper.preferredTier(driver), GeofenceTestHelper.TriggerTier.WARM_DEEP_LINK);
+    }
+
+    @Test
+    public void deliversAWholeSequenceWithOneDeepLink() {
+        TransitionSequence sequence = TransitionSequence.builder()
+                .at(Duration.ZERO, GeofenceTestHelper.GEOFENCE_EXIT)
+                .at(Duration.ofSeconds(5), GeofenceTestHelper.GEOFENCE_ENTER)
+                .build();
+        List<Map<String, Object>> notifications = new ArrayList<>();
+        AppiumDriver driver = device("pixel-8", command -> {
+            if (command.equals("mobile: deepLink")) {
+                notifications.add(Map.of("text", "Test: GEOFENCE_TRANSITION_EXIT [" + sequence.id() + "#0]"));
+            }
+        }, notifications);
+
+        TransitionSequence.Handle handle = GeofenceTestHelper.triggerSequence(driver, sequence).orElseThrow();
+
+        verify(driver).executeScript("mobile: deepLink", Map.of("url",
+                "geofence://test/trigger?" + sequence.toQuery(), "package", "com.eebax.geofencing"));
+        Assert.assertEquals(handle.scheduled().get(1).dueAt(), handle.launchedAt().plusSeconds(5));
+    }
+
+    @Test
+    public void failsWhenEveryTierThrows() {
+        AppiumDriver driver = device("galaxy-s23", command -> {
+            throw new WebDriverException("unsupported " + command);
+        }, List.of());
+        doThrow(new WebDriverException("no browser")).when(driver).get(anyString());
+
+        Assert.assertFalse(GeofenceTestHelper.triggerEnterEvent(driver));
+        Assert.assertNull(GeofenceTestHelper.preferredTier(driver));
+    }
+
+    /**
+     * @param notifications what getNotifications returns, or null if the device cannot read them
+     */
+    private static AppiumDriver device(String udid, Consumer<String> onTrigger,
+                                       List<Map<String, Object>> notifications) {
+        AppiumDriver driver = mock(AppiumDriver.class, invocation -> {
+            if (!invocation.getMethod().getName().equals("executeScript")) {
+                return null;
+            }
+            String script = invocation.getArgument(0);
+            if (script.equals("mobile: getNotifications")) {
+                if (notifications == null) {
+                    throw new WebDriverException("Notification listener not permitted");
+                }
+                return Map.of("statusBarNotifications", new ArrayList<>(notifications));
+            }
+            onTrigger.accept(script);
+            return null;
+        });
+        doReturn(new ImmutableCapabilities("udid", udid)).when(driver).getCapabilities();
+        doReturn(List.of()).when(driver).findElements(any(By.class));
+        return driver;
+    }
+}
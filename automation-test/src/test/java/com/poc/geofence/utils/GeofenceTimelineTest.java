@@ -0,0 +1,77 @@
+package com.poc.geofence.utils;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.poc.geofence.metrics.CommandMetrics;
+import io.appium.java_client.AppiumDriver;
+import org.openqa.selenium.ImmutableCapabilities;
+import org.testng.Assert;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.Test;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Unit tests for GeofenceTimeline latency attribution and history.
+ */
+public class GeofenceTimelineTest {
+
+    @AfterMethod(alwaysRun = true)
+    public void tearDown() {
+        CommandMetrics.getInstance().endTest();
+    }
+
+    @Test
+    public void attributesDetectionsToTheLatestStimulusOncePerSource() {
+        GeofenceTimeline timeline = new GeofenceTimeline();
+        AppiumDriver driver = device("pixel-7");
+        CommandMetrics.getInstance().startTest("GeofenceTimelineTest.journey");
+
+        timeline.stimulus(driver, "trigger", "EXIT", Instant.now().minusMillis(1500));
+        Duration receipt = timeline.detection(driver, "trigger-receipt", "Test: GEOFENCE_TRANSITION_EXIT");
+        Duration status = timeline.detection(driver, "status", "Test: GEOFENCE_TRANSITION_EXIT");
+        Assert.assertNull(timeline.detection(driver, "status", "Test: GEOFENCE_TRANSITION_EXIT"), "already reported");
+        timeline.stimulus(driver, "location", "50.7333, 7.1032");
+        Assert.assertNotNull(timeline.detection(driver, "status", "Test: GEOFENCE_TRANSITION_ENTER"));
+
+        Assert.assertTrue(receipt.toMillis() >= 1500 && status.compareTo(receipt) >= 0);
+        Map<String, List<Long>> latencies = timeline.latencies();
+        Assert.assertEquals(latencies.keySet(), Set.of("android|pixel-7|trigger->trigger-receipt",
+                "android|pixel-7|trigger->status", "android|pixel-7|location->status"));
+        Assert.assertEquals(timeline.forTest("GeofenceTimelineTest.journey").size(), 6);
+    }
+
+    @Test
+    public void keepsRollingHistoryOfRecentRuns() throws Exception {
+        Path file = Files.createTempDirectory("timeline").resolve("history.json");
+        AppiumDriver driver = device("iphone-15");
+        for (long latency : new long[] {4000, 1000, 2000}) {
+            GeofenceTimeline run = new GeofenceTimeline();
+            run.stimulus(driver, "location", "exit", Instant.now().minusMillis(latency));
+            run.detection(driver, "alert", "Exit from Home");
+            run.writeHistory(file, 2);
+        }
+
+        JsonNode history = new ObjectMapper().readTree(file.toFile());
+        Assert.assertEquals(history.get("runs").size(), 2);
+        JsonNode rolling = history.get("rolling").get("android|iphone-15|location->alert");
+        Assert.assertEquals(rolling.get("count").asInt(), 2);
+        Assert.assertTrue(rolling.get("max").asLong() < 4000, "oldest run should have rolled off");
+        Assert.assertTrue(new GeofenceTimeline().writeHistory(file, 2).isEmpty(), "empty runs are not written");
+    }
+
+    private static AppiumDriver device(String udid) {
+        AppiumDriver driver = mock(AppiumDriver.class);
+        when(driver.getCapabilities()).thenReturn(new ImmutableCapabilities("udid", udid));
+        return driver;
+    }
+}
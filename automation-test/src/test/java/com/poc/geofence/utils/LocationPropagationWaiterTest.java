@@ -0,0 +1,74 @@
+package com.poc.geofence.utils;
+
+import com.poc.geofence.metrics.CommandMetrics;
+import org.openqa.selenium.UnsupportedCommandException;
+import org.testng.Assert;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.Test;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Unit tests for LocationPropagationWaiter polling, backoff and fallback.
+ */
+public class LocationPropagationWaiterTest {
+    private static final GeoPoint OLD = new GeoPoint(50.7358, 7.1032);
+    private static final GeoPoint TARGET = new GeoPoint(50.7333, 7.1032);
+
+    private final LocationPropagationWaiter waiter = LocationPropagationWaiter.builder()
+            .withTimeout(Duration.ofMillis(400))
+            .withToleranceMeters(10)
+            .withPollIntervals(Duration.ofMillis(10), Duration.ofMillis(40))
+            .build();
+
+    @AfterMethod(alwaysRun = true)
+    public void tearDown() {
+        CommandMetrics.getInstance().endTest();
+    }
+
+    @Test
+    public void returnsAsSoonAsTheDeviceReportsTheTarget() {
+        CommandMetrics.getInstance().startTest("LocationPropagationWaiterTest.confirmed");
+        AtomicInteger reads = new AtomicInteger();
+
+        LocationPropagationWaiter.Result result = waiter.await(
+                () -> reads.incrementAndGet() < 4 ? OLD : new GeoPoint(50.73331, 7.10321), "android", TARGET);
+
+        Assert.assertTrue(result.confirmed());
+        Assert.assertEquals(result.polls(), 4);
+        // 10 + 20 + 40ms of backoff, far below the timeout
+        Assert.assertTrue(result.elapsed().toMillis() < 300, "took " + result.elapsed());
+        Assert.assertTrue(CommandMetrics.getInstance().forTest("LocationPropagationWaiterTest.confirmed").stream()
+                .anyMatch(s -> s.command().equals(LocationPropagationWaiter.CONFIRMED)));
+    }
+
+    @Test
+    public void givesUpAtTheTimeoutWhenTheDeviceStaysElsewhere() {
+        AtomicInteger reads = new AtomicInteger();
+
+        LocationPropagationWaiter.Result result = waiter.await(() -> {
+            reads.incrementAndGet();
+            return OLD;
+        }, "android", TARGET);
+
+        Assert.assertFalse(result.confirmed());
+        Assert.assertTrue(result.elapsed().toMillis() >= 400, "took " + result.elapsed());
+        // Backoff caps at 40ms, so roughly 400 / 40 reads rather than 400 / 10
+        Assert.assertTrue(reads.get() < 20, "read " + reads.get() + " times");
+    }
+
+    @Test
+    public void waitsOutTheTimeoutWhenLocationIsNotReadable() {
+        AtomicInteger reads = new AtomicInteger();
+
+        LocationPropagationWaiter.Result result = waiter.await(() -> {
+            reads.incrementAndGet();
+            throw new UnsupportedCommandException("getLocation");
+        }, "android", TARGET);
+
+        Assert.assertFalse(result.confirmed());
+        Assert.assertEquals(reads.get(), 1);
+        Assert.assertTrue(result.elapsed().toMillis() >= 400, "took " + result.elapsed());
+    }
+}
@@ -0,0 +1,112 @@
+package com.poc.geofence.utils;
+
+import com.poc.geofence.driver.DriverManager;
+import io.appium.java_client.ios.IOSDriver;
+import org.openqa.selenium.remote.SessionId;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.mockito.ArgumentMatchers.anyMap;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.atLeastOnce;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Unit tests for RoutePlayer timing, pause/resume/seek and completion.
+ */
+public class RoutePlayerTest {
+    private static final Route ROUTE = Route.of(new GeoPoint(50.7333, 7.1032), new GeoPoint(50.7358, 7.1032));
+
+    @Test
+    public void playsToTheEndWithoutBlockingTheCaller() throws Exception {
+        List<GeoPoint> sent = new CopyOnWriteArrayList<>();
+
+        RoutePlayer player = RoutePlayer.builder(ROUTE)
+                .withSpeedMetersPerSecond(1000)
+                .withUpdateInterval(Duration.ofMillis(20))
+                .withSink(sent::add)
+                .build()
+                .start();
+        player.completion().get(5, TimeUnit.SECONDS);
+
+        Assert.assertTrue(sent.get(0).distanceTo(ROUTE.pointAt(0)) < 50, "first update should be near the start");
+        Assert.assertEquals(sent.get(sent.size() - 1), ROUTE.pointAt(ROUTE.lengthMeters()));
+        Assert.assertTrue(sent.size() >= 3, "expected intermediate updates, got " + sent.size());
+        Assert.assertEquals(player.updateCount(), sent.size());
+    }
+
+    @Test
+    public void playsThroughTheSessionsPlatformNotTheConfiguredOne() throws Exception {
+        // platform=android in config.properties; this thread's session is an iOS device
+        IOSDriver iphone = mock(IOSDriver.class);
+        when(iphone.getSessionId()).thenReturn(new SessionId("route-ios"));
+        DriverManager.setDriver(iphone);
+        try {
+            LocationSimulator.playRoute(ROUTE, 1000, Duration.ofMillis(20)).completion().get(5, TimeUnit.SECONDS);
+
+            verify(iphone, atLeastOnce()).executeScript(eq("mobile: setSimulatedLocation"), anyMap());
+        } finally {
+            DriverManager.quitDriver();
+        }
+    }
+
+    @Test
+    public void pauseFreezesAndSeekJumps() throws Exception {
+        AtomicLong now = new AtomicLong();
+        List<GeoPoint> sent = new CopyOnWriteArrayList<>();
+        RoutePlayer player = RoutePlayer.builder(ROUTE)
+                .withSpeedMetersPerSecond(10)
+                .withUpdateInterval(Duration.ofMillis(20))
+                .withSink(sent::add)
+                .withNanoTime(now::get)
+                .build()
+                .start();
+
+        now.addAndGet(TimeUnit.SECONDS.toNanos(5));
+        Assert.assertEquals(player.distanceMeters(), 50.0, 1e-9);
+        player.pause();
+        now.addAndGet(TimeUnit.SECONDS.toNanos(10));
+        Assert.assertEquals(player.distanceMeters(), 50.0, 1e-9, "paused route must not advance");
+
+        player.seek(200);
+        awaitLast(sent, ROUTE.pointAt(200));
+        Assert.assertTrue(player.isPaused());
+
+        player.resume();
+        now.addAndGet(TimeUnit.SECONDS.toNanos(60));
+        player.completion().get(5, TimeUnit.SECONDS);
+        Assert.assertEquals(sent.get(sent.size() - 1), ROUTE.pointAt(ROUTE.lengthMeters()));
+    }
+
+    @Test
+    public void failedUpdateStopsPlayback() {
+        RoutePlayer player = RoutePlayer.builder(ROUTE)
+                .withSink(point -> {
+                    throw new IllegalStateException("session gone");
+                })
+                .build()
+                .start();
+
+        Assert.assertThrows(Exception.class, () -> player.completion().get(5, TimeUnit.SECONDS));
+        Assert.assertTrue(player.completion().isCompletedExceptionally());
+    }
+
+    private static void awaitLast(List<GeoPoint> sent, GeoPoint expected) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (sent.isEmpty() || !sent.get(sent.size() - 1).equals(expected)) {
+            if (System.nanoTime() > deadline) {
+                Assert.fail("Expected " + expected + " to be sent, last was " + sent);
+            }
+            Thread.sleep(10);
+        }
+    }
+}
@@ -0,0 +1,58 @@
+package com.poc.geofence.utils;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+/**
+ * Unit tests for Route parsing and interpolation.
+ */
+public class RouteTest {
+    private static final GeoPoint CENTER = new GeoPoint(50.7333, 7.1032);
+    private static final GeoPoint EXIT = new GeoPoint(50.7358, 7.1032);
+
+    @Test
+    public void interpolatesAlongTheGround() {
+        Route route = Route.of(CENTER, EXIT);
+
+        Assert.assertEquals(route.lengthMeters(), 278.0, 1.0);
+        GeoPoint middle = route.pointAt(route.lengthMeters() / 2);
+        Assert.assertEquals(middle.latitude(), 50.73455, 1e-6);
+        Assert.assertEquals(CENTER.distanceTo(middle), route.lengthMeters() / 2, 0.01);
+        Assert.assertEquals(route.pointAt(-5), CENTER);
+        Assert.assertEquals(route.pointAt(10_000), EXIT);
+    }
+
+    @Test
+    public void parsesGpxTrackPoints() {
+        String gpx = """
+                <gpx version="1.1" xmlns="http://www.topografix.com/GPX/1/1">
+                  <wpt lat="1" lon="1"/>
+                  <trk><trkseg>
+                    <trkpt lat="50.7333" lon="7.1032"><ele>60</ele></trkpt>
+                    <trkpt lat="50.7358" lon="7.1032"/>
+                  </trkseg></trk>
+                </gpx>""";
+
+        Route route = Route.fromGpx(new ByteArrayInputStream(gpx.getBytes(StandardCharsets.UTF_8)));
+
+        Assert.assertEquals(route.waypoints(), List.of(CENTER, EXIT));
+        Assert.assertEquals(Route.fromResource("routes/bonn-exit-north.gpx").waypoints().size(), 4);
+    }
+
+    @Test
+    public void parsesGeoJsonLineStringInFeatureCollection() {
+        String geoJson = """
+                {"type":"FeatureCollection","features":[
+                  {"type":"Feature","geometry":{"type":"Point","coordinates":[7.0,50.0]}},
+                  {"type":"Feature","geometry":{"type":"LineString",
+                    "coordinates":[[7.1032,50.7333,60.0],[7.1032,50.7358]]}}]}""";
+
+        Assert.assertEquals(Route.fromGeoJson(geoJson).waypoints(), List.of(CENTER, EXIT));
+        Assert.assertThrows(IllegalArgumentException.class,
+                () -> Route.fromGeoJson("{\"type\":\"Point\",\"coordinates\":[7.0,50.0]}"));
+    }
+}
@@ -0,0 +1,60 @@
+package com.poc.geofence.utils;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+
+/**
+ * Unit tests for TransitionSequence encoding and event matching.
+ */
+public class TransitionSequenceTest {
+    private static final Instant LAUNCH = Instant.parse("2026-01-01T10:00:00Z");
+
+    private final TransitionSequence sequence = TransitionSequence.builder()
+            .at(Duration.ofSeconds(30), GeofenceTestHelper.GEOFENCE_DWELL)
+            .at(Duration.ZERO, GeofenceTestHelper.GEOFENCE_EXIT)
+            .at(Duration.ofSeconds(5), GeofenceTestHelper.GEOFENCE_ENTER)
+            .at(Duration.ofSeconds(10), GeofenceTestHelper.GEOFENCE_EXIT)
+            .build();
+
+    @Test
+    public void encodesStepsInOffsetOrder() {
+        Assert.assertEquals(sequence.toQuery(), "transition=2&sequence=2@0,1@5000,2@10000,4@30000&sequenceId="
+                + sequence.id());
+        Assert.assertThrows(IllegalArgumentException.class,
+                () -> TransitionSequence.builder().at(Duration.ZERO, 3));
+        Assert.assertThrows(IllegalStateException.class, () -> TransitionSequence.builder().build());
+    }
+
+    @Test
+    public void matchesTaggedEventsToTheirStep() {
+        TransitionSequence.Handle handle = sequence.launched(LAUNCH);
+        String id = sequence.id();
+
+        Assert.assertEquals(handle.match("Test: GEOFENCE_TRANSITION_EXIT [" + id + "#2]", LAUNCH).orElseThrow().step(), 2);
+        Assert.assertTrue(handle.match("Test: GEOFENCE_TRANSITION_EXIT [" + id + "#2]", LAUNCH).isEmpty(),
+                "a step matches once");
+        Assert.assertTrue(handle.match("Test: GEOFENCE_TRANSITION_EXIT [other#0]", LAUNCH).isPresent(),
+                "foreign tag falls back to timing");
+        Assert.assertEquals(handle.scheduled().get(3).dueAt(), LAUNCH.plusSeconds(30));
+    }
+
+    @Test
+    public void matchesUntaggedEventsByDueTime() {
+        TransitionSequence.Handle handle = sequence.launched(LAUNCH);
+
+        List<Integer> steps = List.of(
+                handle.match("Test: GEOFENCE_TRANSITION_EXIT", LAUNCH.plusSeconds(1)).orElseThrow().step(),
+                handle.match("Test: GEOFENCE_TRANSITION_ENTER", LAUNCH.plusSeconds(6)).orElseThrow().step(),
+                handle.match("Test: GEOFENCE_TRANSITION_EXIT", LAUNCH.plusSeconds(11)).orElseThrow().step());
+
+        Assert.assertEquals(steps, List.of(0, 1, 2));
+        Assert.assertFalse(handle.allObserved());
+        Assert.assertTrue(handle.match("Test: GEOFENCE_TRANSITION_DWELL", LAUNCH.plusSeconds(31)).isPresent());
+        Assert.assertTrue(handle.allObserved());
+        Assert.assertTrue(handle.match("unrelated toast", LAUNCH).isEmpty());
+    }
+}
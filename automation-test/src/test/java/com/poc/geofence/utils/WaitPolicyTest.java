@@ -0,0 +1,87 @@
+package com.poc.geofence.utils;
+
+import com.poc.geofence.metrics.WaitMetrics;
+import org.openqa.selenium.NoSuchElementException;
+import org.openqa.selenium.TimeoutException;
+import org.testng.Assert;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.Test;
+
+import java.time.Duration;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Unit tests for WaitPolicy backoff, deadlines and wait metrics.
+ */
+public class WaitPolicyTest {
+    private final WaitPolicy policy = WaitPolicy.builder("test")
+            .withPollIntervals(Duration.ofMillis(10), Duration.ofMillis(40))
+            .withMultiplier(2)
+            .withJitter(0)
+            .withTimeout(Duration.ofMillis(400))
+            .build();
+
+    @AfterClass(alwaysRun = true)
+    public void tearDown() {
+        WaitMetrics.getInstance().reset();
+        System.clearProperty("wait.policy.test-named.initial.ms");
+    }
+
+    @Test
+    public void checksAtOnceThenBacksOffAndRecordsSlack() {
+        AtomicInteger checks = new AtomicInteger();
+
+        // Misses (including a not-found) at 0, 10, 30ms; hit at 70ms
+        Optional<String> value = policy.await("backoff", () -> {
+            int n = checks.incrementAndGet();
+            if (n == 2) {
+                throw new NoSuchElementException("not yet");
+            }
+            return n < 4 ? null : "found";
+        });
+
+        Assert.assertEquals(value, Optional.of("found"));
+        WaitMetrics.WaitStats stats = stats("backoff");
+        Assert.assertEquals(stats.count(), 1);
+        Assert.assertEquals(stats.pollsPerWait(), 4.0);
+        Assert.assertTrue(stats.waited().maxMicros() < 300_000, "waited " + stats.waited().maxMicros() + "us");
+        // Found one 40ms interval after the last miss
+        Assert.assertTrue(stats.slack().maxMicros() >= 35_000 && stats.slack().maxMicros() < 200_000,
+                "slack " + stats.slack().maxMicros() + "us");
+    }
+
+    @Test
+    public void stopsAtTheDeadlineAndCountsTimeouts() {
+        AtomicInteger checks = new AtomicInteger();
+
+        Assert.assertTrue(policy.await("never", Duration.ofMillis(200), () -> {
+            checks.incrementAndGet();
+            return false;
+        }).isEmpty());
+        Assert.assertThrows(TimeoutException.class, () -> policy.until("never", () -> null));
+
+        WaitMetrics.WaitStats stats = stats("never");
+        Assert.assertEquals(stats.timeouts(), 2);
+        Assert.assertTrue(stats.waited().maxMicros() >= 400_000, "waited " + stats.waited().maxMicros() + "us");
+        // Capped at 40ms: about 200 / 40 checks rather than 200 / 10
+        Assert.assertTrue(checks.get() <= 9, "checked " + checks.get() + " times");
+    }
+
+    @Test
+    public void namedPoliciesAreConfiguredOnceAndShared() {
+        System.setProperty("wait.policy.test-named.initial.ms", "50");
+
+        WaitPolicy named = WaitPolicy.named("test-named");
+
+        Assert.assertSame(WaitPolicy.named("test-named"), named);
+        Assert.assertEquals(named.timeout(), Duration.ofSeconds(30), "default.timeout");
+        Assert.assertThrows(IllegalArgumentException.class, () -> WaitPolicy.builder("bad").withJitter(1));
+    }
+
+    private static WaitMetrics.WaitStats stats(String condition) {
+        return WaitMetrics.getInstance().all().stream()
+                .filter(s -> s.policy().equals("test") && s.condition().equals(condition))
+                .findFirst().orElseThrow();
+    }
+}
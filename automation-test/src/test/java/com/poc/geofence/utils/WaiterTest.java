@@ -0,0 +1,68 @@
+package com.poc.geofence.utils;
+
+import com.poc.geofence.metrics.CommandMetrics;
+import com.poc.geofence.metrics.SleepBudget;
+import org.openqa.selenium.WebDriverException;
+import org.testng.Assert;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Unit tests for Waiter readiness waits and the sleep budget.
+ */
+public class WaiterTest {
+    private static final String TEST = "WaiterTest";
+
+    @BeforeMethod
+    public void tagTest() {
+        SleepBudget.getInstance().reset();
+        CommandMetrics.getInstance().startTest(TEST);
+    }
+
+    @AfterMethod(alwaysRun = true)
+    public void untagTest() {
+        CommandMetrics.getInstance().endTest();
+        SleepBudget.getInstance().reset();
+    }
+
+    @Test
+    public void returnsOnceReadyAndReportsTheSavedDelay() {
+        AtomicInteger checks = new AtomicInteger();
+
+        Assert.assertTrue(Waiter.until("ready", Duration.ofSeconds(5), () -> checks.incrementAndGet() >= 2));
+
+        SleepBudget.SiteStats stats = SleepBudget.getInstance().forTest(TEST).get(0);
+        Assert.assertEquals(stats.site(), "ready");
+        Assert.assertEquals(stats.waits(), 1);
+        Assert.assertEquals(stats.fallbacks(), 0);
+        Assert.assertEquals(stats.boundMillis(), 5000);
+        Assert.assertTrue(stats.savedMillis() > 4000, "saved " + stats.savedMillis() + "ms");
+    }
+
+    @Test
+    public void fallsBackToTheBoundAndTotalsSitesPerTest() {
+        Assert.assertFalse(Waiter.until("never", Duration.ofMillis(150), () -> {
+            throw new WebDriverException("session busy");
+        }));
+        WaitPolicy slow = WaitPolicy.builder("slow").withPollIntervals(Duration.ofMillis(40), Duration.ofMillis(40)).build();
+        AtomicInteger checks = new AtomicInteger();
+        Assert.assertTrue(Waiter.until("polled", slow, Duration.ofSeconds(5), () -> checks.incrementAndGet() >= 2));
+
+        List<SleepBudget.SiteStats> sites = SleepBudget.getInstance().forTest(TEST);
+        SleepBudget.SiteStats never = sites.stream().filter(s -> s.site().equals("never")).findFirst().orElseThrow();
+        Assert.assertEquals(never.fallbacks(), 1);
+        Assert.assertTrue(never.waitMillis() >= 150, "waited " + never.waitMillis() + "ms");
+        SleepBudget.SiteStats polled = sites.stream().filter(s -> s.site().equals("polled")).findFirst().orElseThrow();
+        Assert.assertEquals(polled.fallbacks(), 0);
+        Assert.assertTrue(polled.waitMillis() >= 30, "second check follows the policy's interval");
+
+        SleepBudget.SiteStats total = SleepBudget.getInstance().byTest().get(0);
+        Assert.assertEquals(total.site(), SleepBudget.ALL_SITES);
+        Assert.assertEquals(total.waitMillis(), polled.waitMillis() + never.waitMillis(), 1);
+    }
+}